@@ -7,8 +7,13 @@ import com.datastax.driver.extras.codecs.json.JacksonJsonCodec;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Predicates;
 import com.google.common.base.Splitter;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.Service;
+import com.google.common.util.concurrent.ServiceManager;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.metabroadcast.common.health.HealthProbe;
 import com.metabroadcast.common.ids.IdGeneratorBuilder;
 import com.metabroadcast.common.ids.SubstitutionTableNumberCodec;
@@ -20,6 +25,8 @@ import com.metabroadcast.common.properties.Configurer;
 import com.metabroadcast.common.properties.Parameter;
 import com.metabroadcast.common.queue.MessageSender;
 import com.metabroadcast.common.queue.MessageSenders;
+import com.metabroadcast.common.queue.Worker;
+import com.metabroadcast.common.queue.kafka.KafkaConsumer;
 import com.metabroadcast.common.time.SystemClock;
 import com.metabroadcast.sherlock.common.config.ElasticSearchConfig;
 import com.mongodb.MongoClient;
@@ -44,6 +51,7 @@ import org.atlasapi.event.EventResolver;
 import org.atlasapi.event.EventWriter;
 import org.atlasapi.hashing.HashGenerator;
 import org.atlasapi.hashing.content.ContentHashGenerator;
+import org.atlasapi.locks.GroupLock;
 import org.atlasapi.media.channel.CachingChannelGroupStore;
 import org.atlasapi.media.channel.CachingChannelStore;
 import org.atlasapi.media.channel.ChannelGroupStore;
@@ -52,6 +60,7 @@ import org.atlasapi.media.channel.MongoChannelStore;
 import org.atlasapi.media.channel.ServiceChannelStore;
 import org.atlasapi.media.segment.MongoSegmentResolver;
 import org.atlasapi.messaging.EquivalentContentUpdatedMessage;
+import org.atlasapi.messaging.JacksonMessageSerializer;
 import org.atlasapi.messaging.KafkaMessagingModule;
 import org.atlasapi.messaging.MessagingModule;
 import org.atlasapi.messaging.v3.ScheduleUpdateMessage;
@@ -80,8 +89,12 @@ import org.atlasapi.persistence.player.CachingPlayerResolver;
 import org.atlasapi.persistence.player.PlayerResolver;
 import org.atlasapi.persistence.service.CachingServiceResolver;
 import org.atlasapi.persistence.service.ServiceResolver;
+import org.atlasapi.query.v4.schedule.CachingEquivalentScheduleResolver;
+import org.atlasapi.query.v4.schedule.EquivalentContentCacheInvalidatingWorker;
 import org.atlasapi.query.v4.schedule.OutputChannelGroupResolver;
+import org.atlasapi.query.v4.schedule.ScheduleUpdateCacheInvalidatingWorker;
 import org.atlasapi.query.v4.search.PseudoEsEquivalentContentSearcher;
+import org.atlasapi.schedule.EquivalentScheduleResolver;
 import org.atlasapi.schedule.EquivalentScheduleStore;
 import org.atlasapi.schedule.ScheduleResolver;
 import org.atlasapi.schedule.ScheduleStore;
@@ -106,7 +119,12 @@ import org.atlasapi.system.legacy.LegacyTopicLister;
 import org.atlasapi.system.legacy.LegacyTopicResolver;
 import org.atlasapi.system.legacy.PaTagMap;
 import org.atlasapi.topic.TopicStore;
+import org.atlasapi.util.CachingSecondaryIndex;
 import org.atlasapi.util.CassandraSecondaryIndex;
+import org.atlasapi.util.GraphCacheInvalidatingWorker;
+import org.atlasapi.util.IndexCache;
+import org.atlasapi.util.IndexCacheInvalidatingWorker;
+import org.atlasapi.util.SecondaryIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
@@ -117,7 +135,9 @@ import org.springframework.context.annotation.Primary;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.Executors;
 
 @Configuration
 @Import({ KafkaMessagingModule.class })
@@ -168,8 +188,56 @@ public class AtlasPersistenceModule {
             .get("messaging.destination.equivalent.content.changes").get();
     private String equivalentContentGraphChanges = Configurer
             .get("messaging.destination.equivalent.content.graph.changes").get();
+    private String contentEquivalenceGraphChanges = Configurer
+            .get("messaging.destination.equivalence.content.graph.changes").get();
+
+    private final String localHostName = Configurer.get("local.host.name").get();
+
+    private final int equivalentContentReadBatchSize = Configurer.get(
+            "cassandra.equivalent.content.read.batch.size",
+            "0"
+    ).toInt();
+    private final int equivalentContentMaxInFlightReadBatches = Configurer.get(
+            "cassandra.equivalent.content.read.max.in.flight.batches",
+            "4"
+    ).toInt();
+    private final boolean compressBlobs = Configurer.get(
+            "cassandra.blob.compression.enabled",
+            "false"
+    ).toBoolean();
+    private final boolean equivalentContentCompactGraphs = Configurer.get(
+            "cassandra.equivalent.content.compact.graphs.enabled",
+            "false"
+    ).toBoolean();
+    private final GroupLock.Type lockType = GroupLock.Type.fromKey(Configurer.get(
+            "cassandra.lock.type",
+            "natural"
+    ).get());
+
+    private String scheduleChanges = Configurer.get("messaging.destination.schedule.changes")
+            .get();
+    private final boolean scheduleCacheEnabled = Configurer.get(
+            "schedule.cache.enabled",
+            "false"
+    ).toBoolean();
+    private final int scheduleCacheMaxChannelDays = Configurer.get(
+            "schedule.cache.max.channel.days",
+            "10000"
+    ).toInt();
+    private final int scheduleCacheMaxStalenessSeconds = Configurer.get(
+            "schedule.cache.max.staleness.seconds",
+            "300"
+    ).toInt();
+    private final int scheduleCacheInvalidationReplaySeconds = Configurer.get(
+            "schedule.cache.invalidation.replay.seconds",
+            "30"
+    ).toInt();
+
+    private final Supplier<Optional<CachingEquivalentScheduleResolver>> equivalentScheduleCache =
+            Suppliers.memoize(this::createEquivalentScheduleCache);
 
     private @Autowired MessagingModule messaging;
+    private @Autowired KafkaMessagingModule kafkaMessaging;
     private @Autowired MetricsModule metricsModule;
 
     @PostConstruct
@@ -179,10 +247,15 @@ public class AtlasPersistenceModule {
         // This is required to initialise the BackgroundComputingValue in the CachingChannelStore
         // otherwise we will get NPEs
         channelStore().start();
+
+        indexCacheInvalidationConsumers().startAsync().awaitHealthy();
+        scheduleCacheInvalidationConsumers().startAsync().awaitHealthy();
     }
 
     @PreDestroy
     public void tearDown() {
+        scheduleCacheInvalidationConsumers().stopAsync().awaitStopped();
+        indexCacheInvalidationConsumers().stopAsync().awaitStopped();
         channelStore().shutdown();
     }
 
@@ -300,47 +373,204 @@ public class AtlasPersistenceModule {
 
     @Bean
     public EquivalentContentStore getEquivalentContentStore() {
-        return new CassandraEquivalentContentStore(
-                persistenceModule().contentStore(),
-                legacyContentResolver(),
-                persistenceModule().contentEquivalenceGraphStore(),
-                persistenceModule().sender(
+        return equivalentContentStoreBuilder()
+                .withContentUpdatedMessageSender(persistenceModule().sender(
                         equivalentContentChanges,
                         EquivalentContentUpdatedMessage.class
-                ),
-                persistenceModule().sender(
+                ))
+                .withGraphUpdatedMessageSender(persistenceModule().sender(
                         equivalentContentGraphChanges,
                         EquivalenceGraphUpdateMessage.class
-                ),
-                persistenceModule().getSession(),
-                persistenceModule().getReadConsistencyLevel(),
-                persistenceModule().getWriteConsistencyLevel(),
-                metricsModule.metrics(),
-                STORE_METRIC_PREFIX + "CassandraEquivalentContentStore."
-        );
+                ))
+                .withMetricPrefix(STORE_METRIC_PREFIX + "CassandraEquivalentContentStore.")
+                .build();
     }
 
     @Bean
     public EquivalentContentStore nullMessageSendingEquivalentContentStore() {
-        return new CassandraEquivalentContentStore(
-                persistenceModule().contentStore(),
-                legacyContentResolver(),
-                persistenceModule().contentEquivalenceGraphStore(),
-                persistenceModule().nullMessageSender(EquivalentContentUpdatedMessage.class),
-                persistenceModule().nullMessageSender(EquivalenceGraphUpdateMessage.class),
+        return equivalentContentStoreBuilder()
+                .withContentUpdatedMessageSender(
+                        persistenceModule().nullMessageSender(EquivalentContentUpdatedMessage.class)
+                )
+                .withGraphUpdatedMessageSender(
+                        persistenceModule().nullMessageSender(EquivalenceGraphUpdateMessage.class)
+                )
+                .withMetricPrefix(
+                        STORE_METRIC_PREFIX + "nullMessageSendingCassandraEquivalentContentStore."
+                )
+                .build();
+    }
+
+    private CassandraEquivalentContentStore.Builder equivalentContentStoreBuilder() {
+        return CassandraEquivalentContentStore.builder()
+                .withContentResolver(persistenceModule().contentStore())
+                .withLegacyContentResolver(legacyContentResolver())
+                .withGraphStore(persistenceModule().contentEquivalenceGraphStore())
+                .withSession(persistenceModule().getSession())
+                .withReadConsistency(persistenceModule().getReadConsistencyLevel())
+                .withWriteConsistency(persistenceModule().getWriteConsistencyLevel())
+                .withIndex(equivalentContentIndex())
+                .withCompressedData(compressBlobs)
+                .withReadBatchSize(equivalentContentReadBatchSize)
+                .withMaxInFlightReadBatches(equivalentContentMaxInFlightReadBatches)
+                .withLockType(lockType)
+                .withCompactGraphs(equivalentContentCompactGraphs)
+                .withMetricRegistry(metricsModule.metrics());
+    }
+
+    private SecondaryIndex equivalentContentIndex() {
+        SecondaryIndex index = new CassandraSecondaryIndex(
                 persistenceModule().getSession(),
-                persistenceModule().getReadConsistencyLevel(),
-                persistenceModule().getWriteConsistencyLevel(),
-                metricsModule.metrics(),
-                STORE_METRIC_PREFIX + "nullMessageSendingCassandraEquivalentContentStore."
+                CassandraEquivalentContentStore.EQUIVALENT_CONTENT_INDEX,
+                persistenceModule().getReadConsistencyLevel()
+        );
+        return persistenceModule().equivalentContentIndexCache()
+                .<SecondaryIndex>map(cache -> CachingSecondaryIndex.create(index, cache))
+                .orElse(index);
+    }
+
+    /**
+     * Index and graph caches are local to each node, so every node consumes the graph change
+     * streams in its own consumer group to see changes made anywhere.
+     */
+    @Bean
+    public ServiceManager indexCacheInvalidationConsumers() {
+        ImmutableList.Builder<Service> consumers = ImmutableList.builder();
+
+        persistenceModule().equivalenceGraphIndexCache()
+                .ifPresent(cache -> consumers.add(indexCacheInvalidationConsumer(
+                        cache,
+                        contentEquivalenceGraphChanges,
+                        "EquivalenceGraphIndexCacheInvalidation"
+                )));
+        persistenceModule().equivalentContentIndexCache()
+                .ifPresent(cache -> consumers.add(indexCacheInvalidationConsumer(
+                        cache,
+                        equivalentContentGraphChanges,
+                        "EquivalentContentIndexCacheInvalidation"
+                )));
+        persistenceModule().contentPartitionKeyCache()
+                .ifPresent(cache -> consumers.add(indexCacheInvalidationConsumer(
+                        cache,
+                        contentEquivalenceGraphChanges,
+                        "ContentPartitionKeyCacheInvalidation"
+                )));
+        persistenceModule().equivalenceGraphCache()
+                .ifPresent(cache -> consumers.add(cacheInvalidationConsumer(
+                        GraphCacheInvalidatingWorker.create(cache),
+                        contentEquivalenceGraphChanges,
+                        "EquivalenceGraphCacheInvalidation"
+                )));
+
+        return new ServiceManager(consumers.build());
+    }
+
+    private KafkaConsumer indexCacheInvalidationConsumer(
+            IndexCache cache,
+            String topic,
+            String workerName
+    ) {
+        return cacheInvalidationConsumer(
+                IndexCacheInvalidatingWorker.create(cache),
+                topic,
+                workerName
         );
     }
 
+    private KafkaConsumer cacheInvalidationConsumer(
+            Worker<EquivalenceGraphUpdateMessage> worker,
+            String topic,
+            String workerName
+    ) {
+        return kafkaMessaging.messageConsumerFactory()
+                .createConsumer(
+                        worker,
+                        JacksonMessageSerializer.forType(EquivalenceGraphUpdateMessage.class),
+                        topic,
+                        workerName + "-" + localHostName
+                )
+                .withDefaultConsumers(1)
+                .withMaxConsumers(1)
+                .withMetricRegistry(metricsModule.metrics())
+                .build();
+    }
+
     @Bean
     public EquivalentScheduleStore getEquivalentScheduleStore() {
         return persistenceModule().equivalentScheduleStore();
     }
 
+    /**
+     * The equivalent schedule store for queries, behind a cache of resolved channel days if
+     * {@code schedule.cache.enabled} is set.
+     */
+    @Bean
+    public EquivalentScheduleResolver equivalentScheduleResolver() {
+        return equivalentScheduleCache.get()
+                .<EquivalentScheduleResolver>map(cache -> cache)
+                .orElse(getEquivalentScheduleStore());
+    }
+
+    private Optional<CachingEquivalentScheduleResolver> createEquivalentScheduleCache() {
+        if (!scheduleCacheEnabled) {
+            return Optional.empty();
+        }
+        return Optional.of(CachingEquivalentScheduleResolver.builder()
+                .withDelegate(getEquivalentScheduleStore())
+                .withMaximumSize(scheduleCacheMaxChannelDays)
+                .withMaxStalenessSeconds(scheduleCacheMaxStalenessSeconds)
+                .withInvalidationReplay(
+                        Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                                .setNameFormat("schedule-cache-invalidation-replay")
+                                .setDaemon(true)
+                                .build()),
+                        scheduleCacheInvalidationReplaySeconds
+                )
+                .withMetricRegistry(metricsModule.metrics())
+                .withMetricPrefix("schedule.cache.")
+                .build());
+    }
+
+    /**
+     * Like the index caches the schedule cache is local to each node, so every node consumes
+     * the schedule and equivalent content change streams in its own consumer group.
+     */
+    @Bean
+    public ServiceManager scheduleCacheInvalidationConsumers() {
+        ImmutableList.Builder<Service> consumers = ImmutableList.builder();
+
+        equivalentScheduleCache.get().ifPresent(cache -> {
+            consumers.add(kafkaMessaging.messageConsumerFactory()
+                    .createConsumer(
+                            ScheduleUpdateCacheInvalidatingWorker.create(cache),
+                            JacksonMessageSerializer.forType(
+                                    org.atlasapi.schedule.ScheduleUpdateMessage.class
+                            ),
+                            scheduleChanges,
+                            "ScheduleCacheScheduleInvalidation-" + localHostName
+                    )
+                    .withDefaultConsumers(1)
+                    .withMaxConsumers(1)
+                    .withMetricRegistry(metricsModule.metrics())
+                    .build());
+            consumers.add(kafkaMessaging.messageConsumerFactory()
+                    .createConsumer(
+                            EquivalentContentCacheInvalidatingWorker.create(cache),
+                            JacksonMessageSerializer.forType(
+                                    EquivalentContentUpdatedMessage.class
+                            ),
+                            equivalentContentChanges,
+                            "ScheduleCacheContentInvalidation-" + localHostName
+                    )
+                    .withDefaultConsumers(1)
+                    .withMaxConsumers(1)
+                    .withMetricRegistry(metricsModule.metrics())
+                    .build());
+        });
+
+        return new ServiceManager(consumers.build());
+    }
+
     @Bean
     public SherlockSearchModule sherlockSearchModule() {
         return new SherlockSearchModule(
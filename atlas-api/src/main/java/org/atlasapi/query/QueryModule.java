@@ -123,7 +123,7 @@ public class QueryModule {
     @Bean
     ScheduleQueryExecutor equivalentScheduleStoreScheduleQueryExecutor() {
         return new EquivalentScheduleQueryExecutor(persistenceModule.channelResolver(),
-                persistenceModule.getEquivalentScheduleStore(),
+                persistenceModule.equivalentScheduleResolver(),
                 equivalentsMerger(),
                 FlexibleBroadcastMatcher.exactStartEnd()
         );
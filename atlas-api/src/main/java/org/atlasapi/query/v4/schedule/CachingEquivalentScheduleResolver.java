@@ -0,0 +1,623 @@
+package org.atlasapi.query.v4.schedule;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.atlasapi.channel.Channel;
+import org.atlasapi.content.Broadcast;
+import org.atlasapi.content.BroadcastRef;
+import org.atlasapi.content.BroadcastSerializer;
+import org.atlasapi.content.ContentSerializationVisitor;
+import org.atlasapi.content.ContentSerializer;
+import org.atlasapi.content.Item;
+import org.atlasapi.entity.Id;
+import org.atlasapi.equivalence.EquivalenceGraph;
+import org.atlasapi.equivalence.Equivalent;
+import org.atlasapi.media.entity.Publisher;
+import org.atlasapi.schedule.EquivalentChannelSchedule;
+import org.atlasapi.schedule.EquivalentSchedule;
+import org.atlasapi.schedule.EquivalentScheduleEntry;
+import org.atlasapi.schedule.EquivalentScheduleResolver;
+import org.atlasapi.schedule.ScheduleBroadcastFilter;
+import org.atlasapi.schedule.ScheduleUpdate;
+import org.atlasapi.serialization.protobuf.ContentProtos;
+
+import com.metabroadcast.common.stream.MoreCollectors;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Function;
+import com.google.common.base.MoreObjects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ListMultimap;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Duration;
+import org.joda.time.Interval;
+import org.joda.time.LocalDate;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An {@link EquivalentScheduleResolver} which caches resolved schedules by channel and day, so
+ * that the popular schedules, today and now/next on the main channels, are not resolved from the
+ * store on every request.
+ * <p>
+ * A cached day is invalidated by schedule updates for its channel and by equivalent content
+ * updates to any of its items. Those messages are consumed at the same time as the workers that
+ * write them to the equivalent schedule store, so an invalidation can land before the store has
+ * changed. Each invalidation is therefore repeated after a delay, and days are only cached if
+ * none of their content was invalidated while they were being resolved. Entries expire after a
+ * maximum staleness to bound the effect of changes that send neither message.
+ * <p>
+ * Schedules are served to callers which mutate their items, for instance when setting their
+ * equivalents, so the cache holds the serialized broadcasts and items of each entry and every
+ * request gets its own deserialized copies of them.
+ */
+public class CachingEquivalentScheduleResolver implements EquivalentScheduleResolver {
+
+    private static final Duration MAX_SCHEDULE_LENGTH = Duration.standardHours(24);
+    // Long enough to outlive any resolve started before an invalidation
+    private static final long RECENT_INVALIDATION_RETENTION_MINUTES = 5;
+
+    private static final ContentSerializer contentSerializer =
+            new ContentSerializer(new ContentSerializationVisitor());
+    private static final BroadcastSerializer broadcastSerializer = BroadcastSerializer.create();
+
+    private final EquivalentScheduleResolver delegate;
+    private final Cache<ChannelDayKey, ImmutableList<CachedEntry>> cache;
+    @Nullable private final ScheduledExecutorService invalidationReplayExecutor;
+    private final long invalidationReplayDelaySeconds;
+
+    private final ConcurrentMap<ScheduleDay, Set<ChannelDayKey>> keysByScheduleDay =
+            new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Set<ChannelDayKey>> keysByItem = new ConcurrentHashMap<>();
+
+    // Schedule days and item ids recently invalidated, to the invalidation sequence number
+    private final Cache<Object, Long> recentInvalidations;
+    private final AtomicLong invalidationSequence = new AtomicLong();
+
+    private final Meter hits;
+    private final Meter misses;
+    private final Meter evictions;
+    private final Meter invalidations;
+    private final Meter uncachedLoads;
+
+    private CachingEquivalentScheduleResolver(Builder builder) {
+        checkArgument(builder.maximumSize > 0, "maximum size must be positive");
+        checkArgument(builder.maxStalenessSeconds > 0, "max staleness must be positive");
+        checkArgument(
+                builder.invalidationReplayDelaySeconds == 0
+                        || builder.invalidationReplayExecutor != null,
+                "replaying invalidations needs an executor"
+        );
+
+        this.delegate = checkNotNull(builder.delegate);
+        this.invalidationReplayExecutor = builder.invalidationReplayExecutor;
+        this.invalidationReplayDelaySeconds = builder.invalidationReplayDelaySeconds;
+
+        MetricRegistry metricRegistry = checkNotNull(builder.metricRegistry);
+        String metricPrefix = checkNotNull(builder.metricPrefix);
+        this.hits = metricRegistry.meter(metricPrefix + "meter.hit");
+        this.misses = metricRegistry.meter(metricPrefix + "meter.miss");
+        this.evictions = metricRegistry.meter(metricPrefix + "meter.eviction");
+        this.invalidations = metricRegistry.meter(metricPrefix + "meter.invalidation");
+        this.uncachedLoads = metricRegistry.meter(metricPrefix + "meter.uncachedLoad");
+
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(builder.maximumSize)
+                .expireAfterWrite(builder.maxStalenessSeconds, TimeUnit.SECONDS)
+                .removalListener(
+                        (RemovalListener<ChannelDayKey, ImmutableList<CachedEntry>>)
+                                notification -> {
+                                    if (notification.wasEvicted()) {
+                                        evictions.mark();
+                                    }
+                                    unindex(notification.getKey(), notification.getValue());
+                                }
+                )
+                .build();
+        this.recentInvalidations = CacheBuilder.newBuilder()
+                .expireAfterWrite(RECENT_INVALIDATION_RETENTION_MINUTES, TimeUnit.MINUTES)
+                .build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public ListenableFuture<EquivalentSchedule> resolveSchedules(
+            Iterable<Channel> channels,
+            Interval interval,
+            Publisher source,
+            Set<Publisher> selectedSources
+    ) {
+        ImmutableList<Channel> channelList = ImmutableList.copyOf(channels);
+        ImmutableSet<Publisher> sources = ImmutableSet.copyOf(selectedSources);
+        ImmutableList<LocalDate> days = daysIn(interval);
+
+        Map<ChannelDayKey, ImmutableList<CachedEntry>> cached =
+                cache.getAllPresent(keysFor(channelList, days, source, sources));
+
+        ListMultimap<LocalDate, Channel> missing = ArrayListMultimap.create();
+        for (LocalDate day : days) {
+            for (Channel channel : channelList) {
+                if (!cached.containsKey(key(channel, day, source, sources))) {
+                    missing.put(day, channel);
+                }
+            }
+        }
+        hits.mark(cached.size());
+        misses.mark(missing.size());
+
+        ImmutableList<ListenableFuture<Map<ChannelDayKey, ImmutableList<EquivalentScheduleEntry>>>>
+                loads = missing.keySet()
+                .stream()
+                .map(day -> load(missing.get(day), day, source, sources))
+                .collect(MoreCollectors.toImmutableList());
+
+        return Futures.transform(
+                Futures.allAsList(loads),
+                (Function<List<Map<ChannelDayKey, ImmutableList<EquivalentScheduleEntry>>>,
+                        EquivalentSchedule>) loaded -> {
+                    ImmutableMap.Builder<ChannelDayKey, ImmutableList<EquivalentScheduleEntry>>
+                            resolved = ImmutableMap.builder();
+                    cached.forEach((key, hit) -> resolved.put(key, entries(hit, interval)));
+                    loaded.forEach(resolved::putAll);
+                    return assemble(channelList, days, interval, source, sources, resolved.build());
+                }
+        );
+    }
+
+    @Override
+    public ListenableFuture<EquivalentSchedule> resolveSchedules(
+            Iterable<Channel> channels,
+            DateTime start,
+            Integer count,
+            Publisher source,
+            Set<Publisher> selectedSources
+    ) {
+        Interval interval = new Interval(start, start.plus(MAX_SCHEDULE_LENGTH));
+        return Futures.transform(
+                resolveSchedules(channels, interval, source, selectedSources),
+                (Function<EquivalentSchedule, EquivalentSchedule>) input ->
+                        input.withLimitedBroadcasts(count)
+        );
+    }
+
+    /**
+     * Invalidates the days covered by the schedule and by its stale broadcasts.
+     */
+    public void invalidate(ScheduleUpdate update) {
+        ImmutableSet.Builder<Object> refs = ImmutableSet.builder();
+        Id channel = update.getSchedule().getChannel();
+        for (LocalDate day : daysIn(update.getSchedule().getInterval())) {
+            refs.add(new ScheduleDay(update.getSource(), channel, day));
+        }
+        for (BroadcastRef stale : update.getStaleBroadcasts()) {
+            for (LocalDate day : daysIn(stale.getTransmissionInterval())) {
+                refs.add(new ScheduleDay(update.getSource(), stale.getChannelId(), day));
+            }
+        }
+        invalidateAndReplay(refs.build());
+    }
+
+    /**
+     * Invalidates every day whose entries include any of the given items.
+     */
+    public void invalidateContent(Iterable<Id> itemIds) {
+        ImmutableSet.Builder<Object> refs = ImmutableSet.builder();
+        for (Id id : itemIds) {
+            refs.add(id.longValue());
+        }
+        invalidateAndReplay(refs.build());
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    private void invalidateAndReplay(ImmutableSet<Object> refs) {
+        invalidate(refs);
+        if (invalidationReplayDelaySeconds > 0) {
+            invalidationReplayExecutor.schedule(
+                    () -> invalidate(refs),
+                    invalidationReplayDelaySeconds,
+                    TimeUnit.SECONDS
+            );
+        }
+    }
+
+    private void invalidate(ImmutableSet<Object> refs) {
+        long sequence = invalidationSequence.incrementAndGet();
+        for (Object ref : refs) {
+            recentInvalidations.put(ref, sequence);
+            Set<ChannelDayKey> keys = ref instanceof ScheduleDay
+                                      ? keysByScheduleDay.get(ref)
+                                      : keysByItem.get(ref);
+            if (keys != null) {
+                cache.invalidateAll(ImmutableSet.copyOf(keys));
+            }
+        }
+        invalidations.mark();
+    }
+
+    private ListenableFuture<Map<ChannelDayKey, ImmutableList<EquivalentScheduleEntry>>> load(
+            List<Channel> channels,
+            LocalDate day,
+            Publisher source,
+            ImmutableSet<Publisher> sources
+    ) {
+        long readSequence = invalidationSequence.get();
+        Interval dayInterval = new Interval(
+                day.toDateTimeAtStartOfDay(DateTimeZone.UTC),
+                day.plusDays(1).toDateTimeAtStartOfDay(DateTimeZone.UTC)
+        );
+        return Futures.transform(
+                delegate.resolveSchedules(channels, dayInterval, source, sources),
+                (Function<EquivalentSchedule,
+                        Map<ChannelDayKey, ImmutableList<EquivalentScheduleEntry>>>) schedule -> {
+                    ImmutableMap.Builder<ChannelDayKey, ImmutableList<EquivalentScheduleEntry>>
+                            loaded = ImmutableMap.builder();
+                    for (EquivalentChannelSchedule channelSchedule : schedule.channelSchedules()) {
+                        ChannelDayKey key = key(channelSchedule.getChannel(), day, source, sources);
+                        loaded.put(key, channelSchedule.getEntries());
+                        put(key, cachedEntries(channelSchedule.getEntries()), readSequence);
+                    }
+                    return loaded.build();
+                }
+        );
+    }
+
+    private void put(ChannelDayKey key, ImmutableList<CachedEntry> entries, long readSequence) {
+        if (invalidatedSince(key, entries, readSequence)) {
+            uncachedLoads.mark();
+            return;
+        }
+        index(key, entries);
+        cache.put(key, entries);
+        // an invalidation may have landed whilst we were writing, in which case the entries we
+        // have just written could be stale
+        if (invalidatedSince(key, entries, readSequence)) {
+            cache.invalidate(key);
+        }
+    }
+
+    private boolean invalidatedSince(
+            ChannelDayKey key,
+            ImmutableList<CachedEntry> entries,
+            long readSequence
+    ) {
+        return invalidatedSince(key.getScheduleDay(), readSequence)
+                || itemIds(entries).stream().anyMatch(id -> invalidatedSince(id, readSequence));
+    }
+
+    private boolean invalidatedSince(Object ref, long readSequence) {
+        Long invalidatedAt = recentInvalidations.getIfPresent(ref);
+        return invalidatedAt != null && invalidatedAt > readSequence;
+    }
+
+    private void index(ChannelDayKey key, ImmutableList<CachedEntry> entries) {
+        keysByScheduleDay.computeIfAbsent(key.getScheduleDay(), k -> ConcurrentHashMap.newKeySet())
+                .add(key);
+        for (Long id : itemIds(entries)) {
+            keysByItem.computeIfAbsent(id, k -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+    }
+
+    // A key replaced or re-added since its removal keeps its index entries. Any left for items
+    // no longer in its entries only cause an unneeded invalidation.
+    private void unindex(ChannelDayKey key, ImmutableList<CachedEntry> entries) {
+        if (cache.asMap().containsKey(key)) {
+            return;
+        }
+        keysByScheduleDay.computeIfPresent(
+                key.getScheduleDay(),
+                (k, keys) -> keys.remove(key) && keys.isEmpty() ? null : keys
+        );
+        for (Long id : itemIds(entries)) {
+            keysByItem.computeIfPresent(
+                    id,
+                    (k, keys) -> keys.remove(key) && keys.isEmpty() ? null : keys
+            );
+        }
+    }
+
+    private ImmutableSet<Long> itemIds(ImmutableList<CachedEntry> entries) {
+        return entries.stream()
+                .flatMap(entry -> entry.getItemIds().stream())
+                .collect(MoreCollectors.toImmutableSet());
+    }
+
+    private ImmutableList<CachedEntry> cachedEntries(
+            ImmutableList<EquivalentScheduleEntry> entries
+    ) {
+        return entries.stream()
+                .map(CachedEntry::new)
+                .collect(MoreCollectors.toImmutableList());
+    }
+
+    // Only the entries within the interval are deserialized; the rest would be filtered out
+    private ImmutableList<EquivalentScheduleEntry> entries(
+            ImmutableList<CachedEntry> entries,
+            Interval interval
+    ) {
+        ScheduleBroadcastFilter broadcastFilter = ScheduleBroadcastFilter.valueOf(interval);
+        return entries.stream()
+                .filter(entry -> broadcastFilter.apply(entry.getTransmissionInterval()))
+                .map(CachedEntry::toEntry)
+                .collect(MoreCollectors.toImmutableList());
+    }
+
+    private EquivalentSchedule assemble(
+            List<Channel> channels,
+            List<LocalDate> days,
+            Interval interval,
+            Publisher source,
+            ImmutableSet<Publisher> sources,
+            Map<ChannelDayKey, ImmutableList<EquivalentScheduleEntry>> resolved
+    ) {
+        ScheduleBroadcastFilter broadcastFilter = ScheduleBroadcastFilter.valueOf(interval);
+        ImmutableList.Builder<EquivalentChannelSchedule> channelSchedules =
+                ImmutableList.builder();
+        for (Channel channel : channels) {
+            // broadcasts spanning midnight are in both days, hence the set
+            ImmutableSet<EquivalentScheduleEntry> entries = days.stream()
+                    .map(day -> resolved.get(key(channel, day, source, sources)))
+                    .filter(Objects::nonNull)
+                    .flatMap(List::stream)
+                    .filter(entry -> broadcastFilter.apply(
+                            entry.getBroadcast().getTransmissionInterval()
+                    ))
+                    .collect(MoreCollectors.toImmutableSet());
+            channelSchedules.add(new EquivalentChannelSchedule(channel, interval, entries));
+        }
+        return new EquivalentSchedule(channelSchedules.build(), interval);
+    }
+
+    private ImmutableSet<ChannelDayKey> keysFor(
+            List<Channel> channels,
+            List<LocalDate> days,
+            Publisher source,
+            ImmutableSet<Publisher> sources
+    ) {
+        ImmutableSet.Builder<ChannelDayKey> keys = ImmutableSet.builder();
+        for (Channel channel : channels) {
+            for (LocalDate day : days) {
+                keys.add(key(channel, day, source, sources));
+            }
+        }
+        return keys.build();
+    }
+
+    private ChannelDayKey key(
+            Channel channel,
+            LocalDate day,
+            Publisher source,
+            ImmutableSet<Publisher> sources
+    ) {
+        return new ChannelDayKey(new ScheduleDay(source, channel.getId(), day), sources);
+    }
+
+    // Schedules are stored in UTC days; an interval ending at midnight does not include the day
+    // which starts then unless it is empty
+    private static ImmutableList<LocalDate> daysIn(Interval interval) {
+        LocalDate day = interval.getStart().withZone(DateTimeZone.UTC).toLocalDate();
+        DateTime end = interval.getEnd().withZone(DateTimeZone.UTC);
+        LocalDate lastDay = end.getMillisOfDay() == 0 && interval.toDurationMillis() > 0
+                            ? end.toLocalDate().minusDays(1)
+                            : end.toLocalDate();
+
+        ImmutableList.Builder<LocalDate> days = ImmutableList.builder();
+        for (; !day.isAfter(lastDay); day = day.plusDays(1)) {
+            days.add(day);
+        }
+        return days.build();
+    }
+
+    private static final class ScheduleDay {
+
+        private final Publisher source;
+        private final Id channel;
+        private final LocalDate day;
+
+        private ScheduleDay(Publisher source, Id channel, LocalDate day) {
+            this.source = checkNotNull(source);
+            this.channel = checkNotNull(channel);
+            this.day = checkNotNull(day);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ScheduleDay that = (ScheduleDay) o;
+            return source == that.source
+                    && channel.equals(that.channel)
+                    && day.equals(that.day);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(source, channel, day);
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this)
+                    .add("source", source)
+                    .add("channel", channel)
+                    .add("day", day)
+                    .toString();
+        }
+    }
+
+    private static final class ChannelDayKey {
+
+        private final ScheduleDay scheduleDay;
+        private final ImmutableSet<Publisher> selectedSources;
+
+        private ChannelDayKey(ScheduleDay scheduleDay, ImmutableSet<Publisher> selectedSources) {
+            this.scheduleDay = scheduleDay;
+            this.selectedSources = selectedSources;
+        }
+
+        ScheduleDay getScheduleDay() {
+            return scheduleDay;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ChannelDayKey that = (ChannelDayKey) o;
+            return scheduleDay.equals(that.scheduleDay)
+                    && selectedSources.equals(that.selectedSources);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(scheduleDay, selectedSources);
+        }
+    }
+
+    /**
+     * The immutable state of an {@link EquivalentScheduleEntry}, from which a fresh entry is built
+     * for each request.
+     */
+    private static final class CachedEntry {
+
+        private final ContentProtos.Broadcast broadcast;
+        private final Interval transmissionInterval;
+        private final Optional<Id> broadcastItemId;
+        private final EquivalenceGraph graph;
+        private final ImmutableList<ContentProtos.Content> items;
+        private final ImmutableSet<Long> itemIds;
+
+        private CachedEntry(EquivalentScheduleEntry entry) {
+            this.broadcast = broadcastSerializer.serialize(entry.getBroadcast()).build();
+            this.transmissionInterval = entry.getBroadcast().getTransmissionInterval();
+            this.broadcastItemId = entry.getBroadcastItemId();
+            this.graph = entry.getItems().getGraph();
+            this.items = entry.getItems().getResources()
+                    .stream()
+                    .map(contentSerializer::serialize)
+                    .collect(MoreCollectors.toImmutableList());
+            this.itemIds = entry.getItems().getResources()
+                    .stream()
+                    .map(Item::getId)
+                    .map(Id::longValue)
+                    .collect(MoreCollectors.toImmutableSet());
+        }
+
+        Interval getTransmissionInterval() {
+            return transmissionInterval;
+        }
+
+        ImmutableSet<Long> getItemIds() {
+            return itemIds;
+        }
+
+        EquivalentScheduleEntry toEntry() {
+            Broadcast deserializedBroadcast = broadcastSerializer.deserialize(broadcast);
+            ImmutableList<Item> deserializedItems = items.stream()
+                    .map(item -> (Item) contentSerializer.deserialize(item))
+                    .collect(MoreCollectors.toImmutableList());
+            return EquivalentScheduleEntry.createFromDb(
+                    deserializedBroadcast,
+                    broadcastItemId,
+                    new Equivalent<>(graph, deserializedItems)
+            );
+        }
+    }
+
+    public static final class Builder {
+
+        private EquivalentScheduleResolver delegate;
+        private long maximumSize;
+        private long maxStalenessSeconds;
+        private ScheduledExecutorService invalidationReplayExecutor;
+        private long invalidationReplayDelaySeconds = 0;
+        private MetricRegistry metricRegistry;
+        private String metricPrefix;
+
+        private Builder() {}
+
+        public Builder withDelegate(EquivalentScheduleResolver val) {
+            delegate = val;
+            return this;
+        }
+
+        /**
+         * The maximum number of channel days to cache.
+         */
+        public Builder withMaximumSize(long val) {
+            maximumSize = val;
+            return this;
+        }
+
+        /**
+         * How long a day may be served from the cache, however it has changed since.
+         */
+        public Builder withMaxStalenessSeconds(long val) {
+            maxStalenessSeconds = val;
+            return this;
+        }
+
+        /**
+         * Repeat every invalidation after the given delay on the given executor, to catch
+         * store writes that complete after their message was received. A delay of zero disables
+         * the repeat.
+         */
+        public Builder withInvalidationReplay(
+                @Nullable ScheduledExecutorService executor,
+                long delaySeconds
+        ) {
+            invalidationReplayExecutor = executor;
+            invalidationReplayDelaySeconds = delaySeconds;
+            return this;
+        }
+
+        public Builder withMetricRegistry(MetricRegistry val) {
+            metricRegistry = val;
+            return this;
+        }
+
+        public Builder withMetricPrefix(String val) {
+            metricPrefix = val;
+            return this;
+        }
+
+        public CachingEquivalentScheduleResolver build() {
+            return new CachingEquivalentScheduleResolver(this);
+        }
+    }
+}
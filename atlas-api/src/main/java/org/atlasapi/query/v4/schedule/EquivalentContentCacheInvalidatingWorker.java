@@ -0,0 +1,38 @@
+package org.atlasapi.query.v4.schedule;
+
+import org.atlasapi.entity.Id;
+import org.atlasapi.messaging.EquivalentContentUpdatedMessage;
+
+import com.metabroadcast.common.queue.Worker;
+
+import com.google.common.collect.ImmutableSet;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Invalidates the days of a {@link CachingEquivalentScheduleResolver} holding content of each
+ * updated equivalent set.
+ */
+public class EquivalentContentCacheInvalidatingWorker
+        implements Worker<EquivalentContentUpdatedMessage> {
+
+    private final CachingEquivalentScheduleResolver cache;
+
+    private EquivalentContentCacheInvalidatingWorker(CachingEquivalentScheduleResolver cache) {
+        this.cache = checkNotNull(cache);
+    }
+
+    public static EquivalentContentCacheInvalidatingWorker create(
+            CachingEquivalentScheduleResolver cache
+    ) {
+        return new EquivalentContentCacheInvalidatingWorker(cache);
+    }
+
+    @Override
+    public void process(EquivalentContentUpdatedMessage message) {
+        cache.invalidateContent(ImmutableSet.of(
+                message.getContentRef().getId(),
+                Id.valueOf(message.getEquivalentSetId())
+        ));
+    }
+}
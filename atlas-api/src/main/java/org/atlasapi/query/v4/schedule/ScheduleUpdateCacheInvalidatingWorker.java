@@ -0,0 +1,31 @@
+package org.atlasapi.query.v4.schedule;
+
+import org.atlasapi.schedule.ScheduleUpdateMessage;
+
+import com.metabroadcast.common.queue.Worker;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Invalidates the days of a {@link CachingEquivalentScheduleResolver} covered by each schedule
+ * update.
+ */
+public class ScheduleUpdateCacheInvalidatingWorker implements Worker<ScheduleUpdateMessage> {
+
+    private final CachingEquivalentScheduleResolver cache;
+
+    private ScheduleUpdateCacheInvalidatingWorker(CachingEquivalentScheduleResolver cache) {
+        this.cache = checkNotNull(cache);
+    }
+
+    public static ScheduleUpdateCacheInvalidatingWorker create(
+            CachingEquivalentScheduleResolver cache
+    ) {
+        return new ScheduleUpdateCacheInvalidatingWorker(cache);
+    }
+
+    @Override
+    public void process(ScheduleUpdateMessage message) {
+        cache.invalidate(message.getScheduleUpdate());
+    }
+}
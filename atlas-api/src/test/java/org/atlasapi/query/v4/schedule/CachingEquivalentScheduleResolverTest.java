@@ -0,0 +1,217 @@
+package org.atlasapi.query.v4.schedule;
+
+import java.util.Set;
+
+import org.atlasapi.channel.Channel;
+import org.atlasapi.content.Broadcast;
+import org.atlasapi.content.Item;
+import org.atlasapi.entity.Id;
+import org.atlasapi.equivalence.EquivalenceGraph;
+import org.atlasapi.equivalence.EquivalenceRef;
+import org.atlasapi.equivalence.Equivalent;
+import org.atlasapi.media.entity.Publisher;
+import org.atlasapi.schedule.EquivalentChannelSchedule;
+import org.atlasapi.schedule.EquivalentSchedule;
+import org.atlasapi.schedule.EquivalentScheduleEntry;
+import org.atlasapi.schedule.EquivalentScheduleResolver;
+import org.atlasapi.schedule.ScheduleRef;
+import org.atlasapi.schedule.ScheduleUpdate;
+
+import com.metabroadcast.common.time.DateTimeZones;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CachingEquivalentScheduleResolverTest {
+
+    private static final DateTime DAY_START = new DateTime(2016, 3, 21, 0, 0, DateTimeZones.UTC);
+    private static final Interval DAY = new Interval(DAY_START, DAY_START.plusDays(1));
+    private static final Interval EVENING = new Interval(
+            DAY_START.plusHours(18),
+            DAY_START.plusHours(21)
+    );
+    private static final Set<Publisher> SOURCES = ImmutableSet.of(Publisher.METABROADCAST);
+
+    @Mock private EquivalentScheduleResolver delegate;
+
+    private final Channel channel = Channel.builder(Publisher.BBC).withId(1L).build();
+    private final Item item = new Item(Id.valueOf(10), Publisher.METABROADCAST);
+    private final Broadcast broadcast = new Broadcast(
+            channel,
+            DAY_START.plusHours(19),
+            DAY_START.plusHours(20)
+    ).withId("sid");
+
+    private CachingEquivalentScheduleResolver cache;
+
+    @Before
+    public void setUp() {
+        item.addBroadcast(broadcast);
+
+        when(delegate.resolveSchedules(
+                any(Iterable.class),
+                eq(DAY),
+                eq(Publisher.METABROADCAST),
+                anySetOf(Publisher.class)
+        )).thenReturn(Futures.immediateFuture(daySchedule()));
+
+        cache = CachingEquivalentScheduleResolver.builder()
+                .withDelegate(delegate)
+                .withMaximumSize(100)
+                .withMaxStalenessSeconds(60)
+                .withMetricRegistry(new MetricRegistry())
+                .withMetricPrefix("test.")
+                .build();
+    }
+
+    @Test
+    public void testResolvesFromDelegateByDayAndFiltersToInterval() throws Exception {
+        EquivalentSchedule schedule = resolveEvening();
+
+        EquivalentChannelSchedule channelSchedule =
+                Iterables.getOnlyElement(schedule.channelSchedules());
+        assertThat(channelSchedule.getInterval(), is(EVENING));
+        assertThat(
+                Iterables.getOnlyElement(channelSchedule.getEntries()).getBroadcast(),
+                is(broadcast)
+        );
+    }
+
+    @Test
+    public void testServesRepeatedQueriesFromCache() throws Exception {
+        resolveEvening();
+        resolveEvening();
+
+        verifyDelegateCalls(1);
+    }
+
+    @Test
+    public void testScheduleUpdateInvalidatesItsDays() throws Exception {
+        resolveEvening();
+
+        cache.invalidate(new ScheduleUpdate(
+                Publisher.METABROADCAST,
+                ScheduleRef.forChannel(channel.getId(), EVENING).build(),
+                ImmutableSet.of()
+        ));
+        resolveEvening();
+
+        verifyDelegateCalls(2);
+    }
+
+    @Test
+    public void testScheduleUpdateForOtherSourceDoesNotInvalidate() throws Exception {
+        resolveEvening();
+
+        cache.invalidate(new ScheduleUpdate(
+                Publisher.PA,
+                ScheduleRef.forChannel(channel.getId(), EVENING).build(),
+                ImmutableSet.of()
+        ));
+        resolveEvening();
+
+        verifyDelegateCalls(1);
+    }
+
+    @Test
+    public void testContentUpdateInvalidatesDaysHoldingIt() throws Exception {
+        resolveEvening();
+
+        cache.invalidateContent(ImmutableSet.of(item.getId()));
+        resolveEvening();
+
+        verifyDelegateCalls(2);
+    }
+
+    @Test
+    public void testDoesNotCacheDaysInvalidatedWhileResolving() throws Exception {
+        SettableFuture<EquivalentSchedule> pending = SettableFuture.create();
+        when(delegate.resolveSchedules(
+                any(Iterable.class),
+                eq(DAY),
+                eq(Publisher.METABROADCAST),
+                anySetOf(Publisher.class)
+        )).thenReturn(pending);
+
+        cache.resolveSchedules(ImmutableList.of(channel), EVENING, Publisher.METABROADCAST, SOURCES);
+        cache.invalidateContent(ImmutableSet.of(item.getId()));
+        pending.set(daySchedule());
+
+        assertThat(cache.size(), is(0L));
+    }
+
+    @Test
+    public void testCacheHitsDoNotShareItems() throws Exception {
+        Item first = onlyItem(resolveEvening());
+        EquivalenceRef equivalent = new EquivalenceRef(Id.valueOf(20), Publisher.BBC);
+        first.copyWithEquivalentTo(ImmutableSet.of(equivalent));
+
+        Item second = onlyItem(resolveEvening());
+
+        verifyDelegateCalls(1);
+        assertThat(second == first, is(false));
+        assertThat(second.getId(), is(item.getId()));
+        assertThat(second.getEquivalentTo().contains(equivalent), is(false));
+    }
+
+    private EquivalentSchedule resolveEvening() throws Exception {
+        return cache.resolveSchedules(
+                ImmutableList.of(channel),
+                EVENING,
+                Publisher.METABROADCAST,
+                SOURCES
+        ).get();
+    }
+
+    private Item onlyItem(EquivalentSchedule schedule) {
+        return Iterables.getOnlyElement(Iterables.getOnlyElement(
+                Iterables.getOnlyElement(schedule.channelSchedules()).getEntries()
+        ).getItems().getResources());
+    }
+
+    private void verifyDelegateCalls(int times) {
+        verify(delegate, times(times)).resolveSchedules(
+                any(Iterable.class),
+                eq(DAY),
+                eq(Publisher.METABROADCAST),
+                anySetOf(Publisher.class)
+        );
+    }
+
+    private EquivalentSchedule daySchedule() {
+        EquivalentScheduleEntry entry = EquivalentScheduleEntry.create(
+                broadcast,
+                item.getId(),
+                new Equivalent<>(EquivalenceGraph.valueOf(item.toRef()), ImmutableList.of(item))
+        );
+        return new EquivalentSchedule(
+                ImmutableList.of(new EquivalentChannelSchedule(
+                        channel,
+                        DAY,
+                        ImmutableList.of(entry)
+                )),
+                DAY
+        );
+    }
+}
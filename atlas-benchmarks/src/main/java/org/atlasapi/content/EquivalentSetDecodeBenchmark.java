@@ -0,0 +1,133 @@
+package org.atlasapi.content;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.atlasapi.annotation.Annotation;
+import org.atlasapi.entity.Id;
+import org.atlasapi.media.entity.Publisher;
+import org.atlasapi.serialization.protobuf.ContentProtos;
+import org.atlasapi.util.CompressedBlobs;
+import org.atlasapi.util.ProtobufByteBuffers;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Per-set cost of decoding the members of an equivalent set read by
+ * {@link CassandraEquivalentContentStore}, with every member decoded before filtering by source
+ * ({@code decodeAll}) against members from unselected sources skipped on their source column
+ * ({@code decodeSelected}).
+ * <p>
+ * Members are spread evenly over five sources, of which {@code selectedSources} are selected.
+ * Run with {@code -prof gc} to compare allocation as well as time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class EquivalentSetDecodeBenchmark {
+
+    private static final ImmutableList<Publisher> SOURCES = ImmutableList.of(
+            Publisher.BBC,
+            Publisher.PA,
+            Publisher.ITV,
+            Publisher.C4,
+            Publisher.FIVE
+    );
+
+    @Param({ "10", "150", "500" })
+    public int members;
+
+    @Param({ "1", "5" })
+    public int selectedSources;
+
+    private final ContentSerializer serializer = new ContentSerializer(
+            new ContentSerializationVisitor()
+    );
+
+    private List<MemberRow> rows;
+    private Set<Publisher> selected;
+
+    @Setup
+    public void setUp() {
+        ImmutableList.Builder<MemberRow> rows = ImmutableList.builder();
+        for (int i = 0; i < members; i++) {
+            Publisher source = SOURCES.get(i % SOURCES.size());
+            Item item = ComplexItemTestDataBuilder.complexItem()
+                    .withId((long) i + 1)
+                    .withTitle("Member " + i)
+                    .withDescription(Strings.repeat("A typical synopsis. ", 50))
+                    .build();
+            item.setPublisher(source);
+            rows.add(new MemberRow(
+                    item.getId().longValue(),
+                    source.key(),
+                    ByteBuffer.wrap(serializer.serialize(item).toByteArray())
+            ));
+        }
+        this.rows = rows.build();
+        this.selected = ImmutableSet.copyOf(SOURCES.subList(0, selectedSources));
+    }
+
+    @Benchmark
+    public void decodeAll(Blackhole blackhole) throws IOException {
+        for (MemberRow row : rows) {
+            Content content = decode(row);
+            if (selected.contains(content.getSource())) {
+                blackhole.consume(content);
+            }
+        }
+    }
+
+    @Benchmark
+    public void decodeSelected(Blackhole blackhole) throws IOException {
+        for (MemberRow row : rows) {
+            Publisher source = Publisher.fromKey(row.source).valueOrNull();
+            if (source != null && !selected.contains(source)) {
+                blackhole.consume(Id.valueOf(row.id));
+                continue;
+            }
+            blackhole.consume(decode(row));
+        }
+    }
+
+    private Content decode(MemberRow row) throws IOException {
+        ContentProtos.Content buffer = ProtobufByteBuffers.parseFrom(
+                CompressedBlobs.decompress(row.data),
+                ContentProtos.Content.parser()
+        );
+        return serializer.deserialize(buffer, Annotation.all());
+    }
+
+    private static final class MemberRow {
+
+        private final long id;
+        private final String source;
+        private final ByteBuffer data;
+
+        private MemberRow(long id, String source, ByteBuffer data) {
+            this.id = id;
+            this.source = source;
+            this.data = data;
+        }
+    }
+}
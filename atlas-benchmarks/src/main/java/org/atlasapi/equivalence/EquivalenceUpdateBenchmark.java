@@ -0,0 +1,175 @@
+package org.atlasapi.equivalence;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.atlasapi.content.ItemRef;
+import org.atlasapi.entity.Id;
+import org.atlasapi.entity.ResourceRef;
+import org.atlasapi.entity.util.WriteException;
+import org.atlasapi.locks.GroupLock;
+import org.atlasapi.media.entity.Publisher;
+
+import com.metabroadcast.common.collect.ImmutableOptionalMap;
+import com.metabroadcast.common.collect.OptionalMap;
+import com.metabroadcast.common.queue.MessageSender;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.joda.time.DateTime;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of concurrent equivalence updates made under {@link GroupLock}s against updates
+ * queued in {@link org.atlasapi.locks.SerialLanes}.
+ * <p>
+ * Each update asserts a random resource equivalent to one to three others from the same cluster,
+ * so updates of the same cluster overlap and join and split each other's graphs, while updates
+ * of different clusters are unrelated. Writes sleep for {@code writeLatencyMicros} to stand in
+ * for a remote store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(2)
+@Threads(32)
+public class EquivalenceUpdateBenchmark {
+
+    private static final ImmutableSet<Publisher> SOURCES = ImmutableSet.of(
+            Publisher.BBC,
+            Publisher.PA,
+            Publisher.ITV,
+            Publisher.C4,
+            Publisher.FIVE
+    );
+
+    @Param({ "false", "true" })
+    public boolean serialLanes;
+
+    @Param({ "64" })
+    public int clusters;
+
+    @Param({ "10" })
+    public int clusterSize;
+
+    @Param({ "500" })
+    public long writeLatencyMicros;
+
+    private EquivalenceGraphStore store;
+
+    @Setup
+    public void setUp() {
+        store = new LatentEquivalenceGraphStore(serialLanes, writeLatencyMicros);
+    }
+
+    @Benchmark
+    public Optional<EquivalenceGraphUpdate> updateEquivalences() throws WriteException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int cluster = random.nextInt(clusters);
+        ResourceRef subject = ref(cluster, random.nextInt(clusterSize));
+        Set<ResourceRef> adjacents = Sets.newHashSet();
+        int adjacentCount = 1 + random.nextInt(3);
+        while (adjacents.size() < adjacentCount) {
+            ResourceRef adjacent = ref(cluster, random.nextInt(clusterSize));
+            if (!adjacent.equals(subject)) {
+                adjacents.add(adjacent);
+            }
+        }
+        return store.updateEquivalences(subject, adjacents, SOURCES);
+    }
+
+    private ResourceRef ref(int cluster, int member) {
+        long id = (long) cluster * clusterSize + member + 1;
+        Publisher source = SOURCES.asList().get(member % SOURCES.size());
+        return new ItemRef(Id.valueOf(id), source, "", new DateTime(0));
+    }
+
+    private static final class LatentEquivalenceGraphStore extends AbstractEquivalenceGraphStore {
+
+        private final ConcurrentMap<Id, EquivalenceGraph> store = Maps.newConcurrentMap();
+        private final GroupLock<Id> lock = GroupLock.natural(
+                new MetricRegistry(),
+                "benchmark.LatentEquivalenceGraphStore"
+        );
+        private final long writeLatencyMicros;
+
+        private LatentEquivalenceGraphStore(boolean serialLanes, long writeLatencyMicros) {
+            super(
+                    new MessageSender<EquivalenceGraphUpdateMessage>() {
+
+                        @Override
+                        public void sendMessage(EquivalenceGraphUpdateMessage message) {
+                            // no-op
+                        }
+
+                        @Override
+                        public void sendMessage(
+                                EquivalenceGraphUpdateMessage message,
+                                byte[] partitionKey
+                        ) {
+                            // no-op
+                        }
+
+                        @Override
+                        public void close() {
+                            // no-op
+                        }
+                    },
+                    new MetricRegistry(),
+                    "benchmark.LatentEquivalenceGraphStore.",
+                    serialLanes
+            );
+            this.writeLatencyMicros = writeLatencyMicros;
+        }
+
+        @Override
+        public ListenableFuture<OptionalMap<Id, EquivalenceGraph>> resolveIds(Iterable<Id> ids) {
+            ImmutableMap.Builder<Id, EquivalenceGraph> result = ImmutableMap.builder();
+            for (Id id : ImmutableSet.copyOf(ids)) {
+                EquivalenceGraph graph = store.get(id);
+                if (graph != null) {
+                    result.put(id, graph);
+                }
+            }
+            OptionalMap<Id, EquivalenceGraph> graphs = ImmutableOptionalMap.fromMap(result.build());
+            return Futures.immediateFuture(graphs);
+        }
+
+        @Override
+        protected void doStore(ImmutableSet<EquivalenceGraph> graphs) {
+            Uninterruptibles.sleepUninterruptibly(writeLatencyMicros, TimeUnit.MICROSECONDS);
+            for (EquivalenceGraph graph : graphs) {
+                for (Id id : graph.getEquivalenceSet()) {
+                    store.put(id, graph);
+                }
+            }
+        }
+
+        @Override
+        protected GroupLock<Id> lock() {
+            return lock;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.atlasapi.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.atlasapi.content.ComplexItemTestDataBuilder;
+import org.atlasapi.content.ContentSerializationVisitor;
+import org.atlasapi.content.ContentSerializer;
+import org.atlasapi.content.Item;
+import org.atlasapi.serialization.protobuf.ContentProtos;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.ByteString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing content blobs through {@link ProtobufByteBuffers} against copying them into a
+ * {@link ByteString} first, as the stores did before. {@code parse*} read one blob of
+ * {@code blobBytes} holding a single message; {@code parseDelimited*} read a blob of the same size
+ * holding {@code DELIMITED_MESSAGES} length-delimited messages, as schedule rows do.
+ * <p>
+ * Run with {@code -prof gc} and compare {@code gc.alloc.rate.norm}: the copying variants allocate
+ * roughly one extra {@code blobBytes} per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class ProtobufParseBenchmark {
+
+    private static final int DELIMITED_MESSAGES = 10;
+
+    @Param({ "100000", "400000" })
+    public int blobBytes;
+
+    private final ContentSerializer serializer = new ContentSerializer(
+            new ContentSerializationVisitor()
+    );
+
+    private ByteBuffer single;
+    private ByteBuffer delimited;
+
+    @Setup
+    public void setUp() throws IOException {
+        single = ByteBuffer.wrap(content(1L, blobBytes).toByteArray());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(blobBytes);
+        for (int i = 0; i < DELIMITED_MESSAGES; i++) {
+            content(i + 1L, blobBytes / DELIMITED_MESSAGES).writeDelimitedTo(out);
+        }
+        delimited = ByteBuffer.wrap(out.toByteArray());
+    }
+
+    @Benchmark
+    public ContentProtos.Content parseByteStringCopy() throws IOException {
+        return ContentProtos.Content.parseFrom(ByteString.copyFrom(single.duplicate()));
+    }
+
+    @Benchmark
+    public ContentProtos.Content parseByteBuffer() throws IOException {
+        return ProtobufByteBuffers.parseFrom(single, ContentProtos.Content.parser());
+    }
+
+    @Benchmark
+    public ImmutableList<ContentProtos.Content> parseDelimitedByteStringCopy()
+            throws IOException {
+        InputStream input = ByteString.copyFrom(delimited.duplicate()).newInput();
+        ImmutableList.Builder<ContentProtos.Content> messages = ImmutableList.builder();
+        for (int i = 0; i < DELIMITED_MESSAGES; i++) {
+            ContentProtos.Content message = ContentProtos.Content.parseDelimitedFrom(input);
+            if (message == null) {
+                break;
+            }
+            messages.add(message);
+        }
+        return messages.build();
+    }
+
+    @Benchmark
+    public ImmutableList<ContentProtos.Content> parseDelimitedByteBuffer() throws IOException {
+        return ProtobufByteBuffers.parseDelimitedFrom(
+                delimited,
+                ContentProtos.Content.parser(),
+                DELIMITED_MESSAGES
+        );
+    }
+
+    private ContentProtos.Content content(long id, int approximateBytes) {
+        Item item = ComplexItemTestDataBuilder.complexItem()
+                .withId(id)
+                .withTitle("Item " + id)
+                .withDescription(Strings.repeat("x", approximateBytes))
+                .build();
+        return serializer.serialize(item);
+    }
+}
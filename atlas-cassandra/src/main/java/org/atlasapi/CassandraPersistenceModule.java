@@ -7,6 +7,7 @@ import com.datastax.driver.core.Host;
 import com.datastax.driver.core.Session;
 import com.google.common.base.Equivalence;
 import com.google.common.util.concurrent.AbstractIdleService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.metabroadcast.common.ids.IdGenerator;
 import com.metabroadcast.common.ids.IdGeneratorBuilder;
 import com.metabroadcast.common.persistence.cassandra.DatastaxCassandraService;
@@ -28,6 +29,7 @@ import org.atlasapi.content.ContentStore;
 import org.atlasapi.content.v2.CqlContentStore;
 import org.atlasapi.entity.AliasIndex;
 import org.atlasapi.equivalence.CassandraEquivalenceGraphStore;
+import org.atlasapi.equivalence.EquivalenceGraphRejectionFilter;
 import org.atlasapi.equivalence.EquivalenceGraphStore;
 import org.atlasapi.equivalence.EquivalenceGraphUpdateMessage;
 import org.atlasapi.event.ConcreteEventStore;
@@ -36,6 +38,7 @@ import org.atlasapi.event.EventHasher;
 import org.atlasapi.event.EventPersistenceStore;
 import org.atlasapi.event.EventStore;
 import org.atlasapi.hashing.content.ContentHasher;
+import org.atlasapi.locks.GroupLock;
 import org.atlasapi.messaging.JacksonMessageSerializer;
 import org.atlasapi.messaging.ResourceUpdatedMessage;
 import org.atlasapi.organisation.DatastaxCassandraOrganisationStore;
@@ -53,10 +56,19 @@ import org.atlasapi.segment.CassandraSegmentStore;
 import org.atlasapi.segment.Segment;
 import org.atlasapi.topic.CassandraTopicStore;
 import org.atlasapi.topic.Topic;
+import org.atlasapi.util.GraphCache;
+import org.atlasapi.util.IndexCache;
+import org.joda.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -79,6 +91,132 @@ public class CassandraPersistenceModule extends AbstractIdleService implements P
             .map(Parameter::toBoolean)
             .orElse(false);
 
+    private Boolean indexCacheEnabled = Configurer.get(
+            "cassandra.index.cache.enabled",
+            "false"
+    ).toBoolean();
+    private Integer indexCacheMaxSize = Configurer.get(
+            "cassandra.index.cache.max.size",
+            "100000"
+    ).toInt();
+    private Integer indexCacheExpireAfterWriteSeconds = Configurer.get(
+            "cassandra.index.cache.expire.after.write.seconds",
+            "600"
+    ).toInt();
+    private Boolean equivalenceGraphCacheEnabled = Configurer.get(
+            "cassandra.equivalence.graph.cache.enabled",
+            "false"
+    ).toBoolean();
+    private Integer equivalenceGraphCacheMaxWeight = Configurer.get(
+            "cassandra.equivalence.graph.cache.max.weight",
+            "1000000"
+    ).toInt();
+    private Integer equivalenceGraphCacheExpireAfterWriteSeconds = Configurer.get(
+            "cassandra.equivalence.graph.cache.expire.after.write.seconds",
+            "600"
+    ).toInt();
+    private Boolean equivalenceGraphSerialLanesEnabled = Configurer.get(
+            "cassandra.equivalence.graph.serial.lanes.enabled",
+            "false"
+    ).toBoolean();
+    private Boolean equivalenceGraphIncrementalRecomputation = Configurer.get(
+            "cassandra.equivalence.graph.incremental.recomputation.enabled",
+            "false"
+    ).toBoolean();
+    private GroupLock.Type lockType = GroupLock.Type.fromKey(Configurer.get(
+            "cassandra.lock.type",
+            "natural"
+    ).get());
+    private Integer equivalenceGraphSizeAlertingThreshold = Configurer.get(
+            "cassandra.equivalence.graph.size.alerting.threshold",
+            String.valueOf(EquivalenceGraphRejectionFilter.DEFAULT_ALERTING_THRESHOLD)
+    ).toInt();
+    private Integer equivalenceGraphSizeRejectingThreshold = Configurer.get(
+            "cassandra.equivalence.graph.size.rejecting.threshold",
+            String.valueOf(EquivalenceGraphRejectionFilter.DEFAULT_REJECTING_THRESHOLD)
+    ).toInt();
+    private Boolean equivalenceGraphDropOversizedEdges = Configurer.get(
+            "cassandra.equivalence.graph.size.drop.oversized.edges.enabled",
+            "false"
+    ).toBoolean();
+    private Integer equivalenceGraphReadBatchSize = Configurer.get(
+            "cassandra.equivalence.graph.read.batch.size",
+            "0"
+    ).toInt();
+    private Integer equivalenceGraphReadMaxInFlight = Configurer.get(
+            "cassandra.equivalence.graph.read.max.in.flight",
+            "64"
+    ).toInt();
+    private Boolean contentPartitionKeyCacheEnabled = Configurer.get(
+            "cassandra.content.partition.key.cache.enabled",
+            "false"
+    ).toBoolean();
+
+    private Boolean compressBlobs = Configurer.get(
+            "cassandra.blob.compression.enabled",
+            "false"
+    ).toBoolean();
+    private Boolean scheduleContentAddressed = Configurer.get(
+            "cassandra.schedule.content.addressed.enabled",
+            "false"
+    ).toBoolean();
+    private Integer scheduleContentSweepIntervalHours = Configurer.get(
+            "cassandra.schedule.content.sweep.interval.hours",
+            "0"
+    ).toInt();
+    private Integer scheduleContentSweepMinAgeHours = Configurer.get(
+            "cassandra.schedule.content.sweep.min.age.hours",
+            "24"
+    ).toInt();
+    private Integer scheduleMaxDaysPerRead = Configurer.get(
+            "cassandra.schedule.read.max.days.per.query",
+            "1"
+    ).toInt();
+    private Boolean contentHashCheck = Configurer.get(
+            "cassandra.content.hash.check.enabled",
+            "false"
+    ).toBoolean();
+    private Integer contentMaxInFlightWrites = Configurer.get(
+            "cassandra.content.write.max.in.flight",
+            "128"
+    ).toInt();
+    private Integer contentReadBatchSize = Configurer.get(
+            "cassandra.content.read.batch.size",
+            "0"
+    ).toInt();
+    private Integer contentMaxInFlightReads = Configurer.get(
+            "cassandra.content.read.max.in.flight",
+            "64"
+    ).toInt();
+    private Integer contentAsyncWriteThreads = Configurer.get(
+            "cassandra.content.write.async.threads",
+            "8"
+    ).toInt();
+    private Boolean contentChildFanOutEnabled = Configurer.get(
+            "cassandra.content.child.fanout.enabled",
+            "false"
+    ).toBoolean();
+    private Integer contentChildFanOutThreshold = Configurer.get(
+            "cassandra.content.child.fanout.threshold",
+            "100"
+    ).toInt();
+    private Integer contentChildFanOutMaxInFlight = Configurer.get(
+            "cassandra.content.child.fanout.max.in.flight",
+            "32"
+    ).toInt();
+    private Integer contentChildFanOutCoalesceWindowMillis = Configurer.get(
+            "cassandra.content.child.fanout.coalesce.window.millis",
+            "1000"
+    ).toInt();
+    private Integer contentChildFanOutMaxRetries = Configurer.get(
+            "cassandra.content.child.fanout.max.retries",
+            "3"
+    ).toInt();
+    private Integer contentChildFanOutRetryBackoffMillis = Configurer.get(
+            "cassandra.content.child.fanout.retry.backoff.millis",
+            "1000"
+    ).toInt();
+
     private static final String ORGANISATION = "organisation";
 
     private final String keyspace;
@@ -111,6 +249,15 @@ public class CassandraPersistenceModule extends AbstractIdleService implements P
     private MessageSenderFactory messageSenderFactory;
     private CqlContentStore nullMessageSendingCqlContentStore;
 
+    private Optional<IndexCache> equivalenceGraphIndexCache;
+    private Optional<IndexCache> equivalentContentIndexCache;
+    private Optional<IndexCache> contentPartitionKeyCache;
+    private Optional<GraphCache> equivalenceGraphCache;
+
+    private ExecutorService contentAsyncWriteExecutor;
+    private ScheduledExecutorService scheduleContentSweepExecutor;
+    private ScheduledExecutorService contentChildFanOutExecutor;
+
     private CassandraPersistenceModule(Builder builder) {
         this.contentHasher = builder.contentHasher;
         this.eventHasher = checkNotNull(builder.eventHasher);
@@ -158,14 +305,52 @@ public class CassandraPersistenceModule extends AbstractIdleService implements P
         ConsistencyLevel readConsistency = getAstyanaxReadConsistencyLevel();
         ConsistencyLevel writeConsistency = getAstyanaxWriteConsistencyLevel();
 
-        this.contentEquivalenceGraphStore = new CassandraEquivalenceGraphStore(
-                sender(contentEquivalenceGraphChanges, EquivalenceGraphUpdateMessage.class),
-                session,
-                read,
-                write,
-                metrics,
-                METRIC_PREFIX + "CassandraEquivalenceGraphStore."
+        this.equivalenceGraphIndexCache = indexCache(
+                indexCacheEnabled,
+                "EquivalenceGraphIndexCache."
         );
+        this.equivalentContentIndexCache = indexCache(
+                indexCacheEnabled,
+                "EquivalentContentIndexCache."
+        );
+        this.contentPartitionKeyCache = indexCache(
+                contentPartitionKeyCacheEnabled,
+                "ContentPartitionKeyCache."
+        );
+        this.equivalenceGraphCache = equivalenceGraphCacheEnabled
+                                     ? Optional.of(GraphCache.create(
+                                             equivalenceGraphCacheMaxWeight,
+                                             equivalenceGraphCacheExpireAfterWriteSeconds,
+                                             metrics,
+                                             METRIC_PREFIX + "EquivalenceGraphCache."
+                                     ))
+                                     : Optional.empty();
+        EquivalenceGraphRejectionFilter equivalenceGraphRejectionFilter =
+                EquivalenceGraphRejectionFilter.create(
+                        equivalenceGraphSizeAlertingThreshold,
+                        equivalenceGraphSizeRejectingThreshold,
+                        equivalenceGraphDropOversizedEdges
+                );
+
+        this.contentEquivalenceGraphStore = CassandraEquivalenceGraphStore.builder()
+                .withMessageSender(sender(
+                        contentEquivalenceGraphChanges,
+                        EquivalenceGraphUpdateMessage.class
+                ))
+                .withSession(session)
+                .withReadConsistency(read)
+                .withWriteConsistency(write)
+                .withIndexCache(equivalenceGraphIndexCache.orElse(null))
+                .withGraphCache(equivalenceGraphCache.orElse(null))
+                .withSerialLanes(equivalenceGraphSerialLanesEnabled)
+                .withLockType(lockType)
+                .withIncrementalRecomputation(equivalenceGraphIncrementalRecomputation)
+                .withRejectionFilter(equivalenceGraphRejectionFilter)
+                .withReadBatchSize(equivalenceGraphReadBatchSize)
+                .withMaxInFlightReads(equivalenceGraphReadMaxInFlight)
+                .withMetricRegistry(metrics)
+                .withMetricPrefix(METRIC_PREFIX + "CassandraEquivalenceGraphStore.")
+                .build();
 
         this.astyanaxContentStore = makeAstyanaxContentStore(readConsistency);
 
@@ -173,34 +358,58 @@ public class CassandraPersistenceModule extends AbstractIdleService implements P
 
         this.nullMessageSendingCqlContentStore = makeNullMessageCqlContentStore(session);
 
-        this.nullMessageSendingEquivalenceGraphStore = new CassandraEquivalenceGraphStore(
-                nullMessageSender(EquivalenceGraphUpdateMessage.class),
-                session,
-                read,
-                write,
-                metrics,
-                METRIC_PREFIX + "NullMessageSendingCassandraEquivalenceGraphStore."
-        );
+        this.nullMessageSendingEquivalenceGraphStore = CassandraEquivalenceGraphStore.builder()
+                .withMessageSender(nullMessageSender(EquivalenceGraphUpdateMessage.class))
+                .withSession(session)
+                .withReadConsistency(read)
+                .withWriteConsistency(write)
+                .withIndexCache(equivalenceGraphIndexCache.orElse(null))
+                .withGraphCache(equivalenceGraphCache.orElse(null))
+                .withSerialLanes(equivalenceGraphSerialLanesEnabled)
+                .withLockType(lockType)
+                .withIncrementalRecomputation(equivalenceGraphIncrementalRecomputation)
+                .withRejectionFilter(equivalenceGraphRejectionFilter)
+                .withReadBatchSize(equivalenceGraphReadBatchSize)
+                .withMaxInFlightReads(equivalenceGraphReadMaxInFlight)
+                .withMetricRegistry(metrics)
+                .withMetricPrefix(
+                        METRIC_PREFIX + "NullMessageSendingCassandraEquivalenceGraphStore."
+                )
+                .build();
 
-        this.equivalentScheduleStore = new CassandraEquivalentScheduleStore(
-                contentEquivalenceGraphStore,
-                cqlContentStore,
-                session,
-                read,
-                write,
-                new SystemClock(),
-                metrics,
-                METRIC_PREFIX + "CassandraEquivalenceScheduleStore."
-        );
-        this.nullMessageSendingEquivGraphStore = new CassandraEquivalenceGraphStore(
-                nullMessageSender(
-                        EquivalenceGraphUpdateMessage.class),
-                session,
-                read,
-                write,
-                metrics,
-                METRIC_PREFIX + "NullMessageSendingCassandraEquivalenceGraphStore."
-        );
+        this.equivalentScheduleStore = CassandraEquivalentScheduleStore.builder()
+                .withGraphStore(contentEquivalenceGraphStore)
+                .withContentStore(cqlContentStore)
+                .withSession(session)
+                .withReadConsistency(read)
+                .withWriteConsistency(write)
+                .withClock(new SystemClock())
+                .withCompressedContent(compressBlobs)
+                .withContentAddressing(scheduleContentAddressed)
+                .withMaxDaysPerRead(scheduleMaxDaysPerRead)
+                .withLockType(lockType)
+                .withMetricRegistry(metrics)
+                .withMetricPrefix(METRIC_PREFIX + "CassandraEquivalenceScheduleStore.")
+                .build();
+        scheduleContentSweep();
+        this.nullMessageSendingEquivGraphStore = CassandraEquivalenceGraphStore.builder()
+                .withMessageSender(nullMessageSender(EquivalenceGraphUpdateMessage.class))
+                .withSession(session)
+                .withReadConsistency(read)
+                .withWriteConsistency(write)
+                .withIndexCache(equivalenceGraphIndexCache.orElse(null))
+                .withGraphCache(equivalenceGraphCache.orElse(null))
+                .withSerialLanes(equivalenceGraphSerialLanesEnabled)
+                .withLockType(lockType)
+                .withIncrementalRecomputation(equivalenceGraphIncrementalRecomputation)
+                .withRejectionFilter(equivalenceGraphRejectionFilter)
+                .withReadBatchSize(equivalenceGraphReadBatchSize)
+                .withMaxInFlightReads(equivalenceGraphReadMaxInFlight)
+                .withMetricRegistry(metrics)
+                .withMetricPrefix(
+                        METRIC_PREFIX + "NullMessageSendingCassandraEquivalenceGraphStore."
+                )
+                .build();
         this.v2ScheduleStore = new DatastaxCassandraScheduleStore(
                 "schedule_v2",
                 cqlContentStore,
@@ -247,6 +456,18 @@ public class CassandraPersistenceModule extends AbstractIdleService implements P
         this.idSettingOrganisationStore = getIdSettingOrganisationStore(session);
     }
 
+    private Optional<IndexCache> indexCache(boolean enabled, String name) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        return Optional.of(IndexCache.create(
+                indexCacheMaxSize,
+                indexCacheExpireAfterWriteSeconds,
+                metrics,
+                METRIC_PREFIX + name
+        ));
+    }
+
     private AstyanaxCassandraContentStore makeAstyanaxContentStore(
             ConsistencyLevel readConsistency) {
         return AstyanaxCassandraContentStore.builder(
@@ -259,6 +480,7 @@ public class CassandraPersistenceModule extends AbstractIdleService implements P
         )
                 .withReadConsistency(readConsistency)
                 .withWriteConsistency(ConsistencyLevel.CL_QUORUM)
+                .withContentHashCheck(contentHashCheck)
                 .withMetricRegistry(metrics)
                 .withMetricPrefix(METRIC_PREFIX + "AstyanaxCassandraContentStore.")
                 .build();
@@ -286,20 +508,100 @@ public class CassandraPersistenceModule extends AbstractIdleService implements P
                 .withIdGenerator(contentIdGenerator)
                 .withClock(new SystemClock())
                 .withGraphStore(contentEquivalenceGraphStore)
+                .withHasher(contentHashCheck ? contentHasher : null)
+                .withPartitionKeyCache(contentPartitionKeyCache.orElse(null))
                 .withSender(sender(contentChanges, ResourceUpdatedMessage.class))
                 .withMetricRegistry(metrics)
                 .withMetricPrefix(METRIC_PREFIX + "CqlContentStore.")
+                .withMaxInFlightWrites(contentMaxInFlightWrites)
+                .withAsyncWriteExecutor(contentAsyncWriteExecutor())
+                .withReadBatchSize(contentReadBatchSize)
+                .withMaxInFlightReads(contentMaxInFlightReads)
+                .withChildFanOutExecutor(contentChildFanOutExecutor())
+                .withChildFanOutThreshold(contentChildFanOutThreshold)
+                .withChildFanOutMaxInFlight(contentChildFanOutMaxInFlight)
+                .withChildFanOutCoalesceWindowMillis(contentChildFanOutCoalesceWindowMillis)
+                .withChildFanOutMaxRetries(contentChildFanOutMaxRetries)
+                .withChildFanOutRetryBackoffMillis(contentChildFanOutRetryBackoffMillis)
                 .build();
     }
 
+    // Content addressed schedule rows do not delete their blobs when they are replaced, so the
+    // blobs left unreferenced are swept periodically. Enable on a single process only.
+    private void scheduleContentSweep() {
+        if (!scheduleContentAddressed || scheduleContentSweepIntervalHours <= 0) {
+            return;
+        }
+        scheduleContentSweepExecutor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder()
+                        .setDaemon(true)
+                        .setNameFormat("schedule-content-sweep-%d")
+                        .build()
+        );
+        scheduleContentSweepExecutor.scheduleWithFixedDelay(
+                () -> {
+                    try {
+                        equivalentScheduleStore.deleteUnreferencedContentBlobs(
+                                Duration.standardHours(scheduleContentSweepMinAgeHours)
+                        );
+                    } catch (RuntimeException e) {
+                        log.error("Failed to sweep equivalent schedule content blobs", e);
+                    }
+                },
+                scheduleContentSweepIntervalHours,
+                scheduleContentSweepIntervalHours,
+                TimeUnit.HOURS
+        );
+    }
+
+    private ExecutorService contentAsyncWriteExecutor() {
+        if (contentAsyncWriteExecutor == null) {
+            contentAsyncWriteExecutor = Executors.newFixedThreadPool(
+                    contentAsyncWriteThreads,
+                    new ThreadFactoryBuilder()
+                            .setDaemon(true)
+                            .setNameFormat("content-async-write-%d")
+                            .build()
+            );
+        }
+        return contentAsyncWriteExecutor;
+    }
+
+    @Nullable
+    private ScheduledExecutorService contentChildFanOutExecutor() {
+        if (!contentChildFanOutEnabled) {
+            return null;
+        }
+        if (contentChildFanOutExecutor == null) {
+            contentChildFanOutExecutor = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder()
+                            .setDaemon(true)
+                            .setNameFormat("content-child-fanout-%d")
+                            .build()
+            );
+        }
+        return contentChildFanOutExecutor;
+    }
+
     private CqlContentStore makeNullMessageCqlContentStore(Session session) {
         return CqlContentStore.builder()
                 .withSession(session)
                 .withIdGenerator(contentIdGenerator)
                 .withClock(new SystemClock())
                 .withGraphStore(contentEquivalenceGraphStore)
+                .withHasher(contentHashCheck ? contentHasher : null)
                 .withMetricRegistry(metrics)
                 .withMetricPrefix(METRIC_PREFIX + "NullMessageCqlContentStore.")
+                .withMaxInFlightWrites(contentMaxInFlightWrites)
+                .withAsyncWriteExecutor(contentAsyncWriteExecutor())
+                .withReadBatchSize(contentReadBatchSize)
+                .withMaxInFlightReads(contentMaxInFlightReads)
+                .withChildFanOutExecutor(contentChildFanOutExecutor())
+                .withChildFanOutThreshold(contentChildFanOutThreshold)
+                .withChildFanOutMaxInFlight(contentChildFanOutMaxInFlight)
+                .withChildFanOutCoalesceWindowMillis(contentChildFanOutCoalesceWindowMillis)
+                .withChildFanOutMaxRetries(contentChildFanOutMaxRetries)
+                .withChildFanOutRetryBackoffMillis(contentChildFanOutRetryBackoffMillis)
                 .build();
     }
 
@@ -342,6 +644,15 @@ public class CassandraPersistenceModule extends AbstractIdleService implements P
     @Override
     protected void shutDown() throws Exception {
         context.shutdown();
+        if (contentAsyncWriteExecutor != null) {
+            contentAsyncWriteExecutor.shutdown();
+        }
+        if (scheduleContentSweepExecutor != null) {
+            scheduleContentSweepExecutor.shutdownNow();
+        }
+        if (contentChildFanOutExecutor != null) {
+            contentChildFanOutExecutor.shutdown();
+        }
     }
 
     public AstyanaxContext<Keyspace> getContext() {
@@ -452,6 +763,40 @@ public class CassandraPersistenceModule extends AbstractIdleService implements P
         return this.nullMessageSendingEquivalenceGraphStore;
     }
 
+    /**
+     * Near cache for {@code equivalence_graph_index} lookups, present if enabled. Graph stores
+     * created by this module invalidate it on their own writes; writes from other nodes must be
+     * invalidated from the equivalence graph changes stream.
+     */
+    public Optional<IndexCache> equivalenceGraphIndexCache() {
+        return equivalenceGraphIndexCache;
+    }
+
+    /**
+     * Cache of decoded equivalence graphs, present if enabled. Graph stores created by this
+     * module invalidate it on their own writes; writes from other nodes must be invalidated from
+     * the equivalence graph changes stream.
+     */
+    public Optional<GraphCache> equivalenceGraphCache() {
+        return equivalenceGraphCache;
+    }
+
+    /**
+     * Near cache for {@code equivalent_content_index} lookups, present if enabled. It should be
+     * invalidated from the equivalent content graph changes stream.
+     */
+    public Optional<IndexCache> equivalentContentIndexCache() {
+        return equivalentContentIndexCache;
+    }
+
+    /**
+     * Cache of the equivalence graph ids used as partition keys of content update messages,
+     * present if enabled. It should be invalidated from the equivalence graph changes stream.
+     */
+    public Optional<IndexCache> contentPartitionKeyCache() {
+        return contentPartitionKeyCache;
+    }
+
     public com.datastax.driver.core.ConsistencyLevel getReadConsistencyLevel() {
         return processing ? com.datastax.driver.core.ConsistencyLevel.QUORUM
                           : com.datastax.driver.core.ConsistencyLevel.ONE;
@@ -53,6 +53,17 @@ public abstract class AbstractContentStore implements ContentStore {
     private final class ContentWritingVisitor
             implements ContentVisitor<WriteResult<? extends Content, Content>> {
 
+        @Nullable private final String contentHash;
+
+        private ContentWritingVisitor(@Nullable String contentHash) {
+            this.contentHash = contentHash;
+        }
+
+        private void write(Content content, @Nullable Content previous) {
+            ensureId(content);
+            doWriteContent(content, previous, contentHash);
+        }
+
         private boolean hashChanged(Content writing, Content previous) {
             return !hasher.hash(writing).equals(hasher.hash(previous));
         }
@@ -331,6 +342,7 @@ public abstract class AbstractContentStore implements ContentStore {
 
     private static final String METER_CALLED = "meter.called";
     private static final String METER_FAILURE = "meter.failure";
+    private static final String METER_UNCHANGED_BY_HASH = "meter.unchangedByHash";
 
     private final ContentHasher hasher;
     private final IdGenerator idGenerator;
@@ -338,7 +350,7 @@ public abstract class AbstractContentStore implements ContentStore {
     private final Clock clock;
     private final EquivalenceGraphStore graphStore;
 
-    private final ContentWritingVisitor writingVisitor;
+    private final boolean contentHashCheck;
 
     private final MetricRegistry metricRegistry;
     private final String writeContent;
@@ -352,14 +364,15 @@ public abstract class AbstractContentStore implements ContentStore {
             EquivalenceGraphStore graphStore,
             Clock clock,
             MetricRegistry metricRegistry,
-            String metricPrefix
+            String metricPrefix,
+            boolean contentHashCheck
     ) {
         this.hasher = checkNotNull(hasher);
         this.idGenerator = checkNotNull(idGenerator);
         this.sender = checkNotNull(sender);
         this.graphStore = checkNotNull(graphStore);
         this.clock = checkNotNull(clock);
-        this.writingVisitor = new ContentWritingVisitor();
+        this.contentHashCheck = contentHashCheck;
 
         this.metricRegistry = metricRegistry;
 
@@ -369,18 +382,49 @@ public abstract class AbstractContentStore implements ContentStore {
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public final <C extends Content> WriteResult<C, Content> writeContent(C content)
             throws WriteException {
+        return write(content, true);
+    }
+
+    /**
+     * Writes the content like {@link #writeContent(Content)}, without skipping it when its hash
+     * matches the stored one. It is still only written if it differs from its previous version.
+     */
+    @Override
+    public <C extends Content> WriteResult<C, Content> forceWriteContent(C content)
+            throws WriteException {
+        return write(content, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <C extends Content> WriteResult<C, Content> write(C content, boolean checkHash)
+            throws WriteException {
         metricRegistry.meter(writeContent + METER_CALLED).mark();
         try {
             checkNotNull(content, "write null content");
             checkNotNull(content.getSource(), "write unsourced content");
 
+            // hashed before the visitor fills in write times so that re-writing the same
+            // content produces the same hash
+            String hash = contentHashCheck ? hasher.hash(content) : null;
+            Optional<String> previousHash = Optional.absent();
+            if (hash != null && checkHash && content.getId() != null) {
+                previousHash = resolvePreviousHash(content.getId());
+                if (previousHash.isPresent() && previousHash.get().equals(hash)) {
+                    metricRegistry.meter(writeContent + METER_UNCHANGED_BY_HASH).mark();
+                    return WriteResult.<C, Content>unwritten(content).build();
+                }
+            }
+
+            // written content has its hash stored in the same batch by doWriteContent
             WriteResult<C, Content> result =
-                    (WriteResult<C, Content>) content.accept(writingVisitor);
+                    (WriteResult<C, Content>) content.accept(new ContentWritingVisitor(hash));
+
             if (result.written()) {
                 sendResourceUpdatedMessages(createEntityUpdatedMessages(result));
+            } else if (hash != null && !previousHash.equals(Optional.of(hash))) {
+                backfillContentHash(result.getResource().getId(), hash);
             }
             return result;
         } catch (RuntimeWriteException e) {
@@ -389,14 +433,20 @@ public abstract class AbstractContentStore implements ContentStore {
         }
     }
 
-
-    @Override
     /**
-     * Not implemented as it is not used.
+     * Stores the hash of content found to be unchanged by comparing it with its previous version,
+     * so that rows written before hashes were stored can be checked by hash from then on.
+     * Failures are only logged as the write itself has nothing to do.
      */
-    public <C extends Content> WriteResult<C, Content> forceWriteContent(C content)
-            throws WriteException {
-        return writeContent(content);
+    private void backfillContentHash(@Nullable Id id, String hash) {
+        if (id == null) {
+            return;
+        }
+        try {
+            writeContentHash(id, hash);
+        } catch (RuntimeException e) {
+            log.warn("Failed to store hash of content {}", id, e);
+        }
     }
 
     @Override
@@ -564,10 +614,16 @@ public abstract class AbstractContentStore implements ContentStore {
     protected abstract Optional<Content> resolvePrevious(Optional<Id> id, Publisher source,
             Set<Alias> aliases);
 
-    private void write(Content content, Content previous) {
-        ensureId(content);
-        doWriteContent(content, previous);
-    }
+    /**
+     * Resolves only the hash stored with the content with the given id, if there is one, so that
+     * unchanged content can be detected without reading and deserializing the whole of it.
+     */
+    protected abstract Optional<String> resolvePreviousHash(Id id);
+
+    /**
+     * Stores the hash of content that is already written, without writing the content.
+     */
+    protected abstract void writeContentHash(Id id, String hash);
 
     protected void ensureId(Content content) {
         if (content.getId() == null) {
@@ -575,7 +631,15 @@ public abstract class AbstractContentStore implements ContentStore {
         }
     }
 
-    protected abstract void doWriteContent(Content content, @Nullable Content previous);
+    /**
+     * Writes the content, and its hash if there is one, in a single mutation so that the stored
+     * hash never describes content that failed to be written.
+     */
+    protected abstract void doWriteContent(
+            Content content,
+            @Nullable Content previous,
+            @Nullable String contentHash
+    );
 
     protected final ContainerSummary getSummary(ContainerRef primary) {
         ContainerSummary summary = summarize(primary);
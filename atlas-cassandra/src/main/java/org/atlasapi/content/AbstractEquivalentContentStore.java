@@ -62,6 +62,7 @@ public abstract class AbstractEquivalentContentStore implements EquivalentConten
             EquivalenceGraphStore graphStore,
             MessageSender<EquivalentContentUpdatedMessage> equivContentUpdatedMessageSender,
             MessageSender<EquivalenceGraphUpdateMessage> equivGraphUpdatedMessageSender,
+            GroupLock.Type lockType,
             MetricRegistry metricRegistry,
             String metricPrefix
     ) {
@@ -69,7 +70,7 @@ public abstract class AbstractEquivalentContentStore implements EquivalentConten
         this.graphStore = checkNotNull(graphStore);
         this.equivContentUpdatedMessageSender = checkNotNull(equivContentUpdatedMessageSender);
         this.equivGraphUpdatedMessageSender = checkNotNull(equivGraphUpdatedMessageSender);
-        this.lock = GroupLock.natural(
+        this.lock = checkNotNull(lockType).create(
                 checkNotNull(metricRegistry),
                 checkNotNull(metricPrefix)
         );
@@ -48,6 +48,7 @@ import com.netflix.astyanax.Keyspace;
 import com.netflix.astyanax.MutationBatch;
 import com.netflix.astyanax.connectionpool.OperationResult;
 import com.netflix.astyanax.connectionpool.exceptions.ConnectionException;
+import com.netflix.astyanax.model.Column;
 import com.netflix.astyanax.model.ColumnFamily;
 import com.netflix.astyanax.model.ColumnList;
 import com.netflix.astyanax.model.ConsistencyLevel;
@@ -58,6 +59,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static org.atlasapi.content.ContentColumn.CONTENT_HASH;
 import static org.atlasapi.content.ContentColumn.DESCRIPTION;
 import static org.atlasapi.content.ContentColumn.IDENTIFICATION;
 import static org.atlasapi.content.ContentColumn.SOURCE;
@@ -93,6 +95,7 @@ public final class AstyanaxCassandraContentStore extends AbstractContentStore {
         private Clock clock = new SystemClock();
         private MetricRegistry metricRegistry;
         private String metricPrefix;
+        private boolean contentHashCheck = false;
 
         public Builder(
                 AstyanaxContext<Keyspace> context,
@@ -134,6 +137,15 @@ public final class AstyanaxCassandraContentStore extends AbstractContentStore {
             this.metricPrefix = metricPrefix;
             return this;
         }
+
+        /**
+         * Stores the hash of written content in its row and skips writes of content whose hash
+         * matches the stored one without reading the rest of the row.
+         */
+        public Builder withContentHashCheck(boolean contentHashCheck) {
+            this.contentHashCheck = contentHashCheck;
+            return this;
+        }
         
         public AstyanaxCassandraContentStore build() {
             return new AstyanaxCassandraContentStore(
@@ -147,7 +159,8 @@ public final class AstyanaxCassandraContentStore extends AbstractContentStore {
                     graphStore,
                     clock,
                     metricRegistry,
-                    metricPrefix
+                    metricPrefix,
+                    contentHashCheck
             );
         }
     }
@@ -203,9 +216,19 @@ public final class AstyanaxCassandraContentStore extends AbstractContentStore {
             EquivalenceGraphStore graphStore,
             Clock clock,
             MetricRegistry metricRegistry,
-            String metricPrefix
+            String metricPrefix,
+            boolean contentHashCheck
     ) {
-        super(hasher, idGenerator, sender, graphStore, clock, metricRegistry, metricPrefix);
+        super(
+                hasher,
+                idGenerator,
+                sender,
+                graphStore,
+                clock,
+                metricRegistry,
+                metricPrefix,
+                contentHashCheck
+        );
         this.keyspace = checkNotNull(context.getClient());
         this.readConsistency = checkNotNull(readConsistency);
         this.writeConsistency = checkNotNull(writeConsistency);
@@ -252,20 +275,28 @@ public final class AstyanaxCassandraContentStore extends AbstractContentStore {
     }
 
     @Override
-    protected void doWriteContent(Content content, @Nullable Content previous) {
+    protected void doWriteContent(
+            Content content,
+            @Nullable Content previous,
+            @Nullable String contentHash
+    ) {
         try {
             long id = content.getId().longValue();
 
             MutationBatch batch = keyspace.prepareMutationBatch();
             batch.setConsistencyLevel(writeConsistency);
 
+            ColumnListMutation<String> mutation = batch.withRow(mainCf, id);
             marshaller.marshallInto(
                     content.getId(),
-                    batch.withRow(mainCf, id),
+                    mutation,
                     content,
                     java.util.Optional.ofNullable(previous),
                     true
             );
+            if (contentHash != null) {
+                mutation.putColumn(CONTENT_HASH.toString(), contentHash);
+            }
 
             batch.mergeShallow(aliasIndex.mutateAliases(content, previous));
             batch.execute();
@@ -298,6 +329,34 @@ public final class AstyanaxCassandraContentStore extends AbstractContentStore {
         }
     }
 
+    @Override
+    protected Optional<String> resolvePreviousHash(Id id) {
+        try {
+            Column<String> hash = keyspace.prepareQuery(mainCf)
+                    .setConsistencyLevel(readConsistency)
+                    .getKey(id.longValue())
+                    .withColumnSlice(CONTENT_HASH.toString())
+                    .execute()
+                    .getResult()
+                    .getColumnByName(CONTENT_HASH.toString());
+            return hash != null ? Optional.of(hash.getStringValue()) : Optional.absent();
+        } catch (ConnectionException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    @Override
+    protected void writeContentHash(Id id, String hash) {
+        try {
+            MutationBatch batch = keyspace.prepareMutationBatch();
+            batch.setConsistencyLevel(writeConsistency);
+            batch.withRow(mainCf, id.longValue()).putColumn(CONTENT_HASH.toString(), hash);
+            batch.execute();
+        } catch (ConnectionException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
     private Content resolve(long longId, Set<ContentColumn> colNames) {
         try {
             RowQuery<Long, String> query = keyspace.prepareQuery(mainCf)
@@ -379,7 +438,7 @@ public final class AstyanaxCassandraContentStore extends AbstractContentStore {
 
             MutationBatch batch = keyspace.prepareMutationBatch();
             batch.setConsistencyLevel(writeConsistency);
-            ColumnListMutation<String> mutation = batch.withRow(mainCf, rowId);
+            ColumnListMutation<String> mutation = partialRowMutation(batch, rowId);
 
             marshaller.marshallInto(
                     primary.getId(),
@@ -395,18 +454,27 @@ public final class AstyanaxCassandraContentStore extends AbstractContentStore {
         }
     }
 
+    /**
+     * Mutation of a row changed outside a full content write. Such a row may no longer match the
+     * content its stored hash was taken from, so the hash is cleared and the next write of that
+     * content is not skipped as unchanged.
+     */
+    private ColumnListMutation<String> partialRowMutation(MutationBatch batch, long rowId) {
+        return batch.withRow(mainCf, rowId).deleteColumn(CONTENT_HASH.toString());
+    }
+
     private void removeContentRef(ContainerRef containerRef, ContentRef contentRef,
             MutationBatch batch) {
         Long rowId = containerRef.getId().longValue();
         String columnId = contentRef.getId().toString();
-        ColumnListMutation<String> mutation = batch.withRow(mainCf, rowId);
+        ColumnListMutation<String> mutation = partialRowMutation(batch, rowId);
         mutation.deleteColumn(columnId);
     }
 
     private void removeItemSummaries(ContainerRef containerRef, ItemRef itemRef,
             MutationBatch batch) {
         Long rowId = containerRef.getId().longValue();
-        ColumnListMutation<String> mutation = batch.withRow(mainCf, rowId);
+        ColumnListMutation<String> mutation = partialRowMutation(batch, rowId);
         mutation.deleteColumn(AstyanaxProtobufContentMarshaller.buildItemSummaryKey(
                 itemRef.getId().longValue())
         );
@@ -415,7 +483,7 @@ public final class AstyanaxCassandraContentStore extends AbstractContentStore {
     private void removeAvailableContent(ContainerRef containerRef, ItemRef itemRef,
             MutationBatch batch) {
         Long rowId = containerRef.getId().longValue();
-        ColumnListMutation<String> mutation = batch.withRow(mainCf, rowId);
+        ColumnListMutation<String> mutation = partialRowMutation(batch, rowId);
         mutation.deleteColumn(AstyanaxProtobufContentMarshaller.buildAvailableContentKey(
                 itemRef.getId().longValue())
         );
@@ -424,7 +492,7 @@ public final class AstyanaxCassandraContentStore extends AbstractContentStore {
     private void removeUpcomingContent(ContainerRef brancontainerRefRef, ItemRef itemRef,
             MutationBatch batch) {
         Long rowId = brancontainerRefRef.getId().longValue();
-        ColumnListMutation<String> mutation = batch.withRow(mainCf, rowId);
+        ColumnListMutation<String> mutation = partialRowMutation(batch, rowId);
         mutation.deleteColumn(AstyanaxProtobufContentMarshaller.buildUpcomingContentKey(
                 itemRef.getId().longValue())
         );
@@ -462,7 +530,7 @@ public final class AstyanaxCassandraContentStore extends AbstractContentStore {
                     container.setItemSummaries(ImmutableList.of(item.toSummary()));
                 }
 
-                ColumnListMutation<String> mutation = batch.withRow(mainCf, rowId);
+                ColumnListMutation<String> mutation = partialRowMutation(batch, rowId);
                 marshaller.marshallInto(
                         containerRef.getId(),
                         mutation,
@@ -481,7 +549,7 @@ public final class AstyanaxCassandraContentStore extends AbstractContentStore {
                 container.setUpcomingContent(upcomingBroadcasts);
                 container.setAvailableContent(availableLocations);
                 container.setItemSummaries(ImmutableList.of(episode.toSummary()));
-                ColumnListMutation<String> mutation = batch.withRow(mainCf, rowId);
+                ColumnListMutation<String> mutation = partialRowMutation(batch, rowId);
 
                 marshaller.marshallInto(
                         episode.getSeriesRef().getId(),
@@ -511,8 +579,8 @@ public final class AstyanaxCassandraContentStore extends AbstractContentStore {
         item.addBroadcast(broadcast);
         MutationBatch batch = keyspace.prepareMutationBatch();
         batch.setConsistencyLevel(writeConsistency);
-        ColumnListMutation<String> itemMutation = batch.withRow(
-                mainCf,
+        ColumnListMutation<String> itemMutation = partialRowMutation(
+                batch,
                 itemRef.getId().longValue()
         );
         marshaller.marshallInto(
@@ -538,8 +606,8 @@ public final class AstyanaxCassandraContentStore extends AbstractContentStore {
                 Container container = new Brand();
                 container.setThisOrChildLastUpdated(itemRef.getUpdated());
                 container.setUpcomingContent(upcomingBroadcasts);
-                ColumnListMutation<String> containerMutation = batch.withRow(
-                        mainCf,
+                ColumnListMutation<String> containerMutation = partialRowMutation(
+                        batch,
                         containerRef.get().getId().longValue()
                 );
                 marshaller.marshallInto(
@@ -557,8 +625,8 @@ public final class AstyanaxCassandraContentStore extends AbstractContentStore {
                 container.setItemRefs(ImmutableList.of(itemRef));
                 container.setThisOrChildLastUpdated(itemRef.getUpdated());
                 container.setUpcomingContent(upcomingBroadcasts);
-                ColumnListMutation<String> seriesMutation = batch.withRow(
-                        mainCf,
+                ColumnListMutation<String> seriesMutation = partialRowMutation(
+                        batch,
                         seriesRef.get().getId().longValue()
                 );
                 marshaller.marshallInto(
@@ -583,8 +651,8 @@ public final class AstyanaxCassandraContentStore extends AbstractContentStore {
         for (ItemRef itemRef : items) {
             Item item = itemFromRef(itemRef);
             item.setContainerSummary(summary);
-            ColumnListMutation<String> itemMutation = batch.withRow(
-                    mainCf,
+            ColumnListMutation<String> itemMutation = partialRowMutation(
+                    batch,
                     itemRef.getId().longValue()
             );
             marshaller.marshallInto(
@@ -270,8 +270,12 @@ public class AstyanaxProtobufContentMarshaller
     }
 
     private Iterable<byte[]> toByteArrayValues(ColumnList<String> columns) {
+        // the content hash column is not part of the protobuf message
         return Iterables.transform(
-                columns,
+                Iterables.filter(
+                        columns,
+                        column -> !ContentColumn.CONTENT_HASH.toString().equals(column.getName())
+                ),
                 new Function<Column<String>, byte[]>() {
 
                     @Nullable
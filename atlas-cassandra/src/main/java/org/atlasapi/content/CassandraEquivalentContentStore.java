@@ -1,5 +1,7 @@
 package org.atlasapi.content;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.datastax.driver.core.BatchStatement;
 import com.datastax.driver.core.BoundStatement;
@@ -12,40 +14,44 @@ import com.datastax.driver.core.Session;
 import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
 import com.google.common.base.Function;
-import com.google.common.base.Optional;
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.SetMultimap;
 import com.google.common.util.concurrent.AsyncFunction;
-import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.SettableFuture;
-import com.google.protobuf.ByteString;
 import com.metabroadcast.common.queue.MessageSender;
 import com.metabroadcast.common.stream.MoreCollectors;
 import com.metabroadcast.common.stream.MoreStreams;
 import org.atlasapi.annotation.Annotation;
 import org.atlasapi.entity.Id;
-import org.atlasapi.entity.Identified;
 import org.atlasapi.entity.util.Resolved;
 import org.atlasapi.equivalence.EquivalenceGraph;
+import org.atlasapi.equivalence.CompactEquivalenceGraph;
 import org.atlasapi.equivalence.EquivalenceGraphFilter;
 import org.atlasapi.equivalence.EquivalenceGraphSerializer;
 import org.atlasapi.equivalence.EquivalenceGraphStore;
 import org.atlasapi.equivalence.EquivalenceGraphUpdate;
 import org.atlasapi.equivalence.EquivalenceGraphUpdateMessage;
 import org.atlasapi.equivalence.ResolvedEquivalents;
+import org.atlasapi.locks.GroupLock;
 import org.atlasapi.media.entity.Publisher;
 import org.atlasapi.messaging.EquivalentContentUpdatedMessage;
 import org.atlasapi.segment.SegmentEvent;
 import org.atlasapi.serialization.protobuf.ContentProtos;
 import org.atlasapi.system.legacy.LegacyContentResolver;
+import org.atlasapi.util.BoundedFutures;
 import org.atlasapi.util.CassandraSecondaryIndex;
+import org.atlasapi.util.CompressedBlobs;
+import org.atlasapi.util.ProtobufByteBuffers;
+import org.atlasapi.util.ReplicaBatches;
 import org.atlasapi.util.SecondaryIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -55,24 +61,24 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.List;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import static com.datastax.driver.core.querybuilder.QueryBuilder.asc;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.bindMarker;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.delete;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.in;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.select;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.set;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 public class CassandraEquivalentContentStore extends AbstractEquivalentContentStore {
@@ -84,18 +90,25 @@ public class CassandraEquivalentContentStore extends AbstractEquivalentContentSt
     public static final String CONTENT_ID_KEY = "content_id";
     public static final String DATA_KEY = "data";
     public static final String GRAPH_KEY = "graph";
+    public static final String SOURCE_KEY = "source";
+    public static final String ACTIVELY_PUBLISHED_KEY = "actively_published";
+    public static final String VERSION_KEY = "version";
 
     private static final String SET_ID_BIND = "set_id";
+    private static final String SET_IDS_BIND = "set_ids";
     private static final String CONTENT_ID_BIND = "content_id";
     private static final String DATA_BIND = "data";
     private static final String GRAPH_BIND = "graph";
-
-    private static final int NUMBER_OF_CASSANDRA_SELECT_RETRIES = 3;
+    private static final String SOURCE_BIND = "source";
+    private static final String ACTIVELY_PUBLISHED_BIND = "actively_published";
+    private static final String VERSION_BIND = "version";
 
     private static final int GRAPH_SIZE_ALERTING_THRESHOLD = 150;
 
     private static final int DEFAULT_FETCH_SIZE = 30;
 
+    private static final int DEFAULT_MAX_IN_FLIGHT_READ_BATCHES = 4;
+
     private final LegacyContentResolver legacyContentResolver;
     private final Session session;
     private final ConsistencyLevel writeConsistency;
@@ -103,6 +116,15 @@ public class CassandraEquivalentContentStore extends AbstractEquivalentContentSt
 
     private final SecondaryIndex index;
 
+    private final boolean compressData;
+    private final boolean compactGraphs;
+    private final int readBatchSize;
+    private final int maxInFlightReadBatches;
+    private final Histogram readBatches;
+    private final Meter inconsistentSetReads;
+
+    private final AtomicLong lastVersion = new AtomicLong();
+
     private final Logger log = LoggerFactory.getLogger(getClass());
     private final ContentSerializer contentSerializer;
     private final EquivalenceGraphSerializer graphSerializer;
@@ -113,7 +135,11 @@ public class CassandraEquivalentContentStore extends AbstractEquivalentContentSt
     private final PreparedStatement setDelete;
     private final PreparedStatement dataRowUpdate;
     private final PreparedStatement graphUpdate;
+    private final PreparedStatement versionUpdate;
     private final PreparedStatement equivSetSelect;
+    private final PreparedStatement batchDataSelect;
+    private final PreparedStatement batchGraphSelect;
+    private final PreparedStatement snapshotSelect;
 
     public CassandraEquivalentContentStore(
             ContentResolver contentResolver,
@@ -127,26 +153,64 @@ public class CassandraEquivalentContentStore extends AbstractEquivalentContentSt
             MetricRegistry metricRegistry,
             String metricPrefix
     ) {
+        this(builder()
+                .withContentResolver(contentResolver)
+                .withLegacyContentResolver(legacyContentResolver)
+                .withGraphStore(graphStore)
+                .withContentUpdatedMessageSender(contentUpdatedMessageSender)
+                .withGraphUpdatedMessageSender(graphUpdatedMessageSender)
+                .withSession(session)
+                .withReadConsistency(read)
+                .withWriteConsistency(write)
+                .withMetricRegistry(metricRegistry)
+                .withMetricPrefix(metricPrefix)
+        );
+    }
+
+    private CassandraEquivalentContentStore(Builder builder) {
         super(
-                contentResolver,
-                graphStore,
-                contentUpdatedMessageSender,
-                graphUpdatedMessageSender,
-                metricRegistry,
-                metricPrefix
+                builder.contentResolver,
+                builder.graphStore,
+                builder.contentUpdatedMessageSender,
+                builder.graphUpdatedMessageSender,
+                builder.lockType,
+                builder.metricRegistry,
+                builder.metricPrefix
         );
-        this.legacyContentResolver = checkNotNull(legacyContentResolver);
+        ConsistencyLevel read = checkNotNull(builder.readConsistency);
+        ConsistencyLevel write = checkNotNull(builder.writeConsistency);
+
+        this.legacyContentResolver = checkNotNull(builder.legacyContentResolver);
         this.contentSerializer = new ContentSerializer(new ContentSerializationVisitor());
         this.graphSerializer = new EquivalenceGraphSerializer();
-        this.session = session;
+        this.session = checkNotNull(builder.session);
         this.readConsistency = read;
         this.writeConsistency = write;
-        this.index = new CassandraSecondaryIndex(session, EQUIVALENT_CONTENT_INDEX, read);
+        this.index = builder.index != null
+                     ? builder.index
+                     : new CassandraSecondaryIndex(session, EQUIVALENT_CONTENT_INDEX, read);
+
+        this.compressData = builder.compressData;
+        this.compactGraphs = builder.compactGraphs;
+
+        checkArgument(builder.readBatchSize >= 0, "read batch size must not be negative");
+        checkArgument(builder.maxInFlightReadBatches > 0, "max in-flight batches must be positive");
+        this.readBatchSize = builder.readBatchSize;
+        this.maxInFlightReadBatches = builder.maxInFlightReadBatches;
+        this.readBatches = builder.metricRegistry.histogram(
+                builder.metricPrefix + "histogram.readBatches"
+        );
+        this.inconsistentSetReads = builder.metricRegistry.meter(
+                builder.metricPrefix + "meter.inconsistentSetReads"
+        );
 
         RegularStatement dataStatement = select(
                 SET_ID_KEY,
                 CONTENT_ID_KEY,
-                DATA_KEY
+                SOURCE_KEY,
+                ACTIVELY_PUBLISHED_KEY,
+                DATA_KEY,
+                VERSION_KEY
         )
                 .from(EQUIVALENT_CONTENT_TABLE)
                 .where(eq(SET_ID_KEY, bindMarker(SET_ID_BIND)))
@@ -158,7 +222,8 @@ public class CassandraEquivalentContentStore extends AbstractEquivalentContentSt
         //Despite being a static column we need to query the graph data separately to prevent fetching a potentially large equiv graph for each member of an equiv set
         RegularStatement graphStatement = select(
                 SET_ID_KEY,
-                GRAPH_KEY
+                GRAPH_KEY,
+                VERSION_KEY
         )
                 .from(EQUIVALENT_CONTENT_TABLE)
                 .where(eq(SET_ID_KEY, bindMarker(SET_ID_BIND)))
@@ -180,11 +245,19 @@ public class CassandraEquivalentContentStore extends AbstractEquivalentContentSt
         this.dataRowUpdate = session.prepare(QueryBuilder.update(EQUIVALENT_CONTENT_TABLE)
                 .where(eq(SET_ID_KEY, bindMarker(SET_ID_BIND)))
                 .and(eq(CONTENT_ID_KEY, bindMarker(CONTENT_ID_BIND)))
-                .with(set(DATA_KEY, bindMarker(DATA_BIND))));
+                .with(set(DATA_KEY, bindMarker(DATA_BIND)))
+                .and(set(SOURCE_KEY, bindMarker(SOURCE_BIND)))
+                .and(set(ACTIVELY_PUBLISHED_KEY, bindMarker(ACTIVELY_PUBLISHED_BIND))));
 
         this.graphUpdate = session.prepare(QueryBuilder.update(EQUIVALENT_CONTENT_TABLE)
                 .where(eq(SET_ID_KEY, bindMarker(SET_ID_BIND)))
                 .with(set(GRAPH_KEY, bindMarker(GRAPH_BIND)))
+                .and(set(VERSION_KEY, bindMarker(VERSION_BIND)))
+        );
+
+        this.versionUpdate = session.prepare(QueryBuilder.update(EQUIVALENT_CONTENT_TABLE)
+                .where(eq(SET_ID_KEY, bindMarker(SET_ID_BIND)))
+                .with(set(VERSION_KEY, bindMarker(VERSION_BIND)))
         );
 
         this.equivSetSelect = session.prepare(
@@ -193,6 +266,56 @@ public class CassandraEquivalentContentStore extends AbstractEquivalentContentSt
                         .where(eq(SET_ID_KEY, bindMarker()))
         );
         this.equivSetSelect.setConsistencyLevel(readConsistency);
+
+        // Multi-partition counterparts of the data and graph selects. ORDER BY cannot be combined
+        // with paging over an IN restriction, but rows still come back in clustering order
+        // within each set.
+        RegularStatement batchDataStatement = select(
+                SET_ID_KEY,
+                CONTENT_ID_KEY,
+                SOURCE_KEY,
+                ACTIVELY_PUBLISHED_KEY,
+                DATA_KEY,
+                VERSION_KEY
+        )
+                .from(EQUIVALENT_CONTENT_TABLE)
+                .where(in(SET_ID_KEY, bindMarker(SET_IDS_BIND)));
+        batchDataStatement.setFetchSize(DEFAULT_FETCH_SIZE);
+        batchDataStatement.setConsistencyLevel(read);
+        this.batchDataSelect = session.prepare(batchDataStatement);
+
+        // DISTINCT returns a single row per set with the static graph column
+        RegularStatement batchGraphStatement = select()
+                .distinct()
+                .column(SET_ID_KEY)
+                .column(GRAPH_KEY)
+                .column(VERSION_KEY)
+                .from(EQUIVALENT_CONTENT_TABLE)
+                .where(in(SET_ID_KEY, bindMarker(SET_IDS_BIND)));
+        batchGraphStatement.setConsistencyLevel(read);
+        this.batchGraphSelect = session.prepare(batchGraphStatement);
+
+        // Reads graph and data of one set together. A single page of a single partition is read
+        // in isolation from writes, so this always sees one version of the set. It repeats the
+        // graph on every row, so it is only used for sets the cheaper reads saw mid-write.
+        RegularStatement snapshotStatement = select(
+                SET_ID_KEY,
+                CONTENT_ID_KEY,
+                SOURCE_KEY,
+                ACTIVELY_PUBLISHED_KEY,
+                DATA_KEY,
+                GRAPH_KEY,
+                VERSION_KEY
+        )
+                .from(EQUIVALENT_CONTENT_TABLE)
+                .where(eq(SET_ID_KEY, bindMarker(SET_ID_BIND)));
+        snapshotStatement.setFetchSize(Integer.MAX_VALUE);
+        snapshotStatement.setConsistencyLevel(read);
+        this.snapshotSelect = session.prepare(snapshotStatement);
+    }
+
+    public static Builder builder() {
+        return new Builder();
     }
 
     @Override
@@ -204,17 +327,15 @@ public class CassandraEquivalentContentStore extends AbstractEquivalentContentSt
     ) {
         log.debug("Resolving IDs {}", Iterables.toString(ids));
 
-        final SettableFuture<ResolvedEquivalents<Content>> result = SettableFuture.create();
-
-        resolveWithConsistency(
-                result,
-                ids,
-                selectedSources,
-                activeAnnotations,
+        ListenableFuture<ImmutableMap<Long, Long>> setsToResolve = index.lookup(
+                Iterables.transform(ids, Id.toLongValue()),
                 consistencyLevel != null ? consistencyLevel : readConsistency
         );
 
-        return result;
+        return Futures.transformAsync(
+                setsToResolve,
+                toEquivalentsSets(selectedSources, activeAnnotations)
+        );
     }
 
     @Override
@@ -247,66 +368,27 @@ public class CassandraEquivalentContentStore extends AbstractEquivalentContentSt
                             builder.putEquivalents(entry.getKey(), ImmutableSet.of(content));
                         }
                     }
+                    input.getVersion(entry.getKey())
+                            .ifPresent(version -> builder.putVersion(entry.getKey(), version));
                 }
                 return builder.build();
             }
         };
     }
 
-    private void resolveWithConsistency(final SettableFuture<ResolvedEquivalents<Content>> result,
-            final Iterable<Id> ids, final Set<Publisher> selectedSources, Set<Annotation> activeAnnotations,
-            final ConsistencyLevel readConsistency) {
-        ListenableFuture<ImmutableMap<Long, Long>> setsToResolve =
-                index.lookup(Iterables.transform(ids, Id.toLongValue()), readConsistency);
-
-        Futures.addCallback(
-                Futures.transform(
-                        setsToResolve,
-                        toEquivalentsSets(selectedSources, activeAnnotations)
-                ),
-                new FutureCallback<Optional<ResolvedEquivalents<Content>>>() {
-
-                    @Override
-                    public void onSuccess(Optional<ResolvedEquivalents<Content>> resolved) {
-                        /* Because QUORUM writes are used, reads may see a set in an inconsistent 
-                         * state. If a set is read in an inconsistent state then a second read is 
-                         * attempted at QUORUM level; slower being better than incorrect.
-                         */
-                        if (resolved.isPresent()) {
-                            result.set(resolved.get());
-                        } else if (readConsistency != ConsistencyLevel.QUORUM) {
-                            resolveWithConsistency(
-                                    result,
-                                    ids,
-                                    selectedSources,
-                                    activeAnnotations,
-                                    ConsistencyLevel.QUORUM
-                            );
-                        } else {
-                            result.setException(new IllegalStateException("Failed to resolve "
-                                    + ids));
-                        }
-                    }
-
-                    @Override
-                    public void onFailure(Throwable t) {
-                        result.setException(t);
-                    }
-                }
-        );
-    }
-
-    private AsyncFunction<Map<Long, Long>, Optional<ResolvedEquivalents<Content>>> toEquivalentsSets(
+    private AsyncFunction<Map<Long, Long>, ResolvedEquivalents<Content>> toEquivalentsSets(
             final Set<Publisher> selectedSources,
             final Set<Annotation> annotations
     ) {
         return index -> Futures.transform(
-                resultOf(selectSetsQueries(index.values())),
+                readBatchSize > 0
+                ? resultOfBatches(index.values())
+                : resultOf(selectSetsQueries(index.values())),
                 toEquivalentsSets(index, annotations, selectedSources)
         );
     }
 
-    private Function<List<GraphAndDataResults>, Optional<ResolvedEquivalents<Content>>> toEquivalentsSets(
+    private Function<List<GraphAndDataResults>, ResolvedEquivalents<Content>> toEquivalentsSets(
             Map<Long, Long> index,
             Set<Annotation> activeAnnotations,
             Set<Publisher> selectedSources
@@ -319,17 +401,31 @@ public class CassandraEquivalentContentStore extends AbstractEquivalentContentSt
                     index
             );
 
+            ImmutableMap<Long, Long> versions = setVersions(results);
+
             ResolvedEquivalents.Builder<Content> resolved = ResolvedEquivalents.builder();
 
-            index.forEach((key, value) -> resolved.putEquivalents(
-                    Id.valueOf(key),
-                    sets.get(value)
-            ));
+            index.forEach((key, value) -> {
+                resolved.putEquivalents(Id.valueOf(key), sets.get(value));
+                Long version = versions.get(value);
+                if (version != null) {
+                    resolved.putVersion(Id.valueOf(key), version);
+                }
+            });
 
-            return Optional.of(resolved.build());
+            return resolved.build();
         };
     }
 
+    private ImmutableMap<Long, Long> setVersions(List<GraphAndDataResults> results) {
+        Map<Long, Long> versions = new HashMap<>();
+        results.stream()
+                .flatMap(graphAndDataResults -> graphAndDataResults.graphResult.stream())
+                .filter(row -> !row.isNull(VERSION_KEY))
+                .forEach(row -> versions.put(row.getLong(SET_ID_KEY), row.getLong(VERSION_KEY)));
+        return ImmutableMap.copyOf(versions);
+    }
+
     private Multimap<Long, Content> deserialize(
             List<GraphAndDataResults> results,
             Set<Annotation> activeAnnotations,
@@ -376,19 +472,20 @@ public class CassandraEquivalentContentStore extends AbstractEquivalentContentSt
             log.warn("Byte calculation failed for {}", graphRows.keys(), e);
         }
 
-        ImmutableMap<Long, java.util.Optional<EquivalenceGraph>> graphs = deserializeGraphs(graphRows);
-        ImmutableSetMultimap<Long, Content> content = deserializeContent(
+        ImmutableMap<Long, java.util.Optional<SetGraph>> graphs = deserializeGraphs(graphRows);
+        ImmutableListMultimap<Long, SetMember> members = deserializeMembers(
                 setRows,
-                activeAnnotations
+                activeAnnotations,
+                selectedSources
         );
 
-        return filterContentSets(selectedSources, content, graphs, index, activeAnnotations);
+        return filterContentSets(selectedSources, members, graphs, index, activeAnnotations);
     }
 
-    private ImmutableMap<Long, java.util.Optional<EquivalenceGraph>> deserializeGraphs(
+    private ImmutableMap<Long, java.util.Optional<SetGraph>> deserializeGraphs(
             ImmutableListMultimap<Long, Row> rows
     ) {
-        ImmutableMap<Long, java.util.Optional<EquivalenceGraph>> graphs =
+        ImmutableMap<Long, java.util.Optional<SetGraph>> graphs =
                 rows.keySet()
                 .stream()
                 .collect(MoreCollectors.toImmutableMap(
@@ -407,32 +504,66 @@ public class CassandraEquivalentContentStore extends AbstractEquivalentContentSt
                 .stream()
                 .filter(java.util.Optional::isPresent)
                 .map(java.util.Optional::get)
-                .filter(graph -> graph.getEquivalenceSet().size() > GRAPH_SIZE_ALERTING_THRESHOLD)
+                .filter(graph -> graph.size() > GRAPH_SIZE_ALERTING_THRESHOLD)
                 .forEach(graph -> log.warn(
                         "Found large graph with id: {}, size: {}",
                         graph.getId(),
-                        graph.getEquivalenceSet().size()
+                        graph.size()
                 ));
 
         return graphs;
     }
 
-    private ImmutableSetMultimap<Long, Content> deserializeContent(
+    private ImmutableListMultimap<Long, SetMember> deserializeMembers(
             ImmutableListMultimap<Long, Row> rows,
-            Set<Annotation> activeAnnotations
+            Set<Annotation> activeAnnotations,
+            Set<Publisher> selectedSources
     ) {
         return rows.entries()
                 .stream()
-                .collect(MoreCollectors.toImmutableSetMultiMap(
+                .collect(MoreCollectors.toImmutableListMultiMap(
                         Entry::getKey,
-                        rowEntry -> deserializeInternal(rowEntry.getValue(), activeAnnotations)
+                        rowEntry -> deserializeMember(
+                                rowEntry.getValue(),
+                                activeAnnotations,
+                                selectedSources
+                        )
                 ));
     }
 
+    // Rows carry the source and publishing status of their content alongside the data blob, so
+    // members from sources that were not selected can take part in graph filtering without the
+    // cost of decoding them. Rows written before those columns existed are always decoded.
+    private SetMember deserializeMember(
+            Row row,
+            Set<Annotation> activeAnnotations,
+            Set<Publisher> selectedSources
+    ) {
+        java.util.Optional<Publisher> source = sourceOf(row);
+        if (source.isPresent()
+                && !selectedSources.contains(source.get())
+                && !row.isNull(ACTIVELY_PUBLISHED_KEY)) {
+            return SetMember.undecoded(
+                    Id.valueOf(row.getLong(CONTENT_ID_KEY)),
+                    row.getBool(ACTIVELY_PUBLISHED_KEY)
+            );
+        }
+        return SetMember.decoded(deserializeInternal(row, activeAnnotations));
+    }
+
+    private java.util.Optional<Publisher> sourceOf(Row row) {
+        if (row.isNull(SOURCE_KEY)) {
+            return java.util.Optional.empty();
+        }
+        return java.util.Optional.ofNullable(
+                Publisher.fromKey(row.getString(SOURCE_KEY)).valueOrNull()
+        );
+    }
+
     private Multimap<Long, Content> filterContentSets(
             Set<Publisher> selectedSources,
-            ImmutableSetMultimap<Long, Content> content,
-            ImmutableMap<Long, java.util.Optional<EquivalenceGraph>> graphs,
+            ImmutableListMultimap<Long, SetMember> members,
+            ImmutableMap<Long, java.util.Optional<SetGraph>> graphs,
             Map<Long, Long> index,
             Set<Annotation> activeAnnotations
     ) {
@@ -455,37 +586,36 @@ public class CassandraEquivalentContentStore extends AbstractEquivalentContentSt
                 : ImmutableSet.of();
 
 
-        for (Long setId : content.keySet()) {
-
-            Stream<Content> contentStream = content.get(setId).stream();
+        for (Long setId : members.keySet()) {
 
-            if (!allowUnpublished) {
-                contentStream = contentStream.filter(Content::isActivelyPublished);
-            }
+            ImmutableList<SetMember> setMembers = members.get(setId);
 
-            ImmutableSet<Id> ids = contentStream
-                    .map(Content::getId)
+            ImmutableSet<Id> ids = setMembers.stream()
+                    .filter(member -> allowUnpublished || member.activelyPublished)
+                    .map(member -> member.id)
                     .collect(MoreCollectors.toImmutableSet());
 
-            java.util.Optional<EquivalenceGraph> graph = graphs.get(setId);
+            java.util.Optional<SetGraph> graph = graphs.get(setId);
             if (graph == null) {
                 log.warn("Graph was expected to exist as an optional, but was null for SetId: {}."
                          + "\nContent keyset: {}\n Graph keyset: {}",
                         setId,
-                        content.keySet(),
+                        members.keySet(),
                         graphs.keySet());
             }
 
-            ImmutableSet<Content> filteredContent = content.get(setId)
-                    .stream()
-                    .filter(EquivalenceGraphFilter
-                            .builder()
-                            .withGraphEntryId(java.util.Optional.of(Id.valueOf(
-                                    // If we have requested the same graph multiple
-                                    // times from different IDs then arbitrarily pick one
-                                    inverseIndex.get(setId).iterator().next()
-                            )))
-                            .withGraph(graph)
+            EquivalenceGraphFilter.GraphStep graphFilter = EquivalenceGraphFilter
+                    .builder()
+                    .withGraphEntryId(java.util.Optional.of(Id.valueOf(
+                            // If we have requested the same graph multiple
+                            // times from different IDs then arbitrarily pick one
+                            inverseIndex.get(setId).iterator().next()
+                    )));
+
+            ImmutableSet<Content> filteredContent = setMembers.stream()
+                    .filter(member -> member.content != null)
+                    .map(member -> member.content)
+                    .filter(withGraph(graphFilter, graph)
                             .withSelectedSources(selectedSources)
                             .withSelectedGraphSources(selectedSources)
                             .withIds(ids)
@@ -503,6 +633,16 @@ public class CassandraEquivalentContentStore extends AbstractEquivalentContentSt
         return filteredContentBuilder.build();
     }
 
+    private EquivalenceGraphFilter.SelectedSourcesStep withGraph(
+            EquivalenceGraphFilter.GraphStep graphFilter,
+            java.util.Optional<SetGraph> graph
+    ) {
+        if (graph.isPresent() && graph.get().compactGraph != null) {
+            return graphFilter.withCompactGraph(java.util.Optional.of(graph.get().compactGraph));
+        }
+        return graphFilter.withGraph(graph.map(setGraph -> setGraph.graph));
+    }
+
     private Content deserialize(Row row) {
         return deserializeInternal(row, Annotation.all());
     }
@@ -525,8 +665,10 @@ public class CassandraEquivalentContentStore extends AbstractEquivalentContentSt
                 return content;
 
             }
-            ByteString bytes = ByteString.copyFrom(row.getBytes(DATA_KEY));
-            ContentProtos.Content buffer = ContentProtos.Content.parseFrom(bytes);
+            ContentProtos.Content buffer = ProtobufByteBuffers.parseFrom(
+                    CompressedBlobs.decompress(row.getBytes(DATA_KEY)),
+                    ContentProtos.Content.parser()
+            );
             Content content = contentSerializer.deserialize(buffer, annotations);
             if (content instanceof Item) {
                 Item item = (Item) content;
@@ -542,14 +684,100 @@ public class CassandraEquivalentContentStore extends AbstractEquivalentContentSt
 
     private ListenableFuture<List<GraphAndDataResults>> resultOf(Iterable<GraphAndDataSelect> queries) {
         return Futures.allAsList(MoreStreams.stream(queries)
-                .map(query -> new SetSelectFuture(
-                        query.dataStatement,
-                        query.graphStatement))
+                .map(query -> selectSets(query.dataStatement, query.graphStatement))
                 .collect(MoreCollectors.toImmutableList()));
     }
 
+    // The graph and data of a set are read separately, so a write to the set can land between
+    // the two reads. Every write to a set gives it a new version, which both reads return, so
+    // sets read at different versions are spotted and each read again, in parallel, in a single
+    // snapshot read of its partition rather than by retrying both reads.
+    private ListenableFuture<GraphAndDataResults> selectSets(
+            Statement dataStatement,
+            Statement graphStatement
+    ) {
+        ListenableFuture<ResultSet> dataResult = session.executeAsync(dataStatement);
+        ListenableFuture<ResultSet> graphResult = session.executeAsync(graphStatement);
+
+        return Futures.transformAsync(
+                Futures.allAsList(graphResult, dataResult),
+                results -> reconcile(results.get(0).all(), results.get(1).all())
+        );
+    }
+
+    private ListenableFuture<GraphAndDataResults> reconcile(
+            List<Row> graphRows,
+            List<Row> dataRows
+    ) {
+        ImmutableSet<Long> inconsistentSetIds = inconsistentSetIds(graphRows, dataRows);
+        if (inconsistentSetIds.isEmpty()) {
+            return Futures.immediateFuture(new GraphAndDataResults(graphRows, dataRows));
+        }
+
+        inconsistentSetReads.mark(inconsistentSetIds.size());
+        log.debug("Re-reading sets {} seen mid-write", inconsistentSetIds);
+
+        return Futures.transform(
+                Futures.allAsList(inconsistentSetIds.stream()
+                        .map(setId -> session.executeAsync(
+                                snapshotSelect.bind().setLong(SET_ID_BIND, setId)
+                        ))
+                        .collect(MoreCollectors.toImmutableList())),
+                (List<ResultSet> snapshots) -> {
+                    List<Row> snapshotRows = snapshots.stream()
+                            .flatMap(snapshot -> snapshot.all().stream())
+                            .collect(MoreCollectors.toImmutableList());
+                    return new GraphAndDataResults(
+                            replaceRows(graphRows, inconsistentSetIds, snapshotRows),
+                            replaceRows(dataRows, inconsistentSetIds, snapshotRows)
+                    );
+                }
+        );
+    }
+
+    private ImmutableSet<Long> inconsistentSetIds(List<Row> graphRows, List<Row> dataRows) {
+        SetMultimap<Long, java.util.Optional<Long>> graphVersions = versionsBySetId(graphRows);
+        SetMultimap<Long, java.util.Optional<Long>> dataVersions = versionsBySetId(dataRows);
+
+        // Sets written before versions were introduced have no version on either read, and are
+        // only considered consistent if both reads found them. The data of a large set is read
+        // over several pages, which can straddle a write, so its rows must all agree too.
+        return Sets.union(graphVersions.keySet(), dataVersions.keySet())
+                .stream()
+                .filter(setId -> dataVersions.get(setId).size() != 1
+                        || !graphVersions.get(setId).equals(dataVersions.get(setId)))
+                .collect(MoreCollectors.toImmutableSet());
+    }
+
+    private SetMultimap<Long, java.util.Optional<Long>> versionsBySetId(List<Row> rows) {
+        SetMultimap<Long, java.util.Optional<Long>> versions = HashMultimap.create();
+        for (Row row : rows) {
+            versions.put(
+                    row.getLong(SET_ID_KEY),
+                    row.isNull(VERSION_KEY)
+                    ? java.util.Optional.empty()
+                    : java.util.Optional.of(row.getLong(VERSION_KEY))
+            );
+        }
+        return versions;
+    }
+
+    private ImmutableList<Row> replaceRows(
+            List<Row> rows,
+            ImmutableSet<Long> setIds,
+            List<Row> replacements
+    ) {
+        return ImmutableList.<Row>builder()
+                .addAll(rows.stream()
+                        .filter(row -> !setIds.contains(row.getLong(SET_ID_KEY)))
+                        .iterator())
+                .addAll(replacements)
+                .build();
+    }
+
     private Iterable<GraphAndDataSelect> selectSetsQueries(Iterable<Long> keys) {
         return StreamSupport.stream(keys.spliterator(), false)
+                .distinct()
                 .map(k -> new GraphAndDataSelect(
                         graphSelect.bind().setLong(SET_ID_BIND, k),
                         dataSelect.bind().setLong(SET_ID_BIND, k)
@@ -557,18 +785,44 @@ public class CassandraEquivalentContentStore extends AbstractEquivalentContentSt
                 .collect(MoreCollectors.toImmutableList());
     }
 
+    /**
+     * Reads the sets in batches of multi-partition selects, rather than two selects per set.
+     * Sets are grouped by the replicas that own them so each batch can be served by a single
+     * coordinator, and at most {@code maxInFlightReadBatches} batches are read at a time.
+     */
+    private ListenableFuture<List<GraphAndDataResults>> resultOfBatches(Iterable<Long> setIds) {
+        ImmutableList<ImmutableList<Long>> batches = readBatches(ImmutableSet.copyOf(setIds));
+        readBatches.update(batches.size());
+
+        ImmutableList<Supplier<ListenableFuture<GraphAndDataResults>>> queries = batches.stream()
+                .map(batch -> (Supplier<ListenableFuture<GraphAndDataResults>>) () ->
+                        selectSets(
+                                batchDataSelect.bind().setList(SET_IDS_BIND, batch),
+                                batchGraphSelect.bind().setList(SET_IDS_BIND, batch)
+                        )
+                )
+                .collect(MoreCollectors.toImmutableList());
+
+        return BoundedFutures.allAsList(queries, maxInFlightReadBatches);
+    }
+
+    private ImmutableList<ImmutableList<Long>> readBatches(ImmutableSet<Long> setIds) {
+        return ReplicaBatches.of(session, setIds, readBatchSize);
+    }
+
     @Override
     protected void update(EquivalenceGraph graph, Content content) {
         BatchStatement statement = new BatchStatement();
         statement.setConsistencyLevel(writeConsistency);
 
-        statement.add(getGraphUpdateRow(graph));
+        statement.add(getGraphUpdateRow(graph, nextVersion()));
         statement.add(getUpdateDataRow(graph, content));
         statement.add(index.insertStatement(
                 content.getId().longValue(), graph.getId().longValue()
         ));
 
         session.execute(statement);
+        index.inserted(ImmutableSet.of(content.getId().longValue()));
     }
 
     @Override
@@ -582,25 +836,42 @@ public class CassandraEquivalentContentStore extends AbstractEquivalentContentSt
         BatchStatement statement = new BatchStatement();
         statement.setConsistencyLevel(writeConsistency);
 
-        statement.addAll(getGraphUpdateRows(graphsAndContent.keySet()));
+        ImmutableSetMultimap<Long, Long> indexKeys = getIndexKeys(graphsAndContent);
+
+        statement.addAll(getGraphUpdateRows(graphsAndContent.keySet(), nextVersion()));
         statement.addAll(getUpdateDataRows(graphsAndContent));
-        statement.addAll(getUpdateIndexRows(graphsAndContent));
+        statement.addAll(getUpdateIndexRows(indexKeys));
         statement.addAll(getDeleteStaleSets(update.getDeleted()));
         statement.addAll(getDeleteStaleRows(update.getCreated(), update.getUpdated().getId()));
 
         session.execute(statement);
+        index.inserted(indexKeys.values());
     }
 
-    private ImmutableList<Statement> getGraphUpdateRows(ImmutableSet<EquivalenceGraph> graphs) {
+    private ImmutableList<Statement> getGraphUpdateRows(
+            ImmutableSet<EquivalenceGraph> graphs,
+            long version
+    ) {
         return graphs.stream()
-                .map(this::getGraphUpdateRow)
+                .map(graph -> getGraphUpdateRow(graph, version))
                 .collect(MoreCollectors.toImmutableList());
     }
 
-    private BoundStatement getGraphUpdateRow(EquivalenceGraph graph) {
+    // The version is written in the same batch as the graph and data rows of the set. A batch
+    // may span several sets, but its writes to each partition are applied in isolation, so a
+    // read of one set sees the graph, data and version of one write together
+    private BoundStatement getGraphUpdateRow(EquivalenceGraph graph, long version) {
         return graphUpdate.bind()
                 .setLong(SET_ID_BIND, graph.getId().longValue())
-                .setBytes(GRAPH_BIND, graphSerializer.serialize(graph));
+                .setBytes(GRAPH_BIND, graphSerializer.serialize(graph))
+                .setLong(VERSION_BIND, version);
+    }
+
+    // Microseconds since the epoch, bumped if need be so versions written by this store only
+    // ever increase
+    private long nextVersion() {
+        long now = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        return lastVersion.updateAndGet(last -> Math.max(last + 1, now));
     }
 
     private ImmutableList<Statement> getUpdateDataRows(
@@ -611,10 +882,18 @@ public class CassandraEquivalentContentStore extends AbstractEquivalentContentSt
     }
 
     private BoundStatement getUpdateDataRow(EquivalenceGraph graph, Content content) {
+        return bindDataRowUpdate(graph.getId().longValue(), content);
+    }
+
+    private BoundStatement bindDataRowUpdate(Long setId, Content content) {
         return dataRowUpdate.bind()
-                .setLong(SET_ID_BIND, graph.getId().longValue())
+                .setLong(SET_ID_BIND, setId)
                 .setLong(CONTENT_ID_BIND, content.getId().longValue())
-                .setBytes(DATA_BIND, serialize(content));
+                .setBytes(DATA_BIND, serialize(content))
+                .setString(SOURCE_BIND, content.getSource() != null
+                                        ? content.getSource().key()
+                                        : null)
+                .setBool(ACTIVELY_PUBLISHED_BIND, content.isActivelyPublished());
     }
 
     private ImmutableList<Statement> getDeleteStaleSets(ImmutableSet<Id> deletedGraphs) {
@@ -628,28 +907,33 @@ public class CassandraEquivalentContentStore extends AbstractEquivalentContentSt
                 .collect(MoreCollectors.toImmutableList());
     }
 
-    private ImmutableList<Statement> getUpdateIndexRows(
+    /**
+     * @return the keys to index under each graph id
+     */
+    private ImmutableSetMultimap<Long, Long> getIndexKeys(
             ImmutableSetMultimap<EquivalenceGraph, Content> graphsAndContent) {
 
-        ImmutableList.Builder<Statement> statementBuilder = ImmutableList.builder();
+        ImmutableSetMultimap.Builder<Long, Long> indexKeys = ImmutableSetMultimap.builder();
 
         for (EquivalenceGraph graph : graphsAndContent.keySet()) {
-            Set<Id> indexKeys = graphsAndContent.get(graph).stream()
-                    .map(Identified::getId)
-                    .collect(Collectors.toSet());
+            Long graphId = graph.getId().longValue();
+            graphsAndContent.get(graph).stream()
+                    .map(content -> content.getId().longValue())
+                    .forEach(indexKey -> indexKeys.put(graphId, indexKey));
 
             // This is to ensure we have a mapping in the index from the graph ID to itself in case
             // the content whose ID is the graph's canonical ID has failed to resolve
-            indexKeys.add(graph.getId());
-
-            indexKeys.stream()
-                    .map(indexKey -> index.insertStatement(
-                            indexKey.longValue(), graph.getId().longValue()
-                    ))
-                    .forEach(statementBuilder::add);
+            indexKeys.put(graphId, graphId);
         }
 
-        return statementBuilder.build();
+        return indexKeys.build();
+    }
+
+    private ImmutableList<Statement> getUpdateIndexRows(
+            ImmutableSetMultimap<Long, Long> indexKeys) {
+        return indexKeys.entries().stream()
+                .map(entry -> index.insertStatement(entry.getValue(), entry.getKey()))
+                .collect(MoreCollectors.toImmutableList());
     }
 
     private List<BoundStatement> getDeleteStaleRows(ImmutableSet<EquivalenceGraph> createdGraphs,
@@ -664,13 +948,13 @@ public class CassandraEquivalentContentStore extends AbstractEquivalentContentSt
 
     private ByteBuffer serialize(Content content) {
         ContentProtos.Content contentBuffer = contentSerializer.serialize(content);
-        ByteBuffer buffer = ByteBuffer.wrap(contentBuffer.toByteArray());
+        byte[] bytes = contentBuffer.toByteArray();
         /* Debug logging to investigate null content being written into equiv store */
         if (contentSerializer.deserialize(contentBuffer) == null ||
-                buffer.array().length == 0) {
+                bytes.length == 0) {
             log.warn("ByteBuffer for serialised Content {} is empty!", content.getId());
         }
-        return buffer;
+        return compressData ? CompressedBlobs.compress(bytes) : ByteBuffer.wrap(bytes);
     }
 
     private Content resolvedContentFromNonEquivalentContentStore(Id contentId) throws IOException {
@@ -696,11 +980,15 @@ public class CassandraEquivalentContentStore extends AbstractEquivalentContentSt
         return Iterables.getOnlyElement(owlContent.getResources());
     }
 
+    // Rewriting the data of a set gives it a new version, like any other write to it
     private void updateDataColumn(Long setId, Content content) {
-        session.executeAsync(dataRowUpdate.bind()
+        BatchStatement statement = new BatchStatement();
+        statement.setConsistencyLevel(writeConsistency);
+        statement.add(bindDataRowUpdate(setId, content));
+        statement.add(versionUpdate.bind()
                 .setLong(SET_ID_BIND, setId)
-                .setLong(CONTENT_ID_BIND, content.getId().longValue())
-                .setBytes(DATA_BIND, serialize(content)));
+                .setLong(VERSION_BIND, nextVersion()));
+        session.executeAsync(statement);
     }
 
     @Override
@@ -724,17 +1012,22 @@ public class CassandraEquivalentContentStore extends AbstractEquivalentContentSt
     // It might not be in case of stale entries that were removed from the graph, but
     // due to a bug or missed message the row did not get removed in this store.
     // In that case the row will currently never get removed
-    private boolean containedInGraph(Id contentId, java.util.Optional<EquivalenceGraph> graph) {
-        return !graph.isPresent() || graph.get().getEquivalenceSet().contains(contentId);
+    private boolean containedInGraph(
+            Id contentId,
+            java.util.Optional<SetGraph> graph
+    ) {
+        return !graph.isPresent() || graph.get().contains(contentId);
     }
 
-    private java.util.Optional<EquivalenceGraph> deserializeGraph(Row row) {
+    private java.util.Optional<SetGraph> deserializeGraph(Row row) {
         ByteBuffer graphBytes = row.getBytes(GRAPH_KEY);
         if (graphBytes == null) {
             return java.util.Optional.empty();
         }
         return java.util.Optional.of(
-                graphSerializer.deserialize(graphBytes)
+                compactGraphs
+                ? SetGraph.compact(graphSerializer.deserializeCompact(graphBytes))
+                : SetGraph.full(graphSerializer.deserialize(graphBytes))
         );
     }
 
@@ -753,6 +1046,62 @@ public class CassandraEquivalentContentStore extends AbstractEquivalentContentSt
         );
     }
 
+    private static class SetMember {
+        final Id id;
+        final boolean activelyPublished;
+        @Nullable final Content content;
+
+        private SetMember(Id id, boolean activelyPublished, @Nullable Content content) {
+            this.id = checkNotNull(id);
+            this.activelyPublished = activelyPublished;
+            this.content = content;
+        }
+
+        static SetMember decoded(Content content) {
+            return new SetMember(content.getId(), content.isActivelyPublished(), content);
+        }
+
+        static SetMember undecoded(Id id, boolean activelyPublished) {
+            return new SetMember(id, activelyPublished, null);
+        }
+    }
+
+    // A set's graph, decoded in full or, with compact graphs enabled, into its compact form
+    private static class SetGraph {
+        @Nullable final EquivalenceGraph graph;
+        @Nullable final CompactEquivalenceGraph compactGraph;
+
+        private SetGraph(
+                @Nullable EquivalenceGraph graph,
+                @Nullable CompactEquivalenceGraph compactGraph
+        ) {
+            this.graph = graph;
+            this.compactGraph = compactGraph;
+        }
+
+        static SetGraph full(EquivalenceGraph graph) {
+            return new SetGraph(checkNotNull(graph), null);
+        }
+
+        static SetGraph compact(CompactEquivalenceGraph graph) {
+            return new SetGraph(null, checkNotNull(graph));
+        }
+
+        Id getId() {
+            return graph != null ? graph.getId() : compactGraph.getId();
+        }
+
+        int size() {
+            return graph != null ? graph.getEquivalenceSet().size() : compactGraph.size();
+        }
+
+        boolean contains(Id id) {
+            return graph != null
+                   ? graph.getEquivalenceSet().contains(id)
+                   : compactGraph.contains(id);
+        }
+    }
+
     private class GraphAndDataSelect {
         final Statement graphStatement;
         final Statement dataStatement;
@@ -773,89 +1122,136 @@ public class CassandraEquivalentContentStore extends AbstractEquivalentContentSt
         }
     }
 
-    private class SetSelectFuture implements ListenableFuture<GraphAndDataResults> {
-        private final ListenableFuture<GraphAndDataResults> resultsFuture;
-        private final AtomicInteger attempt = new AtomicInteger(0);
+    public static final class Builder {
+
+        private ContentResolver contentResolver;
+        private LegacyContentResolver legacyContentResolver;
+        private EquivalenceGraphStore graphStore;
+        private MessageSender<EquivalentContentUpdatedMessage> contentUpdatedMessageSender;
+        private MessageSender<EquivalenceGraphUpdateMessage> graphUpdatedMessageSender;
+        private Session session;
+        private ConsistencyLevel readConsistency;
+        private ConsistencyLevel writeConsistency;
+        private SecondaryIndex index;
+        private boolean compressData = false;
+        private int readBatchSize = 0;
+        private int maxInFlightReadBatches = DEFAULT_MAX_IN_FLIGHT_READ_BATCHES;
+        private GroupLock.Type lockType = GroupLock.Type.NATURAL;
+        private boolean compactGraphs = false;
+        private MetricRegistry metricRegistry;
+        private String metricPrefix;
+
+        private Builder() {}
+
+        public Builder withContentResolver(ContentResolver val) {
+            contentResolver = val;
+            return this;
+        }
 
-        SetSelectFuture(Statement dataStatement, Statement graphStatement) {
-            this.resultsFuture = combineFuture(dataStatement, graphStatement);
+        public Builder withLegacyContentResolver(LegacyContentResolver val) {
+            legacyContentResolver = val;
+            return this;
         }
 
-        private List<Row> getGraphResults(List<ResultSet> combinedResults) {
-            return combinedResults.get(0).all();
+        public Builder withGraphStore(EquivalenceGraphStore val) {
+            graphStore = val;
+            return this;
         }
 
-        private List<Row> getDataResults(List<ResultSet> combinedResults) {
-            return combinedResults.get(1).all();
+        public Builder withContentUpdatedMessageSender(
+                MessageSender<EquivalentContentUpdatedMessage> val
+        ) {
+            contentUpdatedMessageSender = val;
+            return this;
         }
 
-        // ENG-726: we know this causes race conditions since we cannot perform the two queries at the same time.
-        // As a result we retry the query if we end up with results where the set of setIds do not match.
-        private ListenableFuture<GraphAndDataResults> combineFuture(Statement dataStatement, Statement graphStatement) {
-            ListenableFuture<ResultSet> dataResult = session.executeAsync(dataStatement);
-            ListenableFuture<ResultSet> graphResult = session.executeAsync(graphStatement);
-            ListenableFuture<List<ResultSet>> future = Futures.allAsList(graphResult, dataResult); //order must match the corresponding get methods
+        public Builder withGraphUpdatedMessageSender(
+                MessageSender<EquivalenceGraphUpdateMessage> val
+        ) {
+            graphUpdatedMessageSender = val;
+            return this;
+        }
 
-            return Futures.transformAsync(future, combinedResults -> {
-                List<Row> graphResults = getGraphResults(combinedResults);
-                List<Row> dataResults = getDataResults(combinedResults);
-                boolean resultsMatch = resultsMatch(graphResults, dataResults);
-                int attemptNumber = attempt.incrementAndGet();
-                if (resultsMatch || attemptNumber > NUMBER_OF_CASSANDRA_SELECT_RETRIES) {
-                    if (!resultsMatch) {
-                        log.warn("Exceeded retry count for combined data and graph future");
-                    } else {
-                        if (attemptNumber > 1) {
-                            log.info("Succeeded to fetch combined data and graph future after {} attempts", attemptNumber);
-                        }
-                    }
-                    return Futures.immediateFuture(new GraphAndDataResults(graphResults, dataResults));
-                } else {
-                    return combineFuture(dataStatement, graphStatement);
-                }
-            });
+        public Builder withSession(Session val) {
+            session = val;
+            return this;
         }
 
-        private boolean resultsMatch(List<Row> graphResults, List<Row> dataResults) {
-            Set<Long> graphSetIds = graphResults.stream()
-                    .map(row -> row.getLong(SET_ID_KEY))
-                    .collect(MoreCollectors.toImmutableSet());
+        public Builder withReadConsistency(ConsistencyLevel val) {
+            readConsistency = val;
+            return this;
+        }
 
-            Set<Long> dataSetIds = dataResults.stream()
-                    .map(row -> row.getLong(SET_ID_KEY))
-                    .collect(MoreCollectors.toImmutableSet());
+        public Builder withWriteConsistency(ConsistencyLevel val) {
+            writeConsistency = val;
+            return this;
+        }
+
+        /**
+         * Serve {@code equivalent_content_index} lookups through the given index, e.g. one
+         * backed by a near cache. Defaults to reading the index table directly.
+         */
+        public Builder withIndex(SecondaryIndex val) {
+            index = val;
+            return this;
+        }
+
+        /**
+         * Write the content data column in the compressed format of {@link CompressedBlobs}.
+         * Compressed and uncompressed rows are always both readable.
+         */
+        public Builder withCompressedData(boolean val) {
+            compressData = val;
+            return this;
+        }
 
-            return graphSetIds.equals(dataSetIds);
+        /**
+         * Resolve sets with multi-partition reads of up to this many sets each. Zero, the
+         * default, reads every set separately.
+         */
+        public Builder withReadBatchSize(int val) {
+            readBatchSize = val;
+            return this;
         }
 
-        @Override
-        public boolean cancel(boolean mayInterruptIfRunning) {
-            return resultsFuture.cancel(mayInterruptIfRunning);
+        /**
+         * The maximum number of read batches a single resolution has in flight.
+         */
+        public Builder withMaxInFlightReadBatches(int val) {
+            maxInFlightReadBatches = val;
+            return this;
         }
 
-        @Override
-        public boolean isCancelled() {
-            return resultsFuture.isCancelled();
+        /**
+         * The lock taken on the ids of updated content and graphs. Defaults to
+         * {@link GroupLock.Type#NATURAL}.
+         */
+        public Builder withLockType(GroupLock.Type val) {
+            lockType = val;
+            return this;
         }
 
-        @Override
-        public boolean isDone() {
-            return resultsFuture.isDone();
+        /**
+         * If true, set graphs are decoded into {@link CompactEquivalenceGraph}s and filtered in
+         * that form, rather than decoded in full. Defaults to false.
+         */
+        public Builder withCompactGraphs(boolean val) {
+            compactGraphs = val;
+            return this;
         }
 
-        @Override
-        public GraphAndDataResults get() throws InterruptedException, ExecutionException {
-            return resultsFuture.get();
+        public Builder withMetricRegistry(MetricRegistry val) {
+            metricRegistry = val;
+            return this;
         }
 
-        @Override
-        public GraphAndDataResults get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
-            return resultsFuture.get(timeout, unit);
+        public Builder withMetricPrefix(String val) {
+            metricPrefix = val;
+            return this;
         }
 
-        @Override
-        public void addListener(Runnable listener, Executor executor) {
-            resultsFuture.addListener(listener, executor);
+        public CassandraEquivalentContentStore build() {
+            return new CassandraEquivalentContentStore(this);
         }
     }
 }
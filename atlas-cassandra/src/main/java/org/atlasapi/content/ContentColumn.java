@@ -25,4 +25,5 @@ public enum ContentColumn {
     CONTAINER_SUMMARY,
     CONTAINER_REF,
     SERIES_REF,
+    CONTENT_HASH,
 }
@@ -0,0 +1,282 @@
+package org.atlasapi.content.v2;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.atlasapi.content.ItemRef;
+import org.atlasapi.content.v2.model.udt.ContainerSummary;
+import org.atlasapi.util.BoundedFutures;
+
+import com.metabroadcast.common.stream.MoreCollectors;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Session;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningScheduledExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Writes the summary of a container onto its children after the container itself has been
+ * written, rather than in the container's own batch.
+ * <p>
+ * For a brand with thousands of episodes, updating every child in the brand's batch makes that
+ * write as slow as all the child updates run one after another. Here the children are updated
+ * with at most {@code maxInFlight} updates outstanding. Updates of the same container submitted
+ * within {@code coalesceWindowMillis} of one another are merged, so a container written several
+ * times in quick succession has its children updated once, with its latest summary. Updates of
+ * one container never run concurrently, so an older summary cannot overwrite a newer one.
+ * <p>
+ * A failed child update is retried up to {@code maxRetries} times, waiting
+ * {@code retryBackoffMillis} before the first retry and twice as long before each further one.
+ * A child which still fails is logged and skipped so the rest of the container's children are
+ * updated.
+ * <p>
+ * The children which were updated are handed to {@code onChildrenUpdated} once all of a
+ * container's updates have completed. It must not block, as it is called on the given executor,
+ * and the next update of the container waits for the future it returns.
+ * <p>
+ * Pending updates are only held in memory: those not yet applied when the process stops are
+ * lost, and the children keep their previous summary until their container is next written.
+ */
+final class ContainerSummaryFanOut {
+
+    private static final Logger log = LoggerFactory.getLogger(ContainerSummaryFanOut.class);
+
+    private final Session session;
+    private final ContentAccessor accessor;
+    private final Function<ImmutableList<ItemRef>, ListenableFuture<Void>> onChildrenUpdated;
+    private final ListeningScheduledExecutorService executor;
+    private final int maxInFlight;
+    private final long coalesceWindowMillis;
+    private final int maxRetries;
+    private final long retryBackoffMillis;
+
+    private final Meter submitted;
+    private final Meter coalesced;
+    private final Meter childrenUpdated;
+    private final Meter retries;
+    private final Meter failures;
+    private final Counter pendingChildren;
+    private final Timer lag;
+
+    // guarded by this
+    private final Map<Long, Update> pending = Maps.newHashMap();
+    private final Set<Long> running = Sets.newHashSet();
+
+    ContainerSummaryFanOut(
+            Session session,
+            ContentAccessor accessor,
+            Function<ImmutableList<ItemRef>, ListenableFuture<Void>> onChildrenUpdated,
+            ScheduledExecutorService executor,
+            int maxInFlight,
+            long coalesceWindowMillis,
+            int maxRetries,
+            long retryBackoffMillis,
+            MetricRegistry metricRegistry,
+            String metricPrefix
+    ) {
+        checkArgument(maxInFlight > 0, "maxInFlight must be positive");
+        checkArgument(coalesceWindowMillis >= 0, "coalesceWindowMillis must not be negative");
+        checkArgument(maxRetries >= 0, "maxRetries must not be negative");
+        checkArgument(retryBackoffMillis >= 0, "retryBackoffMillis must not be negative");
+
+        this.session = checkNotNull(session);
+        this.accessor = checkNotNull(accessor);
+        this.onChildrenUpdated = checkNotNull(onChildrenUpdated);
+        this.executor = MoreExecutors.listeningDecorator(checkNotNull(executor));
+        this.maxInFlight = maxInFlight;
+        this.coalesceWindowMillis = coalesceWindowMillis;
+        this.maxRetries = maxRetries;
+        this.retryBackoffMillis = retryBackoffMillis;
+
+        this.submitted = metricRegistry.meter(metricPrefix + "meter.submitted");
+        this.coalesced = metricRegistry.meter(metricPrefix + "meter.coalesced");
+        this.childrenUpdated = metricRegistry.meter(metricPrefix + "meter.childrenUpdated");
+        this.retries = metricRegistry.meter(metricPrefix + "meter.retry");
+        this.failures = metricRegistry.meter(metricPrefix + "meter.failure");
+        this.pendingChildren = metricRegistry.counter(metricPrefix + "counter.pendingChildren");
+        this.lag = metricRegistry.timer(metricPrefix + "timer.lag");
+    }
+
+    /**
+     * Schedules writing {@code summary} onto each of {@code children}, merging it with any update
+     * of the same container which has not started yet.
+     */
+    void submit(long containerId, ContainerSummary summary, Iterable<ItemRef> children) {
+        submitted.mark();
+        synchronized (this) {
+            Update update = pending.get(containerId);
+            if (update != null) {
+                coalesced.mark();
+                pendingChildren.inc(update.merge(summary, children));
+                return;
+            }
+
+            update = new Update(containerId, summary);
+            pendingChildren.inc(update.merge(summary, children));
+            pending.put(containerId, update);
+            if (!running.contains(containerId)) {
+                schedule(containerId);
+            }
+        }
+    }
+
+    private void schedule(long containerId) {
+        executor.schedule(() -> start(containerId), coalesceWindowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void start(long containerId) {
+        Update update;
+        synchronized (this) {
+            update = pending.remove(containerId);
+            running.add(containerId);
+        }
+
+        List<Supplier<ListenableFuture<ItemRef>>> childUpdates = update.children.values()
+                .stream()
+                .<Supplier<ListenableFuture<ItemRef>>>map(
+                        child -> () -> updateChild(child, update.summary)
+                )
+                .collect(MoreCollectors.toImmutableList());
+
+        ListenableFuture<Void> handled = Futures.transformAsync(
+                BoundedFutures.allAsList(childUpdates, maxInFlight),
+                (AsyncFunction<List<ItemRef>, Void>) updated ->
+                        onChildrenUpdated.apply(updated.stream()
+                                .filter(Objects::nonNull)
+                                .collect(MoreCollectors.toImmutableList())),
+                executor
+        );
+
+        Futures.addCallback(
+                handled,
+                new FutureCallback<Void>() {
+
+                    @Override
+                    public void onSuccess(Void result) {
+                        finish(update);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        log.error(
+                                "Failed to handle updated children of container {}",
+                                containerId,
+                                t
+                        );
+                        finish(update);
+                    }
+                },
+                executor
+        );
+    }
+
+    private ListenableFuture<ItemRef> updateChild(ItemRef child, ContainerSummary summary) {
+        // a child which still fails once retried is logged and skipped so the rest of the
+        // container's children are still updated
+        ListenableFuture<ItemRef> updated = Futures.catching(
+                attemptUpdate(child, summary, 0),
+                Throwable.class,
+                (Function<Throwable, ItemRef>) t -> {
+                    failures.mark();
+                    log.warn("Failed to update container summary of {}", child.getId(), t);
+                    return null;
+                }
+        );
+        updated.addListener(pendingChildren::dec, executor);
+        return updated;
+    }
+
+    private ListenableFuture<ItemRef> attemptUpdate(
+            ItemRef child,
+            ContainerSummary summary,
+            int retry
+    ) {
+        ListenableFuture<ItemRef> attempt = Futures.transform(
+                session.executeAsync(accessor.updateContainerSummary(
+                        child.getId().longValue(),
+                        summary
+                )),
+                (Function<ResultSet, ItemRef>) resultSet -> {
+                    childrenUpdated.mark();
+                    return child;
+                }
+        );
+        if (retry >= maxRetries) {
+            return attempt;
+        }
+        return Futures.catchingAsync(
+                attempt,
+                Throwable.class,
+                (AsyncFunction<Throwable, ItemRef>) t -> {
+                    retries.mark();
+                    return Futures.dereference(executor.schedule(
+                            () -> attemptUpdate(child, summary, retry + 1),
+                            retryBackoffMillis << retry,
+                            TimeUnit.MILLISECONDS
+                    ));
+                }
+        );
+    }
+
+    private void finish(Update update) {
+        lag.update(System.nanoTime() - update.submittedNanos, TimeUnit.NANOSECONDS);
+        synchronized (this) {
+            running.remove(update.containerId);
+            if (pending.containsKey(update.containerId)) {
+                schedule(update.containerId);
+            }
+        }
+    }
+
+    private static final class Update {
+
+        private final long containerId;
+        private final long submittedNanos = System.nanoTime();
+        private final Map<Long, ItemRef> children = Maps.newLinkedHashMap();
+        private ContainerSummary summary;
+
+        private Update(long containerId, ContainerSummary summary) {
+            this.containerId = containerId;
+            this.summary = summary;
+        }
+
+        /**
+         * Replaces the summary with the given, later, one and adds the children not already
+         * being updated.
+         *
+         * @return the number of children added
+         */
+        private int merge(ContainerSummary summary, Iterable<ItemRef> children) {
+            this.summary = summary;
+            int added = 0;
+            for (ItemRef child : children) {
+                if (this.children.putIfAbsent(child.getId().longValue(), child) == null) {
+                    added++;
+                }
+            }
+            return added;
+        }
+    }
+}
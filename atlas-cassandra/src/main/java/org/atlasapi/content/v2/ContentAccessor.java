@@ -1,5 +1,6 @@
 package org.atlasapi.content.v2;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -13,7 +14,9 @@ import org.atlasapi.content.v2.model.udt.ItemRefAndLocationSummaries;
 import org.atlasapi.content.v2.model.udt.Ref;
 import org.atlasapi.content.v2.model.udt.SeriesRef;
 
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Statement;
+import com.datastax.driver.mapping.Result;
 import com.datastax.driver.mapping.annotations.Accessor;
 import com.datastax.driver.mapping.annotations.Param;
 import com.datastax.driver.mapping.annotations.Query;
@@ -26,10 +29,24 @@ public interface ContentAccessor {
     @Query("SELECT * FROM content_v2 WHERE id = :id")
     ListenableFuture<Content> getContent(@Param("id") Long id);
 
+    @Query("SELECT * FROM content_v2 WHERE id IN :ids")
+    ListenableFuture<Result<Content>> getContents(@Param("ids") List<Long> ids);
+
+    @Query("SELECT content_hash FROM content_v2 WHERE id = :id")
+    ResultSetFuture getContentHash(@Param("id") Long id);
+
+    @Query("UPDATE content_v2 SET content_hash = :hash WHERE id = :id")
+    Statement setContentHash(@Param("id") Long id, @Param("hash") String hash);
+
     @Query("UPDATE content_v2 SET this_or_child_last_updated = :now WHERE id = :id")
     Statement setLastUpdated(@Param("id") Long id, @Param("now") Instant now);
 
-    @Query("UPDATE content_v2 SET broadcasts = broadcasts + :bc WHERE id = :id")
+    // The statements below change a row outside a full content write, so the row may no
+    // longer match the content its stored hash was taken from. Each clears the hash, so the next
+    // write of that content is not skipped as unchanged.
+
+    @Query("UPDATE content_v2 SET broadcasts = broadcasts + :bc, content_hash = null "
+            + "WHERE id = :id")
     Statement addBroadcastToContent(
             @Param("id") Long id,
             @Param("bc") Map<String, Broadcast> broadcasts
@@ -38,7 +55,8 @@ public interface ContentAccessor {
     @Query("UPDATE content_v2 SET "
             + "item_refs = item_refs + :refs, "
             + "upcoming = upcoming + :upcoming, "
-            + "available = available + :available "
+            + "available = available + :available, "
+            + "content_hash = null "
             + "WHERE id = :id")
     Statement addItemRefsToContainer(
             @Param("id") Long id,
@@ -50,7 +68,8 @@ public interface ContentAccessor {
     @Query("UPDATE content_v2 SET "
             + "item_refs = item_refs - :refs, "
             + "upcoming = upcoming - :upcoming, "
-            + "available = available - :available "
+            + "available = available - :available, "
+            + "content_hash = null "
             + "WHERE id = :id")
     Statement removeItemRefsFromContainer(
             @Param("id") Long id,
@@ -59,37 +78,42 @@ public interface ContentAccessor {
             @Param("available") Set<Ref> available
     );
 
-    @Query("UPDATE content_v2 SET item_summaries = item_summaries + :summaries WHERE id = :id")
+    @Query("UPDATE content_v2 SET item_summaries = item_summaries + :summaries, "
+            + "content_hash = null WHERE id = :id")
     Statement addItemSummariesToContainer(
             @Param("id") Long id,
             @Param("summaries") Map<Ref, ItemRefAndItemSummary> itemSummaries
     );
 
-    @Query("UPDATE content_v2 SET item_summaries = item_summaries - :summaries WHERE id = :id")
+    @Query("UPDATE content_v2 SET item_summaries = item_summaries - :summaries, "
+            + "content_hash = null WHERE id = :id")
     Statement removeItemSummariesFromContainer(
             @Param("id") Long id,
             @Param("summaries") Set<Ref> itemSummaries
     );
 
-    @Query("UPDATE content_v2 SET series_refs = series_refs + :refs WHERE id = :id")
+    @Query("UPDATE content_v2 SET series_refs = series_refs + :refs, content_hash = null "
+            + "WHERE id = :id")
     Statement addSeriesRefToBrand(
             @Param("id") Long brandId,
             @Param("refs") Map<Ref, SeriesRef> seriesRefs
     );
 
-    @Query("UPDATE content_v2 SET series_refs = series_refs - :refs WHERE id = :id")
+    @Query("UPDATE content_v2 SET series_refs = series_refs - :refs, content_hash = null "
+            + "WHERE id = :id")
     Statement removeSeriesRefFromBrand(
             @Param("id") Long brandId,
             @Param("refs") Set<Ref> seriesRefs
     );
 
-    @Query("UPDATE content_v2 SET container_summary = :summary WHERE id = :id")
+    @Query("UPDATE content_v2 SET container_summary = :summary, content_hash = null "
+            + "WHERE id = :id")
     Statement updateContainerSummary(
             @Param("id") Long id,
             @Param("summary") ContainerSummary containerSummary
     );
 
-    @Query("DELETE container_summary FROM content_v2 WHERE id = :id")
+    @Query("DELETE container_summary, content_hash FROM content_v2 WHERE id = :id")
     Statement deleteContainerSummary(
             @Param("id") Long contentId
     );
@@ -1,13 +1,20 @@
 package org.atlasapi.content.v2;
 
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.codepoetics.protonpack.maps.MapStream;
 import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.CodecRegistry;
 import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.Statement;
 import com.datastax.driver.mapping.Mapper;
 import com.datastax.driver.mapping.MappingManager;
+import com.datastax.driver.mapping.Result;
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.base.Throwables;
@@ -16,17 +23,19 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.common.primitives.Longs;
+import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
-import com.metabroadcast.common.collect.ImmutableOptionalMap;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.metabroadcast.common.collect.OptionalMap;
 import com.metabroadcast.common.ids.IdGenerator;
 import com.metabroadcast.common.queue.MessageSender;
 import com.metabroadcast.common.stream.MoreCollectors;
 import com.metabroadcast.common.time.Clock;
 import com.metabroadcast.common.time.Timestamp;
-import com.metabroadcast.promise.Promise;
 import org.atlasapi.content.Brand;
 import org.atlasapi.content.BrandRef;
 import org.atlasapi.content.Broadcast;
@@ -66,21 +75,32 @@ import org.atlasapi.entity.util.WriteException;
 import org.atlasapi.entity.util.WriteResult;
 import org.atlasapi.equivalence.EquivalenceGraph;
 import org.atlasapi.equivalence.EquivalenceGraphStore;
+import org.atlasapi.hashing.content.ContentHasher;
 import org.atlasapi.messaging.ResourceUpdatedMessage;
+import org.atlasapi.util.BoundedFutures;
+import org.atlasapi.util.GenerationalCache;
+import org.atlasapi.util.IndexCache;
+import org.atlasapi.util.ReplicaBatches;
 import org.joda.time.DateTime;
 import org.joda.time.Instant;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -93,6 +113,16 @@ public class CqlContentStore implements ContentStore {
 
     private static final String METER_CALLED = "meter.called";
     private static final String METER_FAILURE = "meter.failure";
+    private static final String HISTOGRAM_CONTENTS = "histogram.contents";
+    private static final String HISTOGRAM_PARTITION_BATCHES = "histogram.partitionBatches";
+    private static final String COUNTER_IN_FLIGHT = "counter.inFlight";
+    private static final String METER_UNCHANGED = "meter.unchanged";
+    private static final String METER_BACKFILLED = "meter.backfilled";
+    private static final String TIMER_LATENCY = "timer.latency";
+    private static final String HISTOGRAM_IDS = "histogram.ids";
+    private static final String HISTOGRAM_QUERIES = "histogram.queries";
+
+    private static final String CONTENT_HASH = "content_hash";
 
     private final Session session;
     private final Mapper<org.atlasapi.content.v2.model.Content> mapper;
@@ -114,12 +144,26 @@ public class CqlContentStore implements ContentStore {
     private final ContainerSummarySerialization containerSummaryTranslator =
             new ContainerSummarySerialization();
     private final EquivalenceGraphStore graphStore;
+    @Nullable private final ContentHasher hasher;
+    @Nullable private final IndexCache partitionKeyCache;
 
     private final String writeContent;
+    private final String writeContents;
+    private final String writeContentAsync;
+    private final String contentHashMetrics;
     private final String writeBroadcast;
+    private final String resolveIds;
 
     private final MetricRegistry metricRegistry;
 
+    private final Semaphore inFlightWrites;
+    private final Executor asyncWriteExecutor;
+    private final int readBatchSize;
+    private final int maxInFlightReads;
+
+    @Nullable private final ContainerSummaryFanOut childFanOut;
+    private final int childFanOutThreshold;
+
     protected CqlContentStore(Builder builder) {
         this.idGenerator = checkNotNull(builder.idGenerator);
         this.session = checkNotNull(builder.session);
@@ -143,11 +187,43 @@ public class CqlContentStore implements ContentStore {
 
         this.sender = builder.sender;
         this.graphStore = checkNotNull(builder.graphStore);
+        this.hasher = builder.hasher;
+        this.partitionKeyCache = builder.partitionKeyCache;
 
         writeContent = builder.metricPrefix + "writeContent.";
+        writeContents = builder.metricPrefix + "writeContents.";
+        writeContentAsync = builder.metricPrefix + "writeContentAsync.";
+        contentHashMetrics = builder.metricPrefix + "contentHash.";
         writeBroadcast = builder.metricPrefix + "writeBroadcast.";
+        resolveIds = builder.metricPrefix + "resolveIds.";
 
         this.metricRegistry = builder.metricRegistry;
+
+        checkArgument(builder.maxInFlightWrites > 0, "maxInFlightWrites must be positive");
+        this.inFlightWrites = new Semaphore(builder.maxInFlightWrites);
+        this.asyncWriteExecutor = checkNotNull(builder.asyncWriteExecutor);
+
+        checkArgument(builder.readBatchSize >= 0, "readBatchSize must not be negative");
+        checkArgument(builder.maxInFlightReads > 0, "maxInFlightReads must be positive");
+        this.readBatchSize = builder.readBatchSize;
+        this.maxInFlightReads = builder.maxInFlightReads;
+
+        checkArgument(builder.childFanOutThreshold > 0, "childFanOutThreshold must be positive");
+        this.childFanOutThreshold = builder.childFanOutThreshold;
+        this.childFanOut = builder.childFanOutExecutor == null
+                           ? null
+                           : new ContainerSummaryFanOut(
+                                   session,
+                                   accessor,
+                                   this::sendChildUpdatedMessages,
+                                   builder.childFanOutExecutor,
+                                   builder.childFanOutMaxInFlight,
+                                   builder.childFanOutCoalesceWindowMillis,
+                                   builder.childFanOutMaxRetries,
+                                   builder.childFanOutRetryBackoffMillis,
+                                   metricRegistry,
+                                   builder.metricPrefix + "childFanOut."
+                           );
     }
 
     public static Builder builder() {
@@ -158,6 +234,10 @@ public class CqlContentStore implements ContentStore {
     public WriteResult<Content, Content> writeContent(Content content) throws WriteException {
         metricRegistry.meter(writeContent + METER_CALLED).mark();
         try {
+            String hash = contentHash(content);
+            if (hashUnchanged(content, hash, previousContentHash(content, hash))) {
+                return unchangedByHash(content);
+            }
 
             org.atlasapi.content.v2.model.Content previousSerialized
                     = resolvePreviousSerialized(content);
@@ -166,19 +246,32 @@ public class CqlContentStore implements ContentStore {
             BatchStatement batch = new BatchStatement();
             ImmutableList.Builder<ResourceUpdatedMessage> messages = ImmutableList.builder();
 
-            prepareWriteBatchAndMessages(content, previous, batch, messages);
+            List<Runnable> afterWrite = Lists.newArrayList();
+
+            Container container = resolveContainer(content);
+            prepareWriteBatchAndMessages(
+                    content,
+                    container,
+                    previous,
+                    batch,
+                    messages,
+                    afterWrite
+            );
 
             org.atlasapi.content.v2.model.Content serialized = translator.serialize(content);
+            serialized.setContentHash(hash);
 
             boolean unchanged = serialized.equals(previousSerialized);
 
             if (unchanged) {
+                Futures.getUnchecked(backfillContentHash(content, hash, previousSerialized));
                 return WriteResult.<Content, Content>result(content, false)
                         .withPrevious(previous)
                         .build();
             }
 
             executeBatchAndMessages(content, batch, messages, serialized);
+            afterWrite.forEach(Runnable::run);
 
             return new WriteResult<>(content, true, DateTime.now(), previous);
         } catch (WriteException | RuntimeException e) {
@@ -191,6 +284,7 @@ public class CqlContentStore implements ContentStore {
     public WriteResult<Content, Content> forceWriteContent(Content content) throws WriteException {
         metricRegistry.meter(writeContent + METER_CALLED).mark();
         try {
+            String hash = contentHash(content);
 
             org.atlasapi.content.v2.model.Content previousSerialized
                     = resolvePreviousSerialized(content);
@@ -199,10 +293,22 @@ public class CqlContentStore implements ContentStore {
             BatchStatement batch = new BatchStatement();
             ImmutableList.Builder<ResourceUpdatedMessage> messages = ImmutableList.builder();
 
-            prepareWriteBatchAndMessages(content, previous, batch, messages);
+            List<Runnable> afterWrite = Lists.newArrayList();
+
+            Container container = resolveContainer(content);
+            prepareWriteBatchAndMessages(
+                    content,
+                    container,
+                    previous,
+                    batch,
+                    messages,
+                    afterWrite
+            );
 
             org.atlasapi.content.v2.model.Content serialized = translator.serialize(content);
+            serialized.setContentHash(hash);
             executeBatchAndMessages(content, batch, messages, serialized);
+            afterWrite.forEach(Runnable::run);
 
             return new WriteResult<>(content, true, DateTime.now(), previous);
         } catch (WriteException | RuntimeException e) {
@@ -211,6 +317,560 @@ public class CqlContentStore implements ContentStore {
         }
     }
 
+    /**
+     * Asynchronous equivalent of {@link #writeContent(Content)}.
+     * <p>
+     * The previous version and container of the content are read concurrently, and the write,
+     * equivalence graph lookup and message sending are chained on their completion without
+     * blocking a thread. At most {@code maxInFlightWrites} asynchronous writes are outstanding at
+     * once: callers block here until one completes, pushing back on producers which outpace
+     * Cassandra.
+     *
+     * @return a future holding the write result, or failed with the exception
+     * {@link #writeContent(Content)} would have thrown
+     */
+    public ListenableFuture<WriteResult<Content, Content>> writeContentAsync(Content content) {
+        metricRegistry.meter(writeContentAsync + METER_CALLED).mark();
+
+        inFlightWrites.acquireUninterruptibly();
+        metricRegistry.counter(writeContentAsync + COUNTER_IN_FLIGHT).inc();
+
+        ListenableFuture<WriteResult<Content, Content>> result;
+        try {
+            result = startAsyncWrite(content);
+        } catch (RuntimeException e) {
+            result = Futures.immediateFailedFuture(e);
+        }
+
+        Futures.addCallback(result, new FutureCallback<WriteResult<Content, Content>>() {
+
+            @Override
+            public void onSuccess(WriteResult<Content, Content> writeResult) {
+                release();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                metricRegistry.meter(writeContentAsync + METER_FAILURE).mark();
+                release();
+            }
+
+            private void release() {
+                metricRegistry.counter(writeContentAsync + COUNTER_IN_FLIGHT).dec();
+                inFlightWrites.release();
+            }
+        });
+
+        return result;
+    }
+
+    private ListenableFuture<WriteResult<Content, Content>> startAsyncWrite(Content content) {
+        String hash = contentHash(content);
+        ListenableFuture<String> previousHash = previousContentHash(content, hash);
+        if (previousHash == null) {
+            return startAsyncReads(content, hash);
+        }
+
+        return Futures.transformAsync(
+                Futures.successfulAsList(ImmutableList.of(previousHash)),
+                ignored -> hashUnchanged(content, hash, previousHash)
+                           ? Futures.immediateFuture(unchangedByHash(content))
+                           : startAsyncReads(content, hash),
+                asyncWriteExecutor
+        );
+    }
+
+    private ListenableFuture<WriteResult<Content, Content>> startAsyncReads(
+            Content content,
+            @Nullable String hash
+    ) {
+        List<ListenableFuture<?>> reads = Lists.newArrayList();
+
+        ListenableFuture<org.atlasapi.content.v2.model.Content> previousFuture = null;
+        if (content.getId() != null) {
+            previousFuture = accessor.getContent(content.getId().longValue());
+            reads.add(previousFuture);
+        }
+
+        ListenableFuture<Resolved<Content>> containerFuture = null;
+        ContainerRef containerRef = containerRefOf(content);
+        if (containerRef != null) {
+            containerFuture = resolveIds(ImmutableList.of(containerRef.getId()));
+            reads.add(containerFuture);
+        }
+
+        ListenableFuture<org.atlasapi.content.v2.model.Content> previous = previousFuture;
+        ListenableFuture<Resolved<Content>> container = containerFuture;
+
+        return Futures.transformAsync(
+                Futures.successfulAsList(reads),
+                ignored -> executeAsyncWrite(content, hash, previous, container),
+                asyncWriteExecutor
+        );
+    }
+
+    private ListenableFuture<WriteResult<Content, Content>> executeAsyncWrite(
+            Content content,
+            @Nullable String hash,
+            @Nullable ListenableFuture<org.atlasapi.content.v2.model.Content> previousFuture,
+            @Nullable ListenableFuture<Resolved<Content>> containerFuture
+    ) throws WriteException {
+        org.atlasapi.content.v2.model.Content previousSerialized =
+                previousSerialized(content, previousFuture);
+        Content previous = deserializeIfFull(previousSerialized);
+
+        Container container = container(content, containerFuture);
+
+        BatchStatement batch = new BatchStatement();
+        ImmutableList.Builder<ResourceUpdatedMessage> messages = ImmutableList.builder();
+        List<Runnable> afterWrite = Lists.newArrayList();
+
+        prepareWriteBatchAndMessages(content, container, previous, batch, messages, afterWrite);
+
+        org.atlasapi.content.v2.model.Content serialized = translator.serialize(content);
+        serialized.setContentHash(hash);
+
+        if (serialized.equals(previousSerialized)) {
+            return Futures.transform(
+                    backfillContentHash(content, hash, previousSerialized),
+                    (Function<Void, WriteResult<Content, Content>>) ignored ->
+                            WriteResult.<Content, Content>result(content, false)
+                                    .withPrevious(previous)
+                                    .build(),
+                    asyncWriteExecutor
+            );
+        }
+
+        batch.add(mapper.saveQuery(serialized));
+
+        return Futures.transformAsync(
+                session.executeAsync(batch),
+                resultSet -> {
+                    afterWrite.forEach(Runnable::run);
+                    messages.add(new ResourceUpdatedMessage(
+                            UUID.randomUUID().toString(),
+                            Timestamp.of(DateTime.now()),
+                            content.toRef()
+                    ));
+                    return Futures.transform(
+                            sendMessagesAsync(messages.build()),
+                            (Function<Void, WriteResult<Content, Content>>) sent ->
+                                    new WriteResult<>(content, true, DateTime.now(), previous),
+                            asyncWriteExecutor
+                    );
+                },
+                asyncWriteExecutor
+        );
+    }
+
+    /**
+     * Writes several contents, reporting the outcome of each as {@link #writeContent(Content)}
+     * would have.
+     * <p>
+     * The previous versions and containers of the contents are read concurrently, and the
+     * mutations of every changed content are grouped by partition into unlogged batches which
+     * are executed concurrently, rather than executing one batch per content. Resource updated
+     * messages for all of them are sent together once the writes have completed. Contents which
+     * depend on one another, such as an item and its container or the same content twice, are
+     * written in successive rounds so that each sees the other as the single content path would.
+     * <p>
+     * Unlike the single content path, the mutations of a content are not applied atomically
+     * across partitions.
+     *
+     * @return one future per content, in the order given, each holding that content's write
+     * result or failed with the exception writing it alone would have thrown. All of them are
+     * done by the time this returns.
+     */
+    public ImmutableList<ListenableFuture<WriteResult<Content, Content>>> writeContents(
+            List<? extends Content> contents
+    ) {
+        metricRegistry.histogram(writeContents + HISTOGRAM_CONTENTS).update(contents.size());
+
+        List<ListenableFuture<WriteResult<Content, Content>>> results =
+                Lists.newArrayList(Collections.nCopies(contents.size(), null));
+
+        for (List<Integer> round : planWriteRounds(contents)) {
+            writeRound(contents, round, results);
+        }
+
+        return ImmutableList.copyOf(results);
+    }
+
+    /**
+     * Splits the contents into rounds such that no content in a round is, or is the container
+     * of, another content in the same round. Contents keep their relative order across rounds.
+     */
+    private List<List<Integer>> planWriteRounds(List<? extends Content> contents) {
+        List<List<Integer>> rounds = Lists.newArrayList();
+
+        List<Integer> round = Lists.newArrayList();
+        Set<Id> roundIds = Sets.newHashSet();
+        Set<Id> roundDependencies = Sets.newHashSet();
+
+        for (int i = 0; i < contents.size(); i++) {
+            Content content = contents.get(i);
+            Id id = content.getId();
+            Set<Id> dependencies = dependencyIds(content);
+
+            boolean conflicts = (id != null
+                    && (roundIds.contains(id) || roundDependencies.contains(id)))
+                    || !Sets.intersection(dependencies, roundIds).isEmpty();
+
+            if (conflicts) {
+                rounds.add(round);
+                round = Lists.newArrayList();
+                roundIds = Sets.newHashSet();
+                roundDependencies = Sets.newHashSet();
+            }
+
+            round.add(i);
+            if (id != null) {
+                roundIds.add(id);
+            }
+            roundDependencies.addAll(dependencies);
+        }
+
+        if (!round.isEmpty()) {
+            rounds.add(round);
+        }
+        return rounds;
+    }
+
+    private Set<Id> dependencyIds(Content content) {
+        Set<Id> ids = Sets.newHashSet();
+
+        ContainerRef containerRef = containerRefOf(content);
+        if (containerRef != null) {
+            ids.add(containerRef.getId());
+        }
+
+        if (content instanceof Episode) {
+            SeriesRef seriesRef = ((Episode) content).getSeriesRef();
+            if (seriesRef != null) {
+                ids.add(seriesRef.getId());
+            }
+        }
+
+        return ids;
+    }
+
+    private void writeRound(
+            List<? extends Content> contents,
+            List<Integer> round,
+            List<ListenableFuture<WriteResult<Content, Content>>> results
+    ) {
+        Map<Integer, String> hashes = Maps.newHashMap();
+        Map<Integer, ListenableFuture<String>> previousHashes = Maps.newHashMap();
+
+        for (Integer index : round) {
+            Content content = contents.get(index);
+            String hash = contentHash(content);
+            hashes.put(index, hash);
+            ListenableFuture<String> previousHash = previousContentHash(content, hash);
+            if (previousHash != null) {
+                previousHashes.put(index, previousHash);
+            }
+        }
+
+        List<Integer> remaining = Lists.newArrayList();
+
+        for (Integer index : round) {
+            Content content = contents.get(index);
+            metricRegistry.meter(writeContent + METER_CALLED).mark();
+            try {
+                if (hashUnchanged(content, hashes.get(index), previousHashes.get(index))) {
+                    results.set(index, Futures.immediateFuture(unchangedByHash(content)));
+                } else {
+                    remaining.add(index);
+                }
+            } catch (WriteException e) {
+                metricRegistry.meter(writeContent + METER_FAILURE).mark();
+                results.set(index, Futures.immediateFailedFuture(e));
+            }
+        }
+
+        Map<Integer, ListenableFuture<org.atlasapi.content.v2.model.Content>> previousFutures =
+                Maps.newHashMap();
+        Set<Id> containerIds = Sets.newHashSet();
+
+        for (Integer index : remaining) {
+            Content content = contents.get(index);
+            if (content.getId() != null) {
+                previousFutures.put(index, accessor.getContent(content.getId().longValue()));
+            }
+            ContainerRef containerRef = containerRefOf(content);
+            if (containerRef != null) {
+                containerIds.add(containerRef.getId());
+            }
+        }
+
+        ListenableFuture<Resolved<Content>> containersFuture = containerIds.isEmpty()
+                                                              ? null
+                                                              : resolveIds(containerIds);
+
+        List<PendingWrite> pending = Lists.newArrayList();
+        List<ListenableFuture<Void>> backfills = Lists.newArrayList();
+
+        for (Integer index : remaining) {
+            Content content = contents.get(index);
+            try {
+                org.atlasapi.content.v2.model.Content previousSerialized =
+                        previousSerialized(content, previousFutures.get(index));
+                Content previous = deserializeIfFull(previousSerialized);
+
+                Container container = container(content, containersFuture);
+
+                BatchStatement batch = new BatchStatement();
+                ImmutableList.Builder<ResourceUpdatedMessage> messages = ImmutableList.builder();
+                List<Runnable> afterWrite = Lists.newArrayList();
+
+                prepareWriteBatchAndMessages(
+                        content,
+                        container,
+                        previous,
+                        batch,
+                        messages,
+                        afterWrite
+                );
+
+                org.atlasapi.content.v2.model.Content serialized = translator.serialize(content);
+                serialized.setContentHash(hashes.get(index));
+
+                if (serialized.equals(previousSerialized)) {
+                    backfills.add(backfillContentHash(
+                            content,
+                            hashes.get(index),
+                            previousSerialized
+                    ));
+                    results.set(index, Futures.immediateFuture(
+                            WriteResult.<Content, Content>result(content, false)
+                                    .withPrevious(previous)
+                                    .build()
+                    ));
+                    continue;
+                }
+
+                batch.add(mapper.saveQuery(serialized));
+                pending.add(new PendingWrite(
+                        index,
+                        content,
+                        previous,
+                        batch.getStatements(),
+                        messages,
+                        afterWrite
+                ));
+            } catch (WriteException | RuntimeException e) {
+                metricRegistry.meter(writeContent + METER_FAILURE).mark();
+                results.set(index, Futures.immediateFailedFuture(e));
+            }
+        }
+
+        executePartitionBatches(pending);
+        Futures.getUnchecked(Futures.allAsList(backfills));
+
+        ImmutableList.Builder<ResourceUpdatedMessage> messages = ImmutableList.builder();
+        for (PendingWrite write : pending) {
+            if (write.failure != null) {
+                metricRegistry.meter(writeContent + METER_FAILURE).mark();
+                results.set(write.index, Futures.immediateFailedFuture(write.failure));
+                continue;
+            }
+
+            write.afterWrite.forEach(Runnable::run);
+            write.messages.add(new ResourceUpdatedMessage(
+                    UUID.randomUUID().toString(),
+                    Timestamp.of(DateTime.now()),
+                    write.content.toRef()
+            ));
+            messages.addAll(write.messages.build());
+
+            results.set(write.index, Futures.immediateFuture(
+                    new WriteResult<>(write.content, true, DateTime.now(), write.previous)
+            ));
+        }
+
+        sendMessages(messages.build());
+    }
+
+    /**
+     * Hash of the content as it was given to the store, before write times and denormalized
+     * fields are filled in, or null if the store has no hasher.
+     */
+    @Nullable
+    private String contentHash(Content content) {
+        return hasher != null ? hasher.hash(content) : null;
+    }
+
+    @Nullable
+    private ListenableFuture<String> previousContentHash(Content content, @Nullable String hash) {
+        if (hash == null || content.getId() == null) {
+            return null;
+        }
+        return Futures.transform(
+                accessor.getContentHash(content.getId().longValue()),
+                (Function<ResultSet, String>) resultSet -> {
+                    Row row = resultSet.one();
+                    return row != null ? row.getString(CONTENT_HASH) : null;
+                }
+        );
+    }
+
+    private boolean hashUnchanged(
+            Content content,
+            @Nullable String hash,
+            @Nullable ListenableFuture<String> previousHash
+    ) throws WriteException {
+        if (previousHash == null) {
+            return false;
+        }
+        try {
+            boolean unchanged = hash.equals(previousHash.get());
+            if (unchanged) {
+                metricRegistry.meter(contentHashMetrics + METER_UNCHANGED).mark();
+            }
+            return unchanged;
+        } catch (InterruptedException | ExecutionException e) {
+            throw new WriteException(
+                    String.format("Failed to resolve hash of content %s", content.getId()),
+                    e
+            );
+        }
+    }
+
+    private WriteResult<Content, Content> unchangedByHash(Content content) {
+        return WriteResult.<Content, Content>result(content, false).build();
+    }
+
+    /**
+     * Stores the hash of content found to be unchanged by comparing it with its previous version,
+     * so that rows written before hashes were stored, or by a store without a hasher, can be
+     * checked by hash from then on. Failures are only logged as the write itself has nothing to
+     * do.
+     */
+    private ListenableFuture<Void> backfillContentHash(
+            Content content,
+            @Nullable String hash,
+            org.atlasapi.content.v2.model.Content previousSerialized
+    ) {
+        if (hash == null || hash.equals(previousSerialized.getContentHash())) {
+            return Futures.immediateFuture(null);
+        }
+        metricRegistry.meter(contentHashMetrics + METER_BACKFILLED).mark();
+
+        ListenableFuture<Void> backfill = Futures.transform(
+                session.executeAsync(accessor.setContentHash(content.getId().longValue(), hash)),
+                (Function<ResultSet, Void>) resultSet -> null
+        );
+        return Futures.catching(
+                backfill,
+                RuntimeException.class,
+                e -> {
+                    log.warn("Failed to store hash of content {}", content.getId(), e);
+                    return null;
+                }
+        );
+    }
+
+    @Nullable
+    private org.atlasapi.content.v2.model.Content previousSerialized(
+            Content content,
+            @Nullable ListenableFuture<org.atlasapi.content.v2.model.Content> previousFuture
+    ) throws WriteException {
+        if (previousFuture == null) {
+            return null;
+        }
+        try {
+            return previousFuture.get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new WriteException(
+                    String.format("Failed to resolve content %s", content.getId()),
+                    e
+            );
+        }
+    }
+
+    @Nullable
+    private Container container(
+            Content content,
+            @Nullable ListenableFuture<Resolved<Content>> containersFuture
+    ) throws WriteException {
+        ContainerRef containerRef = containerRefOf(content);
+        if (containerRef == null) {
+            return null;
+        }
+        try {
+            Optional<Content> container = containersFuture.get()
+                    .getResources()
+                    .firstMatch(resolved -> containerRef.getId().equals(resolved.getId()));
+            return toContainer(content, containerRef, container);
+        } catch (InterruptedException | ExecutionException e) {
+            throw containerRetrievalFailure(content, containerRef, e);
+        }
+    }
+
+    /**
+     * Groups the statements of the pending writes into one unlogged batch per partition and
+     * executes the batches concurrently. A write fails if any of the batches holding its
+     * statements fails.
+     */
+    private void executePartitionBatches(List<PendingWrite> pending) {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        ProtocolVersion protocolVersion = session.getCluster()
+                .getConfiguration()
+                .getProtocolOptions()
+                .getProtocolVersion();
+        CodecRegistry codecRegistry = session.getCluster()
+                .getConfiguration()
+                .getCodecRegistry();
+
+        Map<ByteBuffer, PartitionBatch> partitionBatches = Maps.newLinkedHashMap();
+        List<PartitionBatch> unroutedBatches = Lists.newArrayList();
+
+        for (PendingWrite write : pending) {
+            for (Statement statement : write.statements) {
+                ByteBuffer routingKey = statement.getRoutingKey(protocolVersion, codecRegistry);
+
+                PartitionBatch partitionBatch;
+                if (routingKey == null) {
+                    partitionBatch = new PartitionBatch();
+                    unroutedBatches.add(partitionBatch);
+                } else {
+                    partitionBatch = partitionBatches.computeIfAbsent(
+                            routingKey,
+                            key -> new PartitionBatch()
+                    );
+                }
+                partitionBatch.add(statement, write);
+            }
+        }
+
+        List<PartitionBatch> batches = Lists.newArrayList(partitionBatches.values());
+        batches.addAll(unroutedBatches);
+
+        metricRegistry.histogram(writeContents + HISTOGRAM_PARTITION_BATCHES)
+                .update(batches.size());
+
+        for (PartitionBatch batch : batches) {
+            batch.future = session.executeAsync(batch.batch);
+        }
+
+        for (PartitionBatch batch : batches) {
+            try {
+                batch.future.getUninterruptibly();
+            } catch (RuntimeException e) {
+                log.error("Failed to execute batch for {} contents", batch.writes.size(), e);
+                for (PendingWrite write : batch.writes) {
+                    if (write.failure == null) {
+                        write.failure = e;
+                    }
+                }
+            }
+        }
+    }
+
     private void executeBatchAndMessages(
             Content content,
             BatchStatement batch,
@@ -231,11 +891,12 @@ public class CqlContentStore implements ContentStore {
 
     private void prepareWriteBatchAndMessages(
             Content content,
+            @Nullable Container container,
             Content previous,
             BatchStatement batch,
-            ImmutableList.Builder<ResourceUpdatedMessage> messages) throws WriteException {
+            ImmutableList.Builder<ResourceUpdatedMessage> messages,
+            List<Runnable> afterWrite) throws WriteException {
 
-        Container container = resolveContainer(content);
         ensureContentSummary(content, container);
         ensureId(content);
         filterUnpublishedBroadcasts(content);
@@ -268,7 +929,7 @@ public class CqlContentStore implements ContentStore {
             );
             throw new RuntimeException(e); //rethrow to be caught by metrics
         }
-        batch.addAll(updateChildrenSummaries(content, previous, messages));
+        batch.addAll(updateChildrenSummaries(content, previous, messages, afterWrite));
 
         setExistingItemRefs(content, previous);
     }
@@ -382,30 +1043,86 @@ public class CqlContentStore implements ContentStore {
         return previous;
     }
 
+    /**
+     * Resolves content by id, in the order of the given ids. At most {@code maxInFlightReads}
+     * queries are outstanding at once. If a {@code readBatchSize} is set, ids owned by the same
+     * replicas are read together by IN queries of up to that many ids, otherwise each id is read
+     * by its own query.
+     */
     @Override
     public ListenableFuture<Resolved<Content>> resolveIds(Iterable<Id> ids) {
-        List<ListenableFuture<Content>> futures = StreamSupport.stream(
-                ids.spliterator(),
-                false
-        )
+        ImmutableList<Long> contentIds = StreamSupport.stream(ids.spliterator(), false)
                 .map(Id::longValue)
-                .map(accessor::getContent)
-                .map(contentFuture -> Promise.wrap(contentFuture).then(this::deserializeIfFull))
-                .collect(Collectors.toList());
+                .collect(MoreCollectors.toImmutableList());
 
-        ListenableFuture<List<Content>> contentList = Futures.transform(
-                Futures.allAsList(futures),
-                (List<Content> input) -> input.stream()
-                        .filter(Objects::nonNull)
-                        .collect(Collectors.toList())
-        );
+        List<Supplier<ListenableFuture<List<org.atlasapi.content.v2.model.Content>>>> reads =
+                readBatchSize > 0 ? batchedReads(contentIds) : singleReads(contentIds);
+
+        metricRegistry.histogram(resolveIds + HISTOGRAM_IDS).update(contentIds.size());
+        metricRegistry.histogram(resolveIds + HISTOGRAM_QUERIES).update(reads.size());
+        Timer.Context time = metricRegistry.timer(resolveIds + TIMER_LATENCY).time();
+
+        ListenableFuture<List<List<org.atlasapi.content.v2.model.Content>>> results =
+                BoundedFutures.allAsList(reads, maxInFlightReads);
+        results.addListener(time::stop, MoreExecutors.directExecutor());
 
         return Futures.transform(
-                contentList,
-                (Function<List<Content>, Resolved<Content>>) Resolved::valueOf
+                results,
+                (Function<List<List<org.atlasapi.content.v2.model.Content>>, Resolved<Content>>)
+                        rows -> Resolved.valueOf(inIdOrder(contentIds, rows))
         );
     }
 
+    private List<Supplier<ListenableFuture<List<org.atlasapi.content.v2.model.Content>>>>
+            singleReads(ImmutableList<Long> contentIds) {
+        return ImmutableSet.copyOf(contentIds).stream()
+                .<Supplier<ListenableFuture<List<org.atlasapi.content.v2.model.Content>>>>map(
+                        id -> () -> Futures.transform(
+                                accessor.getContent(id),
+                                (Function<org.atlasapi.content.v2.model.Content,
+                                        List<org.atlasapi.content.v2.model.Content>>)
+                                        content -> content == null
+                                                   ? ImmutableList.of()
+                                                   : ImmutableList.of(content)
+                        )
+                )
+                .collect(MoreCollectors.toImmutableList());
+    }
+
+    private List<Supplier<ListenableFuture<List<org.atlasapi.content.v2.model.Content>>>>
+            batchedReads(ImmutableList<Long> contentIds) {
+        return ReplicaBatches.of(session, contentIds, readBatchSize).stream()
+                .<Supplier<ListenableFuture<List<org.atlasapi.content.v2.model.Content>>>>map(
+                        batch -> () -> Futures.transform(
+                                accessor.getContents(batch),
+                                (Function<Result<org.atlasapi.content.v2.model.Content>,
+                                        List<org.atlasapi.content.v2.model.Content>>)
+                                        Result::all
+                        )
+                )
+                .collect(MoreCollectors.toImmutableList());
+    }
+
+    private List<Content> inIdOrder(
+            ImmutableList<Long> contentIds,
+            List<List<org.atlasapi.content.v2.model.Content>> rows
+    ) {
+        Map<Long, Content> contentById = Maps.newHashMap();
+        rows.stream()
+                .flatMap(List::stream)
+                .forEach(row -> {
+                    Content content = deserializeIfFull(row);
+                    if (content != null) {
+                        contentById.put(row.getId(), content);
+                    }
+                });
+
+        return contentIds.stream()
+                .map(contentById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
     @Nullable
     private Content deserializeIfFull(@Nullable org.atlasapi.content.v2.model.Content content) {
         // we denormalise things like itemRefs on containers. When a content gets written, we write
@@ -424,8 +1141,40 @@ public class CqlContentStore implements ContentStore {
             return;
         }
 
-        Map<Id, Id> resourceGraphIds = getResourceGraphIds(messages);
+        sendMessages(messages, Futures.getUnchecked(resolvePartitionIds(messages)));
+    }
+
+    private ListenableFuture<Void> sendChildUpdatedMessages(ImmutableList<ItemRef> children) {
+        return sendMessagesAsync(children.stream()
+                .map(child -> new ResourceUpdatedMessage(
+                        UUID.randomUUID().toString(),
+                        Timestamp.of(DateTime.now()),
+                        child
+                ))
+                .collect(MoreCollectors.toImmutableList()));
+    }
 
+    private ListenableFuture<Void> sendMessagesAsync(
+            ImmutableList<ResourceUpdatedMessage> messages
+    ) {
+        if (sender == null) {
+            return Futures.immediateFuture(null);
+        }
+
+        return Futures.transform(
+                resolvePartitionIds(messages),
+                (Function<Map<Id, Id>, Void>) partitionIds -> {
+                    sendMessages(messages, partitionIds);
+                    return null;
+                },
+                asyncWriteExecutor
+        );
+    }
+
+    private void sendMessages(
+            ImmutableList<ResourceUpdatedMessage> messages,
+            Map<Id, Id> resourceGraphIds
+    ) {
         for (ResourceUpdatedMessage message : messages) {
             try {
                 // Downstream workers are processing the entire equivalence graph for every
@@ -447,16 +1196,67 @@ public class CqlContentStore implements ContentStore {
         }
     }
 
-    private Map<Id, Id> getResourceGraphIds(Iterable<ResourceUpdatedMessage> messages) {
-        ImmutableSet<Id> messageResourceIds = StreamSupport.stream(messages.spliterator(), false)
-                .map(message -> message.getUpdatedResource().getId())
-                .distinct()
+    /**
+     * Resolves the ids of the equivalence graphs of the updated resources, served from the
+     * partition key cache where possible. Resources without a graph map to themselves. The
+     * future never fails: if the graphs can't be resolved it holds only the cached ids.
+     */
+    private ListenableFuture<Map<Id, Id>> resolvePartitionIds(
+            Iterable<ResourceUpdatedMessage> messages
+    ) {
+        ImmutableSet<Id> resourceIds = messageResourceIds(messages);
+
+        ImmutableMap<Long, Long> cached = partitionKeyCache == null
+                                          ? ImmutableMap.of()
+                                          : partitionKeyCache.getAllPresent(
+                                                  Iterables.transform(resourceIds, Id::longValue)
+                                          );
+        ImmutableSet<Id> missing = resourceIds.stream()
+                .filter(id -> !cached.containsKey(id.longValue()))
                 .collect(MoreCollectors.toImmutableSet());
 
-        return getResourceGraphIds(
-                messageResourceIds,
-                getGraphMap(messageResourceIds)
+        Map<Id, Id> partitionIds = Maps.newHashMap();
+        cached.forEach((resourceId, graphId) ->
+                partitionIds.put(Id.valueOf(resourceId), Id.valueOf(graphId))
         );
+
+        if (missing.isEmpty()) {
+            return Futures.immediateFuture(partitionIds);
+        }
+
+        GenerationalCache.Generations generations = partitionKeyCache == null
+                ? null
+                : partitionKeyCache.generations(Iterables.transform(missing, Id::longValue));
+        ListenableFuture<Map<Id, Id>> resolved = Futures.transform(
+                graphStore.resolveIds(missing),
+                (Function<OptionalMap<Id, EquivalenceGraph>, Map<Id, Id>>) graphs -> {
+                    Map<Id, Id> graphIds = getResourceGraphIds(missing, graphs);
+                    if (partitionKeyCache != null) {
+                        partitionKeyCache.putAll(
+                                missing.stream().collect(MoreCollectors.toImmutableMap(
+                                        Id::longValue,
+                                        id -> graphIds.getOrDefault(id, id).longValue()
+                                )),
+                                generations
+                        );
+                    }
+                    partitionIds.putAll(graphIds);
+                    return partitionIds;
+                }
+        );
+
+        return Futures.catching(
+                resolved,
+                Exception.class,
+                (Function<Exception, Map<Id, Id>>) e -> partitionIds
+        );
+    }
+
+    private ImmutableSet<Id> messageResourceIds(Iterable<ResourceUpdatedMessage> messages) {
+        return StreamSupport.stream(messages.spliterator(), false)
+                .map(message -> message.getUpdatedResource().getId())
+                .distinct()
+                .collect(MoreCollectors.toImmutableSet());
     }
 
     private ImmutableMap<Id, Id> getResourceGraphIds(
@@ -474,14 +1274,6 @@ public class CqlContentStore implements ContentStore {
                 ));
     }
 
-    private OptionalMap<Id, EquivalenceGraph> getGraphMap(Iterable<Id> messageResourceIds) {
-        try {
-            return graphStore.resolveIds(messageResourceIds).get();
-        } catch (InterruptedException | ExecutionException e) {
-            return ImmutableOptionalMap.of();
-        }
-    }
-
     private void setExistingItemRefs(Content content, Content previous) {
         if (content instanceof Container && previous instanceof Container) {
             Container previousContainer = (Container) previous;
@@ -506,15 +1298,21 @@ public class CqlContentStore implements ContentStore {
      * know if those IDs exist in the DB, therefore we ignore them and use the ones we resolved from
      * DB, aka {@code previous}.
      *
+     * Containers with at least {@code childFanOutThreshold} children, when a fan-out executor
+     * is configured, have their children updated by {@link ContainerSummaryFanOut} once the
+     * container has been written instead.
+     *
      * @param content content being written
      * @param previous previous content, resolved from DB
      * @param messages input arg of resource update messages to send
+     * @param afterWrite input arg of actions to run once the content has been written
      * @return a bunch of update statements to execute
      */
     private Iterable<? extends Statement> updateChildrenSummaries(
             Content content,
             @Nullable Content previous,
-            ImmutableList.Builder<ResourceUpdatedMessage> messages
+            ImmutableList.Builder<ResourceUpdatedMessage> messages,
+            List<Runnable> afterWrite
     ) {
         List<Statement> statements = Lists.newArrayList();
 
@@ -532,6 +1330,15 @@ public class CqlContentStore implements ContentStore {
 
                 Iterable<ItemRef> itemRefs = previousContainer.getItemRefs();
 
+                if (childFanOut != null && Iterables.size(itemRefs) >= childFanOutThreshold) {
+                    long containerId = container.getId().longValue();
+                    org.atlasapi.content.v2.model.udt.ContainerSummary summary =
+                            containerSummaryTranslator.serialize(currentSummary);
+                    ImmutableList<ItemRef> children = ImmutableList.copyOf(itemRefs);
+                    afterWrite.add(() -> childFanOut.submit(containerId, summary, children));
+                    return ImmutableList.of();
+                }
+
                 for (ItemRef childRef : itemRefs) {
                     statements.add(accessor.updateContainerSummary(
                             childRef.getId().longValue(),
@@ -574,17 +1381,7 @@ public class CqlContentStore implements ContentStore {
 
     @Nullable
     private Container resolveContainer(Content content) throws WriteException {
-        ContainerRef containerRef = null;
-
-        if (content instanceof Item) {
-            Item item = (Item) content;
-            containerRef = item.getContainerRef();
-        }
-
-        if (content instanceof Series) {
-            Series series = (Series) content;
-            containerRef = series.getBrandRef();
-        }
+        ContainerRef containerRef = containerRefOf(content);
 
         if (containerRef != null) {
             try {
@@ -592,31 +1389,62 @@ public class CqlContentStore implements ContentStore {
                         .get()
                         .getResources()
                         .first();
-                if (container.isPresent()) {
-                    return (Container) container.get();
-                } else {
-                    throw new WriteException(
-                            String.format("Failed to resolve container %s for %s",
-                                    containerRef.getId(), content.getId()
-                            ),
-                            new MissingResourceException(containerRef.getId())
-                    );
-                }
+                return toContainer(content, containerRef, container);
             } catch (InterruptedException | ExecutionException e) {
-                throw new WriteException(
-                        String.format(
-                                "Failed to retrieve container %s for %s seconds",
-                                containerRef.getId(),
-                                content.getId()
-                        ),
-                        e
-                );
+                throw containerRetrievalFailure(content, containerRef, e);
             }
         }
 
         return null;
     }
 
+    @Nullable
+    private ContainerRef containerRefOf(Content content) {
+        if (content instanceof Item) {
+            Item item = (Item) content;
+            return item.getContainerRef();
+        }
+
+        if (content instanceof Series) {
+            Series series = (Series) content;
+            return series.getBrandRef();
+        }
+
+        return null;
+    }
+
+    private Container toContainer(
+            Content content,
+            ContainerRef containerRef,
+            Optional<Content> container
+    ) throws WriteException {
+        if (container.isPresent()) {
+            return (Container) container.get();
+        } else {
+            throw new WriteException(
+                    String.format("Failed to resolve container %s for %s",
+                            containerRef.getId(), content.getId()
+                    ),
+                    new MissingResourceException(containerRef.getId())
+            );
+        }
+    }
+
+    private WriteException containerRetrievalFailure(
+            Content content,
+            ContainerRef containerRef,
+            Exception cause
+    ) {
+        return new WriteException(
+                String.format(
+                        "Failed to retrieve container %s for %s seconds",
+                        containerRef.getId(),
+                        content.getId()
+                ),
+                cause
+        );
+    }
+
     private void ensureContentSummary(Content content, Container container) throws WriteException {
         if (content instanceof Item) {
             Item item = (Item) content;
@@ -918,6 +1746,47 @@ public class CqlContentStore implements ContentStore {
         }
     }
 
+    private static final class PendingWrite {
+
+        private final int index;
+        private final Content content;
+        private final Content previous;
+        private final Collection<Statement> statements;
+        private final ImmutableList.Builder<ResourceUpdatedMessage> messages;
+        private final List<Runnable> afterWrite;
+
+        private RuntimeException failure;
+
+        private PendingWrite(
+                int index,
+                Content content,
+                @Nullable Content previous,
+                Collection<Statement> statements,
+                ImmutableList.Builder<ResourceUpdatedMessage> messages,
+                List<Runnable> afterWrite
+        ) {
+            this.index = index;
+            this.content = content;
+            this.previous = previous;
+            this.statements = statements;
+            this.messages = messages;
+            this.afterWrite = afterWrite;
+        }
+    }
+
+    private static final class PartitionBatch {
+
+        private final BatchStatement batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+        private final Set<PendingWrite> writes = Sets.newIdentityHashSet();
+
+        private ResultSetFuture future;
+
+        private void add(Statement statement, PendingWrite write) {
+            batch.add(statement);
+            writes.add(write);
+        }
+    }
+
     public static final class Builder {
 
         private Session session;
@@ -925,10 +1794,22 @@ public class CqlContentStore implements ContentStore {
         private MessageSender<ResourceUpdatedMessage> sender;
         private Clock clock;
         private EquivalenceGraphStore graphStore;
+        private ContentHasher hasher;
+        private IndexCache partitionKeyCache;
         private MetricRegistry metricRegistry;
         private String metricPrefix;
         private ConsistencyLevel readConsistency = ConsistencyLevel.QUORUM;
         private ConsistencyLevel writeConsistency = ConsistencyLevel.QUORUM;
+        private int maxInFlightWrites = 128;
+        private Executor asyncWriteExecutor = MoreExecutors.directExecutor();
+        private int readBatchSize = 0;
+        private int maxInFlightReads = 64;
+        private ScheduledExecutorService childFanOutExecutor;
+        private int childFanOutThreshold = 100;
+        private int childFanOutMaxInFlight = 32;
+        private long childFanOutCoalesceWindowMillis = 1000;
+        private int childFanOutMaxRetries = 3;
+        private long childFanOutRetryBackoffMillis = 1000;
 
         private Builder() {}
 
@@ -957,6 +1838,25 @@ public class CqlContentStore implements ContentStore {
             return this;
         }
 
+        /**
+         * Hasher of written content. With one, unchanged writes of previously written content
+         * are detected by reading only the stored hash rather than the whole row.
+         */
+        public Builder withHasher(ContentHasher val) {
+            hasher = val;
+            return this;
+        }
+
+        /**
+         * Cache of the equivalence graph ids used as the partition keys of resource updated
+         * messages, saving a graph lookup per message. It must be invalidated from the
+         * equivalence graph changes stream.
+         */
+        public Builder withPartitionKeyCache(IndexCache val) {
+            partitionKeyCache = val;
+            return this;
+        }
+
         public Builder withMetricRegistry(MetricRegistry val) {
             metricRegistry = val;
             return this;
@@ -977,6 +1877,77 @@ public class CqlContentStore implements ContentStore {
             return this;
         }
 
+        public Builder withMaxInFlightWrites(int val) {
+            maxInFlightWrites = val;
+            return this;
+        }
+
+        /**
+         * Executor on which {@link #writeContentAsync(Content)} prepares, applies and sends the
+         * messages of a write once its reads have completed. The default runs those steps on
+         * whichever thread completed the read, usually one of the driver's I/O threads, and is
+         * only suitable for tests.
+         */
+        public Builder withAsyncWriteExecutor(Executor val) {
+            asyncWriteExecutor = val;
+            return this;
+        }
+
+        /**
+         * Maximum number of ids read by one query of {@link #resolveIds(Iterable)}. Zero, the
+         * default, reads each id by its own query.
+         */
+        public Builder withReadBatchSize(int val) {
+            readBatchSize = val;
+            return this;
+        }
+
+        public Builder withMaxInFlightReads(int val) {
+            maxInFlightReads = val;
+            return this;
+        }
+
+        /**
+         * Executor on which the summaries of containers with many children are written onto
+         * those children after the container's own write. Without one, children are always
+         * updated in the container's batch. Children not yet updated when the process stops
+         * keep their previous summary until their container is next written.
+         */
+        public Builder withChildFanOutExecutor(ScheduledExecutorService val) {
+            childFanOutExecutor = val;
+            return this;
+        }
+
+        public Builder withChildFanOutThreshold(int val) {
+            childFanOutThreshold = val;
+            return this;
+        }
+
+        public Builder withChildFanOutMaxInFlight(int val) {
+            childFanOutMaxInFlight = val;
+            return this;
+        }
+
+        public Builder withChildFanOutCoalesceWindowMillis(long val) {
+            childFanOutCoalesceWindowMillis = val;
+            return this;
+        }
+
+        /**
+         * How many times a failed child update is retried, waiting
+         * {@link #withChildFanOutRetryBackoffMillis(long)} before the first retry and twice as
+         * long before each further one.
+         */
+        public Builder withChildFanOutMaxRetries(int val) {
+            childFanOutMaxRetries = val;
+            return this;
+        }
+
+        public Builder withChildFanOutRetryBackoffMillis(long val) {
+            childFanOutRetryBackoffMillis = val;
+            return this;
+        }
+
         public CqlContentStore build() {
             return new CqlContentStore(this);
         }
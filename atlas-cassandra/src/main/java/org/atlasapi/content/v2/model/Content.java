@@ -298,6 +298,11 @@ public class Content implements ContentIface {
     @Column(name = "custom_fields")
     private Map<String, String> customFields;
 
+    // hash of the content as it was given to the store, not part of equals/hashCode as it is
+    // only used to detect unchanged writes without reading the whole row
+    @Column(name = "content_hash")
+    private String contentHash;
+
     @Override
     public Long getId() {
         return id;
@@ -756,6 +761,14 @@ public class Content implements ContentIface {
         this.customFields = customFields;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
     public String getIsrc() {
         return isrc;
     }
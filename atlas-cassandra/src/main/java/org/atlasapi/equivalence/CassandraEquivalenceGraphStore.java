@@ -5,42 +5,55 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.StreamSupport;
 
 import org.atlasapi.entity.Id;
 import org.atlasapi.equivalence.EquivalenceGraph.Adjacents;
 import org.atlasapi.locks.GroupLock;
+import org.atlasapi.util.BoundedFutures;
+import org.atlasapi.util.GenerationalCache;
+import org.atlasapi.util.GraphCache;
+import org.atlasapi.util.IndexCache;
+import org.atlasapi.util.ReplicaBatches;
 
 import com.metabroadcast.common.collect.ImmutableOptionalMap;
 import com.metabroadcast.common.collect.OptionalMap;
 import com.metabroadcast.common.queue.MessageSender;
 import com.metabroadcast.common.stream.MoreCollectors;
 
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
 import com.datastax.driver.core.BatchStatement;
 import com.datastax.driver.core.ConsistencyLevel;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
-import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.Statement;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Ordering;
+import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.AsyncFunction;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 import static com.datastax.driver.core.querybuilder.QueryBuilder.bindMarker;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.in;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.insertInto;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.select;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 public final class CassandraEquivalenceGraphStore extends AbstractEquivalenceGraphStore {
@@ -58,6 +71,8 @@ public final class CassandraEquivalenceGraphStore extends AbstractEquivalenceGra
     @VisibleForTesting static final String RESOURCE_ID_KEY = "resource_id";
     @VisibleForTesting static final String GRAPH_ID_KEY = "graph_id";
     private static final String GRAPH_KEY = "graph";
+    private static final String KEYS_BIND = "keys";
+    private static final int DEFAULT_MAX_IN_FLIGHT_READS = 64;
 
     private final GroupLock<Id> lock;
     private static final Logger log = LoggerFactory.getLogger(CassandraEquivalenceGraphStore.class);
@@ -67,9 +82,17 @@ public final class CassandraEquivalenceGraphStore extends AbstractEquivalenceGra
     private final Session session;
     private final ConsistencyLevel read;
     private final ConsistencyLevel write;
+    @Nullable private final IndexCache indexCache;
+    @Nullable private final GraphCache graphCache;
+    private final int readBatchSize;
+    private final int maxInFlightReads;
+    private final Histogram indexQueries;
+    private final Histogram graphQueries;
 
     private final PreparedStatement graphRowsSelect;
     private final PreparedStatement graphIdsSelect;
+    private final PreparedStatement batchGraphRowsSelect;
+    private final PreparedStatement batchGraphIdsSelect;
     private final PreparedStatement indexInsert;
     private final PreparedStatement graphInsert;
 
@@ -77,10 +100,65 @@ public final class CassandraEquivalenceGraphStore extends AbstractEquivalenceGra
             MessageSender<EquivalenceGraphUpdateMessage> messageSender, Session session,
             ConsistencyLevel read, ConsistencyLevel write, MetricRegistry metricRegistry,
             String metricPrefix) {
-        super(messageSender, metricRegistry, metricPrefix);
-        this.session = checkNotNull(session);
-        this.read = read;
-        this.write = write;
+        this(messageSender, session, read, write, null, metricRegistry, metricPrefix);
+    }
+
+    /**
+     * @see Builder#withIndexCache(IndexCache)
+     */
+    public CassandraEquivalenceGraphStore(
+            MessageSender<EquivalenceGraphUpdateMessage> messageSender, Session session,
+            ConsistencyLevel read, ConsistencyLevel write, @Nullable IndexCache indexCache,
+            MetricRegistry metricRegistry, String metricPrefix) {
+        this(
+                messageSender, session, read, write, indexCache, false, metricRegistry,
+                metricPrefix
+        );
+    }
+
+    /**
+     * @see Builder#withSerialLanes(boolean)
+     */
+    public CassandraEquivalenceGraphStore(
+            MessageSender<EquivalenceGraphUpdateMessage> messageSender, Session session,
+            ConsistencyLevel read, ConsistencyLevel write, @Nullable IndexCache indexCache,
+            boolean serialLanes, MetricRegistry metricRegistry, String metricPrefix) {
+        this(builder()
+                .withMessageSender(messageSender)
+                .withSession(session)
+                .withReadConsistency(read)
+                .withWriteConsistency(write)
+                .withIndexCache(indexCache)
+                .withSerialLanes(serialLanes)
+                .withMetricRegistry(metricRegistry)
+                .withMetricPrefix(metricPrefix));
+    }
+
+    private CassandraEquivalenceGraphStore(Builder builder) {
+        super(
+                builder.messageSender,
+                builder.metricRegistry,
+                builder.metricPrefix,
+                builder.serialLanes,
+                builder.rejectionFilter,
+                builder.incrementalRecomputation
+        );
+        checkArgument(builder.readBatchSize >= 0, "read batch size must not be negative");
+        checkArgument(builder.maxInFlightReads > 0, "max in-flight reads must be positive");
+
+        this.session = checkNotNull(builder.session);
+        this.read = builder.readConsistency;
+        this.write = builder.writeConsistency;
+        this.indexCache = builder.indexCache;
+        this.graphCache = builder.graphCache;
+        this.readBatchSize = builder.readBatchSize;
+        this.maxInFlightReads = builder.maxInFlightReads;
+        this.indexQueries = builder.metricRegistry.histogram(
+                builder.metricPrefix + "resolveIds.histogram.indexQueries"
+        );
+        this.graphQueries = builder.metricRegistry.histogram(
+                builder.metricPrefix + "resolveIds.histogram.graphQueries"
+        );
 
         this.graphRowsSelect = session.prepare(select(
                 GRAPH_ID_KEY,
@@ -95,6 +173,16 @@ public final class CassandraEquivalenceGraphStore extends AbstractEquivalenceGra
                 .where(eq(RESOURCE_ID_KEY, bindMarker())));
         this.graphIdsSelect.setConsistencyLevel(read);
 
+        this.batchGraphRowsSelect = session.prepare(select(GRAPH_ID_KEY, GRAPH_KEY)
+                .from(EQUIVALENCE_GRAPHS_TABLE)
+                .where(in(GRAPH_ID_KEY, bindMarker(KEYS_BIND))));
+        this.batchGraphRowsSelect.setConsistencyLevel(read);
+
+        this.batchGraphIdsSelect = session.prepare(select(RESOURCE_ID_KEY, GRAPH_ID_KEY)
+                .from(EQUIVALENCE_GRAPH_INDEX_TABLE)
+                .where(in(RESOURCE_ID_KEY, bindMarker(KEYS_BIND))));
+        this.batchGraphIdsSelect.setConsistencyLevel(read);
+
         this.indexInsert = session.prepare(insertInto(EQUIVALENCE_GRAPH_INDEX_TABLE)
                 .value(RESOURCE_ID_KEY, bindMarker("resourceId"))
                 .value(GRAPH_ID_KEY, bindMarker("graphId")));
@@ -106,7 +194,12 @@ public final class CassandraEquivalenceGraphStore extends AbstractEquivalenceGra
                         .value(GRAPH_KEY, bindMarker("data")));
         this.graphInsert.setConsistencyLevel(write);
 
-        this.lock = GroupLock.natural(metricRegistry, metricPrefix);
+        this.lock = checkNotNull(builder.lockType)
+                .create(builder.metricRegistry, builder.metricPrefix);
+    }
+
+    public static Builder builder() {
+        return new Builder();
     }
 
     private final Function<Iterable<Row>, Map<Long, EquivalenceGraph>> toGraph = rows -> {
@@ -119,28 +212,45 @@ public final class CassandraEquivalenceGraphStore extends AbstractEquivalenceGra
     };
 
     private final AsyncFunction<Map<Id, Long>, OptionalMap<Id, EquivalenceGraph>> toGraphs =
-            idIndex -> {
-                ListenableFuture<List<Row>> rowFutures = Futures.transform(
-                        Futures.allAsList(idIndex.values()
-                                .stream()
-                                .unordered()
-                                .distinct()
-                                .map(this::queryForGraphRow)
-                                .map(this::resultOf)
-                                .map(resultSetFuture -> Futures.transform(
-                                        resultSetFuture,
-                                        ResultSet::one
-                                ))
-                                .collect(Collectors.toList())),
-                        filterNulls
-                );
-
-                return Futures.transform(
-                        Futures.transform(rowFutures, toGraph),
-                        (Function<Map<Long, EquivalenceGraph>, OptionalMap<Id, EquivalenceGraph>>)
-                                rowGraphIndex -> getRequestedIdToGraphMap(idIndex, rowGraphIndex)
-                );
-            };
+            idIndex -> Futures.transform(
+                    resolveGraphs(ImmutableSet.copyOf(idIndex.values())),
+                    (Function<Map<Long, EquivalenceGraph>, OptionalMap<Id, EquivalenceGraph>>)
+                            rowGraphIndex -> getRequestedIdToGraphMap(idIndex, rowGraphIndex)
+            );
+
+    private ListenableFuture<Map<Long, EquivalenceGraph>> resolveGraphs(Set<Long> graphIds) {
+        if (graphCache == null) {
+            return resolveGraphsFromTable(graphIds);
+        }
+
+        ImmutableMap<Long, EquivalenceGraph> cached = graphCache.getAllPresent(graphIds);
+        Set<Long> missing = Sets.difference(graphIds, cached.keySet()).immutableCopy();
+
+        if (missing.isEmpty()) {
+            return Futures.<Map<Long, EquivalenceGraph>>immediateFuture(cached);
+        }
+
+        GenerationalCache.Generations generations = graphCache.generations(missing);
+        return Futures.transform(
+                resolveGraphsFromTable(missing),
+                (Function<Map<Long, EquivalenceGraph>, Map<Long, EquivalenceGraph>>) resolved -> {
+                    graphCache.putAll(resolved, generations);
+                    return ImmutableMap.<Long, EquivalenceGraph>builder()
+                            .putAll(cached)
+                            .putAll(resolved)
+                            .build();
+                }
+        );
+    }
+
+    private ListenableFuture<Map<Long, EquivalenceGraph>> resolveGraphsFromTable(
+            Set<Long> graphIds
+    ) {
+        return Futures.transform(
+                readRows(graphIds, graphRowsSelect, batchGraphRowsSelect, graphQueries),
+                toGraph
+        );
+    }
 
     private OptionalMap<Id, EquivalenceGraph> getRequestedIdToGraphMap(
             Map<Id, Long> idIndex, Map<Long, EquivalenceGraph> rowGraphIndex) {
@@ -165,10 +275,6 @@ public final class CassandraEquivalenceGraphStore extends AbstractEquivalenceGra
         return graph != null && graph.getEquivalenceSet().contains(requestedId);
     }
 
-    private Statement queryForGraphRow(Long id) {
-        return graphRowsSelect.bind(id);
-    }
-
     private final Function<Iterable<Row>, Map<Id, Long>> toGraphIdIndex
             = rows -> {
         ImmutableMap.Builder<Id, Long> idIndex = ImmutableMap.builder();
@@ -186,37 +292,133 @@ public final class CassandraEquivalenceGraphStore extends AbstractEquivalenceGra
         return Futures.transform(graphIdIndex, toGraphs);
     }
 
+    /**
+     * Reads past the index and graph caches, which may not yet have seen a write made by another
+     * node, so that updates are always applied to the stored graphs.
+     */
+    @Override
+    protected ListenableFuture<OptionalMap<Id, EquivalenceGraph>> resolveIdsForUpdate(
+            Iterable<Id> ids
+    ) {
+        return Futures.transformAsync(
+                resolveToGraphIdsFromIndex(ids),
+                idIndex -> Futures.transform(
+                        resolveGraphsFromTable(ImmutableSet.copyOf(idIndex.values())),
+                        (Function<Map<Long, EquivalenceGraph>, OptionalMap<Id, EquivalenceGraph>>)
+                                rowGraphIndex -> getRequestedIdToGraphMap(idIndex, rowGraphIndex)
+                )
+        );
+    }
+
     private ListenableFuture<Map<Id, Long>> resolveToGraphIds(Iterable<Id> ids) {
-        ListenableFuture<List<Row>> resultsFuture = Futures.transform(
-                Futures.allAsList(
-                        queriesForGraphIds(ids)
-                                .stream()
-                                .map(this::resultOf)
-                                .map(resultSetFuture -> Futures.transform(
-                                        resultSetFuture,
-                                        (Function<ResultSet, Row>) rs -> rs != null
-                                                                         ? rs.one()
-                                                                         : null
-                                ))
-                                .collect(Collectors.toList())),
-                filterNulls
+        if (indexCache == null) {
+            return resolveToGraphIdsFromIndex(ids);
+        }
+
+        ImmutableMap<Long, Long> cached = indexCache.getAllPresent(
+                Iterables.transform(ids, Id.toLongValue())
+        );
+        ImmutableSet<Id> missing = StreamSupport.stream(ids.spliterator(), false)
+                .filter(id -> !cached.containsKey(id.longValue()))
+                .collect(MoreCollectors.toImmutableSet());
+
+        ImmutableMap.Builder<Id, Long> cachedIndex = ImmutableMap.builder();
+        cached.forEach((resourceId, graphId) -> cachedIndex.put(Id.valueOf(resourceId), graphId));
+
+        if (missing.isEmpty()) {
+            return Futures.immediateFuture(cachedIndex.build());
+        }
+
+        GenerationalCache.Generations generations = indexCache.generations(
+                Iterables.transform(missing, Id.toLongValue())
+        );
+        return Futures.transform(
+                resolveToGraphIdsFromIndex(missing),
+                (Function<Map<Id, Long>, Map<Id, Long>>) resolved -> {
+                    indexCache.putAll(
+                            resolved.entrySet().stream()
+                                    .collect(MoreCollectors.toImmutableMap(
+                                            entry -> entry.getKey().longValue(),
+                                            Entry::getValue
+                                    )),
+                            generations
+                    );
+                    return cachedIndex.putAll(resolved).build();
+                }
+        );
+    }
+
+    private ListenableFuture<Map<Id, Long>> resolveToGraphIdsFromIndex(Iterable<Id> ids) {
+        ImmutableSet<Long> resourceIds = StreamSupport.stream(ids.spliterator(), false)
+                .map(Id::longValue)
+                .collect(MoreCollectors.toImmutableSet());
+        return Futures.transform(
+                readRows(resourceIds, graphIdsSelect, batchGraphIdsSelect, indexQueries),
+                toGraphIdIndex
+        );
+    }
+
+    /**
+     * Reads the rows of the given partition keys with at most {@code maxInFlightReads} queries
+     * outstanding at once. If a {@code readBatchSize} is set, keys owned by the same replicas are
+     * read together by IN queries of up to that many keys, otherwise each key is read by its own
+     * query. Keys with no row are absent from the result.
+     */
+    private ListenableFuture<List<Row>> readRows(
+            Set<Long> keys,
+            PreparedStatement singleSelect,
+            PreparedStatement batchSelect,
+            Histogram queries
+    ) {
+        List<Supplier<ListenableFuture<List<Row>>>> reads = readBatchSize > 0
+                ? batchedReads(keys, batchSelect)
+                : singleReads(keys, singleSelect);
+        queries.update(reads.size());
+
+        return Futures.transform(
+                BoundedFutures.allAsList(reads, maxInFlightReads),
+                (Function<List<List<Row>>, List<Row>>) rows -> rows.stream()
+                        .flatMap(List::stream)
+                        .collect(MoreCollectors.toImmutableList())
         );
-        return Futures.transform(resultsFuture, toGraphIdIndex);
     }
 
-    private ResultSetFuture resultOf(Statement query) {
-        return session.executeAsync(query);
+    private List<Supplier<ListenableFuture<List<Row>>>> singleReads(
+            Set<Long> keys,
+            PreparedStatement select
+    ) {
+        return keys.stream()
+                .<Supplier<ListenableFuture<List<Row>>>>map(
+                        key -> () -> Futures.transform(
+                                session.executeAsync(select.bind(key)),
+                                (Function<ResultSet, List<Row>>) rs -> rs != null
+                                                                       ? singletonRow(rs.one())
+                                                                       : ImmutableList.of()
+                        )
+                )
+                .collect(MoreCollectors.toImmutableList());
     }
 
-    private List<Statement> queriesForGraphIds(Iterable<Id> ids) {
-        return StreamSupport.stream(ids.spliterator(), false)
-                .map(Id.toLongValue()::apply)
-                .unordered()
-                .distinct()
-                .map(graphIdsSelect::bind)
+    private List<Supplier<ListenableFuture<List<Row>>>> batchedReads(
+            Set<Long> keys,
+            PreparedStatement select
+    ) {
+        return ReplicaBatches.of(session, keys, readBatchSize).stream()
+                .<Supplier<ListenableFuture<List<Row>>>>map(
+                        batch -> () -> Futures.transform(
+                                session.executeAsync(
+                                        select.bind().setList(KEYS_BIND, batch)
+                                ),
+                                (Function<ResultSet, List<Row>>) ResultSet::all
+                        )
+                )
                 .collect(MoreCollectors.toImmutableList());
     }
 
+    private static List<Row> singletonRow(@Nullable Row row) {
+        return row != null ? ImmutableList.of(row) : ImmutableList.of();
+    }
+
     @Override
     protected void doStore(ImmutableSet<EquivalenceGraph> graphs) {
         BatchStatement updateBatch = new BatchStatement();
@@ -232,6 +434,18 @@ public final class CassandraEquivalenceGraphStore extends AbstractEquivalenceGra
         }
 
         session.execute(updateBatch);
+
+        if (indexCache != null) {
+            indexCache.invalidate(graphs.stream()
+                    .flatMap(graph -> graph.getEquivalenceSet().stream())
+                    .map(Id::longValue)
+                    .collect(MoreCollectors.toImmutableSet()));
+        }
+        if (graphCache != null) {
+            graphCache.invalidate(graphs.stream()
+                    .map(this::lowestId)
+                    .collect(MoreCollectors.toImmutableSet()));
+        }
     }
 
     private Statement indexInsert(Long resourceId, Long graphId) {
@@ -250,4 +464,135 @@ public final class CassandraEquivalenceGraphStore extends AbstractEquivalenceGra
     protected GroupLock<Id> lock() {
         return lock;
     }
+
+    public static final class Builder {
+
+        private MessageSender<EquivalenceGraphUpdateMessage> messageSender;
+        private Session session;
+        private ConsistencyLevel readConsistency;
+        private ConsistencyLevel writeConsistency;
+        private IndexCache indexCache;
+        private GraphCache graphCache;
+        private boolean serialLanes = false;
+        private EquivalenceGraphRejectionFilter rejectionFilter =
+                EquivalenceGraphRejectionFilter.create();
+        private int readBatchSize = 0;
+        private int maxInFlightReads = DEFAULT_MAX_IN_FLIGHT_READS;
+        private GroupLock.Type lockType = GroupLock.Type.NATURAL;
+        private boolean incrementalRecomputation = false;
+        private MetricRegistry metricRegistry;
+        private String metricPrefix;
+
+        private Builder() {
+        }
+
+        public Builder withMessageSender(MessageSender<EquivalenceGraphUpdateMessage> val) {
+            messageSender = val;
+            return this;
+        }
+
+        public Builder withSession(Session val) {
+            session = val;
+            return this;
+        }
+
+        public Builder withReadConsistency(ConsistencyLevel val) {
+            readConsistency = val;
+            return this;
+        }
+
+        public Builder withWriteConsistency(ConsistencyLevel val) {
+            writeConsistency = val;
+            return this;
+        }
+
+        /**
+         * If set, {@code equivalence_graph_index} lookups are served from the cache where
+         * possible. It is invalidated by graphs written through this store; graphs written by
+         * other nodes must be invalidated by the caller.
+         */
+        public Builder withIndexCache(@Nullable IndexCache val) {
+            indexCache = val;
+            return this;
+        }
+
+        /**
+         * If set, decoded graphs are served from the cache where possible. Like the index cache,
+         * it is invalidated by graphs written through this store; graphs written by other nodes
+         * must be invalidated by the caller.
+         */
+        public Builder withGraphCache(@Nullable GraphCache val) {
+            graphCache = val;
+            return this;
+        }
+
+        /**
+         * If true, updates of overlapping graphs are queued one behind another instead of
+         * taking locks on the ids involved.
+         *
+         * @see AbstractEquivalenceGraphStore#AbstractEquivalenceGraphStore(MessageSender,
+         * MetricRegistry, String, boolean)
+         */
+        public Builder withSerialLanes(boolean val) {
+            serialLanes = val;
+            return this;
+        }
+
+        /**
+         * Decides which updates make graphs too large to be stored. Defaults to the filter's
+         * default thresholds, without dropping oversized edges.
+         */
+        public Builder withRejectionFilter(EquivalenceGraphRejectionFilter val) {
+            rejectionFilter = val;
+            return this;
+        }
+
+        /**
+         * Maximum number of keys read by one query of either table when resolving ids. Zero, the
+         * default, reads each key by its own query.
+         */
+        public Builder withReadBatchSize(int val) {
+            readBatchSize = val;
+            return this;
+        }
+
+        public Builder withMaxInFlightReads(int val) {
+            maxInFlightReads = val;
+            return this;
+        }
+
+        /**
+         * The lock taken on the ids of updated graphs. Defaults to {@link GroupLock.Type#NATURAL}.
+         */
+        public Builder withLockType(GroupLock.Type val) {
+            lockType = val;
+            return this;
+        }
+
+        /**
+         * If true, updated graphs are recomputed from the components the update touched rather
+         * than by walking every resource in them. Defaults to false.
+         *
+         * @see AbstractEquivalenceGraphStore#AbstractEquivalenceGraphStore(MessageSender,
+         * MetricRegistry, String, boolean, EquivalenceGraphRejectionFilter, boolean)
+         */
+        public Builder withIncrementalRecomputation(boolean val) {
+            incrementalRecomputation = val;
+            return this;
+        }
+
+        public Builder withMetricRegistry(MetricRegistry val) {
+            metricRegistry = val;
+            return this;
+        }
+
+        public Builder withMetricPrefix(String val) {
+            metricPrefix = val;
+            return this;
+        }
+
+        public CassandraEquivalenceGraphStore build() {
+            return new CassandraEquivalenceGraphStore(this);
+        }
+    }
 }
@@ -1,6 +1,7 @@
 package org.atlasapi.equivalence;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -15,12 +16,12 @@ import org.atlasapi.serialization.protobuf.CommonProtos.Reference;
 import org.atlasapi.serialization.protobuf.EquivProtos;
 import org.atlasapi.serialization.protobuf.EquivProtos.Adjacency;
 import org.atlasapi.serialization.protobuf.EquivProtos.EquivGraph;
+import org.atlasapi.util.ProtobufByteBuffers;
 
 import com.metabroadcast.common.time.DateTimeZones;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
-import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 import org.joda.time.DateTime;
 
@@ -68,8 +69,7 @@ public class EquivalenceGraphSerializer implements Serializer<EquivalenceGraph,
     @Override
     public EquivalenceGraph deserialize(ByteBuffer dest) {
         try {
-            ByteString bytes = ByteString.copyFrom(dest);
-            EquivGraph buffer = EquivProtos.EquivGraph.parseFrom(bytes);
+            EquivGraph buffer = ProtobufByteBuffers.parseFrom(dest, EquivGraph.parser());
             return new EquivalenceGraph(
                     deserialize(buffer.getAdjacencyList()),
                     deserialize(buffer.getUpdated())
@@ -79,6 +79,53 @@ public class EquivalenceGraphSerializer implements Serializer<EquivalenceGraph,
         }
     }
 
+    /**
+     * Reads a graph straight into its {@link CompactEquivalenceGraph compact form}, without
+     * building a {@link ResourceRef} for each edge between members of the graph.
+     */
+    public CompactEquivalenceGraph deserializeCompact(ByteBuffer dest) {
+        try {
+            EquivGraph buffer = ProtobufByteBuffers.parseFrom(dest, EquivGraph.parser());
+
+            long[] memberIds = new long[buffer.getAdjacencyCount()];
+            for (int i = 0; i < memberIds.length; i++) {
+                memberIds[i] = buffer.getAdjacency(i).getRef().getId();
+            }
+            Arrays.sort(memberIds);
+
+            CompactEquivalenceGraph.Builder graph = CompactEquivalenceGraph.builder(
+                    deserialize(buffer.getUpdated())
+            );
+            for (Adjacency adjacency : buffer.getAdjacencyList()) {
+                graph.addMember(
+                        serializer.deserialize(adjacency.getRef()),
+                        adjacency.getCreated().getMillis(),
+                        edgeIds(adjacency.getEfferentList(), memberIds, graph),
+                        edgeIds(adjacency.getAfferentList(), memberIds, graph)
+                );
+            }
+            return graph.build();
+        } catch (InvalidProtocolBufferException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private long[] edgeIds(
+            List<Reference> refList,
+            long[] memberIds,
+            CompactEquivalenceGraph.Builder graph
+    ) {
+        long[] ids = new long[refList.size()];
+        for (int i = 0; i < ids.length; i++) {
+            Reference reference = refList.get(i);
+            ids[i] = reference.getId();
+            if (Arrays.binarySearch(memberIds, ids[i]) < 0) {
+                graph.addEdgeRef(serializer.deserialize(reference));
+            }
+        }
+        return ids;
+    }
+
     private Map<Id, Adjacents> deserialize(List<Adjacency> src) {
         ImmutableMap.Builder<Id, Adjacents> adjacencyList = ImmutableMap.builder();
         for (Adjacency adjacency : src) {
@@ -27,7 +27,7 @@ import com.metabroadcast.common.stream.MoreCollectors;
 import com.metabroadcast.common.time.Clock;
 
 import com.codahale.metrics.MetricRegistry;
-import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.ResultSet;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
 import com.google.common.base.Throwables;
@@ -74,6 +74,7 @@ public abstract class AbstractEquivalentScheduleStore implements EquivalentSched
     public AbstractEquivalentScheduleStore(
             EquivalenceGraphStore graphStore,
             ContentResolver contentStore,
+            GroupLock.Type lockType,
             MetricRegistry metricRegistry,
             String metricPrefix,
             Clock clock
@@ -82,7 +83,7 @@ public abstract class AbstractEquivalentScheduleStore implements EquivalentSched
         this.contentStore = checkNotNull(contentStore);
         this.clock = checkNotNull(clock);
 
-        this.lock = GroupLock.natural(metricRegistry, metricPrefix);
+        this.lock = checkNotNull(lockType).create(metricRegistry, metricPrefix);
 
         this.metricRegistry = metricRegistry;
         this.updateSchedule = metricPrefix + "updateSchedule.";
@@ -139,7 +140,7 @@ public abstract class AbstractEquivalentScheduleStore implements EquivalentSched
             Map<ScheduleRef.Entry, EquivalentScheduleEntry> content
     ) throws WriteException;
 
-    protected abstract ImmutableList<ResultSetFuture> updateEquivalentContent(
+    protected abstract ImmutableList<ListenableFuture<ResultSet>> updateEquivalentContent(
             Publisher publisher,
             Broadcast broadcast,
             EquivalenceGraph graph,
@@ -167,7 +168,10 @@ public abstract class AbstractEquivalentScheduleStore implements EquivalentSched
         metricRegistry.histogram(updateEquivalences + "graph.histogram.size")
                 .update(graphItems.size());
 
-        ImmutableList<ResultSetFuture> futures = getUpdateEquivalencesFutures(graph, graphItems);
+        ImmutableList<ListenableFuture<ResultSet>> futures = getUpdateEquivalencesFutures(
+                graph,
+                graphItems
+        );
 
         metricRegistry.histogram(updateEquivalences + "histogram.parallelWrites")
                 .update(futures.size());
@@ -181,11 +185,11 @@ public abstract class AbstractEquivalentScheduleStore implements EquivalentSched
         }
     }
 
-    private ImmutableList<ResultSetFuture> getUpdateEquivalencesFutures(
+    private ImmutableList<ListenableFuture<ResultSet>> getUpdateEquivalencesFutures(
             EquivalenceGraph graph,
             ImmutableList<Item> graphItems
     ) {
-        ImmutableList.Builder<ResultSetFuture> futureBuilder = ImmutableList.builder();
+        ImmutableList.Builder<ListenableFuture<ResultSet>> futureBuilder = ImmutableList.builder();
 
         for (Item item : graphItems) {
             ImmutableList<Broadcast> broadcasts = item.getBroadcasts()
@@ -2,14 +2,17 @@ package org.atlasapi.schedule;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -32,9 +35,13 @@ import org.atlasapi.equivalence.EquivalenceGraphSerializer;
 import org.atlasapi.equivalence.EquivalenceGraphStore;
 import org.atlasapi.equivalence.EquivalenceRef;
 import org.atlasapi.equivalence.Equivalent;
+import org.atlasapi.locks.GroupLock;
 import org.atlasapi.media.entity.Publisher;
 import org.atlasapi.serialization.protobuf.ContentProtos;
+import org.atlasapi.util.BoundedFutures;
 import org.atlasapi.util.Column;
+import org.atlasapi.util.CompressedBlobs;
+import org.atlasapi.util.ProtobufByteBuffers;
 
 import com.metabroadcast.common.stream.MoreCollectors;
 import com.metabroadcast.common.time.Clock;
@@ -51,18 +58,23 @@ import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.exceptions.NoHostAvailableException;
 import com.datastax.driver.core.exceptions.QueryExecutionException;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.datastax.driver.core.querybuilder.Select;
+import com.datastax.driver.core.querybuilder.Update;
 import com.google.common.base.Function;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.SetMultimap;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import com.google.common.hash.Hashing;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
-import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -73,9 +85,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static com.datastax.driver.core.querybuilder.QueryBuilder.bindMarker;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.delete;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.in;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.insertInto;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.select;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.set;
+import static com.datastax.driver.core.querybuilder.QueryBuilder.timestamp;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.update;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -90,6 +106,7 @@ public final class CassandraEquivalentScheduleStore extends AbstractEquivalentSc
     private static final Duration MAX_SCHEDULE_LENGTH = Duration.standardHours(24);
 
     private static final String EQUIVALENT_SCHEDULE_TABLE = "equivalent_schedule";
+    private static final String EQUIVALENT_SCHEDULE_CONTENT_TABLE = "equivalent_schedule_content";
 
     private static final Column<String> SOURCE = textColumn("source");
     private static final Column<Long> CHANNEL = bigIntColumn("channel");
@@ -100,6 +117,7 @@ public final class CassandraEquivalentScheduleStore extends AbstractEquivalentSc
     private static final Column<ByteBuffer> GRAPH = bytesColumn("graph");
     private static final Column<Long> CONTENT_COUNT = bigIntColumn("content_count");
     private static final Column<ByteBuffer> CONTENT = bytesColumn("content");
+    private static final Column<ByteBuffer> CONTENT_HASH = bytesColumn("content_hash");
     private static final Column<Date> SCHEDULE_UPDATE = dateColumn("schedule_update");
     private static final Column<Date> EQUIV_UPDATE = dateColumn("equiv_update");
     private static final Column<Long> BROADCAST_ITEM_ID = bigIntColumn("broadcast_item_id");
@@ -109,23 +127,42 @@ public final class CassandraEquivalentScheduleStore extends AbstractEquivalentSc
 
     private static final int GRAPH_SIZE_ALERTING_THRESHOLD = 150;
 
+    private static final int SWEEP_BATCH_SIZE = 1000;
+    private static final int SWEEP_MAX_DELETES_IN_FLIGHT = 32;
+    private static final int SWEEP_EXPECTED_REFERENCES = 10_000_000;
+    private static final double SWEEP_FALSE_POSITIVE_RATE = 0.01;
+    private static final Funnel<ByteBuffer> CONTENT_HASH_FUNNEL = (hash, into) -> {
+        ByteBuffer bytes = hash.duplicate();
+        while (bytes.hasRemaining()) {
+            into.putByte(bytes.get());
+        }
+    };
+
     private final Session session;
     private final ConsistencyLevel read;
     private final ConsistencyLevel write;
+    private final boolean compressContent;
+    private final boolean contentAddressed;
+    private final ScheduleReadPlanner readPlanner;
 
     private final ContentSerializer contentSerializer;
     private final EquivalenceGraphSerializer graphSerializer = new EquivalenceGraphSerializer();
     private final BroadcastSerializer broadcastSerializer = BroadcastSerializer.create();
 
     private final PreparedStatement scheduleSelect;
+    private final PreparedStatement scheduleRangeSelect;
     private final PreparedStatement broadcastDelete;
     private final PreparedStatement contentUpdate;
     private final PreparedStatement broadcastEquivUpdate;
     private final PreparedStatement broadcastScheduleUpdate;
     private final PreparedStatement broadcastSelect;
+    private final PreparedStatement contentBlobInsert;
+    private final PreparedStatement contentBlobSelect;
+    private final PreparedStatement contentBlobDelete;
 
     private final String updateContentMetricPrefix;
     private final String resolveScheduleMetricPrefix;
+    private final String contentBlobSweepMetricPrefix;
 
     public CassandraEquivalentScheduleStore(
             EquivalenceGraphStore graphStore,
@@ -137,14 +174,37 @@ public final class CassandraEquivalentScheduleStore extends AbstractEquivalentSc
             MetricRegistry metricRegistry,
             String metricPrefix
     ) {
-        super(graphStore, contentStore, metricRegistry, metricPrefix, clock);
+        this(builder()
+                .withGraphStore(graphStore)
+                .withContentStore(contentStore)
+                .withSession(session)
+                .withReadConsistency(read)
+                .withWriteConsistency(write)
+                .withClock(clock)
+                .withMetricRegistry(metricRegistry)
+                .withMetricPrefix(metricPrefix)
+        );
+    }
+
+    private CassandraEquivalentScheduleStore(Builder builder) {
+        super(
+                builder.graphStore,
+                builder.contentStore,
+                builder.lockType,
+                builder.metricRegistry,
+                builder.metricPrefix,
+                builder.clock
+        );
 
         this.contentSerializer = new ContentSerializer(
                 new ContentSerializationVisitor()
         );
-        this.session = checkNotNull(session);
-        this.read = checkNotNull(read);
-        this.write = checkNotNull(write);
+        this.session = checkNotNull(builder.session);
+        this.read = checkNotNull(builder.read);
+        this.write = checkNotNull(builder.write);
+        this.compressContent = builder.compressContent;
+        this.contentAddressed = builder.contentAddressed;
+        this.readPlanner = new ScheduleReadPlanner(builder.maxDaysPerRead);
 
         this.broadcastSelect = session.prepare(
                 select(
@@ -156,25 +216,18 @@ public final class CassandraEquivalentScheduleStore extends AbstractEquivalentSc
                         .and(eq(CHANNEL.name(), bindMarker("channel")))
                         .and(eq(DAY.name(), bindMarker("day"))));
 
-        this.scheduleSelect = session.prepare(select(
-                SOURCE.name(),
-                CHANNEL.name(),
-                DAY.name(),
-                BROADCAST_ID.name(),
-                BROADCAST_START.name(),
-                BROADCAST.name(),
-                GRAPH.name(),
-                CONTENT_COUNT.name(),
-                CONTENT.name(),
-                SCHEDULE_UPDATE.name(),
-                EQUIV_UPDATE.name(),
-                BROADCAST_ITEM_ID.name()
-        )
+        this.scheduleSelect = session.prepare(scheduleColumns()
                 .from(EQUIVALENT_SCHEDULE_TABLE)
                 .where(eq(SOURCE.name(), bindMarker("source")))
                 .and(eq(CHANNEL.name(), bindMarker("channel")))
                 .and(eq(DAY.name(), bindMarker("day"))));
 
+        this.scheduleRangeSelect = session.prepare(scheduleColumns()
+                .from(EQUIVALENT_SCHEDULE_TABLE)
+                .where(eq(SOURCE.name(), bindMarker("source")))
+                .and(eq(CHANNEL.name(), bindMarker("channel")))
+                .and(in(DAY.name(), bindMarker("days"))));
+
         this.broadcastDelete = session.prepare(
                 QueryBuilder.delete().all().from(EQUIVALENT_SCHEDULE_TABLE)
                         .where(eq(SOURCE.name(), bindMarker("source")))
@@ -182,39 +235,95 @@ public final class CassandraEquivalentScheduleStore extends AbstractEquivalentSc
                         .and(eq(DAY.name(), bindMarker("day")))
                         .and(eq(BROADCAST_ID.name(), bindMarker("broadcast"))));
 
-        this.contentUpdate = session.prepare(update(EQUIVALENT_SCHEDULE_TABLE)
-                .where(eq(SOURCE.name(), bindMarker("source")))
-                .and(eq(CHANNEL.name(), bindMarker("channel")))
-                .and(eq(DAY.name(), bindMarker("day")))
-                .and(eq(BROADCAST_ID.name(), bindMarker("broadcast")))
-                .with(set(CONTENT_COUNT.name(), bindMarker("contentCount")))
-                .and(set(CONTENT.name(), bindMarker("data"))));
+        this.contentUpdate = session.prepare(withContent(
+                update(EQUIVALENT_SCHEDULE_TABLE)
+                        .where(eq(SOURCE.name(), bindMarker("source")))
+                        .and(eq(CHANNEL.name(), bindMarker("channel")))
+                        .and(eq(DAY.name(), bindMarker("day")))
+                        .and(eq(BROADCAST_ID.name(), bindMarker("broadcast")))
+                        .with(set(CONTENT_COUNT.name(), bindMarker("contentCount"))),
+                "data"
+        ));
 
-        this.broadcastEquivUpdate = session.prepare(update(EQUIVALENT_SCHEDULE_TABLE)
-                .where(eq(SOURCE.name(), bindMarker("source")))
-                .and(eq(CHANNEL.name(), bindMarker("channel")))
-                .and(eq(DAY.name(), bindMarker("day")))
-                .and(eq(BROADCAST_ID.name(), bindMarker("broadcast")))
-                .with(set(GRAPH.name(), bindMarker("graphData")))
-                .and(set(CONTENT_COUNT.name(), bindMarker("contentCountData")))
-                .and(set(CONTENT.name(), bindMarker("contentData")))
-                .and(set(EQUIV_UPDATE.name(), bindMarker("now"))));
-
-        this.broadcastScheduleUpdate = session.prepare(update(EQUIVALENT_SCHEDULE_TABLE)
-                .where(eq(SOURCE.name(), bindMarker("source")))
-                .and(eq(CHANNEL.name(), bindMarker("channel")))
-                .and(eq(DAY.name(), bindMarker("day")))
-                .and(eq(BROADCAST_ID.name(), bindMarker("broadcast")))
-                .with(set(BROADCAST.name(), bindMarker("broadcastData")))
-                .and(set(BROADCAST_START.name(), bindMarker("broadcastStartData")))
-                .and(set(GRAPH.name(), bindMarker("graphData")))
-                .and(set(CONTENT_COUNT.name(), bindMarker("contentCountData")))
-                .and(set(CONTENT.name(), bindMarker("contentData")))
-                .and(set(SCHEDULE_UPDATE.name(), bindMarker("now")))
-                .and(set(BROADCAST_ITEM_ID.name(), bindMarker("broadcast_item_id"))));
+        this.broadcastEquivUpdate = session.prepare(withContent(
+                update(EQUIVALENT_SCHEDULE_TABLE)
+                        .where(eq(SOURCE.name(), bindMarker("source")))
+                        .and(eq(CHANNEL.name(), bindMarker("channel")))
+                        .and(eq(DAY.name(), bindMarker("day")))
+                        .and(eq(BROADCAST_ID.name(), bindMarker("broadcast")))
+                        .with(set(GRAPH.name(), bindMarker("graphData")))
+                        .and(set(CONTENT_COUNT.name(), bindMarker("contentCountData")))
+                        .and(set(EQUIV_UPDATE.name(), bindMarker("now"))),
+                "contentData"
+        ));
+
+        this.broadcastScheduleUpdate = session.prepare(withContent(
+                update(EQUIVALENT_SCHEDULE_TABLE)
+                        .where(eq(SOURCE.name(), bindMarker("source")))
+                        .and(eq(CHANNEL.name(), bindMarker("channel")))
+                        .and(eq(DAY.name(), bindMarker("day")))
+                        .and(eq(BROADCAST_ID.name(), bindMarker("broadcast")))
+                        .with(set(BROADCAST.name(), bindMarker("broadcastData")))
+                        .and(set(BROADCAST_START.name(), bindMarker("broadcastStartData")))
+                        .and(set(GRAPH.name(), bindMarker("graphData")))
+                        .and(set(CONTENT_COUNT.name(), bindMarker("contentCountData")))
+                        .and(set(SCHEDULE_UPDATE.name(), bindMarker("now")))
+                        .and(set(BROADCAST_ITEM_ID.name(), bindMarker("broadcast_item_id"))),
+                "contentData"
+        ));
+
+        this.contentBlobInsert = session.prepare(insertInto(EQUIVALENT_SCHEDULE_CONTENT_TABLE)
+                .value(CONTENT_HASH.name(), bindMarker("hash"))
+                .value(CONTENT.name(), bindMarker("content")));
+
+        this.contentBlobSelect = session.prepare(select(CONTENT_HASH.name(), CONTENT.name())
+                .from(EQUIVALENT_SCHEDULE_CONTENT_TABLE)
+                .where(eq(CONTENT_HASH.name(), bindMarker("hash"))));
+
+        this.contentBlobDelete = session.prepare(delete()
+                .from(EQUIVALENT_SCHEDULE_CONTENT_TABLE)
+                .where(eq(CONTENT_HASH.name(), bindMarker("hash")))
+                .using(timestamp(bindMarker("timestamp"))));
+
+        this.updateContentMetricPrefix = builder.metricPrefix + "updateContent.";
+        this.resolveScheduleMetricPrefix = builder.metricPrefix + "resolveSchedule.";
+        this.contentBlobSweepMetricPrefix = builder.metricPrefix + "contentBlobSweep.";
+    }
 
-        this.updateContentMetricPrefix = metricPrefix + "updateContent.";
-        this.resolveScheduleMetricPrefix = metricPrefix + "resolveSchedule.";
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private static Select.Selection scheduleColumns() {
+        return select(
+                SOURCE.name(),
+                CHANNEL.name(),
+                DAY.name(),
+                BROADCAST_ID.name(),
+                BROADCAST_START.name(),
+                BROADCAST.name(),
+                GRAPH.name(),
+                CONTENT_COUNT.name(),
+                CONTENT.name(),
+                CONTENT_HASH.name(),
+                SCHEDULE_UPDATE.name(),
+                EQUIV_UPDATE.name(),
+                BROADCAST_ITEM_ID.name()
+        );
+    }
+
+    // With content addressing the content column of a row is replaced by the hash of its blob,
+    // which is stored once in the content table. Whichever column is not written is cleared, so
+    // rows never keep a stale copy when the setting is switched either way.
+    private Update.Assignments withContent(Update.Assignments assignments, String bindMarker) {
+        if (contentAddressed) {
+            return assignments
+                    .and(set(CONTENT_HASH.name(), bindMarker(bindMarker)))
+                    .and(set(CONTENT.name(), null));
+        }
+        return assignments
+                .and(set(CONTENT.name(), bindMarker(bindMarker)))
+                .and(set(CONTENT_HASH.name(), null));
     }
 
     @Override
@@ -226,15 +335,91 @@ public final class CassandraEquivalentScheduleStore extends AbstractEquivalentSc
     ) {
         metricRegistry.meter(resolveScheduleMetricPrefix + METER_CALLED).mark();
 
-        ImmutableList<ResultSetFuture> resultFutures = selectStatements(source, channels, interval)
-                .stream()
+        ImmutableList<Channel> channelList = ImmutableList.copyOf(channels);
+        return Futures.transformAsync(
+                selectRows(source, channelList, daysIn(interval)),
+                rows -> toSchedule(rows, channelList, interval, selectedSources)
+        );
+    }
+
+    private ListenableFuture<EquivalentSchedule> toSchedule(
+            List<Row> rows,
+            List<Channel> channels,
+            Interval interval,
+            Set<Publisher> selectedSources
+    ) {
+        return Futures.transform(
+                resolveContentBlobs(rows),
+                (Function<Map<ByteBuffer, ByteBuffer>, EquivalentSchedule>)
+                        contentBlobs -> new ToEquivalentSchedule(
+                                ImmutableSet.copyOf(channels),
+                                interval,
+                                selectedSources,
+                                contentBlobs
+                        ).apply(rows)
+        );
+    }
+
+    private ListenableFuture<List<Row>> selectRows(
+            Publisher source,
+            List<Channel> channels,
+            List<LocalDate> days
+    ) {
+        ImmutableList<ScheduleReadPlanner.Read> reads = readPlanner.plan(
+                channels.stream()
+                        .map(Channel::getId)
+                        .collect(MoreCollectors.toImmutableList()),
+                days
+        );
+        metricRegistry.histogram(resolveScheduleMetricPrefix + "histogram.scheduleReads")
+                .update(reads.size());
+
+        ImmutableList<ResultSetFuture> resultFutures = reads.stream()
+                .map(scheduleRead -> selectStatement(source, scheduleRead))
                 .map(statement -> statement.setConsistencyLevel(read))
                 .map(session::executeAsync)
                 .collect(MoreCollectors.toImmutableList());
 
+        // A ResultSet can only be iterated once, so the rows are materialized here
         return Futures.transform(
                 Futures.allAsList(resultFutures),
-                new ToEquivalentSchedule(ImmutableSet.copyOf(channels), interval, selectedSources)
+                (Function<List<ResultSet>, List<Row>>) resultSets -> resultSets.stream()
+                        .flatMap(resultSet -> resultSet.all().stream())
+                        .collect(MoreCollectors.toImmutableList())
+        );
+    }
+
+    // Each distinct content blob referenced by the rows is read once, however many broadcasts
+    // share it
+    private ListenableFuture<Map<ByteBuffer, ByteBuffer>> resolveContentBlobs(List<Row> rows) {
+        ImmutableSet<ByteBuffer> hashes = rows.stream()
+                .filter(row -> !BROADCAST.isNullIn(row) && !CONTENT_HASH.isNullIn(row))
+                .map(CONTENT_HASH::valueFrom)
+                .collect(MoreCollectors.toImmutableSet());
+
+        if (hashes.isEmpty()) {
+            return Futures.immediateFuture(ImmutableMap.of());
+        }
+
+        metricRegistry.histogram(resolveScheduleMetricPrefix + "histogram.contentBlobReads")
+                .update(hashes.size());
+
+        ImmutableList<ResultSetFuture> blobFutures = hashes.stream()
+                .map(hash -> contentBlobSelect.bind()
+                        .setBytes("hash", hash)
+                        .setConsistencyLevel(read))
+                .map(session::executeAsync)
+                .collect(MoreCollectors.toImmutableList());
+
+        return Futures.transform(
+                Futures.allAsList(blobFutures),
+                (Function<List<ResultSet>, Map<ByteBuffer, ByteBuffer>>) resultSets -> {
+                    Map<ByteBuffer, ByteBuffer> blobs = new HashMap<>();
+                    for (Row row : Iterables.concat(resultSets)) {
+                        blobs.put(CONTENT_HASH.valueFrom(row), CONTENT.valueFrom(row));
+                    }
+                    return blobs;
+                }
         );
     }
 
@@ -249,21 +434,70 @@ public final class CassandraEquivalentScheduleStore extends AbstractEquivalentSc
         metricRegistry.meter(resolveScheduleMetricPrefix + METER_CALLED).mark();
 
         Interval interval = new Interval(start, start.plus(MAX_SCHEDULE_LENGTH));
+        List<LocalDate> days = daysIn(interval);
+        ImmutableList<Channel> channelList = ImmutableList.copyOf(channels);
+
+        // Read the first day alone and only go on to the rest of the window for channels it
+        // does not already hold enough broadcasts for. Every broadcast in later days starts
+        // after those of the first day, so they cannot displace them from the first count.
+        ListenableFuture<List<Row>> rows = Futures.transformAsync(
+                selectRows(source, channelList, days.subList(0, 1)),
+                firstDayRows -> {
+                    ImmutableList<Channel> unsatisfied = channelList.stream()
+                            .filter(channel -> broadcastsFrom(firstDayRows, channel, start) < count)
+                            .collect(MoreCollectors.toImmutableList());
+
+                    if (days.size() == 1) {
+                        return Futures.immediateFuture(firstDayRows);
+                    }
+                    if (unsatisfied.isEmpty()) {
+                        metricRegistry.meter(resolveScheduleMetricPrefix
+                                + "meter.countReadsStoppedEarly").mark();
+                        return Futures.immediateFuture(firstDayRows);
+                    }
+                    return Futures.transform(
+                            selectRows(source, unsatisfied, days.subList(1, days.size())),
+                            (Function<List<Row>, List<Row>>) laterRows ->
+                                    ImmutableList.<Row>builder()
+                                            .addAll(firstDayRows)
+                                            .addAll(laterRows)
+                                            .build()
+                    );
+                }
+        );
+
         return Futures.transform(
-                resolveSchedules(channels, interval, source, selectedSources),
+                Futures.transformAsync(
+                        rows,
+                        input -> toSchedule(input, channelList, interval, selectedSources)
+                ),
                 (Function<EquivalentSchedule, EquivalentSchedule>) input ->
                         input.withLimitedBroadcasts(count)
         );
     }
 
+    // A lower bound on the broadcasts of the channel in the schedule, read from the broadcast
+    // start column so that nothing needs to be decoded. Broadcasts which started before the
+    // schedule start are not counted, so this never overestimates.
+    private long broadcastsFrom(List<Row> rows, Channel channel, DateTime start) {
+        long channelId = channel.getId().longValue();
+        Date from = start.toDate();
+        return rows.stream()
+                .filter(row -> CHANNEL.valueFrom(row) == channelId)
+                .filter(row -> !BROADCAST.isNullIn(row) && !BROADCAST_START.isNullIn(row))
+                .filter(row -> !BROADCAST_START.valueFrom(row).before(from))
+                .count();
+    }
+
     @Override
     public void updateContent(Iterable<Item> content) throws WriteException {
         metricRegistry.meter(updateContentMetricPrefix + METER_CALLED).mark();
 
-        ByteBuffer serializedContent = serialize(content);
+        ListenableFuture<ByteBuffer> serializedContent = storeContent(content);
         int contentCount = Iterables.size(content);
 
-        ImmutableList.Builder<ResultSetFuture> futureBuilder = ImmutableList.builder();
+        ImmutableList.Builder<ListenableFuture<ResultSet>> futureBuilder =
+                ImmutableList.builder();
 
         for (Item item : content) {
             StreamSupport
@@ -281,7 +515,7 @@ public final class CassandraEquivalentScheduleStore extends AbstractEquivalentSc
                     .forEach(futureBuilder::add);
         }
 
-        ImmutableList<ResultSetFuture> futures = futureBuilder.build();
+        ImmutableList<ListenableFuture<ResultSet>> futures = futureBuilder.build();
 
         metricRegistry.histogram(updateContentMetricPrefix + "histogram.parallelWrites")
                 .update(futures.size());
@@ -349,9 +583,15 @@ public final class CassandraEquivalentScheduleStore extends AbstractEquivalentSc
                         .collect(Collectors.joining(","))
         );
 
+        Map<ByteBuffer, Statement> contentBlobInserts = new HashMap<>();
         ImmutableList<Statement> updates = updateEntries
                 .stream()
-                .flatMap(entry -> statementsForEntry(update.getSource(), entry, now).stream())
+                .flatMap(entry -> statementsForEntry(
+                        update.getSource(),
+                        entry,
+                        now,
+                        contentBlobInserts
+                ).stream())
                 .collect(MoreCollectors.toImmutableList());
 
         if (updates.isEmpty() && deletes.isEmpty()) {
@@ -362,6 +602,14 @@ public final class CassandraEquivalentScheduleStore extends AbstractEquivalentSc
         updateBatch.addAll(Iterables.concat(updates, deletes));
 
         try {
+            // Blobs are written before the rows referencing them, so a row is never read without
+            // its blob. Blobs left behind by a failed row write are removed by
+            // deleteUnreferencedContentBlobs.
+            Futures.allAsList(contentBlobInserts.values()
+                    .stream()
+                    .map(session::executeAsync)
+                    .collect(MoreCollectors.toImmutableList())
+            ).get();
             session.execute(updateBatch.setConsistencyLevel(write));
             log.info(
                     "Processed equivalent schedule update for {} {} {}, updates: {}, "
@@ -372,34 +620,36 @@ public final class CassandraEquivalentScheduleStore extends AbstractEquivalentSc
                     updates.size(),
                     deletes.size()
             );
-        } catch (NoHostAvailableException | QueryExecutionException e) {
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WriteException(e);
+        } catch (ExecutionException | NoHostAvailableException | QueryExecutionException e) {
             throw new WriteException(e);
         }
     }
 
     @Override
-    protected ImmutableList<ResultSetFuture> updateEquivalentContent(
+    protected ImmutableList<ListenableFuture<ResultSet>> updateEquivalentContent(
             Publisher publisher,
             Broadcast broadcast,
             EquivalenceGraph graph,
             ImmutableSet<Item> content
     ) {
         ByteBuffer graphBytes = graphSerializer.serialize(graph);
-        ByteBuffer contentBytes = serialize(content);
+        ListenableFuture<ByteBuffer> contentBytes = storeContent(content);
 
         return daysIn(broadcast.getTransmissionInterval())
                 .stream()
-                .map(day -> broadcastEquivUpdate.bind()
+                .map(day -> executeWithContent(contentBytes, bytes -> broadcastEquivUpdate.bind()
                         .setString("source", publisher.key())
                         .setLong("channel", broadcast.getChannelId().longValue())
                         .setTimestamp("day", toJavaUtilDate(day))
                         .setString("broadcast", broadcast.getSourceId())
                         .setBytes("graphData", graphBytes)
                         .setLong("contentCountData", content.size())
-                        .setBytes("contentData", contentBytes)
-                        .setTimestamp("now", clock.now().toDate()))
-                .map(statement -> statement.setConsistencyLevel(write))
-                .map(session::executeAsync)
+                        .setBytes("contentData", bytes)
+                        .setTimestamp("now", clock.now().toDate())
+                        .setConsistencyLevel(write)))
                 .collect(MoreCollectors.toImmutableList());
     }
 
@@ -450,39 +700,42 @@ public final class CassandraEquivalentScheduleStore extends AbstractEquivalentSc
         return broadcastsPerDay.build();
     }
 
-    private Stream<ResultSetFuture> updateContent(
-            ByteBuffer serializedContent,
+    private Stream<ListenableFuture<ResultSet>> updateContent(
+            ListenableFuture<ByteBuffer> serializedContent,
             int contentCount,
             Broadcast broadcast,
             Publisher source
     ) {
         return daysIn(broadcast.getTransmissionInterval())
                 .stream()
-                .map(day -> contentUpdate.bind()
+                .map(day -> executeWithContent(serializedContent, bytes -> contentUpdate.bind()
                         .setString("source", source.key())
                         .setLong("channel", broadcast.getChannelId().longValue())
                         .setTimestamp("day", toJavaUtilDate(day))
                         .setString("broadcast", broadcast.getSourceId())
                         .setLong("contentCount", contentCount)
-                        .setBytes("data", serializedContent))
-                .map(statement -> statement.setConsistencyLevel(write))
-                .map(session::executeAsync);
+                        .setBytes("data", bytes)
+                        .setConsistencyLevel(write)));
     }
 
-    private List<Statement> selectStatements(Publisher src, Iterable<Channel> channels,
-            Interval interval) {
-        List<LocalDate> days = daysIn(interval);
-        ImmutableList.Builder<Statement> selects = ImmutableList.builder();
-
-        for (Channel channel : channels) {
-            for (LocalDate day : days) {
-                selects.add(scheduleSelect.bind()
-                        .setString("source", src.key())
-                        .setLong("channel", channel.getId().longValue())
-                        .setTimestamp("day", toJavaUtilDate(day)));
-            }
+    private Statement selectStatement(Publisher src, ScheduleReadPlanner.Read scheduleRead) {
+        if (scheduleRead.getDays().size() == 1) {
+            return scheduleSelect.bind()
+                    .setString("source", src.key())
+                    .setLong("channel", scheduleRead.getChannel().longValue())
+                    .setTimestamp("day", toJavaUtilDate(scheduleRead.getDays().get(0)));
         }
-        return selects.build();
+        return scheduleRangeSelect.bind()
+                .setString("source", src.key())
+                .setLong("channel", scheduleRead.getChannel().longValue())
+                .setList(
+                        "days",
+                        scheduleRead.getDays()
+                                .stream()
+                                .map(this::toJavaUtilDate)
+                                .collect(MoreCollectors.toImmutableList()),
+                        Date.class
+                );
     }
 
     private Date toJavaUtilDate(LocalDate localDate) {
@@ -524,7 +777,8 @@ public final class CassandraEquivalentScheduleStore extends AbstractEquivalentSc
     private List<Statement> statementsForEntry(
             Publisher source,
             EquivalentScheduleEntry content,
-            DateTime now
+            DateTime now,
+            Map<ByteBuffer, Statement> contentBlobInserts
     ) {
         Broadcast broadcast = content.getBroadcast();
         ImmutableSet<Item> items = content.getItems().getResources();
@@ -537,6 +791,14 @@ public final class CassandraEquivalentScheduleStore extends AbstractEquivalentSc
         Id broadcastItemId = content.getBroadcastItemId().get();
 
         ByteBuffer serializedContent = serialize(items);
+        if (contentAddressed) {
+            ByteBuffer blob = serializedContent;
+            serializedContent = hash(blob);
+            contentBlobInserts.computeIfAbsent(
+                    serializedContent,
+                    hash -> contentBlobInsert(hash, blob)
+            );
+        }
         ByteBuffer serializedGraph = graphSerializer.serialize(graph);
         ByteBuffer serializedBroadcast = serialize(broadcast);
 
@@ -560,6 +822,136 @@ public final class CassandraEquivalentScheduleStore extends AbstractEquivalentSc
                 .collect(MoreCollectors.toImmutableList());
     }
 
+    /**
+     * Returns the value to write to the content column of rows for the given items: the blob
+     * itself or, with content addressing, the hash of the blob once it has been written to the
+     * content table.
+     */
+    private ListenableFuture<ByteBuffer> storeContent(Iterable<Item> items) {
+        ByteBuffer serializedContent = serialize(items);
+        if (!contentAddressed) {
+            return Futures.immediateFuture(serializedContent);
+        }
+        ByteBuffer hash = hash(serializedContent);
+        return Futures.transform(
+                session.executeAsync(contentBlobInsert(hash, serializedContent)),
+                (Function<ResultSet, ByteBuffer>) result -> hash
+        );
+    }
+
+    /**
+     * Executes the statement for the stored content once it has been stored, so rows are never
+     * written ahead of the blob they reference.
+     */
+    private ListenableFuture<ResultSet> executeWithContent(
+            ListenableFuture<ByteBuffer> content,
+            Function<ByteBuffer, Statement> statement
+    ) {
+        return Futures.transformAsync(
+                content,
+                bytes -> session.executeAsync(statement.apply(bytes))
+        );
+    }
+
+    /**
+     * Deletes the content blobs which no schedule row references any more and which have not
+     * been written for at least {@code minAge}. Rows are replaced or deleted without their blobs,
+     * so this should be run periodically while content addressing is enabled.
+     * <p>
+     * The hashes referenced by schedule rows are collected into a bloom filter of bounded size,
+     * then the content table is paged through and the unreferenced blobs deleted in batches. A
+     * false positive only keeps a blob until a later sweep. Deletes are issued with the cut-off
+     * as their timestamp, and every write referencing a blob rewrites it first, so a blob
+     * rewritten after the cut-off always survives its delete. {@code minAge} should comfortably
+     * exceed the time a schedule write takes.
+     *
+     * @return the number of blob deletes issued
+     */
+    public int deleteUnreferencedContentBlobs(Duration minAge) {
+        long writtenBeforeMicros = clock.now().minus(minAge).getMillis() * 1000;
+
+        BloomFilter<ByteBuffer> referenced = referencedContentHashes();
+
+        int deleted = 0;
+        List<ByteBuffer> unreferenced = new ArrayList<>(SWEEP_BATCH_SIZE);
+        for (Row row : session.execute(select()
+                .column(CONTENT_HASH.name())
+                .writeTime(CONTENT.name())
+                .from(EQUIVALENT_SCHEDULE_CONTENT_TABLE)
+                .setConsistencyLevel(read)
+                .setFetchSize(SWEEP_BATCH_SIZE))) {
+            ByteBuffer hash = CONTENT_HASH.valueFrom(row);
+            if (row.getLong(1) < writtenBeforeMicros && !referenced.mightContain(hash)) {
+                unreferenced.add(hash);
+            }
+            if (unreferenced.size() == SWEEP_BATCH_SIZE) {
+                deleted += deleteContentBlobs(unreferenced, writtenBeforeMicros);
+                unreferenced.clear();
+            }
+        }
+        deleted += deleteContentBlobs(unreferenced, writtenBeforeMicros);
+
+        metricRegistry.meter(contentBlobSweepMetricPrefix + "meter.deleted").mark(deleted);
+        log.info("Deleted {} unreferenced equivalent schedule content blobs", deleted);
+        return deleted;
+    }
+
+    private BloomFilter<ByteBuffer> referencedContentHashes() {
+        BloomFilter<ByteBuffer> referenced = BloomFilter.create(
+                CONTENT_HASH_FUNNEL,
+                SWEEP_EXPECTED_REFERENCES,
+                SWEEP_FALSE_POSITIVE_RATE
+        );
+        for (Row row : session.execute(select()
+                .column(CONTENT_HASH.name())
+                .from(EQUIVALENT_SCHEDULE_TABLE)
+                .setConsistencyLevel(read)
+                .setFetchSize(SWEEP_BATCH_SIZE))) {
+            if (!CONTENT_HASH.isNullIn(row)) {
+                referenced.put(CONTENT_HASH.valueFrom(row));
+            }
+        }
+        return referenced;
+    }
+
+    private int deleteContentBlobs(List<ByteBuffer> hashes, long writtenBeforeMicros) {
+        if (hashes.isEmpty()) {
+            return 0;
+        }
+        List<Supplier<ListenableFuture<ResultSet>>> deletes = hashes.stream()
+                .map(hash -> contentBlobDelete.bind()
+                        .setBytes("hash", hash)
+                        .setLong("timestamp", writtenBeforeMicros)
+                        .setConsistencyLevel(write))
+                .<Supplier<ListenableFuture<ResultSet>>>map(statement ->
+                        () -> session.executeAsync(statement))
+                .collect(MoreCollectors.toImmutableList());
+        try {
+            BoundedFutures.allAsList(deletes, SWEEP_MAX_DELETES_IN_FLIGHT).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+        return hashes.size();
+    }
+
+    private Statement contentBlobInsert(ByteBuffer hash, ByteBuffer serializedContent) {
+        return contentBlobInsert.bind()
+                .setBytes("hash", hash)
+                .setBytes("content", serializedContent)
+                .setConsistencyLevel(write);
+    }
+
+    private ByteBuffer hash(ByteBuffer serializedContent) {
+        return ByteBuffer.wrap(Hashing.murmur3_128().hashBytes(
+                serializedContent.array(),
+                serializedContent.arrayOffset() + serializedContent.position(),
+                serializedContent.remaining()
+        ).asBytes());
+    }
+
     private ByteBuffer serialize(Iterable<Item> resources) {
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
         for (Content content : resources) {
@@ -570,7 +962,9 @@ public final class CassandraEquivalentScheduleStore extends AbstractEquivalentSc
                 throw Throwables.propagate(e);
             }
         }
-        return ByteBuffer.wrap(outputStream.toByteArray());
+        return compressContent
+               ? CompressedBlobs.compress(outputStream.toByteArray())
+               : ByteBuffer.wrap(outputStream.toByteArray());
     }
 
     private ByteBuffer serialize(Broadcast broadcast) {
@@ -651,8 +1045,9 @@ public final class CassandraEquivalentScheduleStore extends AbstractEquivalentSc
     private Broadcast deserializeBroadcast(Row row) {
         try {
             return broadcastSerializer.deserialize(
-                    ContentProtos.Broadcast.parseFrom(
-                            ByteString.copyFrom(BROADCAST.valueFrom(row))
+                    ProtobufByteBuffers.parseFrom(
+                            BROADCAST.valueFrom(row),
+                            ContentProtos.Broadcast.parser()
                     )
             );
         } catch (InvalidProtocolBufferException e) {
@@ -660,33 +1055,36 @@ public final class CassandraEquivalentScheduleStore extends AbstractEquivalentSc
         }
     }
 
-    private final class ToEquivalentSchedule implements Function<List<ResultSet>,
+    private final class ToEquivalentSchedule implements Function<List<Row>,
             EquivalentSchedule> {
 
         private final Interval interval;
         private final Set<Publisher> selectedSources;
         private final Set<Channel> channels;
+        private final Map<ByteBuffer, ByteBuffer> contentBlobs;
 
         private ToEquivalentSchedule(
                 Set<Channel> channels,
                 Interval interval,
-                Set<Publisher> selectedSources
+                Set<Publisher> selectedSources,
+                Map<ByteBuffer, ByteBuffer> contentBlobs
         ) {
             this.interval = interval;
             this.selectedSources = selectedSources;
             this.channels = channels;
+            this.contentBlobs = contentBlobs;
         }
 
         @Override
-        public EquivalentSchedule apply(List<ResultSet> input) {
+        public EquivalentSchedule apply(List<Row> input) {
             return new EquivalentSchedule(toChannelSchedules(input, channels, interval, Annotation.all()), interval);
         }
 
-        public EquivalentSchedule apply(List<ResultSet> input, Set<Annotation> annotations) {
+        public EquivalentSchedule apply(List<Row> input, Set<Annotation> annotations) {
             return new EquivalentSchedule(toChannelSchedules(input, channels, interval, annotations), interval);
         }
 
-        private List<EquivalentChannelSchedule> toChannelSchedules(List<ResultSet> input,
+        private List<EquivalentChannelSchedule> toChannelSchedules(List<Row> input,
                 Iterable<Channel> channels, Interval interval, Set<Annotation> annotations) {
             SetMultimap<Id, EquivalentScheduleEntry> entriesByChannel = transformToEntries(
                     input, interval, annotations
@@ -701,21 +1099,35 @@ public final class CassandraEquivalentScheduleStore extends AbstractEquivalentSc
             return channelSchedules.build();
         }
 
-        private SetMultimap<Id, EquivalentScheduleEntry> transformToEntries(List<ResultSet> input,
+        private SetMultimap<Id, EquivalentScheduleEntry> transformToEntries(List<Row> input,
                 Interval interval, Set<Annotation> annotations) {
             ScheduleBroadcastFilter broadcastFilter = ScheduleBroadcastFilter.valueOf(interval);
             ImmutableSetMultimap.Builder<Id, EquivalentScheduleEntry> channelEntries =
                     ImmutableSetMultimap.builder();
+            DecodeCache decodeCache = new DecodeCache(annotations);
 
-            for (Row row : Iterables.concat(input)) {
+            for (Row row : input) {
                 if (row.isNull(BROADCAST.name())) {
                     // It is legitimate to have a null broadcast because the methods that update
                     // equivalence and content do not set the broadcast column to ensure they
                     // cannot modify the schedule
                     continue;
                 }
-                deserializeRow(channelEntries, row, broadcastFilter, annotations);
+                if (!CONTENT_HASH.isNullIn(row)
+                        && !contentBlobs.containsKey(CONTENT_HASH.valueFrom(row))) {
+                    // The blob is written before any row referencing it and sweeps only delete
+                    // blobs older than their cut-off, so this should only happen if a sweep ran
+                    // with a minimum age shorter than the clock skew between clients. Skip the
+                    // broadcast rather than fail the whole schedule; it is restored by the next
+                    // write of the row.
+                    log.warn("No content blob found for schedule row {}", row);
+                    metricRegistry.meter(resolveScheduleMetricPrefix + "meter.missingContentBlobs")
+                            .mark();
+                    continue;
+                }
+                deserializeRow(channelEntries, row, broadcastFilter, decodeCache);
             }
+            decodeCache.updateMetrics();
 
             return channelEntries.build();
         }
@@ -724,7 +1136,7 @@ public final class CassandraEquivalentScheduleStore extends AbstractEquivalentSc
                 ImmutableSetMultimap.Builder<Id, EquivalentScheduleEntry> channelEntries,
                 Row row,
                 ScheduleBroadcastFilter broadcastFilter,
-                Set<Annotation> annotations
+                DecodeCache decodeCache
         ) {
             try {
                 Broadcast broadcast = deserialize(BROADCAST.valueFrom(row));
@@ -734,7 +1146,7 @@ public final class CassandraEquivalentScheduleStore extends AbstractEquivalentSc
                         : Optional.of(Id.valueOf(BROADCAST_ITEM_ID.valueFrom(row)));
 
                 if (broadcastFilter.apply(broadcast.getTransmissionInterval())) {
-                    Equivalent<Item> equivItems = deserialize(row, broadcastItemId, annotations);
+                    Equivalent<Item> equivItems = deserialize(row, broadcastItemId, decodeCache);
 
                     channelEntries.put(
                             Id.valueOf(CHANNEL.valueFrom(row)),
@@ -753,34 +1165,10 @@ public final class CassandraEquivalentScheduleStore extends AbstractEquivalentSc
         private Equivalent<Item> deserialize(
                 Row row,
                 Optional<Id> broadcastItemId,
-                Set<Annotation> annotations
+                DecodeCache decodeCache
         ) throws IOException {
-            EquivalenceGraph graph = graphSerializer.deserialize(GRAPH.valueFrom(row));
-
-            if (graph.getEquivalenceSet().size() > GRAPH_SIZE_ALERTING_THRESHOLD) {
-                log.warn(
-                        "Found large graph with id: {}, size: {}",
-                        graph.getId(),
-                        graph.getEquivalenceSet().size()
-                );
-            }
-
-            Long itemCount = CONTENT_COUNT.valueFrom(row);
-            ByteBuffer itemsBytes = CONTENT.valueFrom(row);
-
-            ByteString itemBytesCopy = ByteString.copyFrom(itemsBytes);
-            InputStream itemsStream = itemBytesCopy.newInput();
-
-            ImmutableSet.Builder<Item> itemsBuilder = ImmutableSet.builder();
-            for (int i = 0; i < itemCount; i++) {
-                ContentProtos.Content msg = ContentProtos.Content.parseDelimitedFrom(itemsStream);
-
-                itemsBuilder.add(
-                        (Item) contentSerializer.deserialize(msg, annotations)
-                );
-            }
-
-            ImmutableSet<Item> items = itemsBuilder.build();
+            EquivalenceGraph graph = decodeCache.graph(GRAPH.valueFrom(row));
+            ImmutableSet<Item> items = decodeCache.items(row);
 
             ImmutableSet<Item> filteredItems = items
                     .stream()
@@ -807,6 +1195,12 @@ public final class CassandraEquivalentScheduleStore extends AbstractEquivalentSc
             );
         }
 
+        private ByteBuffer contentOf(Row row) {
+            return CONTENT_HASH.isNullIn(row)
+                   ? CONTENT.valueFrom(row)
+                   : contentBlobs.get(CONTENT_HASH.valueFrom(row));
+        }
+
         private Optional<Id> getGraphEntryId(
                 Optional<Id> broadcastItemId,
                 ImmutableSet<Item> items
@@ -859,10 +1253,91 @@ public final class CassandraEquivalentScheduleStore extends AbstractEquivalentSc
 
         private Broadcast deserialize(ByteBuffer broadcastBytes)
                 throws InvalidProtocolBufferException {
-            return broadcastSerializer.deserialize(ContentProtos.Broadcast.parseFrom(
-                    ByteString.copyFrom(broadcastBytes)
+            return broadcastSerializer.deserialize(ProtobufByteBuffers.parseFrom(
+                    broadcastBytes,
+                    ContentProtos.Broadcast.parser()
             ));
         }
+
+        /**
+         * Parses each distinct graph and item blob once per resolved schedule. Simulcasts,
+         * regional variants and repeats share the same blobs, so a multi-channel query would
+         * otherwise parse them once per row. Blobs are keyed by their bytes, or by their hash
+         * for content addressed rows.
+         * <p>
+         * Only the parsed messages of item blobs are shared: each row gets its own {@link Item}s,
+         * since setting an item's equivalents mutates it and rows sharing a blob can have
+         * different equivalent sets.
+         */
+        private final class DecodeCache {
+
+            private final Set<Annotation> annotations;
+            private final Map<ByteBuffer, EquivalenceGraph> graphs = new HashMap<>();
+            private final Map<ByteBuffer, List<ContentProtos.Content>> items = new HashMap<>();
+            private int graphLookups = 0;
+            private int itemLookups = 0;
+
+            private DecodeCache(Set<Annotation> annotations) {
+                this.annotations = annotations;
+            }
+
+            EquivalenceGraph graph(ByteBuffer graphBytes) {
+                graphLookups++;
+                EquivalenceGraph graph = graphs.get(graphBytes);
+                if (graph == null) {
+                    graph = graphSerializer.deserialize(graphBytes);
+                    if (graph.getEquivalenceSet().size() > GRAPH_SIZE_ALERTING_THRESHOLD) {
+                        log.warn(
+                                "Found large graph with id: {}, size: {}",
+                                graph.getId(),
+                                graph.getEquivalenceSet().size()
+                        );
+                    }
+                    graphs.put(graphBytes, graph);
+                }
+                return graph;
+            }
+
+            // The content count is written alongside the blob from the same items, so the blob
+            // alone identifies the decoded set
+            ImmutableSet<Item> items(Row row) throws IOException {
+                itemLookups++;
+                ByteBuffer key = CONTENT_HASH.isNullIn(row)
+                                 ? CONTENT.valueFrom(row)
+                                 : CONTENT_HASH.valueFrom(row);
+                List<ContentProtos.Content> parsed = items.get(key);
+                if (parsed == null) {
+                    parsed = ProtobufByteBuffers.parseDelimitedFrom(
+                            CompressedBlobs.decompress(contentOf(row)),
+                            ContentProtos.Content.parser(),
+                            CONTENT_COUNT.valueFrom(row)
+                    );
+                    items.put(key, parsed);
+                }
+                ImmutableSet.Builder<Item> decoded = ImmutableSet.builder();
+                for (ContentProtos.Content msg : parsed) {
+                    decoded.add((Item) contentSerializer.deserialize(msg, annotations));
+                }
+                return decoded.build();
+            }
+
+            void updateMetrics() {
+                update("Graph", graphLookups, graphs.size());
+                update("Content", itemLookups, items.size());
+            }
+
+            private void update(String blob, int lookups, int decodes) {
+                if (lookups == 0) {
+                    return;
+                }
+                metricRegistry.meter(resolveScheduleMetricPrefix + "meter." + blob.toLowerCase()
+                        + "Decodes").mark(decodes);
+                metricRegistry.meter(resolveScheduleMetricPrefix + "meter.duplicate" + blob
+                        + "Decodes").mark(lookups - decodes);
+                metricRegistry.histogram(resolveScheduleMetricPrefix + "histogram.duplicate"
+                        + blob + "DecodesPercent").update(100 * (lookups - decodes) / lookups);
+            }
+        }
     }
 
     private static class BroadcastRow {
@@ -910,4 +1385,104 @@ public final class CassandraEquivalentScheduleStore extends AbstractEquivalentSc
             return "[" + broadcastSourceId + "|" + day + "]";
         }
     }
+
+    public static final class Builder {
+
+        private EquivalenceGraphStore graphStore;
+        private ContentResolver contentStore;
+        private Session session;
+        private ConsistencyLevel read;
+        private ConsistencyLevel write;
+        private Clock clock;
+        private boolean compressContent = false;
+        private boolean contentAddressed = false;
+        private int maxDaysPerRead = 1;
+        private GroupLock.Type lockType = GroupLock.Type.NATURAL;
+        private MetricRegistry metricRegistry;
+        private String metricPrefix;
+
+        private Builder() {}
+
+        public Builder withGraphStore(EquivalenceGraphStore val) {
+            graphStore = val;
+            return this;
+        }
+
+        public Builder withContentStore(ContentResolver val) {
+            contentStore = val;
+            return this;
+        }
+
+        public Builder withSession(Session val) {
+            session = val;
+            return this;
+        }
+
+        public Builder withReadConsistency(ConsistencyLevel val) {
+            read = val;
+            return this;
+        }
+
+        public Builder withWriteConsistency(ConsistencyLevel val) {
+            write = val;
+            return this;
+        }
+
+        public Builder withClock(Clock val) {
+            clock = val;
+            return this;
+        }
+
+        /**
+         * Write content blobs in the compressed format of {@link CompressedBlobs}. Compressed
+         * and uncompressed blobs are always both readable.
+         */
+        public Builder withCompressedContent(boolean val) {
+            compressContent = val;
+            return this;
+        }
+
+        /**
+         * Write each distinct content blob once to the content table, keyed by its hash, and
+         * reference it by hash from the schedule rows. Rows holding their own blob and rows
+         * holding a hash are always both readable. Blobs are not deleted with the rows
+         * referencing them: run {@link #deleteUnreferencedContentBlobs(Duration)} periodically.
+         */
+        public Builder withContentAddressing(boolean val) {
+            contentAddressed = val;
+            return this;
+        }
+
+        /**
+         * Read up to this many contiguous days of a channel's schedule in a single
+         * multi-partition query. Defaults to one query per channel per day.
+         */
+        public Builder withMaxDaysPerRead(int val) {
+            maxDaysPerRead = val;
+            return this;
+        }
+
+        /**
+         * The lock taken on the channel days of updated schedules. Defaults to
+         * {@link GroupLock.Type#NATURAL}.
+         */
+        public Builder withLockType(GroupLock.Type val) {
+            lockType = val;
+            return this;
+        }
+
+        public Builder withMetricRegistry(MetricRegistry val) {
+            metricRegistry = val;
+            return this;
+        }
+
+        public Builder withMetricPrefix(String val) {
+            metricPrefix = val;
+            return this;
+        }
+
+        public CassandraEquivalentScheduleStore build() {
+            return new CassandraEquivalentScheduleStore(this);
+        }
+    }
 }
@@ -0,0 +1,105 @@
+package org.atlasapi.schedule;
+
+import java.util.List;
+import java.util.Objects;
+
+import org.atlasapi.entity.Id;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import org.joda.time.LocalDate;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Plans the reads needed to resolve the schedules of some channels over some days.
+ * <p>
+ * Schedules are partitioned by source, channel and day, so a range of days cannot be scanned.
+ * Contiguous days of a channel can however be fetched by a single multi-partition read, which
+ * turns a week long query over a channel group into one read per channel rather than one per
+ * channel per day. Reads are capped at {@code maxDaysPerRead} days so that no single coordinator
+ * is asked for too many partitions at once.
+ */
+final class ScheduleReadPlanner {
+
+    private final int maxDaysPerRead;
+
+    ScheduleReadPlanner(int maxDaysPerRead) {
+        checkArgument(maxDaysPerRead > 0, "maxDaysPerRead must be positive");
+        this.maxDaysPerRead = maxDaysPerRead;
+    }
+
+    /**
+     * Returns the reads covering each of the given days for each of the given channels, in
+     * channel then day order.
+     */
+    ImmutableList<Read> plan(Iterable<Id> channels, List<LocalDate> days) {
+        ImmutableList.Builder<Read> reads = ImmutableList.builder();
+        for (Id channel : channels) {
+            ImmutableList.Builder<LocalDate> group = ImmutableList.builder();
+            LocalDate previous = null;
+            int groupSize = 0;
+            for (LocalDate day : days) {
+                boolean contiguous = previous != null && previous.plusDays(1).equals(day);
+                if (groupSize > 0 && (!contiguous || groupSize == maxDaysPerRead)) {
+                    reads.add(new Read(channel, group.build()));
+                    group = ImmutableList.builder();
+                    groupSize = 0;
+                }
+                group.add(day);
+                groupSize++;
+                previous = day;
+            }
+            if (groupSize > 0) {
+                reads.add(new Read(channel, group.build()));
+            }
+        }
+        return reads.build();
+    }
+
+    static final class Read {
+
+        private final Id channel;
+        private final ImmutableList<LocalDate> days;
+
+        Read(Id channel, ImmutableList<LocalDate> days) {
+            this.channel = checkNotNull(channel);
+            this.days = checkNotNull(days);
+        }
+
+        Id getChannel() {
+            return channel;
+        }
+
+        ImmutableList<LocalDate> getDays() {
+            return days;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Read read = (Read) o;
+            return Objects.equals(channel, read.channel)
+                    && Objects.equals(days, read.days);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(channel, days);
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this)
+                    .add("channel", channel)
+                    .add("days", days)
+                    .toString();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.atlasapi.util;
+
+import java.nio.ByteBuffer;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.google.common.base.Splitter;
+
+import static com.datastax.driver.core.querybuilder.QueryBuilder.select;
+
+/**
+ * Offline tool which samples rows of the equivalent content and equivalent schedule tables, and
+ * of the content table holding the blobs of content addressed schedule rows, and reports how well
+ * their blobs compress with {@link CompressedBlobs}, to help decide whether to enable
+ * {@code cassandra.blob.compression.enabled}.
+ * <p>
+ * Usage: {@code BlobCompressionRatioTool <seeds> <keyspace> [sampleSize]}, where seeds is a comma
+ * separated list of hosts.
+ */
+public final class BlobCompressionRatioTool {
+
+    private static final int DEFAULT_SAMPLE_SIZE = 1000;
+
+    private BlobCompressionRatioTool() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: BlobCompressionRatioTool <seeds> <keyspace> [sampleSize]");
+            System.exit(1);
+        }
+        int sampleSize = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_SAMPLE_SIZE;
+
+        Cluster cluster = Cluster.builder()
+                .addContactPoints(Splitter.on(',').omitEmptyStrings().trimResults()
+                        .splitToList(args[0])
+                        .toArray(new String[0]))
+                .build();
+        try {
+            Session session = cluster.connect(args[1]);
+            report(
+                    "equivalent_content.data",
+                    sample(session, "equivalent_content", "data", sampleSize)
+            );
+            report(
+                    "equivalent_schedule.content",
+                    sample(session, "equivalent_schedule", "content", sampleSize)
+            );
+            report(
+                    "equivalent_schedule_content.content",
+                    sample(session, "equivalent_schedule_content", "content", sampleSize)
+            );
+        } finally {
+            cluster.close();
+        }
+    }
+
+    private static Sample sample(Session session, String table, String column, int sampleSize) {
+        Statement statement = select(column).from(table).limit(sampleSize);
+        statement.setFetchSize(100);
+
+        Sample sample = new Sample();
+        for (Row row : session.execute(statement)) {
+            ByteBuffer blob = row.getBytes(column);
+            if (blob == null || CompressedBlobs.isCompressed(blob)) {
+                continue;
+            }
+            byte[] bytes = new byte[blob.remaining()];
+            blob.duplicate().get(bytes);
+
+            long start = System.nanoTime();
+            ByteBuffer compressed = CompressedBlobs.compress(bytes);
+            sample.compressNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            CompressedBlobs.decompress(compressed);
+            sample.decompressNanos += System.nanoTime() - start;
+
+            sample.rows++;
+            sample.rawBytes += bytes.length;
+            sample.compressedBytes += compressed.remaining();
+            sample.largestRawBytes = Math.max(sample.largestRawBytes, bytes.length);
+        }
+        return sample;
+    }
+
+    private static void report(String name, Sample sample) {
+        if (sample.rows == 0) {
+            System.out.println(String.format("%s: no uncompressed rows sampled", name));
+            return;
+        }
+        System.out.println(String.format(
+                "%s: %d rows, %d bytes raw, %d bytes compressed, ratio %.2f, largest row %d bytes, "
+                        + "mean compress %d us, mean decompress %d us",
+                name,
+                sample.rows,
+                sample.rawBytes,
+                sample.compressedBytes,
+                (double) sample.rawBytes / sample.compressedBytes,
+                sample.largestRawBytes,
+                sample.compressNanos / sample.rows / 1000,
+                sample.decompressNanos / sample.rows / 1000
+        ));
+    }
+
+    private static class Sample {
+
+        long rows;
+        long rawBytes;
+        long compressedBytes;
+        long largestRawBytes;
+        long compressNanos;
+        long decompressNanos;
+    }
+}
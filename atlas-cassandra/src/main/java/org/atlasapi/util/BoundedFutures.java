@@ -0,0 +1,111 @@
+package org.atlasapi.util;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Runs a number of asynchronous tasks, e.g. Cassandra queries, with at most a fixed number of them
+ * in flight at any one time, so a single large request cannot flood the driver's connection pool.
+ */
+public final class BoundedFutures {
+
+    private BoundedFutures() {
+    }
+
+    /**
+     * Starts up to {@code maxInFlight} of the {@code tasks}, starting the next one each time a
+     * running one completes.
+     *
+     * @return a future of the results, in the same order as the tasks, which fails if any task
+     * fails. Tasks not yet started when that happens are never started.
+     */
+    public static <T> ListenableFuture<List<T>> allAsList(
+            List<? extends Supplier<? extends ListenableFuture<? extends T>>> tasks,
+            int maxInFlight
+    ) {
+        checkArgument(maxInFlight > 0, "maxInFlight must be positive");
+        if (tasks.isEmpty()) {
+            return Futures.immediateFuture(ImmutableList.of());
+        }
+
+        ImmutableList.Builder<SettableFuture<T>> results = ImmutableList.builder();
+        for (int i = 0; i < tasks.size(); i++) {
+            results.add(SettableFuture.create());
+        }
+        ImmutableList<SettableFuture<T>> taskResults = results.build();
+        ListenableFuture<List<T>> all = Futures.allAsList(taskResults);
+
+        new Starter<>(tasks, taskResults, all).start(Math.min(maxInFlight, tasks.size()));
+        return all;
+    }
+
+    /**
+     * Starts the next task each time one completes. A task may complete synchronously, as it is
+     * started, so completions are counted and the tasks started in a loop by whichever thread
+     * moved the count from zero, rather than by recursing from each task's listener.
+     */
+    private static final class Starter<T> implements Runnable {
+
+        private final List<? extends Supplier<? extends ListenableFuture<? extends T>>> tasks;
+        private final ImmutableList<SettableFuture<T>> taskResults;
+        private final ListenableFuture<List<T>> all;
+
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicInteger toStart = new AtomicInteger();
+
+        private Starter(
+                List<? extends Supplier<? extends ListenableFuture<? extends T>>> tasks,
+                ImmutableList<SettableFuture<T>> taskResults,
+                ListenableFuture<List<T>> all
+        ) {
+            this.tasks = tasks;
+            this.taskResults = taskResults;
+            this.all = all;
+        }
+
+        private void start(int count) {
+            if (toStart.getAndAdd(count) == 0) {
+                drain();
+            }
+        }
+
+        @Override
+        public void run() {
+            start(1);
+        }
+
+        private void drain() {
+            do {
+                startNext();
+            } while (toStart.decrementAndGet() > 0);
+        }
+
+        private void startNext() {
+            int task = next.getAndIncrement();
+            if (task >= tasks.size()) {
+                return;
+            }
+            if (all.isDone()) {
+                taskResults.get(task).cancel(false);
+                return;
+            }
+            ListenableFuture<? extends T> result;
+            try {
+                result = tasks.get(task).get();
+            } catch (RuntimeException e) {
+                result = Futures.immediateFailedFuture(e);
+            }
+            taskResults.get(task).setFuture(result);
+            result.addListener(this, MoreExecutors.directExecutor());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.atlasapi.util;
+
+import java.util.List;
+
+import org.atlasapi.entity.Id;
+
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.Statement;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A {@link SecondaryIndex} which serves lookups from an {@link IndexCache} where it can, only
+ * querying the delegate for keys that are not cached.
+ * <p>
+ * Keys are invalidated both when their insert statements are created and once they have been
+ * executed, so that a lookup which runs between the two cannot leave the replaced entry cached.
+ */
+public class CachingSecondaryIndex implements SecondaryIndex {
+
+    private final SecondaryIndex delegate;
+    private final IndexCache cache;
+
+    private CachingSecondaryIndex(SecondaryIndex delegate, IndexCache cache) {
+        this.delegate = checkNotNull(delegate);
+        this.cache = checkNotNull(cache);
+    }
+
+    public static CachingSecondaryIndex create(SecondaryIndex delegate, IndexCache cache) {
+        return new CachingSecondaryIndex(delegate, cache);
+    }
+
+    @Override
+    public Statement insertStatement(Long key, Long value) {
+        cache.invalidate(ImmutableSet.of(key));
+        return delegate.insertStatement(key, value);
+    }
+
+    @Override
+    public List<Statement> insertStatements(Iterable<Long> keys, Long value) {
+        cache.invalidate(keys);
+        return delegate.insertStatements(keys, value);
+    }
+
+    @Override
+    public void inserted(Iterable<Long> keys) {
+        cache.invalidate(keys);
+        delegate.inserted(keys);
+    }
+
+    @Override
+    public ListenableFuture<ImmutableMap<Long, Long>> lookup(Iterable<Long> keys) {
+        return cachedLookup(keys, missing -> delegate.lookup(missing));
+    }
+
+    @Override
+    public ListenableFuture<ImmutableMap<Long, Long>> lookup(Iterable<Long> keys,
+            ConsistencyLevel level) {
+        return cachedLookup(keys, missing -> delegate.lookup(missing, level));
+    }
+
+    private ListenableFuture<ImmutableMap<Long, Long>> cachedLookup(
+            Iterable<Long> keys,
+            java.util.function.Function<ImmutableSet<Long>,
+                    ListenableFuture<ImmutableMap<Long, Long>>> delegateLookup
+    ) {
+        ImmutableMap<Long, Long> cached = cache.getAllPresent(keys);
+        ImmutableSet<Long> missing = Sets.difference(ImmutableSet.copyOf(keys), cached.keySet())
+                .immutableCopy();
+        if (missing.isEmpty()) {
+            return Futures.immediateFuture(cached);
+        }
+        GenerationalCache.Generations generations = cache.generations(missing);
+        return Futures.transform(
+                delegateLookup.apply(missing),
+                cacheAndMerge(cached, generations)
+        );
+    }
+
+    private Function<ImmutableMap<Long, Long>, ImmutableMap<Long, Long>> cacheAndMerge(
+            ImmutableMap<Long, Long> cached, GenerationalCache.Generations generations) {
+        return resolved -> {
+            cache.putAll(resolved, generations);
+            return ImmutableMap.<Long, Long>builder()
+                    .putAll(cached)
+                    .putAll(resolved)
+                    .build();
+        };
+    }
+
+    @Override
+    public ListenableFuture<ImmutableSet<Long>> reverseLookup(Id id) {
+        return delegate.reverseLookup(id);
+    }
+}
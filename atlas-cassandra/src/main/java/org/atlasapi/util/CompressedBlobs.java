@@ -0,0 +1,88 @@
+package org.atlasapi.util;
+
+import java.nio.ByteBuffer;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Optional compression of protobuf blob columns.
+ * <p>
+ * A compressed blob starts with a zero byte, which can never start an uncompressed blob: it is
+ * neither a valid protobuf field tag nor the length prefix of a non-empty delimited message. The
+ * next byte is the format version, so uncompressed rows and rows in any known format can be read
+ * side by side. Format {@value #LZ4} is followed by the uncompressed length as a big-endian int
+ * and then the LZ4 block.
+ */
+public final class CompressedBlobs {
+
+    public static final byte LZ4 = 1;
+
+    private static final byte MARKER = 0;
+    private static final int HEADER_LENGTH = 2 + Integer.BYTES;
+
+    private static final LZ4Factory FACTORY = LZ4Factory.fastestInstance();
+
+    private CompressedBlobs() {
+    }
+
+    public static ByteBuffer compress(byte[] blob) {
+        LZ4Compressor compressor = FACTORY.fastCompressor();
+        byte[] compressed = new byte[
+                HEADER_LENGTH + compressor.maxCompressedLength(blob.length)
+        ];
+        ByteBuffer header = ByteBuffer.wrap(compressed);
+        header.put(MARKER);
+        header.put(LZ4);
+        header.putInt(blob.length);
+
+        int compressedLength = compressor.compress(
+                blob,
+                0,
+                blob.length,
+                compressed,
+                HEADER_LENGTH,
+                compressed.length - HEADER_LENGTH
+        );
+        return ByteBuffer.wrap(compressed, 0, HEADER_LENGTH + compressedLength);
+    }
+
+    public static boolean isCompressed(ByteBuffer blob) {
+        return blob.remaining() >= HEADER_LENGTH && blob.get(blob.position()) == MARKER;
+    }
+
+    /**
+     * Returns the uncompressed contents of {@code blob}, which is returned as is if it was not
+     * compressed. The given buffer is left untouched.
+     */
+    public static ByteBuffer decompress(ByteBuffer blob) {
+        if (!isCompressed(blob)) {
+            return blob;
+        }
+        ByteBuffer source = blob.duplicate();
+        source.get();
+        byte format = source.get();
+        checkArgument(format == LZ4, "Unknown blob compression format %s", format);
+
+        int length = source.getInt();
+        byte[] decompressed = new byte[length];
+        LZ4FastDecompressor decompressor = FACTORY.fastDecompressor();
+        if (source.hasArray()) {
+            decompressor.decompress(
+                    source.array(),
+                    source.arrayOffset() + source.position(),
+                    decompressed,
+                    0,
+                    length
+            );
+        } else {
+            byte[] compressed = new byte[source.remaining()];
+            source.get(compressed);
+            decompressor.decompress(compressed, 0, decompressed, 0, length);
+        }
+        return ByteBuffer.wrap(decompressed);
+    }
+}
@@ -0,0 +1,159 @@
+package org.atlasapi.util;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A bounded, in-process cache, keyed by id, of values read from a store whose entries are
+ * invalidated when they are written.
+ * <p>
+ * A read from the store may race with such an invalidation, so values read are only cached if
+ * their keys were not invalidated since the read was started. Callers capture the
+ * {@link #generations(Iterable)} of the keys they are about to read and pass them back to
+ * {@link #putAll(Map, Generations)}. Generations are kept per stripe of keys rather than for the
+ * whole cache, so an invalidation only stops reads of keys in the same stripe from being cached.
+ */
+public final class GenerationalCache<V> {
+
+    private static final int STRIPES = 1024;
+
+    private final Cache<Long, V> cache;
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+
+    private final Meter hits;
+    private final Meter misses;
+    private final Meter evictions;
+    private final Meter invalidations;
+
+    private GenerationalCache(
+            CacheBuilder<? super Long, ? super V> cacheBuilder,
+            MetricRegistry metricRegistry,
+            String metricPrefix
+    ) {
+        checkNotNull(metricPrefix);
+
+        this.hits = metricRegistry.meter(metricPrefix + "meter.hit");
+        this.misses = metricRegistry.meter(metricPrefix + "meter.miss");
+        this.evictions = metricRegistry.meter(metricPrefix + "meter.eviction");
+        this.invalidations = metricRegistry.meter(metricPrefix + "meter.invalidation");
+
+        this.cache = cacheBuilder
+                .<Long, V>removalListener((RemovalListener<Long, V>) notification -> {
+                    if (notification.wasEvicted()) {
+                        evictions.mark();
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * @param cacheBuilder configured with the bounds and expiry of the cache. Its removal listener
+     *                     is set by the cache.
+     */
+    public static <V> GenerationalCache<V> create(
+            CacheBuilder<? super Long, ? super V> cacheBuilder,
+            MetricRegistry metricRegistry,
+            String metricPrefix
+    ) {
+        return new GenerationalCache<>(cacheBuilder, metricRegistry, metricPrefix);
+    }
+
+    /**
+     * Captures the current generations of the given keys, to be passed to
+     * {@link #putAll(Map, Generations)} with the values read for them.
+     */
+    public Generations generations(Iterable<Long> keys) {
+        ImmutableMap.Builder<Integer, Long> stripeGenerations = ImmutableMap.builder();
+        for (int stripe : stripes(keys)) {
+            stripeGenerations.put(stripe, generations.get(stripe));
+        }
+        return new Generations(generations, stripeGenerations.build());
+    }
+
+    public ImmutableMap<Long, V> getAllPresent(Iterable<Long> keys) {
+        ImmutableMap<Long, V> present = cache.getAllPresent(keys);
+        int requested = ImmutableSet.copyOf(keys).size();
+        hits.mark(present.size());
+        misses.mark(requested - present.size());
+        return present;
+    }
+
+    /**
+     * Caches those of the given entries whose keys were captured in {@code readGenerations} and
+     * have not been invalidated since.
+     */
+    public void putAll(Map<Long, ? extends V> entries, Generations readGenerations) {
+        ImmutableMap.Builder<Long, V> current = ImmutableMap.builder();
+        for (Map.Entry<Long, ? extends V> entry : entries.entrySet()) {
+            if (readGenerations.isCurrent(entry.getKey())) {
+                current.put(entry.getKey(), entry.getValue());
+            }
+        }
+        ImmutableMap<Long, V> toCache = current.build();
+        cache.putAll(toCache);
+        // an invalidation may have landed whilst we were writing, in which case the entries we
+        // have just written could be stale
+        for (Long key : toCache.keySet()) {
+            if (!readGenerations.isCurrent(key)) {
+                cache.invalidate(key);
+            }
+        }
+    }
+
+    public void invalidate(Iterable<Long> keys) {
+        for (int stripe : stripes(keys)) {
+            generations.incrementAndGet(stripe);
+        }
+        cache.invalidateAll(keys);
+        invalidations.mark();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    private static ImmutableSet<Integer> stripes(Iterable<Long> keys) {
+        ImmutableSet.Builder<Integer> stripes = ImmutableSet.builder();
+        for (Long key : keys) {
+            stripes.add(stripe(key));
+        }
+        return stripes.build();
+    }
+
+    private static int stripe(long key) {
+        return (Long.hashCode(key) & Integer.MAX_VALUE) % STRIPES;
+    }
+
+    /**
+     * The generations of a set of keys when a read of them was started.
+     */
+    public static final class Generations {
+
+        private final AtomicLongArray generations;
+        private final ImmutableMap<Integer, Long> stripeGenerations;
+
+        private Generations(
+                AtomicLongArray generations,
+                ImmutableMap<Integer, Long> stripeGenerations
+        ) {
+            this.generations = generations;
+            this.stripeGenerations = stripeGenerations;
+        }
+
+        private boolean isCurrent(long key) {
+            int stripe = stripe(key);
+            Long generation = stripeGenerations.get(stripe);
+            return generation != null && generation == generations.get(stripe);
+        }
+    }
+}
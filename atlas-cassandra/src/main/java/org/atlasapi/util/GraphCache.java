@@ -0,0 +1,102 @@
+package org.atlasapi.util;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.atlasapi.equivalence.EquivalenceGraph;
+import org.atlasapi.equivalence.EquivalenceGraphUpdate;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A bounded, in-process cache of decoded {@link EquivalenceGraph}s, keyed by graph id.
+ * <p>
+ * The cache is bounded by the total number of resources in the cached graphs rather than by the
+ * number of graphs, since a graph of a few hundred resources costs as much as hundreds of small
+ * ones to hold.
+ * <p>
+ * Graphs are invalidated when they are written. See {@link GenerationalCache} for how reads
+ * racing with such invalidations are kept out of the cache.
+ */
+public class GraphCache {
+
+    private final GenerationalCache<EquivalenceGraph> cache;
+
+    private GraphCache(
+            long maximumWeight,
+            long expireAfterWriteSeconds,
+            MetricRegistry metricRegistry,
+            String metricPrefix
+    ) {
+        checkArgument(maximumWeight > 0, "maximum weight must be positive");
+        checkArgument(expireAfterWriteSeconds > 0, "expiry must be positive");
+
+        this.cache = GenerationalCache.create(
+                CacheBuilder.newBuilder()
+                        .maximumWeight(maximumWeight)
+                        .weigher((Weigher<Long, EquivalenceGraph>) (graphId, graph) ->
+                                graph.getAdjacencyList().size())
+                        .expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS),
+                metricRegistry,
+                metricPrefix
+        );
+    }
+
+    /**
+     * @param maximumWeight the most resources, summed over all cached graphs, to hold.
+     */
+    public static GraphCache create(
+            long maximumWeight,
+            long expireAfterWriteSeconds,
+            MetricRegistry metricRegistry,
+            String metricPrefix
+    ) {
+        return new GraphCache(
+                maximumWeight,
+                expireAfterWriteSeconds,
+                metricRegistry,
+                metricPrefix
+        );
+    }
+
+    public GenerationalCache.Generations generations(Iterable<Long> graphIds) {
+        return cache.generations(graphIds);
+    }
+
+    public ImmutableMap<Long, EquivalenceGraph> getAllPresent(Iterable<Long> graphIds) {
+        return cache.getAllPresent(graphIds);
+    }
+
+    public void putAll(
+            Map<Long, EquivalenceGraph> graphs,
+            GenerationalCache.Generations readGenerations
+    ) {
+        cache.putAll(graphs, readGenerations);
+    }
+
+    public void invalidate(Iterable<Long> graphIds) {
+        cache.invalidate(graphIds);
+    }
+
+    /**
+     * Invalidates every graph written by the update, and those it deleted.
+     */
+    public void invalidate(EquivalenceGraphUpdate update) {
+        ImmutableSet.Builder<Long> graphIds = ImmutableSet.builder();
+        for (EquivalenceGraph graph : update.getAllGraphs()) {
+            graphIds.add(graph.getId().longValue());
+        }
+        update.getDeleted().forEach(id -> graphIds.add(id.longValue()));
+        invalidate(graphIds.build());
+    }
+
+    public long size() {
+        return cache.size();
+    }
+}
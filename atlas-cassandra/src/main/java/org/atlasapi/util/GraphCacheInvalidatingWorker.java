@@ -0,0 +1,29 @@
+package org.atlasapi.util;
+
+import org.atlasapi.equivalence.EquivalenceGraphUpdateMessage;
+
+import com.metabroadcast.common.queue.Worker;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Invalidates the graphs in a {@link GraphCache} written by each equivalence graph update, so
+ * that caches on every node see graph changes made by any node.
+ */
+public class GraphCacheInvalidatingWorker implements Worker<EquivalenceGraphUpdateMessage> {
+
+    private final GraphCache cache;
+
+    private GraphCacheInvalidatingWorker(GraphCache cache) {
+        this.cache = checkNotNull(cache);
+    }
+
+    public static GraphCacheInvalidatingWorker create(GraphCache cache) {
+        return new GraphCacheInvalidatingWorker(cache);
+    }
+
+    @Override
+    public void process(EquivalenceGraphUpdateMessage message) {
+        cache.invalidate(message.getGraphUpdate());
+    }
+}
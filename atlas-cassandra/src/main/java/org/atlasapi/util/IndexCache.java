@@ -0,0 +1,91 @@
+package org.atlasapi.util;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.atlasapi.entity.Id;
+import org.atlasapi.equivalence.EquivalenceGraph;
+import org.atlasapi.equivalence.EquivalenceGraphUpdate;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A bounded, in-process cache of index entries, e.g. resource id to equivalence set id.
+ * <p>
+ * Entries are invalidated when the graphs they belong to change. See {@link GenerationalCache}
+ * for how reads racing with such invalidations are kept out of the cache.
+ */
+public class IndexCache {
+
+    private final GenerationalCache<Long> cache;
+
+    private IndexCache(
+            long maximumSize,
+            long expireAfterWriteSeconds,
+            MetricRegistry metricRegistry,
+            String metricPrefix
+    ) {
+        checkArgument(maximumSize > 0, "maximum size must be positive");
+        checkArgument(expireAfterWriteSeconds > 0, "expiry must be positive");
+
+        this.cache = GenerationalCache.create(
+                CacheBuilder.newBuilder()
+                        .maximumSize(maximumSize)
+                        .expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS),
+                metricRegistry,
+                metricPrefix
+        );
+    }
+
+    public static IndexCache create(
+            long maximumSize,
+            long expireAfterWriteSeconds,
+            MetricRegistry metricRegistry,
+            String metricPrefix
+    ) {
+        return new IndexCache(
+                maximumSize,
+                expireAfterWriteSeconds,
+                metricRegistry,
+                metricPrefix
+        );
+    }
+
+    public GenerationalCache.Generations generations(Iterable<Long> keys) {
+        return cache.generations(keys);
+    }
+
+    public ImmutableMap<Long, Long> getAllPresent(Iterable<Long> keys) {
+        return cache.getAllPresent(keys);
+    }
+
+    public void putAll(Map<Long, Long> entries, GenerationalCache.Generations readGenerations) {
+        cache.putAll(entries, readGenerations);
+    }
+
+    public void invalidate(Iterable<Long> keys) {
+        cache.invalidate(keys);
+    }
+
+    public void invalidate(EquivalenceGraphUpdate update) {
+        ImmutableSet.Builder<Long> keys = ImmutableSet.builder();
+        for (EquivalenceGraph graph : update.getAllGraphs()) {
+            for (Id id : graph.getEquivalenceSet()) {
+                keys.add(id.longValue());
+            }
+        }
+        for (Id id : update.getDeleted()) {
+            keys.add(id.longValue());
+        }
+        invalidate(keys.build());
+    }
+
+    public long size() {
+        return cache.size();
+    }
+}
@@ -0,0 +1,29 @@
+package org.atlasapi.util;
+
+import org.atlasapi.equivalence.EquivalenceGraphUpdateMessage;
+
+import com.metabroadcast.common.queue.Worker;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Invalidates the entries of an {@link IndexCache} affected by each equivalence graph update, so
+ * that caches on every node see graph changes made by any node.
+ */
+public class IndexCacheInvalidatingWorker implements Worker<EquivalenceGraphUpdateMessage> {
+
+    private final IndexCache cache;
+
+    private IndexCacheInvalidatingWorker(IndexCache cache) {
+        this.cache = checkNotNull(cache);
+    }
+
+    public static IndexCacheInvalidatingWorker create(IndexCache cache) {
+        return new IndexCacheInvalidatingWorker(cache);
+    }
+
+    @Override
+    public void process(EquivalenceGraphUpdateMessage message) {
+        cache.invalidate(message.getGraphUpdate());
+    }
+}
@@ -0,0 +1,55 @@
+package org.atlasapi.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Parser;
+
+/**
+ * Parses protocol buffers straight out of the {@link ByteBuffer}s handed back by the driver.
+ * <p>
+ * {@link CodedInputStream} reads heap buffers through their backing array and direct buffers in
+ * place, so unlike going through {@code ByteString.copyFrom} the blob is never copied before
+ * parsing. The given buffers are left untouched.
+ */
+public final class ProtobufByteBuffers {
+
+    private ProtobufByteBuffers() {
+    }
+
+    /**
+     * Parses a single message which occupies all the remaining bytes of {@code bytes}.
+     */
+    public static <T> T parseFrom(ByteBuffer bytes, Parser<T> parser)
+            throws InvalidProtocolBufferException {
+        CodedInputStream input = CodedInputStream.newInstance(bytes);
+        T message = parser.parseFrom(input);
+        input.checkLastTagWas(0);
+        return message;
+    }
+
+    /**
+     * Parses up to {@code maxMessages} length-delimited messages, as written by
+     * {@link com.google.protobuf.MessageLite#writeDelimitedTo}, stopping early if the buffer runs
+     * out.
+     */
+    public static <T> ImmutableList<T> parseDelimitedFrom(
+            ByteBuffer bytes,
+            Parser<T> parser,
+            long maxMessages
+    ) throws IOException {
+        CodedInputStream input = CodedInputStream.newInstance(bytes);
+        ImmutableList.Builder<T> messages = ImmutableList.builder();
+        for (long i = 0; i < maxMessages && !input.isAtEnd(); i++) {
+            int length = input.readRawVarint32();
+            int previousLimit = input.pushLimit(length);
+            messages.add(parser.parseFrom(input));
+            input.checkLastTagWas(0);
+            input.popLimit(previousLimit);
+        }
+        return messages.build();
+    }
+}
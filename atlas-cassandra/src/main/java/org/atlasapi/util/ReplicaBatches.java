@@ -0,0 +1,77 @@
+package org.atlasapi.util;
+
+import java.util.Set;
+
+import com.metabroadcast.common.stream.MoreCollectors;
+
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.TypeCodec;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Splits the keys of a multi-partition read of a table with a single bigint partition key into
+ * batches whose partitions are all owned by the same replicas, so each batch can be read with
+ * one IN query served by a single coordinator.
+ */
+public final class ReplicaBatches {
+
+    private ReplicaBatches() {
+    }
+
+    /**
+     * Groups the distinct keys by the replicas owning them and splits each group into batches of
+     * at most {@code batchSize} keys. Keys are all grouped together if the session is not logged
+     * into a keyspace, as their replicas cannot be known.
+     */
+    public static ImmutableList<ImmutableList<Long>> of(
+            Session session,
+            Iterable<Long> keys,
+            int batchSize
+    ) {
+        checkArgument(batchSize > 0, "batchSize must be positive");
+
+        Metadata metadata = session.getCluster().getMetadata();
+        ProtocolVersion protocolVersion = session.getCluster()
+                .getConfiguration()
+                .getProtocolOptions()
+                .getProtocolVersion();
+        String keyspace = session.getLoggedKeyspace();
+
+        ImmutableListMultimap<Set<Host>, Long> keysByReplicas = ImmutableSet.copyOf(keys)
+                .stream()
+                .collect(MoreCollectors.toImmutableListMultiMap(
+                        key -> replicasOf(key, keyspace, metadata, protocolVersion),
+                        key -> key
+                ));
+
+        return keysByReplicas.asMap()
+                .values()
+                .stream()
+                .flatMap(group -> Lists.partition(ImmutableList.copyOf(group), batchSize).stream())
+                .map(ImmutableList::copyOf)
+                .collect(MoreCollectors.toImmutableList());
+    }
+
+    private static Set<Host> replicasOf(
+            Long key,
+            String keyspace,
+            Metadata metadata,
+            ProtocolVersion protocolVersion
+    ) {
+        if (keyspace == null) {
+            return ImmutableSet.of();
+        }
+        return ImmutableSet.copyOf(metadata.getReplicas(
+                keyspace,
+                TypeCodec.bigint().serialize(key, protocolVersion)
+        ));
+    }
+}
@@ -16,6 +16,12 @@ public interface SecondaryIndex {
 
     List<Statement> insertStatements(Iterable<Long> keys, Long value);
 
+    /**
+     * Called once the insert statements of the given keys have been executed.
+     */
+    default void inserted(Iterable<Long> keys) {
+    }
+
     ListenableFuture<ImmutableMap<Long, Long>> lookup(Iterable<Long> keys);
 
     ListenableFuture<ImmutableMap<Long, Long>> lookup(Iterable<Long> keys, ConsistencyLevel level);
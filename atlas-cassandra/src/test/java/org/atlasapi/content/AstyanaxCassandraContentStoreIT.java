@@ -1,12 +1,27 @@
 package org.atlasapi.content;
 
+import org.atlasapi.entity.Id;
+import org.atlasapi.messaging.ResourceUpdatedMessage;
+
+import com.metabroadcast.common.time.DateTimeZones;
+
 import com.codahale.metrics.MetricRegistry;
 import com.netflix.astyanax.model.ConsistencyLevel;
+import org.joda.time.DateTime;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.isA;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
 @RunWith(MockitoJUnitRunner.class)
 public class AstyanaxCassandraContentStoreIT extends CassandraContentStoreIT {
 
@@ -22,6 +37,32 @@ public class AstyanaxCassandraContentStoreIT extends CassandraContentStoreIT {
                 .build();
     }
 
+    @Test
+    public void writeSkipsContentWhoseHashIsUnchanged() throws Exception {
+        ContentStore hashingStore = AstyanaxCassandraContentStore
+                .builder(context, CONTENT_TABLE, hasher, sender, idGenerator, graphStore)
+                .withReadConsistency(ConsistencyLevel.CL_ONE)
+                .withWriteConsistency(ConsistencyLevel.CL_ONE)
+                .withClock(clock)
+                .withContentHashCheck(true)
+                .withMetricRegistry(new MetricRegistry())
+                .withMetricPrefix("test.AstyanaxCassandraContentStore.")
+                .build();
+
+        when(clock.now()).thenReturn(new DateTime(DateTimeZones.UTC));
+        when(hasher.hash(argThat(isA(Content.class)))).thenReturn("hash");
+
+        Item item = create(new Item());
+        item.setId(Id.valueOf(1237L));
+        assertThat(hashingStore.writeContent(item).written(), is(true));
+
+        item.setTitle("a change the hasher does not see");
+        assertThat(hashingStore.writeContent(item).written(), is(false));
+
+        assertThat(resolve(1237L).getTitle(), is("Item"));
+        verify(sender, times(1)).sendMessage(argThat(isA(ResourceUpdatedMessage.class)), any());
+    }
+
     @Ignore("This is a known bug. Given this store is due to be decommissioned it is only being "
             + "fixed in the CqlContentStore")
     @Test
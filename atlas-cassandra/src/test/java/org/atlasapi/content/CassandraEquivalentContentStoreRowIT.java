@@ -33,10 +33,14 @@ import java.util.concurrent.TimeUnit;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.eq;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.select;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.set;
+import static org.atlasapi.content.CassandraEquivalentContentStore.ACTIVELY_PUBLISHED_KEY;
 import static org.atlasapi.content.CassandraEquivalentContentStore.CONTENT_ID_KEY;
+import static org.atlasapi.content.CassandraEquivalentContentStore.DATA_KEY;
 import static org.atlasapi.content.CassandraEquivalentContentStore.EQUIVALENT_CONTENT_TABLE;
 import static org.atlasapi.content.CassandraEquivalentContentStore.GRAPH_KEY;
 import static org.atlasapi.content.CassandraEquivalentContentStore.SET_ID_KEY;
+import static org.atlasapi.content.CassandraEquivalentContentStore.SOURCE_KEY;
+import static org.atlasapi.content.CassandraEquivalentContentStore.VERSION_KEY;
 import static org.atlasapi.media.entity.Publisher.BBC;
 import static org.atlasapi.media.entity.Publisher.METABROADCAST;
 import static org.hamcrest.core.Is.is;
@@ -298,6 +302,125 @@ public class CassandraEquivalentContentStoreRowIT {
         resolved(c1, c1, c2);
     }
 
+    @Test
+    public void testDoesNotDecodeContentFromUnselectedSources() throws Exception {
+        Content c1 = createAndWriteItem(Id.valueOf(1L), METABROADCAST);
+        Content c2 = createAndWriteItem(Id.valueOf(2L), BBC);
+
+        persistenceModule.equivalentContentStore().updateContent(c1.getId());
+        persistenceModule.equivalentContentStore().updateContent(c2.getId());
+
+        makeEquivalent(c1, c2);
+
+        // Unparseable data for the BBC row would fail the read if it were decoded
+        persistenceModule.getCassandraSession().execute(
+                QueryBuilder.update(EQUIVALENT_CONTENT_TABLE)
+                        .where(eq(SET_ID_KEY, c1.getId().longValue()))
+                        .and(eq(CONTENT_ID_KEY, c2.getId().longValue()))
+                        .with(set(DATA_KEY, ByteBuffer.wrap(new byte[] { -1, -1, -1 })))
+        );
+
+        resolved(c1, c1);
+    }
+
+    @Test
+    public void testResolvesRowsWrittenWithoutSourceHeader() throws Exception {
+        Content c1 = createAndWriteItem(Id.valueOf(1L), METABROADCAST);
+        Content c2 = createAndWriteItem(Id.valueOf(2L), METABROADCAST);
+
+        persistenceModule.equivalentContentStore().updateContent(c1.getId());
+        persistenceModule.equivalentContentStore().updateContent(c2.getId());
+
+        makeEquivalent(c1, c2);
+
+        persistenceModule.getCassandraSession().execute(
+                QueryBuilder.update(EQUIVALENT_CONTENT_TABLE)
+                        .where(eq(SET_ID_KEY, c1.getId().longValue()))
+                        .and(eq(CONTENT_ID_KEY, c2.getId().longValue()))
+                        .with(set(SOURCE_KEY, null))
+                        .and(set(ACTIVELY_PUBLISHED_KEY, null))
+        );
+
+        resolved(c1, c1, c2);
+    }
+
+    @Test
+    public void testBatchedReadsResolveEverySet() throws Exception {
+        Content c1 = createAndWriteItem(Id.valueOf(11), METABROADCAST);
+        Content c2 = createAndWriteItem(Id.valueOf(21), METABROADCAST);
+        Content c3 = createAndWriteItem(Id.valueOf(31), METABROADCAST);
+        Content c4 = createAndWriteItem(Id.valueOf(41), METABROADCAST);
+        Content c5 = createAndWriteItem(Id.valueOf(51), METABROADCAST);
+
+        persistenceModule.equivalentContentStore().updateContent(c1.getId());
+        persistenceModule.equivalentContentStore().updateContent(c2.getId());
+        persistenceModule.equivalentContentStore().updateContent(c3.getId());
+        persistenceModule.equivalentContentStore().updateContent(c4.getId());
+        persistenceModule.equivalentContentStore().updateContent(c5.getId());
+
+        makeEquivalent(c1, c2);
+        makeEquivalent(c3, c4);
+
+        ResolvedEquivalents<Content> resolved = get(
+                persistenceModule.batchReadingEquivalentContentStore(2)
+                        .resolveIds(
+                                ImmutableList.of(c1.getId(), c2.getId(), c3.getId(), c5.getId()),
+                                ImmutableSet.of(METABROADCAST),
+                                Annotation.all(),
+                                null
+                        )
+        );
+
+        assertEquals(ImmutableSet.of(c1, c2), resolved.get(c1.getId()));
+        assertEquals(ImmutableSet.of(c1, c2), resolved.get(c2.getId()));
+        assertEquals(ImmutableSet.of(c3, c4), resolved.get(c3.getId()));
+        assertEquals(ImmutableSet.of(c5), resolved.get(c5.getId()));
+    }
+
+    @Test
+    public void testResolvedSetsCarryTheirVersion() throws Exception {
+        Content c1 = createAndWriteItem(Id.valueOf(11), METABROADCAST);
+        Content c2 = createAndWriteItem(Id.valueOf(21), METABROADCAST);
+
+        persistenceModule.equivalentContentStore().updateContent(c1.getId());
+        persistenceModule.equivalentContentStore().updateContent(c2.getId());
+
+        long before = resolveVersion(c1);
+
+        makeEquivalent(c1, c2);
+
+        long after = resolveVersion(c1);
+        assertTrue(after > before);
+        assertThat(resolveVersion(c2), is(after));
+    }
+
+    @Test
+    public void testResolvesSetsWrittenWithoutVersion() throws Exception {
+        Content c1 = createAndWriteItem(Id.valueOf(11), METABROADCAST);
+        Content c2 = createAndWriteItem(Id.valueOf(21), METABROADCAST);
+
+        persistenceModule.equivalentContentStore().updateContent(c1.getId());
+        persistenceModule.equivalentContentStore().updateContent(c2.getId());
+
+        makeEquivalent(c1, c2);
+
+        persistenceModule.getCassandraSession().execute(
+                QueryBuilder.update(EQUIVALENT_CONTENT_TABLE)
+                        .where(eq(SET_ID_KEY, c1.getId().longValue()))
+                        .with(set(VERSION_KEY, null))
+        );
+
+        resolved(c1, c1, c2);
+        ResolvedEquivalents<Content> resolved = get(persistenceModule.equivalentContentStore()
+                .resolveIds(
+                        ImmutableList.of(c1.getId()),
+                        ImmutableSet.of(METABROADCAST),
+                        Annotation.all(),
+                        null
+                ));
+        assertThat(resolved.getVersion(c1.getId()).isPresent(), is(false));
+    }
+
     @Test
     public void testWritingAndRetrievingCustomFields() throws Exception {
         Content content = new Item(Id.valueOf(1L), METABROADCAST);
@@ -359,6 +482,17 @@ public class CassandraEquivalentContentStoreRowIT {
         assertEquals(ImmutableSet.copyOf(cs), content);
     }
 
+    private long resolveVersion(Content c) throws Exception {
+        ResolvedEquivalents<Content> resolved
+                = get(persistenceModule.equivalentContentStore()
+                .resolveIds(ImmutableList.of(c.getId()),
+                        ImmutableSet.of(METABROADCAST),
+                        Annotation.all(),
+                        null
+                ));
+        return resolved.getVersion(c.getId()).get();
+    }
+
     private void resolvedWithoutEquivalence(Id setId) throws Exception {
         ResolvedEquivalents<Content> resolvedWithoutEquivalence = get(persistenceModule.equivalentContentStore()
                 .
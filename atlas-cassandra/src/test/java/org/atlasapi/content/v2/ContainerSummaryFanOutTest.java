@@ -0,0 +1,171 @@
+package org.atlasapi.content.v2;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.atlasapi.content.ItemRef;
+import org.atlasapi.content.v2.model.udt.ContainerSummary;
+import org.atlasapi.entity.Id;
+import org.atlasapi.media.entity.Publisher;
+
+import com.codahale.metrics.MetricRegistry;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ContainerSummaryFanOutTest {
+
+    private static final long CONTAINER_ID = 1L;
+
+    @Mock private Session session;
+    @Mock private ContentAccessor accessor;
+
+    private final ContainerSummary summary = new ContainerSummary();
+    private final ContainerSummary laterSummary = new ContainerSummary();
+
+    private final ItemRef first = child(10L);
+    private final ItemRef second = child(11L);
+    private final ItemRef third = child(12L);
+
+    private final SettableFuture<ImmutableList<ItemRef>> updated = SettableFuture.create();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    @Before
+    public void setUp() {
+        summary.setTitle("title");
+        laterSummary.setTitle("later title");
+
+        when(accessor.updateContainerSummary(anyLong(), any(ContainerSummary.class)))
+                .thenAnswer(invocation -> mock(Statement.class));
+        when(session.executeAsync(any(Statement.class)))
+                .thenAnswer(invocation -> new CompletedResultSetFuture(null));
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void updatesEveryChildOnceTheWindowHasPassed() throws Exception {
+        fanOut(0).submit(CONTAINER_ID, summary, ImmutableList.of(first, second));
+
+        assertThat(updated.get(5, TimeUnit.SECONDS), containsInAnyOrder(first, second));
+        verify(accessor).updateContainerSummary(10L, summary);
+        verify(accessor).updateContainerSummary(11L, summary);
+    }
+
+    @Test
+    public void coalescesUpdatesSubmittedWithinTheWindow() throws Exception {
+        ContainerSummaryFanOut fanOut = fanOut(200);
+        fanOut.submit(CONTAINER_ID, summary, ImmutableList.of(first, second));
+        fanOut.submit(CONTAINER_ID, laterSummary, ImmutableList.of(second, third));
+
+        assertThat(updated.get(5, TimeUnit.SECONDS), containsInAnyOrder(first, second, third));
+        verify(accessor).updateContainerSummary(10L, laterSummary);
+        verify(accessor).updateContainerSummary(11L, laterSummary);
+        verify(accessor).updateContainerSummary(12L, laterSummary);
+        verify(accessor, never()).updateContainerSummary(anyLong(), eq(summary));
+    }
+
+    @Test
+    public void skipsChildrenWhoseUpdateFails() throws Exception {
+        Statement failing = mock(Statement.class);
+        when(accessor.updateContainerSummary(10L, summary)).thenReturn(failing);
+        when(session.executeAsync(failing))
+                .thenReturn(new CompletedResultSetFuture(new RuntimeException("failed")));
+
+        fanOut(0, 2).submit(CONTAINER_ID, summary, ImmutableList.of(first, second));
+
+        assertThat(updated.get(5, TimeUnit.SECONDS), containsInAnyOrder(second));
+        verify(session, times(3)).executeAsync(failing);
+    }
+
+    @Test
+    public void retriesFailedChildUpdates() throws Exception {
+        Statement flaky = mock(Statement.class);
+        when(accessor.updateContainerSummary(10L, summary)).thenReturn(flaky);
+        when(session.executeAsync(flaky)).thenReturn(
+                new CompletedResultSetFuture(new RuntimeException("failed")),
+                new CompletedResultSetFuture(null)
+        );
+
+        fanOut(0, 2).submit(CONTAINER_ID, summary, ImmutableList.of(first, second));
+
+        assertThat(updated.get(5, TimeUnit.SECONDS), containsInAnyOrder(first, second));
+        verify(session, times(2)).executeAsync(flaky);
+    }
+
+    private ContainerSummaryFanOut fanOut(long coalesceWindowMillis) {
+        return fanOut(coalesceWindowMillis, 0);
+    }
+
+    private ContainerSummaryFanOut fanOut(long coalesceWindowMillis, int maxRetries) {
+        return new ContainerSummaryFanOut(
+                session,
+                accessor,
+                children -> {
+                    updated.set(children);
+                    return Futures.immediateFuture(null);
+                },
+                executor,
+                1,
+                coalesceWindowMillis,
+                maxRetries,
+                10,
+                new MetricRegistry(),
+                "test."
+        );
+    }
+
+    private static ItemRef child(long id) {
+        return new ItemRef(Id.valueOf(id), Publisher.METABROADCAST, "", new DateTime(0));
+    }
+
+    private static final class CompletedResultSetFuture extends AbstractFuture<ResultSet>
+            implements ResultSetFuture {
+
+        private CompletedResultSetFuture(RuntimeException failure) {
+            if (failure == null) {
+                set(mock(ResultSet.class));
+            } else {
+                setException(failure);
+            }
+        }
+
+        @Override
+        public ResultSet getUninterruptibly() {
+            return Futures.getUnchecked(this);
+        }
+
+        @Override
+        public ResultSet getUninterruptibly(long timeout, TimeUnit unit) {
+            return getUninterruptibly();
+        }
+    }
+}
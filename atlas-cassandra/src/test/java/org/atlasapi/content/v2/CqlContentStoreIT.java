@@ -2,8 +2,15 @@ package org.atlasapi.content.v2;
 
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Longs;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.metabroadcast.common.collect.ImmutableOptionalMap;
 import com.metabroadcast.common.time.DateTimeZones;
 import org.atlasapi.content.Brand;
+import org.atlasapi.content.BrandRef;
 import org.atlasapi.content.CassandraContentStoreIT;
 import org.atlasapi.content.Content;
 import org.atlasapi.content.ContentStore;
@@ -13,8 +20,13 @@ import org.atlasapi.content.Item;
 import org.atlasapi.content.ItemRef;
 import org.atlasapi.content.Series;
 import org.atlasapi.entity.Id;
+import org.atlasapi.entity.util.WriteException;
 import org.atlasapi.entity.util.WriteResult;
+import org.atlasapi.equivalence.EquivalenceGraph;
+import org.atlasapi.media.entity.Publisher;
+import org.atlasapi.messaging.ResourceUpdatedMessage;
 import org.atlasapi.segment.SegmentEvent;
+import org.atlasapi.util.IndexCache;
 import org.joda.time.DateTime;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -22,10 +34,18 @@ import org.junit.runner.RunWith;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+import static org.hamcrest.Matchers.isA;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -114,6 +134,204 @@ public class CqlContentStoreIT extends CassandraContentStoreIT {
 
     }
 
+    @Test
+    public void writeContentsWritesContainersBeforeTheirChildren() throws Exception {
+        when(clock.now()).thenReturn(new DateTime(DateTimeZones.UTC));
+
+        Brand brand = create(new Brand());
+        brand.setId(Id.valueOf(1234L));
+
+        Series series = create(new Series());
+        series.setId(Id.valueOf(1235L));
+        series.setBrand(brand);
+
+        Episode episode = create(new Episode());
+        episode.setId(Id.valueOf(1236L));
+        episode.setContainer(brand);
+        episode.setSeries(series);
+
+        Item item = create(new Item());
+        item.setId(Id.valueOf(1237L));
+
+        List<ListenableFuture<WriteResult<Content, Content>>> results =
+                ((CqlContentStore) store).writeContents(
+                        ImmutableList.of(brand, series, episode, item)
+                );
+
+        assertThat(results.size(), is(4));
+        for (ListenableFuture<WriteResult<Content, Content>> result : results) {
+            assertThat(result.isDone(), is(true));
+            assertThat(result.get().written(), is(true));
+        }
+
+        Brand resolvedBrand = (Brand) resolve(1234L);
+        assertThat(resolvedBrand.getSeriesRefs().size(), is(1));
+        assertThat(resolvedBrand.getItemRefs().size(), is(1));
+        assertThat(resolvedBrand.getItemRefs().get(0).getId(), is(episode.getId()));
+
+        Series resolvedSeries = (Series) resolve(1235L);
+        assertThat(resolvedSeries.getItemRefs().get(0).getId(), is(episode.getId()));
+
+        assertThat(resolve(1237L).getId(), is(item.getId()));
+    }
+
+    @Test
+    public void writeContentsReportsUnchangedAndFailedContentsIndividually() throws Exception {
+        when(clock.now()).thenReturn(new DateTime(DateTimeZones.UTC));
+
+        Item item = create(new Item());
+        item.setId(Id.valueOf(1237L));
+        store.writeContent(item);
+
+        Episode orphan = create(new Episode());
+        orphan.setId(Id.valueOf(1238L));
+        orphan.setContainerRef(new BrandRef(Id.valueOf(999L), Publisher.BBC));
+
+        List<ListenableFuture<WriteResult<Content, Content>>> results =
+                ((CqlContentStore) store).writeContents(ImmutableList.of(item, orphan));
+
+        assertThat(results.get(0).get().written(), is(false));
+        try {
+            results.get(1).get();
+            fail("expected write of content with missing container to fail");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause() instanceof WriteException, is(true));
+        }
+    }
+
+    @Test
+    public void writeContentAsyncWritesAndReportsUnchangedContent() throws Exception {
+        when(clock.now()).thenReturn(new DateTime(DateTimeZones.UTC));
+
+        Brand brand = create(new Brand());
+        brand.setId(Id.valueOf(1234L));
+        store.writeContent(brand);
+
+        Episode episode = create(new Episode());
+        episode.setId(Id.valueOf(1236L));
+        episode.setContainer(brand);
+
+        CqlContentStore cqlStore = (CqlContentStore) store;
+
+        WriteResult<Content, Content> written = cqlStore.writeContentAsync(episode).get();
+        assertThat(written.written(), is(true));
+        assertThat(written.getPrevious().isPresent(), is(false));
+
+        Brand resolvedBrand = (Brand) resolve(1234L);
+        assertThat(resolvedBrand.getItemRefs().get(0).getId(), is(episode.getId()));
+        assertThat(((Episode) resolve(1236L)).getContainerSummary().getTitle(), is(brand.getTitle()));
+
+        WriteResult<Content, Content> rewritten = cqlStore.writeContentAsync(episode).get();
+        assertThat(rewritten.written(), is(false));
+    }
+
+    @Test
+    public void writeSkipsContentWhoseHashIsUnchanged() throws Exception {
+        CqlContentStore hashingStore = CqlContentStore.builder()
+                .withSession(session)
+                .withSender(sender)
+                .withIdGenerator(idGenerator)
+                .withClock(clock)
+                .withGraphStore(graphStore)
+                .withHasher(hasher)
+                .withMetricRegistry(new MetricRegistry())
+                .withMetricPrefix("test.CqlContentStore.")
+                .build();
+
+        when(clock.now()).thenReturn(new DateTime(DateTimeZones.UTC));
+        when(hasher.hash(any(Content.class))).thenReturn("hash");
+
+        Item item = create(new Item());
+        item.setId(Id.valueOf(1237L));
+        assertThat(hashingStore.writeContent(item).written(), is(true));
+
+        item.setTitle("a change the hasher does not see");
+        assertThat(hashingStore.writeContent(item).written(), is(false));
+        assertThat(hashingStore.writeContentAsync(item).get().written(), is(false));
+
+        assertThat(resolve(1237L).getTitle(), is("Item"));
+        verify(sender, times(1)).sendMessage(argThat(isA(ResourceUpdatedMessage.class)), any());
+    }
+
+    @Test
+    public void batchedResolveIdsReturnsContentInIdOrder() throws Exception {
+        CqlContentStore batchReadingStore = CqlContentStore.builder()
+                .withSession(session)
+                .withSender(sender)
+                .withIdGenerator(idGenerator)
+                .withClock(clock)
+                .withGraphStore(graphStore)
+                .withReadBatchSize(2)
+                .withMaxInFlightReads(1)
+                .withMetricRegistry(new MetricRegistry())
+                .withMetricPrefix("test.CqlContentStore.")
+                .build();
+
+        when(clock.now()).thenReturn(new DateTime(DateTimeZones.UTC));
+        for (long id = 1240L; id < 1245L; id++) {
+            Item item = create(new Item());
+            item.setId(Id.valueOf(id));
+            batchReadingStore.writeContent(item);
+        }
+
+        List<Content> resolved = batchReadingStore.resolveIds(ImmutableList.of(
+                Id.valueOf(1244L),
+                Id.valueOf(1240L),
+                Id.valueOf(1299L),
+                Id.valueOf(1242L),
+                Id.valueOf(1241L),
+                Id.valueOf(1243L)
+        )).get().getResources().toList();
+
+        assertThat(
+                Lists.transform(resolved, Content::getId),
+                contains(
+                        Id.valueOf(1244L),
+                        Id.valueOf(1240L),
+                        Id.valueOf(1242L),
+                        Id.valueOf(1241L),
+                        Id.valueOf(1243L)
+                )
+        );
+    }
+
+    @Test
+    public void partitionKeyCacheSavesGraphLookupsOfRepeatedWrites() throws Exception {
+        CqlContentStore cachingStore = CqlContentStore.builder()
+                .withSession(session)
+                .withSender(sender)
+                .withIdGenerator(idGenerator)
+                .withClock(clock)
+                .withGraphStore(graphStore)
+                .withPartitionKeyCache(IndexCache.create(100, 60, new MetricRegistry(), "test."))
+                .withMetricRegistry(new MetricRegistry())
+                .withMetricPrefix("test.CqlContentStore.")
+                .build();
+
+        Id contentId = Id.valueOf(1250L);
+        Id setId = Id.valueOf(4321L);
+        when(clock.now()).thenReturn(new DateTime(DateTimeZones.UTC));
+        when(graphStore.resolveIds(ImmutableSet.of(contentId)))
+                .thenReturn(Futures.immediateFuture(ImmutableOptionalMap.of(
+                        contentId,
+                        EquivalenceGraph.valueOf(new ItemRef(
+                                setId, Publisher.METABROADCAST, "", DateTime.now()
+                        ))
+                )));
+
+        Item item = create(new Item());
+        item.setId(contentId);
+        cachingStore.writeContent(item);
+        item.setTitle("a new title");
+        cachingStore.writeContent(item);
+
+        verify(graphStore, times(1)).resolveIds(ImmutableSet.of(contentId));
+        verify(sender, times(2)).sendMessage(
+                any(ResourceUpdatedMessage.class),
+                eq(Longs.toByteArray(setId.longValue()))
+        );
+    }
+
     @Test
     public void writesSegmentsWithDescription() throws Exception {
         when(clock.now()).thenReturn(DateTime.now());
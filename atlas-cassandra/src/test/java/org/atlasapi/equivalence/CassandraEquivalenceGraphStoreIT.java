@@ -53,6 +53,7 @@ public class CassandraEquivalenceGraphStoreIT {
     private static DatastaxCassandraService service
             = new DatastaxCassandraService(ImmutableList.of("localhost"), 8, 2);
     private static CassandraEquivalenceGraphStore store;
+    private static CassandraEquivalenceGraphStore batchedStore;
     private static Session session;
 
     private static MessageSender<EquivalenceGraphUpdateMessage> messageSender = new MessageSender<EquivalenceGraphUpdateMessage>() {
@@ -98,6 +99,16 @@ public class CassandraEquivalenceGraphStoreIT {
                 metricRegistry,
                 metricPrefix
         );
+        batchedStore = CassandraEquivalenceGraphStore.builder()
+                .withMessageSender(messageSender)
+                .withSession(session)
+                .withReadConsistency(ConsistencyLevel.ONE)
+                .withWriteConsistency(ConsistencyLevel.ONE)
+                .withReadBatchSize(2)
+                .withMaxInFlightReads(2)
+                .withMetricRegistry(metricRegistry)
+                .withMetricPrefix(metricPrefix + "batched.")
+                .build();
     }
 
     @After
@@ -202,4 +213,37 @@ public class CassandraEquivalenceGraphStoreIT {
 
         assertThat(optionalMap.isEmpty(), is(true));
     }
+
+    @Test
+    public void testBatchedReadsResolveTheSameGraphs() throws Exception {
+        store.updateEquivalences(
+                bbcItem.toRef(),
+                ImmutableSet.of(paItem.toRef()),
+                ImmutableSet.of(Publisher.BBC, Publisher.PA)
+        );
+        store.updateEquivalences(
+                itvItem.toRef(),
+                ImmutableSet.of(c4Item.toRef()),
+                ImmutableSet.of(Publisher.ITV, Publisher.C4)
+        );
+
+        ImmutableList<Id> ids = ImmutableList.of(
+                bbcItem.getId(),
+                paItem.getId(),
+                itvItem.getId(),
+                c4Item.getId(),
+                fiveItem.getId()
+        );
+        OptionalMap<Id, EquivalenceGraph> single = store.resolveIds(ids).get();
+        OptionalMap<Id, EquivalenceGraph> batched = batchedStore.resolveIds(ids).get();
+
+        assertThat(batched.keySet(), is(single.keySet()));
+        for (Id id : single.keySet()) {
+            assertThat(
+                    batched.get(id).get().getAdjacencyList(),
+                    is(single.get(id).get().getAdjacencyList())
+            );
+        }
+        assertThat(batched.get(fiveItem.getId()).isPresent(), is(false));
+    }
 }
@@ -2270,6 +2270,202 @@ public class CassandraEquivalentScheduleStoreIT {
         );
     }
 
+    @Test
+    public void testRangeReadsResolveBroadcastsFromEveryDay() throws Exception {
+        EquivalentScheduleStore store = module.rangeReadingEquivalentScheduleStore(2);
+        Interval monday = new Interval(makeDateTime(3, 21, 16, 0), makeDateTime(3, 21, 17, 0));
+        Interval tuesday = new Interval(makeDateTime(3, 22, 16, 0), makeDateTime(3, 22, 17, 0));
+        Interval wednesday = new Interval(makeDateTime(3, 23, 16, 0), makeDateTime(3, 23, 17, 0));
+
+        Item item = new Item(Id.valueOf(1), Publisher.METABROADCAST);
+        Broadcast mondayBroadcast = new Broadcast(channel, monday).withId("sid1");
+        Broadcast tuesdayBroadcast = new Broadcast(channel, tuesday).withId("sid2");
+        Broadcast wednesdayBroadcast = new Broadcast(channel, wednesday).withId("sid3");
+        item.addBroadcast(mondayBroadcast);
+        item.addBroadcast(tuesdayBroadcast);
+        item.addBroadcast(wednesdayBroadcast);
+
+        contentStore.writeContent(item);
+
+        Interval interval = monday.withEnd(wednesday.getEnd());
+        updateSchedule(ScheduleRef.forChannel(channel.getId(), interval)
+                .addEntry(item.getId(), mondayBroadcast.toRef())
+                .addEntry(item.getId(), tuesdayBroadcast.toRef())
+                .addEntry(item.getId(), wednesdayBroadcast.toRef())
+                .build());
+
+        EquivalentChannelSchedule schedule = Iterables.getOnlyElement(get(store.resolveSchedules(
+                ImmutableList.of(channel),
+                interval,
+                Publisher.METABROADCAST,
+                ImmutableSet.of(Publisher.METABROADCAST)
+        )).channelSchedules());
+
+        assertThat(
+                schedule.getEntries().stream()
+                        .map(EquivalentScheduleEntry::getBroadcast)
+                        .map(Broadcast::getSourceId)
+                        .collect(MoreCollectors.toImmutableList()),
+                is(ImmutableList.of("sid1", "sid2", "sid3"))
+        );
+    }
+
+    @Test
+    public void testContentAddressedBroadcastsOfSameItemResolve() throws Exception {
+        EquivalentScheduleStore store = module.contentAddressedEquivalentScheduleStore();
+        Interval first = new Interval(makeDateTime(3, 21, 16, 0), makeDateTime(3, 21, 17, 0));
+        Interval second = new Interval(makeDateTime(3, 21, 17, 0), makeDateTime(3, 21, 18, 0));
+
+        Item item = new Item(Id.valueOf(1), Publisher.METABROADCAST);
+        Broadcast firstBroadcast = new Broadcast(channel, first).withId("sid1");
+        Broadcast secondBroadcast = new Broadcast(channel, second).withId("sid2");
+        item.addBroadcast(firstBroadcast);
+        item.addBroadcast(secondBroadcast);
+
+        contentStore.writeContent(item);
+
+        store.updateSchedule(new ScheduleUpdate(
+                Publisher.METABROADCAST,
+                ScheduleRef.forChannel(channel.getId(), first.withEnd(second.getEnd()))
+                        .addEntry(item.getId(), firstBroadcast.toRef())
+                        .addEntry(item.getId(), secondBroadcast.toRef())
+                        .build(),
+                ImmutableSet.of()
+        ));
+
+        EquivalentChannelSchedule schedule = Iterables.getOnlyElement(get(store.resolveSchedules(
+                ImmutableList.of(channel),
+                first.withEnd(second.getEnd()),
+                Publisher.METABROADCAST,
+                ImmutableSet.of(Publisher.METABROADCAST)
+        )).channelSchedules());
+
+        assertThat(schedule.getEntries().size(), is(2));
+        for (EquivalentScheduleEntry entry : schedule.getEntries()) {
+            assertThat(Iterables.getOnlyElement(entry.getItems().getResources()), is(item));
+        }
+    }
+
+    @Test
+    public void testRowsSharingContentBlobDoNotShareItems() throws Exception {
+        EquivalentScheduleStore store = module.contentAddressedEquivalentScheduleStore();
+        Interval first = new Interval(makeDateTime(3, 21, 16, 0), makeDateTime(3, 21, 17, 0));
+        Interval second = new Interval(makeDateTime(3, 21, 17, 0), makeDateTime(3, 21, 18, 0));
+
+        Item item = new Item(Id.valueOf(1), Publisher.METABROADCAST);
+        Broadcast firstBroadcast = new Broadcast(channel, first).withId("sid1");
+        Broadcast secondBroadcast = new Broadcast(channel, second).withId("sid2");
+        item.addBroadcast(firstBroadcast);
+        item.addBroadcast(secondBroadcast);
+
+        contentStore.writeContent(item);
+
+        store.updateSchedule(new ScheduleUpdate(
+                Publisher.METABROADCAST,
+                ScheduleRef.forChannel(channel.getId(), first.withEnd(second.getEnd()))
+                        .addEntry(item.getId(), firstBroadcast.toRef())
+                        .addEntry(item.getId(), secondBroadcast.toRef())
+                        .build(),
+                ImmutableSet.of()
+        ));
+
+        EquivalentChannelSchedule schedule = Iterables.getOnlyElement(get(store.resolveSchedules(
+                ImmutableList.of(channel),
+                first.withEnd(second.getEnd()),
+                Publisher.METABROADCAST,
+                ImmutableSet.of(Publisher.METABROADCAST)
+        )).channelSchedules());
+
+        ImmutableList<Item> items = schedule.getEntries()
+                .stream()
+                .map(entry -> Iterables.getOnlyElement(entry.getItems().getResources()))
+                .collect(MoreCollectors.toImmutableList());
+        assertThat(items.size(), is(2));
+
+        // both rows read the same blob, but the entries must be free to carry different
+        // equivalent sets
+        EquivalenceRef firstEquivalent = new EquivalenceRef(Id.valueOf(2), Publisher.BBC);
+        EquivalenceRef secondEquivalent = new EquivalenceRef(Id.valueOf(3), Publisher.PA);
+        items.get(0).copyWithEquivalentTo(ImmutableSet.of(firstEquivalent));
+        items.get(1).copyWithEquivalentTo(ImmutableSet.of(secondEquivalent));
+
+        assertThat(items.get(0) == items.get(1), is(false));
+        assertThat(items.get(0).getEquivalentTo(), is(ImmutableSet.of(firstEquivalent)));
+        assertThat(items.get(1).getEquivalentTo(), is(ImmutableSet.of(secondEquivalent)));
+    }
+
+    @Test
+    public void testContentAddressedStoreReadsRowsHoldingTheirOwnContent() throws Exception {
+        Interval interval = new Interval(makeDateTime(3, 21, 16, 0), makeDateTime(3, 21, 17, 0));
+
+        Item item = new Item(Id.valueOf(1), Publisher.METABROADCAST);
+        Broadcast broadcast = new Broadcast(channel, interval).withId("sid");
+        item.addBroadcast(broadcast);
+
+        contentStore.writeContent(item);
+
+        updateSchedule(ScheduleRef.forChannel(channel.getId(), interval)
+                .addEntry(item.getId(), broadcast.toRef())
+                .build());
+
+        EquivalentChannelSchedule schedule = Iterables.getOnlyElement(get(
+                module.contentAddressedEquivalentScheduleStore().resolveSchedules(
+                        ImmutableList.of(channel),
+                        interval,
+                        Publisher.METABROADCAST,
+                        ImmutableSet.of(Publisher.METABROADCAST)
+                )).channelSchedules());
+
+        assertThat(
+                Iterables.getOnlyElement(
+                        Iterables.getOnlyElement(schedule.getEntries()).getItems().getResources()
+                ),
+                is(item)
+        );
+    }
+
+    @Test
+    public void testDeletingUnreferencedContentBlobsKeepsReferencedBlobs() throws Exception {
+        CassandraEquivalentScheduleStore store = module.contentAddressedEquivalentScheduleStore();
+        Interval interval = new Interval(makeDateTime(3, 21, 16, 0), makeDateTime(3, 21, 17, 0));
+
+        Item replaced = new Item(Id.valueOf(1), Publisher.METABROADCAST);
+        replaced.addBroadcast(new Broadcast(channel, interval).withId("sid"));
+        Item replacement = new Item(Id.valueOf(2), Publisher.METABROADCAST);
+        Broadcast broadcast = new Broadcast(channel, interval).withId("sid");
+        replacement.addBroadcast(broadcast);
+
+        contentStore.writeContent(replaced);
+        contentStore.writeContent(replacement);
+
+        for (Item item : ImmutableList.of(replaced, replacement)) {
+            store.updateSchedule(new ScheduleUpdate(
+                    Publisher.METABROADCAST,
+                    ScheduleRef.forChannel(channel.getId(), interval)
+                            .addEntry(item.getId(), broadcast.toRef())
+                            .build(),
+                    ImmutableSet.of()
+            ));
+        }
+
+        assertThat(store.deleteUnreferencedContentBlobs(Duration.ZERO), is(1));
+        assertThat(store.deleteUnreferencedContentBlobs(Duration.ZERO), is(0));
+
+        EquivalentChannelSchedule schedule = Iterables.getOnlyElement(get(store.resolveSchedules(
+                ImmutableList.of(channel),
+                interval,
+                Publisher.METABROADCAST,
+                ImmutableSet.of(Publisher.METABROADCAST)
+        )).channelSchedules());
+
+        assertThat(
+                Iterables.getOnlyElement(
+                        Iterables.getOnlyElement(schedule.getEntries()).getItems().getResources()
+                ),
+                is(replacement)
+        );
+    }
+
     private void updateSchedule(ScheduleRef scheduleRef) throws WriteException {
         equivalentScheduleStore
                 .updateSchedule(new ScheduleUpdate(
@@ -0,0 +1,99 @@
+package org.atlasapi.schedule;
+
+import org.atlasapi.entity.Id;
+
+import com.google.common.collect.ImmutableList;
+import org.joda.time.LocalDate;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ScheduleReadPlannerTest {
+
+    private static final Id CHANNEL_ONE = Id.valueOf(1);
+    private static final Id CHANNEL_TWO = Id.valueOf(2);
+
+    private static final LocalDate MONDAY = new LocalDate(2016, 3, 21);
+    private static final LocalDate TUESDAY = MONDAY.plusDays(1);
+    private static final LocalDate WEDNESDAY = MONDAY.plusDays(2);
+    private static final LocalDate THURSDAY = MONDAY.plusDays(3);
+
+    @Test
+    public void testMergesContiguousDaysOfEachChannel() {
+        ScheduleReadPlanner planner = new ScheduleReadPlanner(7);
+
+        assertThat(
+                planner.plan(
+                        ImmutableList.of(CHANNEL_ONE, CHANNEL_TWO),
+                        ImmutableList.of(MONDAY, TUESDAY, WEDNESDAY)
+                ),
+                contains(
+                        read(CHANNEL_ONE, MONDAY, TUESDAY, WEDNESDAY),
+                        read(CHANNEL_TWO, MONDAY, TUESDAY, WEDNESDAY)
+                )
+        );
+    }
+
+    @Test
+    public void testSplitsReadsLongerThanMaxDays() {
+        ScheduleReadPlanner planner = new ScheduleReadPlanner(2);
+
+        assertThat(
+                planner.plan(
+                        ImmutableList.of(CHANNEL_ONE),
+                        ImmutableList.of(MONDAY, TUESDAY, WEDNESDAY)
+                ),
+                contains(
+                        read(CHANNEL_ONE, MONDAY, TUESDAY),
+                        read(CHANNEL_ONE, WEDNESDAY)
+                )
+        );
+    }
+
+    @Test
+    public void testSplitsReadsAtGapsBetweenDays() {
+        ScheduleReadPlanner planner = new ScheduleReadPlanner(7);
+
+        assertThat(
+                planner.plan(
+                        ImmutableList.of(CHANNEL_ONE),
+                        ImmutableList.of(MONDAY, TUESDAY, THURSDAY)
+                ),
+                contains(
+                        read(CHANNEL_ONE, MONDAY, TUESDAY),
+                        read(CHANNEL_ONE, THURSDAY)
+                )
+        );
+    }
+
+    @Test
+    public void testSingleDayReadsWhenMaxDaysIsOne() {
+        ScheduleReadPlanner planner = new ScheduleReadPlanner(1);
+
+        assertThat(
+                planner.plan(ImmutableList.of(CHANNEL_ONE), ImmutableList.of(MONDAY, TUESDAY)),
+                contains(read(CHANNEL_ONE, MONDAY), read(CHANNEL_ONE, TUESDAY))
+        );
+    }
+
+    @Test
+    public void testNoReadsForNoDays() {
+        ScheduleReadPlanner planner = new ScheduleReadPlanner(7);
+
+        assertThat(
+                planner.plan(ImmutableList.of(CHANNEL_ONE), ImmutableList.of()).isEmpty(),
+                is(true)
+        );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNonPositiveMaxDays() {
+        new ScheduleReadPlanner(0);
+    }
+
+    private ScheduleReadPlanner.Read read(Id channel, LocalDate... days) {
+        return new ScheduleReadPlanner.Read(channel, ImmutableList.copyOf(days));
+    }
+}
@@ -0,0 +1,137 @@
+package org.atlasapi.util;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class BoundedFuturesTest {
+
+    @Test
+    public void testReturnsResultsInTaskOrder() throws Exception {
+        List<SettableFuture<Integer>> futures = settableFutures(3);
+
+        ListenableFuture<List<Integer>> results = BoundedFutures.allAsList(tasksFor(futures), 3);
+
+        futures.get(2).set(2);
+        futures.get(0).set(0);
+        futures.get(1).set(1);
+
+        assertThat(results.get(), contains(0, 1, 2));
+    }
+
+    @Test
+    public void testStartsNoMoreThanMaxInFlightTasks() throws Exception {
+        List<SettableFuture<Integer>> futures = settableFutures(3);
+        List<StartCountingTask> tasks = tasksFor(futures);
+
+        BoundedFutures.allAsList(tasks, 2);
+
+        assertThat(tasks.get(0).started, is(true));
+        assertThat(tasks.get(1).started, is(true));
+        assertThat(tasks.get(2).started, is(false));
+
+        futures.get(1).set(1);
+
+        assertThat(tasks.get(2).started, is(true));
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void testFailsWhenATaskFails() throws Exception {
+        List<SettableFuture<Integer>> futures = settableFutures(2);
+
+        ListenableFuture<List<Integer>> results = BoundedFutures.allAsList(tasksFor(futures), 1);
+
+        futures.get(0).setException(new RuntimeException());
+
+        results.get();
+    }
+
+    @Test
+    public void testDoesNotStartTasksAfterAFailure() throws Exception {
+        List<SettableFuture<Integer>> futures = settableFutures(2);
+        List<StartCountingTask> tasks = tasksFor(futures);
+
+        BoundedFutures.allAsList(tasks, 1);
+
+        futures.get(0).setException(new RuntimeException());
+
+        assertThat(tasks.get(1).started, is(false));
+    }
+
+    @Test
+    public void testRunsManySynchronouslyCompletingTasksWithoutRecursing() throws Exception {
+        ImmutableList.Builder<Supplier<ListenableFuture<Integer>>> tasks = ImmutableList.builder();
+        for (int i = 0; i < 100000; i++) {
+            int result = i;
+            tasks.add(() -> Futures.immediateFuture(result));
+        }
+
+        List<Integer> results = BoundedFutures.allAsList(tasks.build(), 1).get();
+
+        assertThat(results.size(), is(100000));
+        assertThat(results.get(99999), is(99999));
+    }
+
+    @Test
+    public void testCompletesImmediatelyWithNoTasks() throws Exception {
+        ListenableFuture<List<Integer>> results = BoundedFutures.allAsList(
+                ImmutableList.<Supplier<ListenableFuture<Integer>>>of(),
+                1
+        );
+
+        assertThat(results.get().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testRunsTasksThatCompleteImmediately() throws Exception {
+        List<Supplier<ListenableFuture<Integer>>> tasks = ImmutableList.of(
+                () -> Futures.immediateFuture(0),
+                () -> Futures.immediateFuture(1),
+                () -> Futures.immediateFuture(2)
+        );
+
+        assertThat(BoundedFutures.allAsList(tasks, 1).get(), contains(0, 1, 2));
+    }
+
+    private List<SettableFuture<Integer>> settableFutures(int count) {
+        ImmutableList.Builder<SettableFuture<Integer>> futures = ImmutableList.builder();
+        for (int i = 0; i < count; i++) {
+            futures.add(SettableFuture.create());
+        }
+        return futures.build();
+    }
+
+    private List<StartCountingTask> tasksFor(List<SettableFuture<Integer>> futures) {
+        ImmutableList.Builder<StartCountingTask> tasks = ImmutableList.builder();
+        for (SettableFuture<Integer> future : futures) {
+            tasks.add(new StartCountingTask(future));
+        }
+        return tasks.build();
+    }
+
+    private static class StartCountingTask implements Supplier<ListenableFuture<Integer>> {
+
+        private final ListenableFuture<Integer> future;
+        private boolean started = false;
+
+        StartCountingTask(ListenableFuture<Integer> future) {
+            this.future = future;
+        }
+
+        @Override
+        public ListenableFuture<Integer> get() {
+            started = true;
+            return future;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.atlasapi.util;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CachingSecondaryIndexTest {
+
+    @Mock private SecondaryIndex delegate;
+
+    private IndexCache cache;
+    private CachingSecondaryIndex index;
+
+    @Before
+    public void setUp() {
+        cache = IndexCache.create(100, 60, new MetricRegistry(), "test.");
+        index = CachingSecondaryIndex.create(delegate, cache);
+    }
+
+    @Test
+    public void looksUpOnlyKeysThatAreNotCached() throws Exception {
+        when(delegate.lookup(ImmutableSet.of(1L, 2L)))
+                .thenReturn(Futures.immediateFuture(ImmutableMap.of(1L, 10L, 2L, 20L)));
+        when(delegate.lookup(ImmutableSet.of(3L)))
+                .thenReturn(Futures.immediateFuture(ImmutableMap.of(3L, 30L)));
+
+        index.lookup(ImmutableList.of(1L, 2L)).get();
+        ImmutableMap<Long, Long> resolved = index.lookup(ImmutableList.of(1L, 2L, 3L)).get();
+
+        assertThat(resolved, is(ImmutableMap.of(1L, 10L, 2L, 20L, 3L, 30L)));
+        verify(delegate, times(1)).lookup(ImmutableSet.of(1L, 2L));
+        verify(delegate, times(1)).lookup(ImmutableSet.of(3L));
+    }
+
+    @Test
+    public void servesFullyCachedLookupsWithoutTheDelegate() throws Exception {
+        when(delegate.lookup(ImmutableSet.of(1L)))
+                .thenReturn(Futures.immediateFuture(ImmutableMap.of(1L, 10L)));
+
+        index.lookup(ImmutableList.of(1L)).get();
+        index.lookup(ImmutableList.of(1L)).get();
+
+        verify(delegate, times(1)).lookup(ImmutableSet.of(1L));
+    }
+
+    @Test
+    public void insertedKeysAreLookedUpAgain() throws Exception {
+        when(delegate.lookup(ImmutableSet.of(1L)))
+                .thenReturn(Futures.immediateFuture(ImmutableMap.of(1L, 10L)))
+                .thenReturn(Futures.immediateFuture(ImmutableMap.of(1L, 11L)));
+
+        index.lookup(ImmutableList.of(1L)).get();
+        index.insertStatement(1L, 11L);
+        index.inserted(ImmutableList.of(1L));
+
+        assertThat(index.lookup(ImmutableList.of(1L)).get(), is(ImmutableMap.of(1L, 11L)));
+        verify(delegate).inserted(ImmutableList.of(1L));
+    }
+
+    @Test
+    public void doesNotCacheLookupsThatRaceWithAnInsert() throws Exception {
+        SettableFuture<ImmutableMap<Long, Long>> inFlight = SettableFuture.create();
+        when(delegate.lookup(ImmutableSet.of(1L))).thenReturn(inFlight);
+
+        index.lookup(ImmutableList.of(1L));
+        index.inserted(ImmutableList.of(1L));
+        inFlight.set(ImmutableMap.of(1L, 10L));
+
+        assertThat(cache.size(), is(0L));
+    }
+}
@@ -81,6 +81,7 @@ public class CassandraInit {
                 "content", "content_aliases", "equivalence_graph_index",
                 "equivalence_graph", "segments", "segments_aliases", "schedule_v2", "schedule",
                 "equivalent_content_index", "equivalent_content", "equivalent_schedule",
+                "equivalent_schedule_content",
                 "organisation", "organisation_uri", "event_v2", "event_aliases_v2", "content_v2"
         );
         for (String table : tables) {
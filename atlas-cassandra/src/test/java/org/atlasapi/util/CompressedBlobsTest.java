@@ -0,0 +1,70 @@
+package org.atlasapi.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.google.common.base.Strings;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+public class CompressedBlobsTest {
+
+    private static final byte[] BLOB = Strings.repeat("publisher:bbc.co.uk ", 100)
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void testRoundTripsCompressedBlob() {
+        ByteBuffer compressed = CompressedBlobs.compress(BLOB);
+
+        assertThat(CompressedBlobs.isCompressed(compressed), is(true));
+        assertThat(CompressedBlobs.decompress(compressed), is(ByteBuffer.wrap(BLOB)));
+    }
+
+    @Test
+    public void testCompressesRepetitiveBlob() {
+        assertThat(CompressedBlobs.compress(BLOB).remaining(), is(lessThan(BLOB.length)));
+    }
+
+    @Test
+    public void testReturnsUncompressedBlobAsIs() {
+        ByteBuffer blob = ByteBuffer.wrap(new byte[] { 0x08, 0x01 });
+
+        assertThat(CompressedBlobs.isCompressed(blob), is(false));
+        assertThat(CompressedBlobs.decompress(blob) == blob, is(true));
+    }
+
+    @Test
+    public void testDecompressesDirectBuffer() {
+        ByteBuffer compressed = CompressedBlobs.compress(BLOB);
+        ByteBuffer direct = ByteBuffer.allocateDirect(compressed.remaining());
+        direct.put(compressed.duplicate());
+        direct.flip();
+
+        assertThat(CompressedBlobs.decompress(direct), is(ByteBuffer.wrap(BLOB)));
+    }
+
+    @Test
+    public void testDoesNotMoveBufferPosition() {
+        ByteBuffer compressed = CompressedBlobs.compress(BLOB);
+        int position = compressed.position();
+
+        CompressedBlobs.decompress(compressed);
+
+        assertThat(compressed.position(), is(position));
+    }
+
+    @Test
+    public void testRoundTripsEmptyBlob() {
+        ByteBuffer compressed = CompressedBlobs.compress(new byte[0]);
+
+        assertThat(CompressedBlobs.decompress(compressed).remaining(), is(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsUnknownFormat() {
+        CompressedBlobs.decompress(ByteBuffer.wrap(new byte[] { 0, 99, 0, 0, 0, 0 }));
+    }
+}
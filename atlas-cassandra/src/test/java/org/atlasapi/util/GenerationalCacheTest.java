@@ -0,0 +1,79 @@
+package org.atlasapi.util;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class GenerationalCacheTest {
+
+    private final MetricRegistry metrics = new MetricRegistry();
+    private final GenerationalCache<String> cache = GenerationalCache.create(
+            CacheBuilder.newBuilder().maximumSize(100),
+            metrics,
+            "test."
+    );
+
+    @Test
+    public void servesCachedEntriesAndCountsHitsAndMisses() {
+        cache.putAll(ImmutableMap.of(1L, "one"), cache.generations(ImmutableList.of(1L)));
+
+        assertThat(
+                cache.getAllPresent(ImmutableList.of(1L, 2L)),
+                is(ImmutableMap.of(1L, "one"))
+        );
+        assertThat(metrics.meter("test.meter.hit").getCount(), is(1L));
+        assertThat(metrics.meter("test.meter.miss").getCount(), is(1L));
+    }
+
+    @Test
+    public void invalidationRemovesEntries() {
+        cache.putAll(
+                ImmutableMap.of(1L, "one", 2L, "two"),
+                cache.generations(ImmutableList.of(1L, 2L))
+        );
+
+        cache.invalidate(ImmutableList.of(1L));
+
+        assertThat(
+                cache.getAllPresent(ImmutableList.of(1L, 2L)),
+                is(ImmutableMap.of(2L, "two"))
+        );
+    }
+
+    @Test
+    public void doesNotCacheEntriesInvalidatedWhilstTheyWereRead() {
+        GenerationalCache.Generations generations = cache.generations(ImmutableList.of(1L, 2L));
+
+        cache.invalidate(ImmutableList.of(1L));
+        cache.putAll(ImmutableMap.of(1L, "stale", 2L, "two"), generations);
+
+        assertThat(
+                cache.getAllPresent(ImmutableList.of(1L, 2L)),
+                is(ImmutableMap.of(2L, "two"))
+        );
+    }
+
+    @Test
+    public void invalidationOfOtherKeysDoesNotStopEntriesBeingCached() {
+        GenerationalCache.Generations generations = cache.generations(ImmutableList.of(1L));
+
+        cache.invalidate(ImmutableList.of(2L));
+        cache.putAll(ImmutableMap.of(1L, "one"), generations);
+
+        assertThat(cache.getAllPresent(ImmutableList.of(1L)), is(ImmutableMap.of(1L, "one")));
+    }
+
+    @Test
+    public void doesNotCacheEntriesWhoseGenerationsWereNotCaptured() {
+        GenerationalCache.Generations generations = cache.generations(ImmutableList.of(1L));
+
+        cache.putAll(ImmutableMap.of(1L, "one", 2L, "two"), generations);
+
+        assertThat(cache.getAllPresent(ImmutableList.of(1L, 2L)).keySet().size(), is(1));
+    }
+}
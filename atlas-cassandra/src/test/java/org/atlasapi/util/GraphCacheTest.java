@@ -0,0 +1,80 @@
+package org.atlasapi.util;
+
+import org.atlasapi.content.ItemRef;
+import org.atlasapi.entity.Id;
+import org.atlasapi.equivalence.EquivalenceGraph;
+import org.atlasapi.equivalence.EquivalenceGraph.Adjacents;
+import org.atlasapi.equivalence.EquivalenceGraphUpdate;
+import org.atlasapi.media.entity.Publisher;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class GraphCacheTest {
+
+    private final EquivalenceGraph single = graph(1L);
+    private final EquivalenceGraph triple = graph(2L, 3L, 4L);
+
+    @Test
+    public void evictsGraphsByTheirSize() {
+        GraphCache cache = cache(2);
+        GenerationalCache.Generations generations = cache.generations(ImmutableList.of(1L, 2L));
+
+        cache.putAll(ImmutableMap.of(1L, single, 2L, triple), generations);
+
+        assertThat(
+                cache.getAllPresent(ImmutableList.of(1L, 2L)),
+                is(ImmutableMap.of(1L, single))
+        );
+    }
+
+    @Test
+    public void doesNotCacheGraphsReadBeforeAnInvalidation() {
+        GraphCache cache = cache(100);
+        GenerationalCache.Generations generations = cache.generations(ImmutableList.of(1L));
+
+        cache.invalidate(ImmutableList.of(1L));
+        cache.putAll(ImmutableMap.of(1L, single), generations);
+
+        assertThat(cache.size(), is(0L));
+    }
+
+    @Test
+    public void updateInvalidatesWrittenAndDeletedGraphs() {
+        GraphCache cache = cache(100);
+        cache.putAll(
+                ImmutableMap.of(1L, single, 2L, triple, 7L, graph(7L)),
+                cache.generations(ImmutableList.of(1L, 2L, 7L))
+        );
+
+        cache.invalidate(EquivalenceGraphUpdate.builder(single)
+                .withDeleted(ImmutableSet.of(Id.valueOf(2L)))
+                .build());
+
+        assertThat(
+                cache.getAllPresent(ImmutableList.of(1L, 2L, 7L)).keySet(),
+                is(ImmutableSet.of(7L))
+        );
+    }
+
+    private GraphCache cache(long maximumWeight) {
+        return GraphCache.create(maximumWeight, 60, new MetricRegistry(), "test.");
+    }
+
+    private static EquivalenceGraph graph(long... ids) {
+        ImmutableSet.Builder<Adjacents> adjacents = ImmutableSet.builder();
+        for (long id : ids) {
+            adjacents.add(Adjacents.valueOf(
+                    new ItemRef(Id.valueOf(id), Publisher.METABROADCAST, "", new DateTime(0))
+            ));
+        }
+        return EquivalenceGraph.valueOf(adjacents.build());
+    }
+}
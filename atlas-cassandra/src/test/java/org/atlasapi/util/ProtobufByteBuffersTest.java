@@ -0,0 +1,125 @@
+package org.atlasapi.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import org.atlasapi.serialization.protobuf.CommonProtos;
+
+import com.google.common.collect.ImmutableList;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ProtobufByteBuffersTest {
+
+    @Test
+    public void testParsesHeapBuffer() throws Exception {
+        ByteBuffer bytes = ByteBuffer.wrap(dateTime(1234L).toByteArray());
+
+        assertThat(
+                ProtobufByteBuffers.parseFrom(bytes, CommonProtos.DateTime.parser()),
+                is(dateTime(1234L))
+        );
+    }
+
+    @Test
+    public void testParsesOnlyRemainingBytesOfHeapBuffer() throws Exception {
+        byte[] message = dateTime(1234L).toByteArray();
+        ByteBuffer bytes = ByteBuffer.allocate(message.length + 4);
+        bytes.position(2);
+        bytes.put(message);
+        bytes.position(2);
+        bytes.limit(2 + message.length);
+
+        assertThat(
+                ProtobufByteBuffers.parseFrom(bytes, CommonProtos.DateTime.parser()),
+                is(dateTime(1234L))
+        );
+    }
+
+    @Test
+    public void testParsesDirectBuffer() throws Exception {
+        byte[] message = dateTime(1234L).toByteArray();
+        ByteBuffer bytes = ByteBuffer.allocateDirect(message.length);
+        bytes.put(message);
+        bytes.flip();
+
+        assertThat(
+                ProtobufByteBuffers.parseFrom(bytes, CommonProtos.DateTime.parser()),
+                is(dateTime(1234L))
+        );
+    }
+
+    @Test
+    public void testDoesNotMoveBufferPosition() throws Exception {
+        ByteBuffer bytes = ByteBuffer.wrap(dateTime(1234L).toByteArray());
+
+        ProtobufByteBuffers.parseFrom(bytes, CommonProtos.DateTime.parser());
+
+        assertThat(bytes.position(), is(0));
+    }
+
+    @Test(expected = InvalidProtocolBufferException.class)
+    public void testRejectsMalformedBytes() throws Exception {
+        ByteBuffer bytes = ByteBuffer.wrap(new byte[] { -1, -1, -1 });
+
+        ProtobufByteBuffers.parseFrom(bytes, CommonProtos.DateTime.parser());
+    }
+
+    @Test
+    public void testParsesDelimitedMessages() throws Exception {
+        ByteBuffer bytes = delimited(dateTime(1L), dateTime(2L), dateTime(3L));
+
+        assertThat(
+                ProtobufByteBuffers.parseDelimitedFrom(
+                        bytes,
+                        CommonProtos.DateTime.parser(),
+                        3
+                ),
+                contains(dateTime(1L), dateTime(2L), dateTime(3L))
+        );
+    }
+
+    @Test
+    public void testParsesNoMoreThanMaxDelimitedMessages() throws Exception {
+        ByteBuffer bytes = delimited(dateTime(1L), dateTime(2L), dateTime(3L));
+
+        assertThat(
+                ProtobufByteBuffers.parseDelimitedFrom(
+                        bytes,
+                        CommonProtos.DateTime.parser(),
+                        2
+                ),
+                contains(dateTime(1L), dateTime(2L))
+        );
+    }
+
+    @Test
+    public void testStopsParsingDelimitedMessagesAtEndOfBuffer() throws Exception {
+        ByteBuffer bytes = delimited(dateTime(1L));
+
+        assertThat(
+                ProtobufByteBuffers.parseDelimitedFrom(
+                        bytes,
+                        CommonProtos.DateTime.parser(),
+                        5
+                ),
+                is(ImmutableList.of(dateTime(1L)))
+        );
+    }
+
+    private CommonProtos.DateTime dateTime(long millis) {
+        return CommonProtos.DateTime.newBuilder().setMillis(millis).build();
+    }
+
+    private ByteBuffer delimited(CommonProtos.DateTime... messages) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (CommonProtos.DateTime message : messages) {
+            message.writeDelimitedTo(output);
+        }
+        return ByteBuffer.wrap(output.toByteArray());
+    }
+}
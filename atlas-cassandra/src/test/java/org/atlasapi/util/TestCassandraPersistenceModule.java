@@ -12,6 +12,7 @@ import org.atlasapi.content.EquivalentContentStore;
 import org.atlasapi.equivalence.EquivalenceGraphStore;
 import org.atlasapi.event.EventStore;
 import org.atlasapi.organisation.OrganisationStore;
+import org.atlasapi.schedule.CassandraEquivalentScheduleStore;
 import org.atlasapi.schedule.EquivalentScheduleStore;
 import org.atlasapi.schedule.ScheduleStore;
 import org.atlasapi.segment.SegmentStore;
@@ -26,6 +27,7 @@ import com.metabroadcast.common.queue.MessageSender;
 import com.metabroadcast.common.queue.MessageSenderFactory;
 import com.metabroadcast.common.queue.MessageSerializer;
 import com.metabroadcast.common.queue.MessagingException;
+import com.metabroadcast.common.time.SystemClock;
 
 import com.codahale.metrics.MetricRegistry;
 import com.datastax.driver.core.CodecRegistry;
@@ -214,11 +216,60 @@ public class TestCassandraPersistenceModule extends AbstractIdleService
         );
     }
 
+    public EquivalentContentStore batchReadingEquivalentContentStore(int readBatchSize) {
+        return CassandraEquivalentContentStore.builder()
+                .withContentResolver(contentStore())
+                .withLegacyContentResolver(new NoOpLegacyContentResolver())
+                .withGraphStore(persistenceModule.contentEquivalenceGraphStore())
+                .withContentUpdatedMessageSender(
+                        messageSenderFactory.makeMessageSender("EquivContentUpdates", null)
+                )
+                .withGraphUpdatedMessageSender(
+                        messageSenderFactory.makeMessageSender("EquivContentGraphUpdates", null)
+                )
+                .withSession(cassandraService.getCluster().connect(keyspace))
+                .withReadConsistency(ConsistencyLevel.ONE)
+                .withWriteConsistency(ConsistencyLevel.ONE)
+                .withReadBatchSize(readBatchSize)
+                .withMaxInFlightReadBatches(2)
+                .withMetricRegistry(metricRegistry)
+                .withMetricPrefix(metricPrefix)
+                .build();
+    }
+
     @Override
     public EquivalentScheduleStore equivalentScheduleStore() {
         return persistenceModule.equivalentScheduleStore();
     }
 
+    public EquivalentScheduleStore rangeReadingEquivalentScheduleStore(int maxDaysPerRead) {
+        return CassandraEquivalentScheduleStore.builder()
+                .withGraphStore(persistenceModule.contentEquivalenceGraphStore())
+                .withContentStore(contentStore())
+                .withSession(cassandraService.getCluster().connect(keyspace))
+                .withReadConsistency(ConsistencyLevel.ONE)
+                .withWriteConsistency(ConsistencyLevel.ONE)
+                .withClock(new SystemClock())
+                .withMaxDaysPerRead(maxDaysPerRead)
+                .withMetricRegistry(metricRegistry)
+                .withMetricPrefix(metricPrefix)
+                .build();
+    }
+
+    public CassandraEquivalentScheduleStore contentAddressedEquivalentScheduleStore() {
+        return CassandraEquivalentScheduleStore.builder()
+                .withGraphStore(persistenceModule.contentEquivalenceGraphStore())
+                .withContentStore(contentStore())
+                .withSession(cassandraService.getCluster().connect(keyspace))
+                .withReadConsistency(ConsistencyLevel.ONE)
+                .withWriteConsistency(ConsistencyLevel.ONE)
+                .withClock(new SystemClock())
+                .withContentAddressing(true)
+                .withMetricRegistry(metricRegistry)
+                .withMetricPrefix(metricPrefix)
+                .build();
+    }
+
     @Override
     public ScheduleStore v2ScheduleStore() {
         return persistenceModule.v2ScheduleStore();
@@ -2,10 +2,7 @@ package org.atlasapi.equivalence;
 
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
-import com.google.common.base.Function;
-import com.google.common.base.Functions;
 import com.google.common.base.Optional;
-import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Collections2;
@@ -26,7 +23,6 @@ import com.metabroadcast.common.stream.MoreCollectors;
 import com.metabroadcast.common.time.DateTimeZones;
 import com.metabroadcast.common.time.Timestamp;
 import org.atlasapi.entity.Id;
-import org.atlasapi.entity.Identifiable;
 import org.atlasapi.entity.Identifiables;
 import org.atlasapi.entity.ResourceRef;
 import org.atlasapi.entity.Sourceds;
@@ -34,6 +30,7 @@ import org.atlasapi.entity.util.StoreException;
 import org.atlasapi.entity.util.WriteException;
 import org.atlasapi.equivalence.EquivalenceGraph.Adjacents;
 import org.atlasapi.locks.GroupLock;
+import org.atlasapi.locks.SerialLanes;
 import org.atlasapi.media.entity.Publisher;
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
@@ -41,8 +38,9 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
@@ -57,6 +55,7 @@ public abstract class AbstractEquivalenceGraphStore implements EquivalenceGraphS
     private static final Logger log = LoggerFactory.getLogger(AbstractEquivalenceGraphStore.class);
     private static final int TIMEOUT = 1;
     private static final TimeUnit TIMEOUT_UNITS = TimeUnit.MINUTES;
+    private static final long LOCK_RETRY_WAIT_MILLIS = 5000;
 
     private static final String METER_CALLED = "meter.called";
     private static final String METER_FAILURE = "meter.failure";
@@ -64,13 +63,22 @@ public abstract class AbstractEquivalenceGraphStore implements EquivalenceGraphS
     private static final String METER_BLACKLIST = "meter.blacklist";
     private static final String METER_GRAPH_SIZE_WARN = "graph.size.meter.warn";
     private static final String METER_GRAPH_SIZE_REJECT = "graph.size.meter.reject";
+    private static final String METER_GRAPH_SIZE_EDGES_DROPPED = "graph.size.meter.edgesDropped";
+    private static final String METER_GRAPH_SIZE_DROPPED_EDGES = "graph.size.meter.droppedEdges";
+    private static final String REJECTED_GRAPH_UPDATES = "graph.size.rejectedUpdates";
+    private static final int REJECTED_GRAPH_UPDATES_CAPACITY = 100;
     private static final String METER_FAILED_TO_LOCK_ADJACENTS = "lock.adjacents.meter.failure";
     private static final String METER_FAILED_TO_LOCK_TRANSITIVES = "lock.transitives.meter.failure";
+    private static final String METER_LOCK_RETRY_TIMED_OUT = "lock.retry.meter.timedOut";
+    private static final String METER_LANE_REENTERED = "lane.meter.reentered";
+    private static final String METER_FULL_TRAVERSAL = "recompute.meter.fullTraversal";
     private static final String COUNTER_BLOCKED = "counter.blocked";
     private static final String HISTOGRAM_BLACKLIST = "histogram.blacklist";
     private static final String HISTOGRAM_LOCK_ATTEMPTS = "histogram.lockAttempts";
     private static final String TIMER_WAITING_LOCK = "timer.waitingLock";
+    private static final String TIMER_HOLDING_LOCK = "timer.holdingLock";
     private static final String TIMER_EXECUTION = "timer.execution";
+    private static final String TIMER_RECOMPUTE = "recompute.timer";
     private static final String CREATED_GRAPH_HISTOGRAM_COUNT = "graph.created.histogram.count";
     private static final String DELETED_GRAPH_HISTOGRAM_COUNT = "graph.deleted.histogram.count";
     private static final String UPDATED_GRAPH_HISTOGRAM_SIZE = "graph.updated.histogram.size";
@@ -80,22 +88,87 @@ public abstract class AbstractEquivalenceGraphStore implements EquivalenceGraphS
 
     private final MessageSender<EquivalenceGraphUpdateMessage> messageSender;
     private final EquivalenceGraphRejectionFilter rejectionFilter;
+    private final RejectedGraphUpdates rejectedUpdates;
 
     private final MetricRegistry metricRegistry;
     private final String updateEquivalences;
 
     private final Set<Id> blacklistedGraphAdjacents;
 
+    @Nullable private final SerialLanes<Id> lanes;
+    private final boolean incrementalRecomputation;
+
     public AbstractEquivalenceGraphStore(
             MessageSender<EquivalenceGraphUpdateMessage> messageSender,
             MetricRegistry metricRegistry,
             String metricPrefix
+    ) {
+        this(messageSender, metricRegistry, metricPrefix, false);
+    }
+
+    /**
+     * @param serialLanes if true, updates of overlapping graphs are queued in {@link SerialLanes}
+     *                    rather than taking locks on {@link #lock()} and retrying until they are
+     *                    all free.
+     */
+    public AbstractEquivalenceGraphStore(
+            MessageSender<EquivalenceGraphUpdateMessage> messageSender,
+            MetricRegistry metricRegistry,
+            String metricPrefix,
+            boolean serialLanes
+    ) {
+        this(
+                messageSender,
+                metricRegistry,
+                metricPrefix,
+                serialLanes,
+                EquivalenceGraphRejectionFilter.create()
+        );
+    }
+
+    /**
+     * @param rejectionFilter decides which updates make graphs too large to be stored. Rejected
+     *                        updates are kept in a {@link RejectedGraphUpdates} metric.
+     */
+    public AbstractEquivalenceGraphStore(
+            MessageSender<EquivalenceGraphUpdateMessage> messageSender,
+            MetricRegistry metricRegistry,
+            String metricPrefix,
+            boolean serialLanes,
+            EquivalenceGraphRejectionFilter rejectionFilter
+    ) {
+        this(messageSender, metricRegistry, metricPrefix, serialLanes, rejectionFilter, false);
+    }
+
+    /**
+     * @param incrementalRecomputation if true, the graphs resulting from an update are found by
+     *                                 re-walking only the components the update touched, falling
+     *                                 back to walking every resource in them when it cannot.
+     *                                 Otherwise they are always found by the full walk.
+     */
+    public AbstractEquivalenceGraphStore(
+            MessageSender<EquivalenceGraphUpdateMessage> messageSender,
+            MetricRegistry metricRegistry,
+            String metricPrefix,
+            boolean serialLanes,
+            EquivalenceGraphRejectionFilter rejectionFilter,
+            boolean incrementalRecomputation
     ) {
         this.messageSender = checkNotNull(messageSender);
-        this.rejectionFilter = EquivalenceGraphRejectionFilter.create();
+        this.rejectionFilter = checkNotNull(rejectionFilter);
 
         this.metricRegistry = metricRegistry;
         this.updateEquivalences = metricPrefix + "updateEquivalences.";
+        this.rejectedUpdates = RejectedGraphUpdates.getOrRegister(
+                metricRegistry,
+                updateEquivalences + REJECTED_GRAPH_UPDATES,
+                REJECTED_GRAPH_UPDATES_CAPACITY
+        );
+
+        this.lanes = serialLanes
+                     ? SerialLanes.create(metricRegistry, updateEquivalences + "lanes.")
+                     : null;
+        this.incrementalRecomputation = incrementalRecomputation;
 
         // The blacklist is currently empty, but we are retaining the mechanism for
         // potential future need
@@ -139,9 +212,16 @@ public abstract class AbstractEquivalenceGraphStore implements EquivalenceGraphS
 
         ImmutableSet<Id> subjectAndAdjacents = MoreSets.add(newAdjacents, subject.getId());
         Set<Id> transitiveSetsIds = null;
+        SerialLanes<Id>.Lane lane = null;
+        Timer.Context holdingLock = null;
 
         try {
-            transitiveSetsIds = lockGraphIds(subjectAndAdjacents);
+            if (lanes != null) {
+                lane = enterLane(subjectAndAdjacents);
+            } else {
+                transitiveSetsIds = lockGraphIds(subjectAndAdjacents);
+            }
+            holdingLock = metricRegistry.timer(updateEquivalences + TIMER_HOLDING_LOCK).time();
 
             Optional<EquivalenceGraphUpdate> updated = updateGraphs(
                     subject,
@@ -195,7 +275,14 @@ public abstract class AbstractEquivalenceGraphStore implements EquivalenceGraphS
             log.error(e.getMessage());
             return Optional.absent();
         } finally {
-            unlock(subjectAndAdjacents, transitiveSetsIds);
+            if (lane != null) {
+                lane.leave();
+            } else if (lanes == null) {
+                unlock(subjectAndAdjacents, transitiveSetsIds);
+            }
+            if (holdingLock != null) {
+                holdingLock.stop();
+            }
             Duration executionDuration = Duration.ofNanos(executionTime.stop());
 
             if (executionDuration.compareTo(EXECUTION_DURATION_ALERTING_THRESHOLD) > 0) {
@@ -212,6 +299,16 @@ public abstract class AbstractEquivalenceGraphStore implements EquivalenceGraphS
 
     protected abstract GroupLock<Id> lock();
 
+    /**
+     * Resolves the graphs an update is applied to, which must be as they are stored rather than
+     * as served to readers from any cache. Defaults to {@link #resolveIds(Iterable)}.
+     */
+    protected ListenableFuture<OptionalMap<Id, EquivalenceGraph>> resolveIdsForUpdate(
+            Iterable<Id> ids
+    ) {
+        return resolveIds(ids);
+    }
+
     private void sendUpdateMessage(ResourceRef subject, EquivalenceGraphUpdate updatedGraphs) {
         try {
             messageSender.sendMessage(
@@ -253,7 +350,14 @@ public abstract class AbstractEquivalenceGraphStore implements EquivalenceGraphS
                     lockAttempts++;
 
                     lock().unlock(subjectAndAdjacents);
-                    lock().wait(5000);
+                    long waitStarted = System.nanoTime();
+                    lock().wait(LOCK_RETRY_WAIT_MILLIS);
+                    if (System.nanoTime() - waitStarted
+                            >= TimeUnit.MILLISECONDS.toNanos(LOCK_RETRY_WAIT_MILLIS)) {
+                        // woken by the timeout rather than by another thread unlocking
+                        metricRegistry.meter(updateEquivalences + METER_LOCK_RETRY_TIMED_OUT)
+                                .mark();
+                    }
                     log.debug(
                             "Thread {} attempting to lock IDs {}",
                             Thread.currentThread().getName(),
@@ -275,6 +379,53 @@ public abstract class AbstractEquivalenceGraphStore implements EquivalenceGraphS
         }
     }
 
+    /**
+     * Enters the lane of the subject, its adjacents and everything currently equivalent to them.
+     * An update ahead in the lane may join further resources to these graphs, so once the lane is
+     * ready the graphs are read again and, if they have grown, the lane is left and re-entered
+     * with the larger set.
+     */
+    private SerialLanes<Id>.Lane enterLane(
+            Set<Id> subjectAndAdjacents
+    ) throws InterruptedException, StoreException {
+        Timer.Context time = metricRegistry.timer(updateEquivalences + TIMER_WAITING_LOCK).time();
+        metricRegistry.counter(updateEquivalences + COUNTER_BLOCKED).inc();
+
+        try {
+            checkBlacklist(subjectAndAdjacents);
+            Set<Id> ids = withTransitiveIds(subjectAndAdjacents);
+            int attempts = 0;
+            while (true) {
+                SerialLanes<Id>.Lane lane = lanes.enter(ids);
+                boolean entered = false;
+                try {
+                    lane.await();
+                    Set<Id> currentIds = withTransitiveIds(subjectAndAdjacents);
+                    if (ids.containsAll(currentIds)) {
+                        entered = true;
+                        metricRegistry.histogram(updateEquivalences + HISTOGRAM_LOCK_ATTEMPTS)
+                                .update(attempts);
+                        return lane;
+                    }
+                    attempts++;
+                    metricRegistry.meter(updateEquivalences + METER_LANE_REENTERED).mark();
+                    ids = Sets.union(ids, currentIds).immutableCopy();
+                } finally {
+                    if (!entered) {
+                        lane.leave();
+                    }
+                }
+            }
+        } finally {
+            time.stop();
+            metricRegistry.counter(updateEquivalences + COUNTER_BLOCKED).dec();
+        }
+    }
+
+    private Set<Id> withTransitiveIds(Set<Id> ids) throws StoreException {
+        return ImmutableSet.copyOf(Iterables.concat(ids, transitiveIdsToLock(ids)));
+    }
+
     @Nullable
     private Set<Id> tryLockAllIds(
             Set<Id> adjacentsIds
@@ -314,7 +465,7 @@ public abstract class AbstractEquivalenceGraphStore implements EquivalenceGraphS
 
     private Iterable<Id> transitiveIdsToLock(Set<Id> adjacentsIds) throws StoreException {
         return Iterables.concat(Iterables.transform(
-                get(resolveIds(adjacentsIds)).values(),
+                get(resolveIdsForUpdate(adjacentsIds)).values(),
                 input -> input.isPresent()
                          ? input.get().getAdjacencyList().keySet()
                          : ImmutableSet.of()
@@ -389,6 +540,7 @@ public abstract class AbstractEquivalenceGraphStore implements EquivalenceGraphS
 
         EquivalenceGraphUpdate update = computeUpdate(
                 subject,
+                subjGraph,
                 assertedAdjacentGraphs,
                 updatedAdjacents
         );
@@ -402,40 +554,191 @@ public abstract class AbstractEquivalenceGraphStore implements EquivalenceGraphS
             return Optional.absent();
         }
 
+        ImmutableSet<EquivalenceGraph> existingGraphs = ImmutableSet.<EquivalenceGraph>builder()
+                .add(subjGraph)
+                .addAll(assertedAdjacentGraphs.values())
+                .build();
         EquivalenceGraphRejectionFilter.Decision rejectionDecision = rejectionFilter.shouldReject(
                 subject,
-                ImmutableSet.<EquivalenceGraph>builder()
-                        .add(subjGraph)
-                        .addAll(assertedAdjacentGraphs.values())
-                        .build(),
+                existingGraphs,
                 update
         );
 
         if (rejectionDecision == EquivalenceGraphRejectionFilter.Decision.WARN) {
             metricRegistry.meter(updateEquivalences + METER_GRAPH_SIZE_WARN).mark();
         } else if (rejectionDecision == EquivalenceGraphRejectionFilter.Decision.FAIL) {
-            metricRegistry.meter(updateEquivalences + METER_GRAPH_SIZE_REJECT).mark();
+            ImmutableSet<Id> assertedIds = assertedAdjacents.stream()
+                    .map(ResourceRef::getId)
+                    .collect(MoreCollectors.toImmutableSet());
+            int graphSize = largestGraphSize(update);
+
+            Optional<EquivalenceGraphUpdate> partial = Optional.absent();
+            if (rejectionFilter.dropsOversizedEdges()) {
+                partial = dropOversizedEdges(
+                        subject,
+                        subjGraph,
+                        assertedAdjacentGraphs,
+                        sources
+                );
+            }
+
+            if (!partial.isPresent()) {
+                metricRegistry.meter(updateEquivalences + METER_GRAPH_SIZE_REJECT).mark();
+                rejectedUpdates.record(RejectedGraphUpdates.Rejected.rejected(
+                        subject.getId(),
+                        assertedIds,
+                        graphSize,
+                        DateTime.now(DateTimeZones.UTC)
+                ));
+                log.error(
+                        "Rejecting update that would result in very large graph, "
+                                + "update subject: {}, adjacents: {}",
+                        subject,
+                        assertedAdjacents
+                );
+
+                return Optional.absent();
+            }
+
+            update = partial.get();
+            ImmutableSet<Id> admittedIds = update.getUpdated()
+                    .getAdjacents(subject)
+                    .getOutgoingEdges()
+                    .stream()
+                    .map(ResourceRef::getId)
+                    .collect(MoreCollectors.toImmutableSet());
+            ImmutableSet<Id> droppedIds = Sets.difference(assertedIds, admittedIds)
+                    .immutableCopy();
+
+            metricRegistry.meter(updateEquivalences + METER_GRAPH_SIZE_EDGES_DROPPED).mark();
+            metricRegistry.meter(updateEquivalences + METER_GRAPH_SIZE_DROPPED_EDGES)
+                    .mark(droppedIds.size());
+            rejectedUpdates.record(RejectedGraphUpdates.Rejected.edgesDropped(
+                    subject.getId(),
+                    assertedIds,
+                    droppedIds,
+                    graphSize,
+                    DateTime.now(DateTimeZones.UTC)
+            ));
             log.error(
-                    "Rejecting update that would result in very large graph, "
-                            + "update subject: {}, adjacents: {}",
+                    "Dropping edges that would result in very large graph, "
+                            + "update subject: {}, dropped adjacents: {}",
                     subject,
-                    assertedAdjacents
+                    droppedIds
             );
+        }
 
+        store(update.getAllGraphs());
+
+        return Optional.of(update);
+    }
+
+    /**
+     * Applies the update without those asserted edges that join the subject's graph to another
+     * and would make a graph the rejection filter rejects. Edges to the smallest graphs are
+     * admitted first, so as many resources as possible join the subject's graph. The other edges
+     * are dropped: they are not stored, so they are only applied if they are asserted again.
+     * <p>
+     * Each candidate is judged against the subject's graph and the graphs already admitted, not
+     * the candidate's own graph, so that an adjacent graph which is already too large cannot
+     * admit itself.
+     *
+     * @return the update with the admitted edges, or absent if even an update without any
+     * joining edges would be rejected.
+     */
+    private Optional<EquivalenceGraphUpdate> dropOversizedEdges(
+            ResourceRef subject,
+            EquivalenceGraph subjGraph,
+            Map<ResourceRef, EquivalenceGraph> assertedAdjacentGraphs,
+            Set<Publisher> sources
+    ) throws StoreException {
+        Map<ResourceRef, EquivalenceGraph> admitted = Maps.newHashMap();
+        List<ResourceRef> joining = Lists.newArrayList();
+        for (ResourceRef adjacent : assertedAdjacentGraphs.keySet()) {
+            if (subjGraph.getEquivalenceSet().contains(adjacent.getId())) {
+                admitted.put(adjacent, assertedAdjacentGraphs.get(adjacent));
+            } else {
+                joining.add(adjacent);
+            }
+        }
+        joining.sort(Comparator
+                .comparing((ResourceRef ref) ->
+                        assertedAdjacentGraphs.get(ref).getAdjacencyList().size())
+                .thenComparing(ref -> ref.getId().longValue()));
+
+        EquivalenceGraphUpdate update = updateWith(subject, subjGraph, admitted, sources);
+        if (rejectionFilter.shouldReject(admittedGraphs(subjGraph, admitted), update)) {
             return Optional.absent();
         }
 
-        store(update.getAllGraphs());
+        for (ResourceRef adjacent : joining) {
+            Map<ResourceRef, EquivalenceGraph> candidate = Maps.newHashMap(admitted);
+            candidate.put(adjacent, assertedAdjacentGraphs.get(adjacent));
 
+            EquivalenceGraphUpdate candidateUpdate = updateWith(
+                    subject,
+                    subjGraph,
+                    candidate,
+                    sources
+            );
+            if (!rejectionFilter.shouldReject(
+                    admittedGraphs(subjGraph, admitted),
+                    candidateUpdate
+            )) {
+                admitted = candidate;
+                update = candidateUpdate;
+            }
+        }
         return Optional.of(update);
     }
 
+    private static ImmutableSet<EquivalenceGraph> admittedGraphs(
+            EquivalenceGraph subjGraph,
+            Map<ResourceRef, EquivalenceGraph> admitted
+    ) {
+        return ImmutableSet.<EquivalenceGraph>builder()
+                .add(subjGraph)
+                .addAll(admitted.values())
+                .build();
+    }
+
+    private EquivalenceGraphUpdate updateWith(
+            ResourceRef subject,
+            EquivalenceGraph subjGraph,
+            Map<ResourceRef, EquivalenceGraph> adjacentGraphs,
+            Set<Publisher> sources
+    ) throws StoreException {
+        return computeUpdate(
+                subject,
+                subjGraph,
+                adjacentGraphs,
+                updateAdjacencies(
+                        subject,
+                        subjGraph.getAdjacencyList().values(),
+                        adjacentGraphs,
+                        sources
+                )
+        );
+    }
+
+    private int largestGraphSize(EquivalenceGraphUpdate update) {
+        return update.getAllGraphs()
+                .stream()
+                .mapToInt(graph -> graph.getAdjacencyList().size())
+                .max()
+                .orElse(0);
+    }
+
     private EquivalenceGraphUpdate computeUpdate(
             ResourceRef subject,
+            EquivalenceGraph subjGraph,
             Map<ResourceRef, EquivalenceGraph> assertedAdjacentGraphs,
             Map<Id, Adjacents> updatedAdjacents
     ) {
-        Map<Id, EquivalenceGraph> updatedGraphs = computeUpdatedGraphs(updatedAdjacents);
+        Map<Id, EquivalenceGraph> updatedGraphs = computeUpdatedGraphs(
+                updatedAdjacents,
+                Iterables.concat(ImmutableSet.of(subjGraph), assertedAdjacentGraphs.values())
+        );
         EquivalenceGraph updatedGraph = graphFor(subject, updatedGraphs);
 
         return EquivalenceGraphUpdate.builder(updatedGraph)
@@ -467,37 +770,24 @@ public abstract class AbstractEquivalenceGraphStore implements EquivalenceGraphS
         throw new IllegalStateException("Couldn't find updated graph for " + subject);
     }
 
-    private Map<Id, EquivalenceGraph> computeUpdatedGraphs(Map<Id, Adjacents> updatedAdjacents) {
-        Function<Identifiable, Adjacents> toAdjs =
-                Functions.compose(Functions.forMap(updatedAdjacents), Identifiables.toId());
-        Set<Id> seen = Sets.newHashSetWithExpectedSize(updatedAdjacents.size());
-
-        Map<Id, EquivalenceGraph> updated = Maps.newHashMap();
-        for (Adjacents adj : updatedAdjacents.values()) {
-            if (!seen.contains(adj.getId())) {
-                EquivalenceGraph graph = EquivalenceGraph.valueOf(transitiveSet(adj, toAdjs));
-                updated.put(graph.getId(), graph);
-                seen.addAll(graph.getEquivalenceSet());
+    private Map<Id, EquivalenceGraph> computeUpdatedGraphs(
+            Map<Id, Adjacents> updatedAdjacents,
+            Iterable<EquivalenceGraph> previousGraphs
+    ) {
+        Timer.Context time = metricRegistry.timer(updateEquivalences + TIMER_RECOMPUTE).time();
+        try {
+            if (incrementalRecomputation) {
+                Optional<Map<Id, EquivalenceGraph>> updated = EquivalenceGraphComponents
+                        .incremental(updatedAdjacents, previousGraphs);
+                if (updated.isPresent()) {
+                    return updated.get();
+                }
+                metricRegistry.meter(updateEquivalences + METER_FULL_TRAVERSAL).mark();
             }
+            return EquivalenceGraphComponents.traverse(updatedAdjacents);
+        } finally {
+            time.stop();
         }
-        return updated;
-    }
-
-    private Set<Adjacents> transitiveSet(Adjacents adj, Function<Identifiable, Adjacents> toAdjs) {
-        Set<Adjacents> set = Sets.newHashSet();
-        Predicate<Adjacents> notSeen = Predicates.not(Predicates.in(set));
-
-        Queue<Adjacents> work = Lists.newLinkedList();
-        work.add(adj);
-        while (!work.isEmpty()) {
-            Adjacents curr = work.poll();
-            set.add(curr);
-            work.addAll(Collections2.filter(
-                    Collections2.transform(curr.getAdjacent(), toAdjs),
-                    notSeen
-            ));
-        }
-        return set;
     }
 
     private Map<Id, Adjacents> updateAdjacencies(
@@ -641,12 +931,12 @@ public abstract class AbstractEquivalenceGraphStore implements EquivalenceGraphS
     }
 
     private Optional<EquivalenceGraph> existingGraph(ResourceRef subject) throws StoreException {
-        return get(resolveIds(ImmutableSet.of(subject.getId()))).get(subject.getId());
+        return get(resolveIdsForUpdate(ImmutableSet.of(subject.getId()))).get(subject.getId());
     }
 
     private OptionalMap<Id, EquivalenceGraph> existingGraphMaps(Set<ResourceRef> adjacents)
             throws WriteException {
-        return get(resolveIds(Iterables.transform(adjacents, Identifiables.toId())));
+        return get(resolveIdsForUpdate(Iterables.transform(adjacents, Identifiables.toId())));
     }
 
     private <F> F get(ListenableFuture<F> resolved) throws WriteException {
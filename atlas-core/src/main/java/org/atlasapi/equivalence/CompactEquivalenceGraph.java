@@ -0,0 +1,387 @@
+package org.atlasapi.equivalence;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.atlasapi.entity.Id;
+import org.atlasapi.entity.Identifiable;
+import org.atlasapi.entity.ResourceRef;
+import org.atlasapi.equivalence.EquivalenceGraph.Adjacents;
+import org.atlasapi.media.entity.Publisher;
+
+import com.metabroadcast.common.time.DateTimeZones;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.joda.time.DateTime;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p> A read-only {@link EquivalenceGraph} held in primitive arrays. </p>
+ * <p>
+ * <p> Members are kept in a sorted {@code long[]} of ids, with one {@link ResourceRef} each. Edges
+ * are kept as indices into those refs: the outgoing edges of the member at index {@code i} are
+ * {@code outgoing[outgoingOffsets[i]]} up to {@code outgoing[outgoingOffsets[i + 1]]}, and the
+ * same for incoming edges. Edges to resources which are not members of the graph point past the
+ * members, to refs held only for those edges. </p>
+ * <p>
+ * <p> An {@link EquivalenceGraph} holds two maps of refs for every member, so this uses a
+ * fraction of the heap for large graphs. {@link #reachableFrom(Id, Set, Set)} walks the edges by
+ * index and checks members against primitive arrays rather than sets of ids. Since {@link
+ * ResourceRef}s are equal by id, edges to a member share that member's ref. {@link Adjacents}
+ * are built on request, so code which needs the whole adjacency list should use {@link
+ * #toEquivalenceGraph()}. </p>
+ */
+public final class CompactEquivalenceGraph implements Identifiable {
+
+    private final long[] ids;
+    private final long[] created;
+    // members' refs, in id order, followed by the refs of non-member edges
+    private final ResourceRef[] refs;
+    private final int[] outgoingOffsets;
+    private final int[] outgoing;
+    private final int[] incomingOffsets;
+    private final int[] incoming;
+    private final DateTime updated;
+
+    private CompactEquivalenceGraph(
+            long[] ids,
+            long[] created,
+            ResourceRef[] refs,
+            int[] outgoingOffsets,
+            int[] outgoing,
+            int[] incomingOffsets,
+            int[] incoming,
+            DateTime updated
+    ) {
+        this.ids = ids;
+        this.created = created;
+        this.refs = refs;
+        this.outgoingOffsets = outgoingOffsets;
+        this.outgoing = outgoing;
+        this.incomingOffsets = incomingOffsets;
+        this.incoming = incoming;
+        this.updated = updated;
+    }
+
+    public static CompactEquivalenceGraph copyOf(EquivalenceGraph graph) {
+        Builder builder = builder(graph.getUpdated());
+        for (Adjacents adjacents : graph.getAdjacencyList().values()) {
+            builder.addMember(
+                    adjacents.getRef(),
+                    adjacents.getCreated().getMillis(),
+                    ids(adjacents.getOutgoingEdges()),
+                    ids(adjacents.getIncomingEdges())
+            );
+            builder.addEdgeRefs(adjacents.getOutgoingEdges());
+            builder.addEdgeRefs(adjacents.getIncomingEdges());
+        }
+        return builder.build();
+    }
+
+    private static long[] ids(Set<ResourceRef> refs) {
+        return refs.stream().mapToLong(ref -> ref.getId().longValue()).toArray();
+    }
+
+    /**
+     * Builds a graph from its members, without needing a {@link ResourceRef} for every edge.
+     * Refs only need to be added for edges to resources which are not members of the graph.
+     */
+    public static Builder builder(DateTime updated) {
+        return new Builder(updated);
+    }
+
+    /**
+     * The lowest id in the graph, as for {@link EquivalenceGraph#getId()}.
+     */
+    @Override
+    public Id getId() {
+        return Id.valueOf(ids[0]);
+    }
+
+    public DateTime getUpdated() {
+        return updated;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public boolean contains(Id id) {
+        return indexOf(id.longValue()) >= 0;
+    }
+
+    public ImmutableSet<Id> getEquivalenceSet() {
+        ImmutableSet.Builder<Id> equivalenceSet = ImmutableSet.builder();
+        for (long id : ids) {
+            equivalenceSet.add(Id.valueOf(id));
+        }
+        return equivalenceSet.build();
+    }
+
+    /**
+     * @return the ref of the member with {@code id}, or null if it is not a member.
+     */
+    public ResourceRef getRef(Id id) {
+        int index = indexOf(id.longValue());
+        return index < 0 ? null : refs[index];
+    }
+
+    /**
+     * @return the source of the member with {@code id}, or null if it is not a member.
+     */
+    public Publisher getSource(Id id) {
+        ResourceRef ref = getRef(id);
+        return ref == null ? null : ref.getSource();
+    }
+
+    /**
+     * @return the adjacents of the member with {@code id}, or null if it is not a member.
+     */
+    public Adjacents getAdjacents(Id id) {
+        int index = indexOf(id.longValue());
+        if (index < 0) {
+            return null;
+        }
+        return new Adjacents(
+                refs[index],
+                new DateTime(created[index], DateTimeZones.UTC),
+                edgeRefs(outgoingOffsets, outgoing, index),
+                edgeRefs(incomingOffsets, incoming, index)
+        );
+    }
+
+    public EquivalenceGraph toEquivalenceGraph() {
+        ImmutableMap.Builder<Id, Adjacents> adjacencyList = ImmutableMap.builder();
+        for (long id : ids) {
+            adjacencyList.put(Id.valueOf(id), getAdjacents(Id.valueOf(id)));
+        }
+        return new EquivalenceGraph(adjacencyList.build(), updated);
+    }
+
+    /**
+     * <p> Walks the graph from {@code entryId}, as {@link EquivalenceGraphFilter} does. Every
+     * resource adjacent to a visited member is reached, but only members in {@code selectedIds}
+     * whose source is in {@code sources} are visited in turn. The entry member is always visited.
+     * </p>
+     *
+     * @return the ids of all reached resources.
+     */
+    public ImmutableSet<Id> reachableFrom(
+            Id entryId,
+            Set<Publisher> sources,
+            Set<Id> selectedIds
+    ) {
+        int entry = indexOf(entryId.longValue());
+        checkArgument(entry >= 0, "%s is not a member of graph %s", entryId, getId());
+
+        boolean[] selected = new boolean[ids.length];
+        for (Id selectedId : selectedIds) {
+            int index = indexOf(selectedId.longValue());
+            if (index >= 0) {
+                selected[index] = true;
+            }
+        }
+
+        boolean[] reached = new boolean[refs.length];
+        // the entry may be queued a second time through the edge to itself
+        int[] toVisit = new int[ids.length + 1];
+        int visitCount = 0;
+        toVisit[visitCount++] = entry;
+
+        ImmutableSet.Builder<Id> reachedIds = ImmutableSet.builder();
+        while (visitCount > 0) {
+            int visiting = toVisit[--visitCount];
+            for (int direction = 0; direction < 2; direction++) {
+                int[] offsets = direction == 0 ? outgoingOffsets : incomingOffsets;
+                int[] edges = direction == 0 ? outgoing : incoming;
+                for (int i = offsets[visiting]; i < offsets[visiting + 1]; i++) {
+                    int adjacent = edges[i];
+                    if (reached[adjacent]) {
+                        continue;
+                    }
+                    reached[adjacent] = true;
+                    ResourceRef ref = refs[adjacent];
+                    reachedIds.add(ref.getId());
+                    if (adjacent < ids.length
+                            && selected[adjacent]
+                            && sources.contains(ref.getSource())) {
+                        toVisit[visitCount++] = adjacent;
+                    }
+                }
+            }
+        }
+        return reachedIds.build();
+    }
+
+    private ImmutableSet<ResourceRef> edgeRefs(int[] offsets, int[] edges, int index) {
+        ImmutableSet.Builder<ResourceRef> edgeRefs = ImmutableSet.builder();
+        for (int i = offsets[index]; i < offsets[index + 1]; i++) {
+            edgeRefs.add(refs[edges[i]]);
+        }
+        return edgeRefs.build();
+    }
+
+    private int indexOf(long id) {
+        return Arrays.binarySearch(ids, id);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CompactEquivalenceGraph)) {
+            return false;
+        }
+        return toEquivalenceGraph().equals(((CompactEquivalenceGraph) o).toEquivalenceGraph());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(ids);
+    }
+
+    @Override
+    public String toString() {
+        return toEquivalenceGraph().toString();
+    }
+
+    public static final class Builder {
+
+        private final DateTime updated;
+        private final List<Member> members = Lists.newArrayList();
+        private final Map<Long, ResourceRef> edgeRefs = Maps.newHashMap();
+
+        private Builder(DateTime updated) {
+            this.updated = checkNotNull(updated);
+        }
+
+        public Builder addMember(
+                ResourceRef ref,
+                long createdMillis,
+                long[] outgoingIds,
+                long[] incomingIds
+        ) {
+            members.add(new Member(ref, createdMillis, outgoingIds, incomingIds));
+            return this;
+        }
+
+        /**
+         * Adds refs which edges may point to. Only refs of resources which are not members of
+         * the graph are kept.
+         */
+        public Builder addEdgeRefs(Iterable<? extends ResourceRef> refs) {
+            for (ResourceRef ref : refs) {
+                addEdgeRef(ref);
+            }
+            return this;
+        }
+
+        public Builder addEdgeRef(ResourceRef ref) {
+            edgeRefs.putIfAbsent(ref.getId().longValue(), ref);
+            return this;
+        }
+
+        public CompactEquivalenceGraph build() {
+            checkArgument(!members.isEmpty(), "graph has no members");
+            members.sort(Comparator.comparingLong(member -> member.id));
+
+            int memberCount = members.size();
+            long[] ids = new long[memberCount];
+            long[] created = new long[memberCount];
+            List<ResourceRef> refs = Lists.newArrayListWithCapacity(memberCount);
+            for (int i = 0; i < memberCount; i++) {
+                Member member = members.get(i);
+                checkArgument(i == 0 || ids[i - 1] != member.id, "duplicate member %s", member.id);
+                ids[i] = member.id;
+                created[i] = member.createdMillis;
+                refs.add(member.ref);
+            }
+
+            Map<Long, Integer> nonMemberIndices = Maps.newHashMap();
+            int[] outgoingOffsets = new int[memberCount + 1];
+            int[] incomingOffsets = new int[memberCount + 1];
+            for (int i = 0; i < memberCount; i++) {
+                outgoingOffsets[i + 1] = outgoingOffsets[i] + members.get(i).outgoingIds.length;
+                incomingOffsets[i + 1] = incomingOffsets[i] + members.get(i).incomingIds.length;
+            }
+            int[] outgoing = new int[outgoingOffsets[memberCount]];
+            int[] incoming = new int[incomingOffsets[memberCount]];
+            for (int i = 0; i < memberCount; i++) {
+                Member member = members.get(i);
+                for (int j = 0; j < member.outgoingIds.length; j++) {
+                    outgoing[outgoingOffsets[i] + j] = refIndex(
+                            member.outgoingIds[j], ids, refs, nonMemberIndices
+                    );
+                }
+                for (int j = 0; j < member.incomingIds.length; j++) {
+                    incoming[incomingOffsets[i] + j] = refIndex(
+                            member.incomingIds[j], ids, refs, nonMemberIndices
+                    );
+                }
+            }
+
+            return new CompactEquivalenceGraph(
+                    ids,
+                    created,
+                    refs.toArray(new ResourceRef[refs.size()]),
+                    outgoingOffsets,
+                    outgoing,
+                    incomingOffsets,
+                    incoming,
+                    updated
+            );
+        }
+
+        private int refIndex(
+                long id,
+                long[] ids,
+                List<ResourceRef> refs,
+                Map<Long, Integer> nonMemberIndices
+        ) {
+            int index = Arrays.binarySearch(ids, id);
+            if (index >= 0) {
+                return index;
+            }
+            Integer nonMemberIndex = nonMemberIndices.get(id);
+            if (nonMemberIndex == null) {
+                ResourceRef ref = edgeRefs.get(id);
+                checkArgument(ref != null, "no ref for edge to non-member %s", id);
+                nonMemberIndex = refs.size();
+                refs.add(ref);
+                nonMemberIndices.put(id, nonMemberIndex);
+            }
+            return nonMemberIndex;
+        }
+
+        private static final class Member {
+
+            private final ResourceRef ref;
+            private final long id;
+            private final long createdMillis;
+            private final long[] outgoingIds;
+            private final long[] incomingIds;
+
+            private Member(
+                    ResourceRef ref,
+                    long createdMillis,
+                    long[] outgoingIds,
+                    long[] incomingIds
+            ) {
+                this.ref = checkNotNull(ref);
+                this.id = ref.getId().longValue();
+                this.createdMillis = createdMillis;
+                this.outgoingIds = checkNotNull(outgoingIds);
+                this.incomingIds = checkNotNull(incomingIds);
+            }
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package org.atlasapi.equivalence;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import org.atlasapi.entity.Id;
+import org.atlasapi.entity.Identifiable;
+import org.atlasapi.entity.Identifiables;
+import org.atlasapi.entity.ResourceRef;
+import org.atlasapi.equivalence.EquivalenceGraph.Adjacents;
+
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.Collections2;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Splits an updated set of {@link Adjacents} into the {@link EquivalenceGraph}s they form.
+ * <p>
+ * {@link #traverse(Map)} walks every resource to find the graphs. {@link #incremental(Map,
+ * Iterable)} starts from the graphs before the update instead, which are known to be connected.
+ * Only resources whose adjacents changed are looked at: added edges merge graphs in a union-find
+ * of graphs, and each removed edge is checked by searching from both of its ends at once until
+ * they meet, or until one side runs out, when that side is split off. Removing an edge to a
+ * resource which is still connected some other way, or to a small part of a large graph, costs
+ * far less than walking the whole graph.
+ * <p>
+ * Both give the same graphs as long as every edge is recorded at both of its ends. Asserting an
+ * adjacent from a source which was not part of the assertion records the edge at the subject only,
+ * and then {@link #traverse(Map)} can give overlapping graphs depending on the order in which it
+ * meets resources, so {@link #incremental(Map, Iterable)} returns absent for such updates.
+ */
+final class EquivalenceGraphComponents {
+
+    private EquivalenceGraphComponents() {
+    }
+
+    static Map<Id, EquivalenceGraph> traverse(Map<Id, Adjacents> updatedAdjacents) {
+        Function<Identifiable, Adjacents> toAdjs =
+                Functions.compose(Functions.forMap(updatedAdjacents), Identifiables.toId());
+        Set<Id> seen = Sets.newHashSetWithExpectedSize(updatedAdjacents.size());
+
+        Map<Id, EquivalenceGraph> updated = Maps.newHashMap();
+        for (Adjacents adj : updatedAdjacents.values()) {
+            if (!seen.contains(adj.getId())) {
+                EquivalenceGraph graph = EquivalenceGraph.valueOf(transitiveSet(adj, toAdjs));
+                updated.put(graph.getId(), graph);
+                seen.addAll(graph.getEquivalenceSet());
+            }
+        }
+        return updated;
+    }
+
+    private static Set<Adjacents> transitiveSet(
+            Adjacents adj,
+            Function<Identifiable, Adjacents> toAdjs
+    ) {
+        Set<Adjacents> set = Sets.newHashSet();
+        Predicate<Adjacents> notSeen = Predicates.not(Predicates.in(set));
+
+        Queue<Adjacents> work = Lists.newLinkedList();
+        work.add(adj);
+        while (!work.isEmpty()) {
+            Adjacents curr = work.poll();
+            set.add(curr);
+            work.addAll(Collections2.filter(
+                    Collections2.transform(curr.getAdjacent(), toAdjs),
+                    notSeen
+            ));
+        }
+        return set;
+    }
+
+    /**
+     * @param updatedAdjacents the adjacents of every resource in {@code previousGraphs}, after
+     *                         the update.
+     * @param previousGraphs   the graphs the update was made to, before the update.
+     * @return the graphs, or absent if an edge which changed is recorded at only one of its ends.
+     * @throws IllegalArgumentException if an edge which changed is to a resource not in {@code
+     *                                  updatedAdjacents}.
+     */
+    static Optional<Map<Id, EquivalenceGraph>> incremental(
+            Map<Id, Adjacents> updatedAdjacents,
+            Iterable<EquivalenceGraph> previousGraphs
+    ) {
+        return new Incremental(updatedAdjacents).compute(previousGraphs);
+    }
+
+    private static final class Incremental {
+
+        private final Map<Id, Adjacents> updatedAdjacents;
+        private final Map<Id, Integer> labels;
+        private final Map<Id, Set<Id>> adjacentIds;
+        private final UnionFind graphs = new UnionFind();
+
+        private Incremental(Map<Id, Adjacents> updatedAdjacents) {
+            this.updatedAdjacents = updatedAdjacents;
+            this.labels = Maps.newHashMapWithExpectedSize(updatedAdjacents.size());
+            this.adjacentIds = Maps.newHashMap();
+        }
+
+        private Optional<Map<Id, EquivalenceGraph>> compute(
+                Iterable<EquivalenceGraph> previousGraphs
+        ) {
+            Map<Id, Adjacents> previousAdjacents = label(previousGraphs);
+
+            Map<Id, Set<Id>> added = Maps.newHashMap();
+            Map<Id, Set<Id>> removed = Maps.newHashMap();
+            for (Adjacents updated : updatedAdjacents.values()) {
+                Adjacents previous = previousAdjacents.get(updated.getId());
+                if (previous == updated || updated.equals(previous)) {
+                    continue;
+                }
+                Set<Id> updatedIds = adjacentIds(updated.getId());
+                Set<Id> previousIds = previous == null
+                                      ? ImmutableSet.of()
+                                      : ids(previous.getAdjacent());
+                added.put(updated.getId(), Sets.difference(updatedIds, previousIds));
+                removed.put(updated.getId(), Sets.difference(previousIds, updatedIds));
+            }
+
+            for (Map.Entry<Id, Set<Id>> edges : added.entrySet()) {
+                for (Id adjacent : edges.getValue()) {
+                    if (!updatedAdjacents.containsKey(adjacent)) {
+                        throw new IllegalArgumentException(
+                                "No adjacents for " + adjacent + " adjacent to " + edges.getKey()
+                        );
+                    }
+                    if (!adjacentIds(adjacent).contains(edges.getKey())) {
+                        return Optional.absent();
+                    }
+                }
+            }
+            for (Map.Entry<Id, Set<Id>> edges : removed.entrySet()) {
+                for (Id adjacent : edges.getValue()) {
+                    if (updatedAdjacents.containsKey(adjacent)
+                            && adjacentIds(adjacent).contains(edges.getKey())) {
+                        return Optional.absent();
+                    }
+                }
+            }
+
+            // splits are found within the previous graphs, before any are merged, so the
+            // searches stay inside the graphs which lost edges
+            for (Map.Entry<Id, Set<Id>> edges : removed.entrySet()) {
+                for (Id adjacent : edges.getValue()) {
+                    if (updatedAdjacents.containsKey(adjacent)) {
+                        splitIfDisconnected(edges.getKey(), adjacent);
+                    }
+                }
+            }
+            for (Map.Entry<Id, Set<Id>> edges : added.entrySet()) {
+                for (Id adjacent : edges.getValue()) {
+                    graphs.union(labels.get(edges.getKey()), labels.get(adjacent));
+                }
+            }
+
+            return Optional.of(build());
+        }
+
+        private Map<Id, Adjacents> label(Iterable<EquivalenceGraph> previousGraphs) {
+            Map<Id, Adjacents> previousAdjacents = Maps.newHashMapWithExpectedSize(
+                    updatedAdjacents.size()
+            );
+            for (EquivalenceGraph graph : previousGraphs) {
+                int label = graphs.add();
+                for (Adjacents adjacents : graph.getAdjacencyList().values()) {
+                    Integer existing = labels.putIfAbsent(adjacents.getId(), label);
+                    if (existing == null) {
+                        previousAdjacents.put(adjacents.getId(), adjacents);
+                    } else {
+                        // graphs which overlapped before the update stay together
+                        graphs.union(existing, label);
+                    }
+                }
+            }
+            for (Id id : updatedAdjacents.keySet()) {
+                if (!labels.containsKey(id)) {
+                    labels.put(id, graphs.add());
+                }
+            }
+            return previousAdjacents;
+        }
+
+        /**
+         * Searches from both ends of a removed edge, one resource at a time from each, within
+         * their graph. If they meet they are still connected. Otherwise the side which ran out
+         * first is everything left connected to its end, and becomes a graph of its own.
+         */
+        private void splitIfDisconnected(Id from, Id to) {
+            int graph = graphs.find(labels.get(from));
+            if (from.equals(to) || graphs.find(labels.get(to)) != graph) {
+                return;
+            }
+
+            Queue<Id> fromQueue = new ArrayDeque<>();
+            Queue<Id> toQueue = new ArrayDeque<>();
+            Set<Id> fromSeen = Sets.newHashSet(from);
+            Set<Id> toSeen = Sets.newHashSet(to);
+            fromQueue.add(from);
+            toQueue.add(to);
+
+            while (!fromQueue.isEmpty() && !toQueue.isEmpty()) {
+                if (visitNext(fromQueue, fromSeen, toSeen, graph)
+                        || visitNext(toQueue, toSeen, fromSeen, graph)) {
+                    return;
+                }
+            }
+
+            int split = graphs.add();
+            for (Id id : fromQueue.isEmpty() ? fromSeen : toSeen) {
+                labels.put(id, split);
+            }
+        }
+
+        /**
+         * @return true if the search met the other side.
+         */
+        private boolean visitNext(Queue<Id> queue, Set<Id> seen, Set<Id> otherSeen, int graph) {
+            for (Id adjacent : adjacentIds(queue.poll())) {
+                Integer label = labels.get(adjacent);
+                if (label == null || graphs.find(label) != graph) {
+                    continue;
+                }
+                if (otherSeen.contains(adjacent)) {
+                    return true;
+                }
+                if (seen.add(adjacent)) {
+                    queue.add(adjacent);
+                }
+            }
+            return false;
+        }
+
+        private Set<Id> adjacentIds(Id id) {
+            Set<Id> ids = adjacentIds.get(id);
+            if (ids == null) {
+                ids = ids(updatedAdjacents.get(id).getAdjacent());
+                adjacentIds.put(id, ids);
+            }
+            return ids;
+        }
+
+        private Map<Id, EquivalenceGraph> build() {
+            Map<Integer, ImmutableSet.Builder<Adjacents>> members = Maps.newHashMap();
+            for (Adjacents adjacents : updatedAdjacents.values()) {
+                members.computeIfAbsent(
+                        graphs.find(labels.get(adjacents.getId())),
+                        graph -> ImmutableSet.<Adjacents>builder()
+                ).add(adjacents);
+            }
+
+            Map<Id, EquivalenceGraph> updated = Maps.newHashMapWithExpectedSize(members.size());
+            for (ImmutableSet.Builder<Adjacents> graphMembers : members.values()) {
+                EquivalenceGraph graph = EquivalenceGraph.valueOf(graphMembers.build());
+                updated.put(graph.getId(), graph);
+            }
+            return updated;
+        }
+
+        private static Set<Id> ids(Set<ResourceRef> refs) {
+            Set<Id> ids = Sets.newHashSetWithExpectedSize(refs.size());
+            for (ResourceRef ref : refs) {
+                ids.add(ref.getId());
+            }
+            return ids;
+        }
+    }
+
+    private static final class UnionFind {
+
+        private int[] parents = new int[16];
+        private int size = 0;
+
+        private int add() {
+            if (size == parents.length) {
+                parents = Arrays.copyOf(parents, size * 2);
+            }
+            parents[size] = size;
+            return size++;
+        }
+
+        private int find(int element) {
+            while (parents[element] != element) {
+                parents[element] = parents[parents[element]];
+                element = parents[element];
+            }
+            return element;
+        }
+
+        private void union(int first, int second) {
+            int firstRoot = find(first);
+            int secondRoot = find(second);
+            if (firstRoot != secondRoot) {
+                parents[Math.max(firstRoot, secondRoot)] = Math.min(firstRoot, secondRoot);
+            }
+        }
+    }
+}
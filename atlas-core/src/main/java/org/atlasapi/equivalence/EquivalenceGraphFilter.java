@@ -29,6 +29,11 @@ public class EquivalenceGraphFilter implements Predicate<Content> {
         this.selectedSources = ImmutableSet.copyOf(builder.selectedSources);
         this.allowUnpublishedIds = ImmutableSet.copyOf(builder.allowUnpublishedIds);
 
+        if (builder.compactGraph.isPresent() && builder.graphEntryId.isPresent()) {
+            this.selectedIds = visitCompactGraph(builder);
+            return;
+        }
+
         if (!builder.graph.isPresent() || !builder.graphEntryId.isPresent()) {
             this.selectedIds = ImmutableSet.copyOf(builder.ids);
             return;
@@ -61,6 +66,26 @@ public class EquivalenceGraphFilter implements Predicate<Content> {
         );
     }
 
+    private static ImmutableSet<Id> visitCompactGraph(Builder builder) {
+        Id graphEntryId = builder.graphEntryId.get();
+        CompactEquivalenceGraph graph = builder.compactGraph.get();
+
+        if (!builder.ids.contains(graphEntryId)) {
+            return ImmutableSet.of();
+        }
+
+        if (!graph.contains(graphEntryId)) {
+            log.warn(
+                    "Given entry-point id {} does not exist in graph {}",
+                    graphEntryId,
+                    graph.getId()
+            );
+            return ImmutableSet.copyOf(builder.ids);
+        }
+
+        return graph.reachableFrom(graphEntryId, builder.selectedGraphSources, builder.ids);
+    }
+
     public static GraphEntryIdStep builder() {
         return new Builder();
     }
@@ -117,6 +142,8 @@ public class EquivalenceGraphFilter implements Predicate<Content> {
     public interface GraphStep {
 
         SelectedSourcesStep withGraph(Optional<EquivalenceGraph> graph);
+
+        SelectedSourcesStep withCompactGraph(Optional<CompactEquivalenceGraph> graph);
     }
 
     public interface SelectedSourcesStep {
@@ -149,7 +176,8 @@ public class EquivalenceGraphFilter implements Predicate<Content> {
             IdsStep, AllowUnpublishedIdsStep, BuildStep {
 
         private Optional<Id> graphEntryId;
-        private Optional<EquivalenceGraph> graph;
+        private Optional<EquivalenceGraph> graph = Optional.empty();
+        private Optional<CompactEquivalenceGraph> compactGraph = Optional.empty();
         private Set<Publisher> selectedSources;
         private Set<Publisher> selectedGraphSources;
         private Set<Id> ids;
@@ -173,6 +201,16 @@ public class EquivalenceGraphFilter implements Predicate<Content> {
             return this;
         }
 
+        /**
+         * As {@link #withGraph(Optional)}, traversing the compact form of the graph rather than
+         * its adjacency list
+         */
+        @Override
+        public SelectedSourcesStep withCompactGraph(Optional<CompactEquivalenceGraph> graph) {
+            this.compactGraph = graph;
+            return this;
+        }
+
         /**
          * The sources for which we should return content. Any content with a source not on this
          * list will be filtered out
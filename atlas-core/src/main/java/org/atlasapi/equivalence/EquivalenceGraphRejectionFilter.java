@@ -9,6 +9,8 @@ import com.google.common.collect.ImmutableSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 /**
  * This filter inspects the size of the equivalence graph in the update and decides whether to
  * allow the update to be persisted or whether to reject it. This is to avoid downstream problems
@@ -22,6 +24,12 @@ import org.slf4j.LoggerFactory;
  * If they are also over the rejection threshold and the biggest graph in the update is bigger than
  * the biggest existing graph in that set then it will emit a rejection. This is to avoid
  * rejecting updates on already large graphs that would make them smaller.
+ * <p>
+ * If dropping oversized edges is enabled, the store does not reject an update outright but applies
+ * as much of it as stays under the rejection threshold, dropping the asserted edges that would
+ * join the subject's graph to others and take it over. Dropped edges are not stored: they are
+ * only logged and kept among the store's most recent {@link RejectedGraphUpdates}, and are only
+ * applied if equivalence asserts them again once the graphs allow it.
  */
 public class EquivalenceGraphRejectionFilter {
 
@@ -29,14 +37,46 @@ public class EquivalenceGraphRejectionFilter {
             EquivalenceGraphRejectionFilter.class
     );
 
-    private static final int GRAPH_SIZE_ALERTING_THRESHOLD = 150;
-    private static final int GRAPH_SIZE_REJECTING_THRESHOLD = 250;
+    public static final int DEFAULT_ALERTING_THRESHOLD = 150;
+    public static final int DEFAULT_REJECTING_THRESHOLD = 250;
+
+    private final int alertingThreshold;
+    private final int rejectingThreshold;
+    private final boolean dropOversizedEdges;
 
-    private EquivalenceGraphRejectionFilter() {
+    private EquivalenceGraphRejectionFilter(
+            int alertingThreshold,
+            int rejectingThreshold,
+            boolean dropOversizedEdges
+    ) {
+        checkArgument(alertingThreshold > 0, "alerting threshold must be positive");
+        checkArgument(
+                rejectingThreshold >= alertingThreshold,
+                "rejecting threshold must not be below the alerting threshold"
+        );
+        this.alertingThreshold = alertingThreshold;
+        this.rejectingThreshold = rejectingThreshold;
+        this.dropOversizedEdges = dropOversizedEdges;
     }
 
     public static EquivalenceGraphRejectionFilter create() {
-        return new EquivalenceGraphRejectionFilter();
+        return create(DEFAULT_ALERTING_THRESHOLD, DEFAULT_REJECTING_THRESHOLD, false);
+    }
+
+    public static EquivalenceGraphRejectionFilter create(
+            int alertingThreshold,
+            int rejectingThreshold,
+            boolean dropOversizedEdges
+    ) {
+        return new EquivalenceGraphRejectionFilter(
+                alertingThreshold,
+                rejectingThreshold,
+                dropOversizedEdges
+        );
+    }
+
+    public boolean dropsOversizedEdges() {
+        return dropOversizedEdges;
     }
 
     public Decision shouldReject(
@@ -69,7 +109,7 @@ public class EquivalenceGraphRejectionFilter {
         ImmutableList<EquivalenceGraph> graphsOverWarningThreshold = graphUpdate.getAllGraphs()
                 .stream()
                 .filter(graph ->
-                        graph.getAdjacencyList().size() > GRAPH_SIZE_ALERTING_THRESHOLD)
+                        graph.getAdjacencyList().size() > alertingThreshold)
                 .collect(MoreCollectors.toImmutableList());
 
         graphsOverWarningThreshold
@@ -83,7 +123,11 @@ public class EquivalenceGraphRejectionFilter {
         return graphsOverWarningThreshold;
     }
 
-    private boolean shouldReject(
+    /**
+     * As {@link #shouldReject(ResourceRef, ImmutableSet, EquivalenceGraphUpdate)}, but only
+     * deciding on rejection, without alerting on large graphs.
+     */
+    boolean shouldReject(
             ImmutableSet<EquivalenceGraph> existingGraphs,
             EquivalenceGraphUpdate graphUpdate
     ) {
@@ -100,7 +144,7 @@ public class EquivalenceGraphRejectionFilter {
 
         // Reject if the largest graph is greater than the threshold and if this update won't make
         // the largest of the pre-existing graphs smaller
-        return largestUpdatedGraph > GRAPH_SIZE_REJECTING_THRESHOLD
+        return largestUpdatedGraph > rejectingThreshold
                 && largestUpdatedGraph >= largestExistingGraph;
     }
 
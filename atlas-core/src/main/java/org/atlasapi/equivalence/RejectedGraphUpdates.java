@@ -0,0 +1,179 @@
+package org.atlasapi.equivalence;
+
+import java.util.Deque;
+
+import org.atlasapi.entity.Id;
+
+import com.metabroadcast.common.stream.MoreCollectors;
+
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Queues;
+import org.joda.time.DateTime;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p> Keeps the most recent equivalence updates that the {@link EquivalenceGraphRejectionFilter}
+ * rejected, or applied only after dropping some of their edges, so that they can be inspected
+ * without searching logs. Only the most recent are kept, in memory: dropped edges are not
+ * persisted anywhere else. </p>
+ * <p>
+ * <p> Like {@link org.atlasapi.locks.ContendedIds}, this is registered as a {@link Metric} so that
+ * it can be found alongside the store's other metrics. </p>
+ */
+public final class RejectedGraphUpdates implements Metric {
+
+    private final int capacity;
+    // guarded by this
+    private final Deque<Rejected> recent;
+
+    private RejectedGraphUpdates(int capacity) {
+        checkArgument(capacity > 0, "capacity must be positive");
+        this.capacity = capacity;
+        this.recent = Queues.newArrayDeque();
+    }
+
+    /**
+     * Returns the {@code RejectedGraphUpdates} registered under {@code name}, registering a new
+     * one if there is none.
+     */
+    public static RejectedGraphUpdates getOrRegister(
+            MetricRegistry metricRegistry,
+            String name,
+            int capacity
+    ) {
+        Metric existing = metricRegistry.getMetrics().get(name);
+        if (existing == null) {
+            try {
+                return metricRegistry.register(name, new RejectedGraphUpdates(capacity));
+            } catch (IllegalArgumentException e) {
+                // registered concurrently
+                existing = metricRegistry.getMetrics().get(name);
+            }
+        }
+        checkArgument(
+                existing instanceof RejectedGraphUpdates,
+                "%s is already registered as a different metric",
+                name
+        );
+        return (RejectedGraphUpdates) existing;
+    }
+
+    public synchronized void record(Rejected rejected) {
+        if (recent.size() == capacity) {
+            recent.removeLast();
+        }
+        recent.addFirst(checkNotNull(rejected));
+    }
+
+    /**
+     * @return up to {@code limit} updates, most recent first.
+     */
+    public synchronized ImmutableList<Rejected> mostRecent(int limit) {
+        return recent.stream()
+                .limit(limit)
+                .collect(MoreCollectors.toImmutableList());
+    }
+
+    public enum Outcome {
+        REJECTED,
+        EDGES_DROPPED
+    }
+
+    public static final class Rejected {
+
+        private final Id subject;
+        private final ImmutableSet<Id> asserted;
+        private final ImmutableSet<Id> droppedEdges;
+        private final int graphSize;
+        private final Outcome outcome;
+        private final DateTime time;
+
+        private Rejected(
+                Id subject,
+                ImmutableSet<Id> asserted,
+                ImmutableSet<Id> droppedEdges,
+                int graphSize,
+                Outcome outcome,
+                DateTime time
+        ) {
+            this.subject = checkNotNull(subject);
+            this.asserted = checkNotNull(asserted);
+            this.droppedEdges = checkNotNull(droppedEdges);
+            this.graphSize = graphSize;
+            this.outcome = checkNotNull(outcome);
+            this.time = checkNotNull(time);
+        }
+
+        /**
+         * @param graphSize the size of the largest graph the whole update would have made.
+         */
+        public static Rejected rejected(
+                Id subject,
+                ImmutableSet<Id> asserted,
+                int graphSize,
+                DateTime time
+        ) {
+            return new Rejected(
+                    subject,
+                    asserted,
+                    ImmutableSet.of(),
+                    graphSize,
+                    Outcome.REJECTED,
+                    time
+            );
+        }
+
+        /**
+         * @param graphSize the size of the largest graph the whole update would have made.
+         */
+        public static Rejected edgesDropped(
+                Id subject,
+                ImmutableSet<Id> asserted,
+                ImmutableSet<Id> droppedEdges,
+                int graphSize,
+                DateTime time
+        ) {
+            return new Rejected(
+                    subject,
+                    asserted,
+                    droppedEdges,
+                    graphSize,
+                    Outcome.EDGES_DROPPED,
+                    time
+            );
+        }
+
+        public Id getSubject() {
+            return subject;
+        }
+
+        public ImmutableSet<Id> getAsserted() {
+            return asserted;
+        }
+
+        /**
+         * @return the asserted ids whose edges were not applied. Empty if the update was
+         * rejected outright.
+         */
+        public ImmutableSet<Id> getDroppedEdges() {
+            return droppedEdges;
+        }
+
+        public int getGraphSize() {
+            return graphSize;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        public DateTime getTime() {
+            return time;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.google.common.base.Predicates;
 import com.google.common.collect.ForwardingSetMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
@@ -12,6 +13,7 @@ import org.atlasapi.entity.Identifiable;
 
 import javax.annotation.Nullable;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
@@ -30,14 +32,24 @@ public class ResolvedEquivalents<E extends Equivalable<E>> extends ForwardingSet
     public static class Builder<E extends Equivalable<E>> {
 
         private ImmutableSetMultimap.Builder<Id, E> entries = ImmutableSetMultimap.builder();
+        private ImmutableMap.Builder<Id, Long> versions = ImmutableMap.builder();
 
         public Builder<E> putEquivalents(Id key, Iterable<? extends E> equivalentSet) {
             this.entries.putAll(key, setEquivalentToFields(equivalentSet));
             return this;
         }
 
+        /**
+         * Records the version of the stored equivalent set {@code key} resolved to, for stores
+         * which version their sets.
+         */
+        public Builder<E> putVersion(Id key, long version) {
+            this.versions.put(key, version);
+            return this;
+        }
+
         public ResolvedEquivalents<E> build() {
-            return new ResolvedEquivalents<>(entries.build());
+            return new ResolvedEquivalents<>(entries.build(), versions.build());
         }
 
         private Iterable<E> setEquivalentToFields(Iterable<? extends E> equivalents) {
@@ -62,9 +74,11 @@ public class ResolvedEquivalents<E extends Equivalable<E>> extends ForwardingSet
     }
 
     private SetMultimap<Id, E> entries;
+    private ImmutableMap<Id, Long> versions;
 
-    private ResolvedEquivalents(SetMultimap<Id, E> entries) {
+    private ResolvedEquivalents(SetMultimap<Id, E> entries, ImmutableMap<Id, Long> versions) {
         this.entries = ImmutableSetMultimap.copyOf(entries);
+        this.versions = versions;
     }
 
     @Override
@@ -77,6 +91,15 @@ public class ResolvedEquivalents<E extends Equivalable<E>> extends ForwardingSet
         return (ImmutableSet<E>) super.get(key);
     }
 
+    /**
+     * The version of the stored equivalent set {@code key} resolved to. Sets are only rewritten
+     * with a new version, so together with the set this identifies its content, e.g. for use in
+     * cache keys. Absent when the store does not version its sets.
+     */
+    public Optional<Long> getVersion(Id key) {
+        return Optional.ofNullable(versions.get(key));
+    }
+
     public final Iterable<E> getFirstElems() {
         return asMap().values()
                 .stream()
@@ -86,7 +109,7 @@ public class ResolvedEquivalents<E extends Equivalable<E>> extends ForwardingSet
 
     @SuppressWarnings({ "unchecked", "rawtypes" })
     private static final ResolvedEquivalents<?> EMPTY_INSTANCE
-            = new ResolvedEquivalents(ImmutableSetMultimap.<Id, Object>of());
+            = new ResolvedEquivalents(ImmutableSetMultimap.<Id, Object>of(), ImmutableMap.of());
 
     @SuppressWarnings("unchecked")
     public static <E extends Equivalable<E>> ResolvedEquivalents<E> empty() {
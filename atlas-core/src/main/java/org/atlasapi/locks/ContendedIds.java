@@ -0,0 +1,120 @@
+package org.atlasapi.locks;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.metabroadcast.common.stream.MoreCollectors;
+
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * <p> Approximates the ids a lock most often found already locked, in a fixed amount of space.
+ * </p>
+ * <p>
+ * <p> Uses the Space-Saving algorithm: once {@code capacity} ids are being tracked, a new id
+ * replaces the least contended one and inherits its count. Counts may therefore over-estimate, but
+ * any id contended more than {@code 1 / capacity} of the time is always reported. </p>
+ * <p>
+ * <p> This is registered as a {@link Metric} so that it can be found alongside the lock's other
+ * metrics. Reporters ignore it, as it is not one of the standard metric types. </p>
+ */
+public final class ContendedIds<T> implements Metric {
+
+    private final int capacity;
+    // guarded by this
+    private final Map<T, Long> counts = Maps.newHashMap();
+
+    private ContendedIds(int capacity) {
+        checkArgument(capacity > 0, "capacity must be positive");
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns the {@code ContendedIds} registered under {@code name}, registering a new one if
+     * there is none.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ContendedIds<T> getOrRegister(
+            MetricRegistry metricRegistry,
+            String name,
+            int capacity
+    ) {
+        Metric existing = metricRegistry.getMetrics().get(name);
+        if (existing == null) {
+            try {
+                return metricRegistry.register(name, new ContendedIds<T>(capacity));
+            } catch (IllegalArgumentException e) {
+                // registered concurrently
+                existing = metricRegistry.getMetrics().get(name);
+            }
+        }
+        checkArgument(
+                existing instanceof ContendedIds,
+                "%s is already registered as a different metric",
+                name
+        );
+        return (ContendedIds<T>) existing;
+    }
+
+    public synchronized void record(T id) {
+        Long count = counts.get(id);
+        if (count != null) {
+            counts.put(id, count + 1);
+        } else if (counts.size() < capacity) {
+            counts.put(id, 1L);
+        } else {
+            long least = evictLeastContended();
+            counts.put(id, least + 1);
+        }
+    }
+
+    private long evictLeastContended() {
+        Iterator<Map.Entry<T, Long>> entries = counts.entrySet().iterator();
+        Map.Entry<T, Long> least = entries.next();
+        while (entries.hasNext()) {
+            Map.Entry<T, Long> entry = entries.next();
+            if (entry.getValue() < least.getValue()) {
+                least = entry;
+            }
+        }
+        counts.remove(least.getKey());
+        return least.getValue();
+    }
+
+    /**
+     * @return up to {@code limit} ids, most contended first.
+     */
+    public synchronized ImmutableList<Contended<T>> mostContended(int limit) {
+        return counts.entrySet()
+                .stream()
+                .sorted(Comparator.comparing(Map.Entry<T, Long>::getValue).reversed())
+                .limit(limit)
+                .map(entry -> new Contended<>(entry.getKey(), entry.getValue()))
+                .collect(MoreCollectors.toImmutableList());
+    }
+
+    public static final class Contended<T> {
+
+        private final T id;
+        private final long count;
+
+        private Contended(T id, long count) {
+            this.id = id;
+            this.count = count;
+        }
+
+        public T getId() {
+            return id;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+}
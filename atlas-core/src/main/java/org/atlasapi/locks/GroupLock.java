@@ -1,13 +1,18 @@
 package org.atlasapi.locks;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import com.codahale.metrics.Counter;
 import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Ordering;
-import com.google.common.collect.Sets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,14 +24,29 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * <p>
  * <p> This is not re-entrant: if the same thread attempts to lock the same value(s) twice it will
  * block until interrupted. </p>
+ * <p>
+ * <p> Alongside its own metrics the lock records, under its metric prefix, how long threads wait
+ * for values which are already locked ({@code timer.lockWait}), how long each value is held
+ * ({@code timer.lockHold}), how often a value is found already locked ({@code meter.contended})
+ * and which values are found locked most often ({@code contendedIds}, a {@link ContendedIds}).
+ * </p>
  *
  * @param <T> - the type on which the lock acts.
  */
 public final class GroupLock<T> {
 
+    private static final int DEFAULT_STRIPES = 1024;
+    private static final int CONTENDED_IDS_CAPACITY = 100;
+
     private final Histogram idsLocked;
     private final Counter threadsLocked;
+    private final Timer lockWait;
+    private final Timer lockHold;
+    private final Meter contended;
+    private final ContendedIds<T> contendedIds;
 
+    // when each currently locked value was acquired
+    private final ConcurrentMap<T, Long> heldSince = Maps.newConcurrentMap();
 
     /**
      * Creates a new lock which uses the natural ordering of the value type to determine the order
@@ -39,25 +59,106 @@ public final class GroupLock<T> {
             String metricPrefix
     ) {
         return new GroupLock<C>(
+                new MonitorLockTable<>(),
+                Ordering.natural(),
+                metricRegistry,
+                metricPrefix
+        );
+    }
+
+    /**
+     * Creates a new striped lock with a default number of stripes.
+     *
+     * @return a new GroupLock
+     * @see #striped(int, MetricRegistry, String)
+     */
+    public static <C extends Comparable<? super C>> GroupLock<C> striped(
+            MetricRegistry metricRegistry,
+            String metricPrefix
+    ) {
+        return striped(DEFAULT_STRIPES, metricRegistry, metricPrefix);
+    }
+
+    /**
+     * <p> Creates a new lock which, like {@link #natural(MetricRegistry, String)}, acquires locks
+     * on values in their natural order, but which keeps a separate queue of waiting threads for
+     * each locked value. </p>
+     * <p>
+     * <p> Unlocking a value wakes only the thread which has waited longest for that value, rather
+     * than every waiting thread, and threads are granted a value in the order they asked for it.
+     * Values are spread over {@code stripes} internal locks, which are never held whilst a thread
+     * waits. </p>
+     *
+     * @return a new GroupLock
+     */
+    public static <C extends Comparable<? super C>> GroupLock<C> striped(
+            int stripes,
+            MetricRegistry metricRegistry,
+            String metricPrefix
+    ) {
+        return new GroupLock<C>(
+                new StripedLockTable<>(stripes),
                 Ordering.natural(),
                 metricRegistry,
                 metricPrefix
         );
     }
 
-    private final Set<T> locked = Sets.newHashSet();
+    /**
+     * The kinds of lock a store can be configured to take on its values.
+     */
+    public enum Type {
+
+        /**
+         * @see GroupLock#natural(MetricRegistry, String)
+         */
+        NATURAL,
+
+        /**
+         * @see GroupLock#striped(MetricRegistry, String)
+         */
+        STRIPED;
+
+        /**
+         * @param key the case-insensitive name of a type, e.g. {@code natural}
+         */
+        public static Type fromKey(String key) {
+            return valueOf(key.trim().toUpperCase(Locale.ENGLISH));
+        }
+
+        public <C extends Comparable<? super C>> GroupLock<C> create(
+                MetricRegistry metricRegistry,
+                String metricPrefix
+        ) {
+            return this == STRIPED
+                   ? striped(metricRegistry, metricPrefix)
+                   : natural(metricRegistry, metricPrefix);
+        }
+    }
+
+    private final LockTable<T> locked;
     private final Logger log = LoggerFactory.getLogger(GroupLock.class);
     private final Ordering<? super T> ordering;
 
     private GroupLock(
+            LockTable<T> locked,
             Ordering<? super T> ordering,
             MetricRegistry metricRegistry,
             String metricPrefix
     ) {
+        this.locked = checkNotNull(locked);
         this.ordering = ordering;
 
         this.idsLocked = metricRegistry.histogram(checkNotNull(metricPrefix) + "histogram.idsLocked");
         this.threadsLocked = metricRegistry.counter(checkNotNull(metricPrefix) + "counter.threadsLocked");
+        this.lockWait = metricRegistry.timer(metricPrefix + "timer.lockWait");
+        this.lockHold = metricRegistry.timer(metricPrefix + "timer.lockHold");
+        this.contended = metricRegistry.meter(metricPrefix + "meter.contended");
+        this.contendedIds = ContendedIds.getOrRegister(
+                metricRegistry,
+                metricPrefix + "contendedIds",
+                CONTENDED_IDS_CAPACITY
+        );
 
     }
 
@@ -91,10 +192,12 @@ public final class GroupLock<T> {
      */
     public void unlock(T id) {
         log.trace("{} trying to unlock {}", Thread.currentThread().getName(), id.toString());
-        synchronized (locked) {
-            if (locked.remove(id)) {
-                log.trace("{} unlocked {}", Thread.currentThread().getName(), id.toString());
-                locked.notifyAll();
+        // cleared before unlocking, as the value may be handed straight to another thread
+        Long acquired = heldSince.remove(id);
+        if (locked.unlock(id)) {
+            log.trace("{} unlocked {}", Thread.currentThread().getName(), id.toString());
+            if (acquired != null) {
+                lockHold.update(System.nanoTime() - acquired, TimeUnit.NANOSECONDS);
             }
         }
     }
@@ -176,33 +279,37 @@ public final class GroupLock<T> {
 
     private void lockInternal(T id) throws InterruptedException {
         log.trace("{} trying to lock {}", Thread.currentThread().getName(), id.toString());
-        synchronized (locked) {
-            while (locked.contains(id)) {
-                log.trace(
-                        "{} waiting on lock for {}",
-                        Thread.currentThread().getName(),
-                        id.toString()
-                );
-                locked.wait();
+        if (!locked.tryLock(id)) {
+            log.trace("{} waiting on lock for {}", Thread.currentThread().getName(), id.toString());
+            contended(id);
+            Timer.Context waiting = lockWait.time();
+            try {
+                locked.lock(id);
+            } finally {
+                waiting.stop();
             }
-            log.trace("{} acquired lock for {}", Thread.currentThread().getName(), id.toString());
-            locked.add(id);
         }
+        heldSince.put(id, System.nanoTime());
+        log.trace("{} acquired lock for {}", Thread.currentThread().getName(), id.toString());
     }
 
     private boolean tryLockInternal(T id) throws InterruptedException {
         log.trace("{} trying to lock {}", Thread.currentThread().getName(), id.toString());
-        synchronized (locked) {
-            if(!locked.contains(id)) {
-                locked.add(id);
-                return true;
-            } else {
-                log.trace("{} didnt get lock {}", Thread.currentThread().getName(), id.toString());
-                return false;
-            }
+        if (locked.tryLock(id)) {
+            heldSince.put(id, System.nanoTime());
+            return true;
+        } else {
+            log.trace("{} didnt get lock {}", Thread.currentThread().getName(), id.toString());
+            contended(id);
+            return false;
         }
     }
 
+    private void contended(T id) {
+        contended.mark();
+        contendedIds.record(id);
+    }
+
     private void unlockTill(List<T> orderedIds, T limit) {
         for (T id : orderedIds) {
             if (id == limit) {
@@ -0,0 +1,32 @@
+package org.atlasapi.locks;
+
+/**
+ * The set of values currently locked by a {@link GroupLock}, and the means by which threads wait
+ * for a value to become free.
+ *
+ * @param <T> - the type of the locked values.
+ */
+interface LockTable<T> {
+
+    /**
+     * Lock {@code id}, blocking until it is free.
+     *
+     * @throws InterruptedException thread was interrupted whilst waiting for the lock. The value
+     * is not locked by this thread if this is thrown.
+     */
+    void lock(T id) throws InterruptedException;
+
+    /**
+     * Lock {@code id} if it is free.
+     *
+     * @return true if the value was locked, false otherwise.
+     */
+    boolean tryLock(T id);
+
+    /**
+     * Release {@code id}, if it is locked.
+     *
+     * @return true if the value was locked, false otherwise.
+     */
+    boolean unlock(T id);
+}
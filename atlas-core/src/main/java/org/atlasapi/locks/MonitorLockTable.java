@@ -0,0 +1,42 @@
+package org.atlasapi.locks;
+
+import java.util.Set;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Guards all values with a single monitor. Releasing any value wakes every waiting thread, each
+ * of which re-checks whether the value it wants is now free.
+ */
+final class MonitorLockTable<T> implements LockTable<T> {
+
+    private final Set<T> locked = Sets.newHashSet();
+
+    @Override
+    public void lock(T id) throws InterruptedException {
+        synchronized (locked) {
+            while (locked.contains(id)) {
+                locked.wait();
+            }
+            locked.add(id);
+        }
+    }
+
+    @Override
+    public boolean tryLock(T id) {
+        synchronized (locked) {
+            return locked.add(id);
+        }
+    }
+
+    @Override
+    public boolean unlock(T id) {
+        synchronized (locked) {
+            if (locked.remove(id)) {
+                locked.notifyAll();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.atlasapi.locks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+import com.metabroadcast.common.stream.MoreCollectors;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * <p> Runs work on groups of values one after another, without locking. An alternative to {@link
+ * GroupLock} where the values of a group may only be known after reading state the group
+ * guards. </p>
+ * <p>
+ * <p> Each value has a lane: the queue of work which has entered with it. Work entering with
+ * several values joins all of their lanes, and waits until the work ahead of it in each has
+ * left. Once it has entered, its values share one lane until it leaves, so work on groups which
+ * overlap is never run concurrently, while work on unrelated groups never waits. </p>
+ * <p>
+ * <p> Work may not enter a lane whilst in one, as it would wait on itself. </p>
+ *
+ * @param <T> - the type of the values
+ */
+public final class SerialLanes<T> {
+
+    // the last work to enter with each value, removed when it leaves
+    private final Map<T, Lane> tails = Maps.newHashMap();
+
+    private final Histogram lanesJoined;
+    private final Counter waiting;
+
+    private SerialLanes(MetricRegistry metricRegistry, String metricPrefix) {
+        this.lanesJoined = metricRegistry.histogram(
+                checkNotNull(metricPrefix) + "histogram.lanesJoined"
+        );
+        this.waiting = metricRegistry.counter(metricPrefix + "counter.waiting");
+    }
+
+    public static <T> SerialLanes<T> create(MetricRegistry metricRegistry, String metricPrefix) {
+        return new SerialLanes<>(metricRegistry, metricPrefix);
+    }
+
+    /**
+     * Queues behind all work already entered with any of {@code values}. The returned lane must be
+     * {@link Lane#leave() left}, whether or not it was {@link Lane#await() waited} on.
+     */
+    public Lane enter(Set<T> values) {
+        Lane lane = new Lane(values);
+        Set<Lane> ahead = Sets.newIdentityHashSet();
+        synchronized (tails) {
+            for (T value : lane.values) {
+                Lane previous = tails.put(value, lane);
+                if (previous != null) {
+                    ahead.add(previous);
+                }
+            }
+        }
+        lanesJoined.update(ahead.size());
+        lane.ready = Futures.successfulAsList(ahead.stream()
+                .map(previous -> previous.left)
+                .collect(MoreCollectors.toImmutableList()));
+        return lane;
+    }
+
+    public final class Lane {
+
+        private final ImmutableSet<T> values;
+        private final SettableFuture<Void> left = SettableFuture.create();
+        private ListenableFuture<List<Void>> ready;
+
+        private Lane(Set<T> values) {
+            this.values = ImmutableSet.copyOf(values);
+        }
+
+        /**
+         * Blocks until all work entered ahead of this with any of its values has left.
+         *
+         * @throws InterruptedException thread was interrupted whilst waiting.
+         */
+        public void await() throws InterruptedException {
+            waiting.inc();
+            try {
+                ready.get();
+            } catch (ExecutionException e) {
+                // the futures of lanes ahead are only ever set
+                throw new IllegalStateException(e);
+            } finally {
+                waiting.dec();
+            }
+        }
+
+        /**
+         * Lets work queued behind this run. If the work ahead of this has not yet left, for
+         * example because waiting was interrupted, work behind still waits for it.
+         */
+        public void leave() {
+            synchronized (tails) {
+                for (T value : values) {
+                    tails.remove(value, this);
+                }
+            }
+            ready.addListener(() -> left.set(null), MoreExecutors.directExecutor());
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.atlasapi.locks;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Striped;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Guards each value with one of a fixed number of stripes, and keeps a queue of the threads
+ * waiting for each locked value.
+ * <p>
+ * Releasing a value hands it straight to the thread which has waited on it longest, and wakes
+ * only that thread. Threads waiting on other values are never woken, and a thread calling
+ * {@link #tryLock(Object)} cannot take a value ahead of threads already queued for it. Stripes are
+ * only held while the queue of a value is read or changed, never while waiting, so unrelated
+ * values sharing a stripe do not wait on each other.
+ */
+final class StripedLockTable<T> implements LockTable<T> {
+
+    private final Striped<Lock> stripes;
+    // entries are guarded by the stripe of their key
+    private final ConcurrentMap<T, Queue<Waiter>> locked = Maps.newConcurrentMap();
+
+    StripedLockTable(int stripes) {
+        checkArgument(stripes > 0, "stripes must be positive");
+        this.stripes = Striped.lock(stripes);
+    }
+
+    @Override
+    public void lock(T id) throws InterruptedException {
+        Lock stripe = stripes.get(id);
+        stripe.lock();
+        try {
+            Queue<Waiter> waiters = locked.get(id);
+            if (waiters == null) {
+                locked.put(id, new ArrayDeque<>());
+                return;
+            }
+
+            Waiter waiter = new Waiter(stripe.newCondition());
+            waiters.add(waiter);
+            try {
+                while (!waiter.granted) {
+                    waiter.condition.await();
+                }
+            } catch (InterruptedException e) {
+                if (waiter.granted) {
+                    // the value was handed over before the interrupt was noticed, so pass it on
+                    release(id, waiters);
+                } else {
+                    waiters.remove(waiter);
+                }
+                throw e;
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public boolean tryLock(T id) {
+        Lock stripe = stripes.get(id);
+        stripe.lock();
+        try {
+            return locked.putIfAbsent(id, new ArrayDeque<>()) == null;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    @Override
+    public boolean unlock(T id) {
+        Lock stripe = stripes.get(id);
+        stripe.lock();
+        try {
+            Queue<Waiter> waiters = locked.get(id);
+            if (waiters == null) {
+                return false;
+            }
+            release(id, waiters);
+            return true;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    private void release(T id, Queue<Waiter> waiters) {
+        Waiter next = waiters.poll();
+        if (next == null) {
+            locked.remove(id);
+        } else {
+            next.granted = true;
+            next.condition.signal();
+        }
+    }
+
+    private static final class Waiter {
+
+        private final Condition condition;
+        private boolean granted;
+
+        private Waiter(Condition condition) {
+            this.condition = condition;
+        }
+    }
+}
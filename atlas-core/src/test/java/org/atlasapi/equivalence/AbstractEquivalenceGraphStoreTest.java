@@ -1,8 +1,8 @@
 package org.atlasapi.equivalence;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -18,29 +18,19 @@ import org.atlasapi.entity.Sourced;
 import org.atlasapi.entity.Sourceds;
 import org.atlasapi.entity.util.WriteException;
 import org.atlasapi.equivalence.EquivalenceGraph.Adjacents;
-import org.atlasapi.locks.GroupLock;
 import org.atlasapi.media.entity.Publisher;
 
-import com.metabroadcast.common.collect.ImmutableOptionalMap;
-import com.metabroadcast.common.collect.OptionalMap;
-import com.metabroadcast.common.queue.MessageSender;
-import com.metabroadcast.common.queue.MessagingException;
 import com.metabroadcast.common.stream.MoreCollectors;
 import com.metabroadcast.common.time.DateTimeZones;
 
-import com.codahale.metrics.MetricRegistry;
-import com.google.common.base.Function;
-import com.google.common.base.Functions;
 import com.google.common.base.Optional;
 import com.google.common.collect.ContiguousSet;
 import com.google.common.collect.DiscreteDomain;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import com.google.common.collect.Range;
 import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.Futures;
@@ -52,8 +42,9 @@ import org.joda.time.DateTimeZone;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
 
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.equalTo;
@@ -68,15 +59,25 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+@RunWith(Parameterized.class)
 public class AbstractEquivalenceGraphStoreTest {
 
+    @Parameters(name = "serialLanes: {0}")
+    public static Iterable<Object[]> data() {
+        return Arrays.asList(new Object[][] { { false }, { true } });
+    }
+
     private final Item bbcItem = new Item(Id.valueOf(1), Publisher.BBC);
     private final Item paItem = new Item(Id.valueOf(2), Publisher.PA);
     private final Item itvItem = new Item(Id.valueOf(3), Publisher.ITV);
     private final Item c4Item = new Item(Id.valueOf(4), Publisher.C4);
     private final Item fiveItem = new Item(Id.valueOf(5), Publisher.FIVE);
 
-    private final InMemoryEquivalenceGraphStore store = new InMemoryEquivalenceGraphStore();
+    private final InMemoryEquivalenceGraphStore store;
+
+    public AbstractEquivalenceGraphStoreTest(boolean serialLanes) {
+        this.store = new InMemoryEquivalenceGraphStore(serialLanes, 0);
+    }
 
     @Before
     public void setup() {
@@ -786,71 +787,4 @@ public class AbstractEquivalenceGraphStoreTest {
             return actual.getAdjacencyList();
         }
     }
-
-    private final class InMemoryEquivalenceGraphStore extends AbstractEquivalenceGraphStore {
-
-        private final Logger log = LoggerFactory.getLogger(getClass());
-        private final ConcurrentMap<Id, EquivalenceGraph> store = Maps.newConcurrentMap();
-        private final Function<Id, EquivalenceGraph> storeFn = Functions.forMap(store, null);
-        private final GroupLock<Id> lock = GroupLock.natural(
-                new MetricRegistry(),
-                "InMemoryEquivalenceGraphStore"
-        );
-
-        public InMemoryEquivalenceGraphStore() {
-            super(new MessageSender<EquivalenceGraphUpdateMessage>() {
-
-                @Override
-                public void sendMessage(EquivalenceGraphUpdateMessage message) {
-                    // no-op
-                }
-
-                @Override
-                public void sendMessage(EquivalenceGraphUpdateMessage message,
-                        byte[] partitionKey)
-                        throws MessagingException {
-
-                }
-
-                @Override
-                public void close() throws Exception {
-                    // no-op
-                }
-            },
-                new MetricRegistry(),
-                "test.InMemoryEquivalenceGraphStore."
-            );
-        }
-
-        @Override
-        public ListenableFuture<OptionalMap<Id, EquivalenceGraph>> resolveIds(Iterable<Id> ids) {
-            ImmutableMap.Builder<Id, EquivalenceGraph> result = ImmutableMap.builder();
-            for (Id id : ids) {
-                EquivalenceGraph graph = storeFn.apply(id);
-                if (graph != null) {
-                    result.put(id, graph);
-                }
-            }
-            OptionalMap<Id, EquivalenceGraph> optionalMap = ImmutableOptionalMap.fromMap(result.build());
-            return Futures.immediateFuture(optionalMap);
-        }
-
-        @Override
-        protected void doStore(ImmutableSet<EquivalenceGraph> graphs) {
-            for (EquivalenceGraph graph : graphs) {
-                for (Id id : graph.getEquivalenceSet()) {
-                    store.put(id, graph);
-                }
-            }
-        }
-
-        @Override
-        protected GroupLock<Id> lock() {
-            return lock;
-        }
-
-        protected void cleanGraphAndIndex(Id subjectId) {
-            store.remove(subjectId);
-        }
-    }
 }
@@ -0,0 +1,110 @@
+package org.atlasapi.equivalence;
+
+import org.atlasapi.content.ItemRef;
+import org.atlasapi.entity.Id;
+import org.atlasapi.entity.ResourceRef;
+import org.atlasapi.equivalence.EquivalenceGraph.Adjacents;
+import org.atlasapi.media.entity.Publisher;
+
+import com.metabroadcast.common.time.DateTimeZones;
+
+import com.google.common.collect.ImmutableSet;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class CompactEquivalenceGraphTest {
+
+    private static final DateTime CREATED = new DateTime(2016, 1, 1, 0, 0, DateTimeZones.UTC);
+
+    private final ItemRef paRef = ref(3L, Publisher.PA);
+    private final ItemRef bbcRef = ref(1L, Publisher.BBC);
+    private final ItemRef tedRef = ref(2L, Publisher.TED);
+    // a resource with an edge from the graph which is not itself a member
+    private final ItemRef itvRef = ref(7L, Publisher.ITV);
+
+    private final EquivalenceGraph graph = EquivalenceGraph.valueOf(ImmutableSet.of(
+            adjacents(paRef, ImmutableSet.of(paRef), ImmutableSet.of(paRef, bbcRef, tedRef)),
+            adjacents(bbcRef, ImmutableSet.of(bbcRef, paRef), ImmutableSet.of(bbcRef)),
+            adjacents(tedRef, ImmutableSet.of(tedRef, paRef, itvRef), ImmutableSet.of(tedRef))
+    ));
+
+    @Test
+    public void copyRoundTripsToTheSameGraph() {
+        CompactEquivalenceGraph compact = CompactEquivalenceGraph.copyOf(graph);
+
+        assertThat(compact.toEquivalenceGraph(), is(graph));
+        assertThat(compact.getId(), is(graph.getId()));
+        assertThat(compact.getUpdated(), is(graph.getUpdated()));
+        assertThat(compact.getEquivalenceSet(), is(graph.getEquivalenceSet()));
+        assertThat(compact.size(), is(3));
+    }
+
+    @Test
+    public void resolvesMembersButNotEdgeTargets() {
+        CompactEquivalenceGraph compact = CompactEquivalenceGraph.copyOf(graph);
+
+        assertThat(compact.contains(tedRef.getId()), is(true));
+        assertThat(compact.contains(itvRef.getId()), is(false));
+        assertThat(compact.getSource(bbcRef.getId()), is(Publisher.BBC));
+        assertThat(compact.getSource(itvRef.getId()), is(nullValue()));
+        assertThat(compact.getAdjacents(itvRef.getId()), is(nullValue()));
+
+        Adjacents ted = compact.getAdjacents(tedRef.getId());
+        assertThat(ted, is(graph.getAdjacents(tedRef.getId())));
+        assertThat(ted.getCreated(), is(CREATED));
+        assertThat(
+                ted.getOutgoingEdges(),
+                containsInAnyOrder((ResourceRef) tedRef, paRef, itvRef)
+        );
+    }
+
+    @Test
+    public void reachesAdjacentsOfVisitedMembersOnly() {
+        CompactEquivalenceGraph compact = CompactEquivalenceGraph.copyOf(graph);
+
+        assertThat(
+                compact.reachableFrom(bbcRef.getId(), Publisher.all(), graph.getEquivalenceSet()),
+                containsInAnyOrder(bbcRef.getId(), paRef.getId(), tedRef.getId(), itvRef.getId())
+        );
+        assertThat(
+                compact.reachableFrom(
+                        bbcRef.getId(),
+                        ImmutableSet.of(Publisher.BBC, Publisher.PA),
+                        graph.getEquivalenceSet()
+                ),
+                containsInAnyOrder(bbcRef.getId(), paRef.getId(), tedRef.getId())
+        );
+        assertThat(
+                compact.reachableFrom(
+                        bbcRef.getId(),
+                        Publisher.all(),
+                        ImmutableSet.of(bbcRef.getId())
+                ),
+                containsInAnyOrder(bbcRef.getId(), paRef.getId())
+        );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEdgesToNonMembersWithoutRefs() {
+        CompactEquivalenceGraph.builder(CREATED)
+                .addMember(bbcRef, CREATED.getMillis(), new long[] { 1L, 7L }, new long[] { 1L })
+                .build();
+    }
+
+    private static ItemRef ref(long id, Publisher source) {
+        return new ItemRef(Id.valueOf(id), source, "", CREATED);
+    }
+
+    private static Adjacents adjacents(
+            ResourceRef subject,
+            ImmutableSet<ResourceRef> outgoing,
+            ImmutableSet<ResourceRef> incoming
+    ) {
+        return new Adjacents(subject, CREATED, outgoing, incoming);
+    }
+}
@@ -0,0 +1,207 @@
+package org.atlasapi.equivalence;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.atlasapi.content.ItemRef;
+import org.atlasapi.entity.Id;
+import org.atlasapi.entity.ResourceRef;
+import org.atlasapi.equivalence.EquivalenceGraph.Adjacents;
+import org.atlasapi.media.entity.Publisher;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Checks that incremental recomputation of graphs gives the same updates as walking every
+ * resource, by making the same random assertions against a store using each.
+ */
+public class EquivalenceGraphComponentsTest {
+
+    private static final ImmutableList<Publisher> SOURCES = ImmutableList.of(
+            Publisher.BBC,
+            Publisher.PA,
+            Publisher.ITV,
+            Publisher.C4
+    );
+    private static final int SEEDS = 50;
+    private static final int UPDATES = 300;
+    private static final int RESOURCES = 40;
+
+    private final List<ResourceRef> refs = Lists.newArrayList();
+
+    public EquivalenceGraphComponentsTest() {
+        for (int i = 0; i < RESOURCES; i++) {
+            refs.add(new ItemRef(
+                    Id.valueOf(i + 1),
+                    SOURCES.get(i % SOURCES.size()),
+                    "",
+                    new DateTime(0)
+            ));
+        }
+    }
+
+    @Test
+    public void incrementalUpdatesMatchFullTraversal() throws Exception {
+        for (int seed = 0; seed < SEEDS; seed++) {
+            Random random = new Random(seed);
+            InMemoryEquivalenceGraphStore incremental = store(true);
+            InMemoryEquivalenceGraphStore traversal = store(false);
+
+            for (int update = 0; update < UPDATES; update++) {
+                ResourceRef subject = refs.get(random.nextInt(RESOURCES));
+                Set<ResourceRef> adjacents = randomAdjacents(random, subject);
+                Set<Publisher> sources = sources(random, subject, adjacents);
+
+                String step = String.format("seed %s, update %s", seed, update);
+                assertSameUpdate(
+                        step,
+                        incremental.updateEquivalences(subject, adjacents, sources),
+                        traversal.updateEquivalences(subject, adjacents, sources)
+                );
+            }
+            assertThat(
+                    String.format("seed %s", seed),
+                    adjacencyLists(incremental.store),
+                    is(adjacencyLists(traversal.store))
+            );
+        }
+    }
+
+    @Test
+    public void splitsOffResourcesNoLongerConnected() throws Exception {
+        InMemoryEquivalenceGraphStore store = store(true);
+        Set<Publisher> sources = ImmutableSet.copyOf(SOURCES);
+        ResourceRef a = refs.get(0);
+        ResourceRef b = refs.get(1);
+        ResourceRef c = refs.get(2);
+        ResourceRef d = refs.get(3);
+
+        store.updateEquivalences(a, ImmutableSet.of(b, c), sources);
+        store.updateEquivalences(b, ImmutableSet.of(c, d), sources);
+
+        // c is still connected to a through b
+        EquivalenceGraphUpdate update = store.updateEquivalences(
+                a,
+                ImmutableSet.of(b),
+                sources
+        ).get();
+        assertThat(update.getUpdated().getEquivalenceSet().size(), is(4));
+        assertThat(update.getCreated().isEmpty(), is(true));
+
+        // b is only connected to a through a's own assertion
+        update = store.updateEquivalences(a, ImmutableSet.of(), sources).get();
+        assertThat(update.getUpdated().getEquivalenceSet(), is(ImmutableSet.of(a.getId())));
+        assertThat(
+                update.getCreated().iterator().next().getEquivalenceSet(),
+                is(ImmutableSet.of(b.getId(), c.getId(), d.getId()))
+        );
+    }
+
+    @Test
+    public void assertingAdjacentsFromOtherSourcesMatchesFullTraversal() throws Exception {
+        InMemoryEquivalenceGraphStore incremental = store(true);
+        InMemoryEquivalenceGraphStore traversal = store(false);
+        ResourceRef bbc = refs.get(0);
+        ResourceRef pa = refs.get(1);
+        ResourceRef itv = refs.get(2);
+        // pa is asserted, but the assertion is only for bbc, so pa does not record the edge
+        Set<Publisher> sources = ImmutableSet.of(Publisher.BBC);
+
+        for (InMemoryEquivalenceGraphStore store : ImmutableList.of(incremental, traversal)) {
+            store.updateEquivalences(pa, ImmutableSet.of(itv), ImmutableSet.copyOf(SOURCES));
+        }
+        assertSameUpdate(
+                "one-sided edge",
+                incremental.updateEquivalences(bbc, ImmutableSet.of(pa), sources),
+                traversal.updateEquivalences(bbc, ImmutableSet.of(pa), sources)
+        );
+        assertSameUpdate(
+                "one-sided edge removed",
+                incremental.updateEquivalences(bbc, ImmutableSet.of(), sources),
+                traversal.updateEquivalences(bbc, ImmutableSet.of(), sources)
+        );
+    }
+
+    private Set<ResourceRef> randomAdjacents(Random random, ResourceRef subject) {
+        Set<ResourceRef> adjacents = Sets.newHashSet();
+        int count = random.nextInt(4);
+        while (adjacents.size() < count) {
+            ResourceRef adjacent = refs.get(random.nextInt(RESOURCES));
+            if (!adjacent.equals(subject)) {
+                adjacents.add(adjacent);
+            }
+        }
+        return adjacents;
+    }
+
+    // as the equivalence updaters do, the assertion always covers the sources of the subject and
+    // what it asserts, and sometimes others
+    private Set<Publisher> sources(
+            Random random,
+            ResourceRef subject,
+            Set<ResourceRef> adjacents
+    ) {
+        Set<Publisher> sources = Sets.newHashSet(subject.getSource());
+        for (ResourceRef adjacent : adjacents) {
+            sources.add(adjacent.getSource());
+        }
+        for (Publisher source : SOURCES) {
+            if (random.nextBoolean()) {
+                sources.add(source);
+            }
+        }
+        return sources;
+    }
+
+    private void assertSameUpdate(
+            String step,
+            Optional<EquivalenceGraphUpdate> incremental,
+            Optional<EquivalenceGraphUpdate> traversal
+    ) {
+        assertThat(step, incremental.isPresent(), is(traversal.isPresent()));
+        if (!incremental.isPresent()) {
+            return;
+        }
+        assertThat(
+                step,
+                incremental.get().getUpdated().getAdjacencyList(),
+                is(traversal.get().getUpdated().getAdjacencyList())
+        );
+        assertThat(
+                step,
+                adjacencyLists(incremental.get().getCreated()),
+                is(adjacencyLists(traversal.get().getCreated()))
+        );
+        assertThat(step, incremental.get().getDeleted(), is(traversal.get().getDeleted()));
+    }
+
+    // graphs are stamped with the time they were computed, so they are compared by their
+    // adjacents alone
+    private Set<Map<Id, Adjacents>> adjacencyLists(Iterable<EquivalenceGraph> graphs) {
+        Set<Map<Id, Adjacents>> adjacencyLists = Sets.newHashSet();
+        for (EquivalenceGraph graph : graphs) {
+            adjacencyLists.add(graph.getAdjacencyList());
+        }
+        return adjacencyLists;
+    }
+
+    private Map<Id, Map<Id, Adjacents>> adjacencyLists(Map<Id, EquivalenceGraph> store) {
+        return Maps.transformValues(store, EquivalenceGraph::getAdjacencyList);
+    }
+
+    private InMemoryEquivalenceGraphStore store(boolean incrementalRecomputation) {
+        return new InMemoryEquivalenceGraphStore(false, 0, incrementalRecomputation);
+    }
+}
@@ -0,0 +1,138 @@
+package org.atlasapi.equivalence;
+
+import org.atlasapi.content.ItemRef;
+import org.atlasapi.entity.Id;
+import org.atlasapi.entity.ResourceRef;
+import org.atlasapi.media.entity.Publisher;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class EquivalenceGraphEdgeDroppingTest {
+
+    private static final String REJECTED_UPDATES =
+            "test.InMemoryEquivalenceGraphStore.updateEquivalences.graph.size.rejectedUpdates";
+
+    private final ResourceRef bbc = ref(1L, Publisher.BBC);
+    private final ResourceRef pa = ref(2L, Publisher.PA);
+    private final ResourceRef itv = ref(3L, Publisher.ITV);
+    private final ResourceRef c4 = ref(4L, Publisher.C4);
+    private final ResourceRef five = ref(5L, Publisher.FIVE);
+    private final ResourceRef six = ref(6L, Publisher.BBC);
+    private final ResourceRef seven = ref(7L, Publisher.PA);
+    private final ResourceRef eight = ref(8L, Publisher.FIVE);
+
+    private final ImmutableSet<Publisher> sources = ImmutableSet.of(
+            Publisher.BBC,
+            Publisher.PA,
+            Publisher.ITV,
+            Publisher.C4,
+            Publisher.FIVE
+    );
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    @Test
+    public void dropsEdgesToGraphsThatWouldMakeTheGraphTooLarge() throws Exception {
+        InMemoryEquivalenceGraphStore store = store(true);
+        store.updateEquivalences(bbc, ImmutableSet.of(pa), sources);
+        store.updateEquivalences(itv, ImmutableSet.of(c4), sources);
+
+        Optional<EquivalenceGraphUpdate> update = store.updateEquivalences(
+                bbc,
+                ImmutableSet.of(pa, itv, five),
+                sources
+        );
+
+        assertThat(
+                update.get().getUpdated().getEquivalenceSet(),
+                is(ImmutableSet.of(bbc.getId(), pa.getId(), five.getId()))
+        );
+        assertThat(
+                store.store.get(itv.getId()).getEquivalenceSet(),
+                is(ImmutableSet.of(itv.getId(), c4.getId()))
+        );
+
+        RejectedGraphUpdates.Rejected rejected = rejectedUpdates().mostRecent(1).get(0);
+        assertThat(rejected.getOutcome(), is(RejectedGraphUpdates.Outcome.EDGES_DROPPED));
+        assertThat(rejected.getDroppedEdges(), is(ImmutableSet.of(itv.getId())));
+        assertThat(rejected.getGraphSize(), is(5));
+    }
+
+    @Test
+    public void rejectsTheWholeUpdateWithoutDroppingEdges() throws Exception {
+        InMemoryEquivalenceGraphStore store = store(false);
+        store.updateEquivalences(bbc, ImmutableSet.of(pa), sources);
+        store.updateEquivalences(itv, ImmutableSet.of(c4), sources);
+
+        Optional<EquivalenceGraphUpdate> update = store.updateEquivalences(
+                bbc,
+                ImmutableSet.of(pa, itv, five),
+                sources
+        );
+
+        assertThat(update.isPresent(), is(false));
+        assertThat(
+                store.store.get(bbc.getId()).getEquivalenceSet(),
+                is(ImmutableSet.of(bbc.getId(), pa.getId()))
+        );
+
+        RejectedGraphUpdates.Rejected rejected = rejectedUpdates().mostRecent(1).get(0);
+        assertThat(rejected.getOutcome(), is(RejectedGraphUpdates.Outcome.REJECTED));
+        assertThat(
+                rejected.getAsserted(),
+                is(ImmutableSet.of(pa.getId(), itv.getId(), five.getId()))
+        );
+    }
+
+    @Test
+    public void anAlreadyOversizedAdjacentGraphDoesNotLetOtherEdgesMakeTheGraphTooLarge()
+            throws Exception {
+        InMemoryEquivalenceGraphStore lenient = new InMemoryEquivalenceGraphStore(
+                EquivalenceGraphRejectionFilter.create(100, 100, false),
+                new MetricRegistry()
+        );
+        lenient.updateEquivalences(itv, ImmutableSet.of(c4, six, seven, eight), sources);
+
+        InMemoryEquivalenceGraphStore store = store(true);
+        store.store.putAll(lenient.store);
+        store.updateEquivalences(bbc, ImmutableSet.of(pa), sources);
+        store.updateEquivalences(five, ImmutableSet.of(ref(9L, Publisher.ITV)), sources);
+
+        Optional<EquivalenceGraphUpdate> update = store.updateEquivalences(
+                bbc,
+                ImmutableSet.of(pa, itv, five),
+                sources
+        );
+
+        assertThat(
+                update.get().getUpdated().getEquivalenceSet(),
+                is(ImmutableSet.of(bbc.getId(), pa.getId()))
+        );
+        assertThat(store.store.get(itv.getId()).getEquivalenceSet().size(), is(5));
+
+        RejectedGraphUpdates.Rejected rejected = rejectedUpdates().mostRecent(1).get(0);
+        assertThat(rejected.getOutcome(), is(RejectedGraphUpdates.Outcome.EDGES_DROPPED));
+        assertThat(rejected.getDroppedEdges(), is(ImmutableSet.of(itv.getId(), five.getId())));
+    }
+
+    private InMemoryEquivalenceGraphStore store(boolean dropOversizedEdges) {
+        return new InMemoryEquivalenceGraphStore(
+                EquivalenceGraphRejectionFilter.create(2, 3, dropOversizedEdges),
+                metricRegistry
+        );
+    }
+
+    private RejectedGraphUpdates rejectedUpdates() {
+        return RejectedGraphUpdates.getOrRegister(metricRegistry, REJECTED_UPDATES, 1);
+    }
+
+    private static ResourceRef ref(long id, Publisher source) {
+        return new ItemRef(Id.valueOf(id), source, "", new DateTime(0));
+    }
+}
@@ -1,6 +1,7 @@
 package org.atlasapi.equivalence;
 
 import java.util.Optional;
+import java.util.Set;
 
 import org.atlasapi.content.Item;
 import org.atlasapi.content.ItemRef;
@@ -285,6 +286,55 @@ public class EquivalenceGraphFilterTest {
         );
     }
 
+    @Test
+    public void compactGraphFiltersTheSameAsAdjacencyList() throws Exception {
+        ImmutableList<Item> items = ImmutableList.of(
+                bbcItem, c4Item, huluItem, paItem, tedItem, vimeoItem, itvItem
+        );
+        ImmutableList<Set<Publisher>> graphSources = ImmutableList.of(
+                Publisher.all(),
+                Sets.difference(Publisher.all(), ImmutableSet.of(Publisher.TED)),
+                Sets.difference(Publisher.all(), ImmutableSet.of(Publisher.PA)),
+                ImmutableSet.of()
+        );
+        ImmutableList<Set<Id>> ids = ImmutableList.of(
+                graph.getEquivalenceSet(),
+                Sets.difference(graph.getEquivalenceSet(), ImmutableSet.of(tedItem.getId()))
+        );
+        CompactEquivalenceGraph compactGraph = CompactEquivalenceGraph.copyOf(graph);
+
+        for (Item entry : items) {
+            for (Set<Publisher> sources : graphSources) {
+                for (Set<Id> selectedIds : ids) {
+                    EquivalenceGraphFilter filter = EquivalenceGraphFilter.builder()
+                            .withGraphEntryId(Optional.of(entry.getId()))
+                            .withGraph(Optional.of(graph))
+                            .withSelectedSources(Publisher.all())
+                            .withSelectedGraphSources(sources)
+                            .withIds(selectedIds)
+                            .withAllowUnpublishedIds(ImmutableSet.of())
+                            .build();
+                    EquivalenceGraphFilter compactFilter = EquivalenceGraphFilter.builder()
+                            .withGraphEntryId(Optional.of(entry.getId()))
+                            .withCompactGraph(Optional.of(compactGraph))
+                            .withSelectedSources(Publisher.all())
+                            .withSelectedGraphSources(sources)
+                            .withIds(selectedIds)
+                            .withAllowUnpublishedIds(ImmutableSet.of())
+                            .build();
+
+                    for (Item item : items) {
+                        assertThat(
+                                String.format("%s from %s", item.getId(), entry.getId()),
+                                compactFilter.test(item),
+                                is(filter.test(item))
+                        );
+                    }
+                }
+            }
+        }
+    }
+
     private Item getItem(long id, Publisher source) {
         Item item = new Item(Id.valueOf(id), source);
         item.setThisOrChildLastUpdated(DateTime.now());
@@ -107,6 +107,21 @@ public class EquivalenceGraphRejectionFilterTest {
         assertThat(decision, is(EquivalenceGraphRejectionFilter.Decision.WARN));
     }
 
+    @Test
+    public void returnFailForUpdateWithGraphsOverAConfiguredRejectThreshold() throws Exception {
+        EquivalenceGraphRejectionFilter.Decision decision = EquivalenceGraphRejectionFilter
+                .create(20, 40, false)
+                .shouldReject(
+                        subject,
+                        ImmutableSet.of(getGraphOfSize(10)),
+                        EquivalenceGraphUpdate
+                                .builder(getGraphOfSize(50))
+                                .build()
+                );
+
+        assertThat(decision, is(EquivalenceGraphRejectionFilter.Decision.FAIL));
+    }
+
     private EquivalenceGraph getGraphOfSize(int size) {
         ResourceRef entryPoint = new ItemRef(
                 Id.valueOf(0L),
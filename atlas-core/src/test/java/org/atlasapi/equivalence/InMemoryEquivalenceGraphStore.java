@@ -0,0 +1,130 @@
+package org.atlasapi.equivalence;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.atlasapi.entity.Id;
+import org.atlasapi.locks.GroupLock;
+
+import com.metabroadcast.common.collect.ImmutableOptionalMap;
+import com.metabroadcast.common.collect.OptionalMap;
+import com.metabroadcast.common.queue.MessageSender;
+import com.metabroadcast.common.queue.MessagingException;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+final class InMemoryEquivalenceGraphStore extends AbstractEquivalenceGraphStore {
+
+    final ConcurrentMap<Id, EquivalenceGraph> store = Maps.newConcurrentMap();
+    private final Function<Id, EquivalenceGraph> storeFn = Functions.forMap(store, null);
+    private final GroupLock<Id> lock = GroupLock.natural(
+            new MetricRegistry(),
+            "InMemoryEquivalenceGraphStore"
+    );
+    private final long writeLatencyMicros;
+
+    /**
+     * @param writeLatencyMicros how long each write takes, to stand in for a remote store.
+     */
+    InMemoryEquivalenceGraphStore(boolean serialLanes, long writeLatencyMicros) {
+        this(serialLanes, writeLatencyMicros, true);
+    }
+
+    InMemoryEquivalenceGraphStore(
+            boolean serialLanes,
+            long writeLatencyMicros,
+            boolean incrementalRecomputation
+    ) {
+        this(
+                serialLanes,
+                writeLatencyMicros,
+                incrementalRecomputation,
+                EquivalenceGraphRejectionFilter.create(),
+                new MetricRegistry()
+        );
+    }
+
+    InMemoryEquivalenceGraphStore(
+            EquivalenceGraphRejectionFilter rejectionFilter,
+            MetricRegistry metricRegistry
+    ) {
+        this(false, 0, true, rejectionFilter, metricRegistry);
+    }
+
+    private InMemoryEquivalenceGraphStore(
+            boolean serialLanes,
+            long writeLatencyMicros,
+            boolean incrementalRecomputation,
+            EquivalenceGraphRejectionFilter rejectionFilter,
+            MetricRegistry metricRegistry
+    ) {
+        super(new MessageSender<EquivalenceGraphUpdateMessage>() {
+
+            @Override
+            public void sendMessage(EquivalenceGraphUpdateMessage message) {
+                // no-op
+            }
+
+            @Override
+            public void sendMessage(EquivalenceGraphUpdateMessage message,
+                    byte[] partitionKey)
+                    throws MessagingException {
+
+            }
+
+            @Override
+            public void close() throws Exception {
+                // no-op
+            }
+        },
+                metricRegistry,
+                "test.InMemoryEquivalenceGraphStore.",
+                serialLanes,
+                rejectionFilter,
+                incrementalRecomputation
+        );
+        this.writeLatencyMicros = writeLatencyMicros;
+    }
+
+    @Override
+    public ListenableFuture<OptionalMap<Id, EquivalenceGraph>> resolveIds(Iterable<Id> ids) {
+        ImmutableMap.Builder<Id, EquivalenceGraph> result = ImmutableMap.builder();
+        for (Id id : ImmutableSet.copyOf(ids)) {
+            EquivalenceGraph graph = storeFn.apply(id);
+            if (graph != null) {
+                result.put(id, graph);
+            }
+        }
+        OptionalMap<Id, EquivalenceGraph> optionalMap = ImmutableOptionalMap.fromMap(result.build());
+        return Futures.immediateFuture(optionalMap);
+    }
+
+    @Override
+    protected void doStore(ImmutableSet<EquivalenceGraph> graphs) {
+        if (writeLatencyMicros > 0) {
+            Uninterruptibles.sleepUninterruptibly(writeLatencyMicros, TimeUnit.MICROSECONDS);
+        }
+        for (EquivalenceGraph graph : graphs) {
+            for (Id id : graph.getEquivalenceSet()) {
+                store.put(id, graph);
+            }
+        }
+    }
+
+    @Override
+    protected GroupLock<Id> lock() {
+        return lock;
+    }
+
+    void cleanGraphAndIndex(Id subjectId) {
+        store.remove(subjectId);
+    }
+}
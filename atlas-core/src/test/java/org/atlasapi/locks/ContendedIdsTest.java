@@ -0,0 +1,69 @@
+package org.atlasapi.locks;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class ContendedIdsTest {
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    @Test
+    public void testReportsMostContendedIdsFirst() {
+        ContendedIds<String> ids = ContendedIds.getOrRegister(metricRegistry, "ids", 10);
+        record(ids, "A", 1);
+        record(ids, "B", 3);
+        record(ids, "C", 2);
+
+        assertThat(idsOf(ids.mostContended(2)), is(ImmutableList.of("B", "C")));
+        assertThat(ids.mostContended(1).get(0).getCount(), is(3L));
+    }
+
+    @Test
+    public void testKeepsHeavilyContendedIdsOnceFull() {
+        ContendedIds<String> ids = ContendedIds.getOrRegister(metricRegistry, "ids", 2);
+        record(ids, "hot", 10);
+        for (int i = 0; i < 5; i++) {
+            record(ids, "cold" + i, 1);
+        }
+
+        assertThat(idsOf(ids.mostContended(1)), is(ImmutableList.of("hot")));
+    }
+
+    @Test
+    public void testLocksWithTheSamePrefixShareTheirContendedIds() throws Exception {
+        GroupLock<String> first = GroupLock.striped(metricRegistry, "test.");
+        GroupLock<String> second = GroupLock.striped(metricRegistry, "test.");
+
+        first.lock("A");
+        first.tryLock("A");
+        second.lock("B");
+        second.tryLock("B");
+
+        ContendedIds<String> ids = ContendedIds.getOrRegister(metricRegistry, "test.contendedIds", 1);
+        assertThat(
+                metricRegistry.getMetrics().get("test.contendedIds"),
+                is(sameInstance((Object) ids))
+        );
+        assertThat(ids.mostContended(2).size(), is(2));
+    }
+
+    private static void record(ContendedIds<String> ids, String id, int times) {
+        for (int i = 0; i < times; i++) {
+            ids.record(id);
+        }
+    }
+
+    private static List<String> idsOf(List<ContendedIds.Contended<String>> contended) {
+        return contended.stream()
+                .map(ContendedIds.Contended::getId)
+                .collect(Collectors.toList());
+    }
+}
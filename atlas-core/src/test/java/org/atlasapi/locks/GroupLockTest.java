@@ -1,5 +1,6 @@
 package org.atlasapi.locks;
 
+import java.util.Arrays;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
@@ -9,20 +10,47 @@ import java.util.concurrent.TimeUnit;
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.ImmutableSet;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+@RunWith(Parameterized.class)
 public class GroupLockTest {
 
+    private interface LockFactory {
+
+        GroupLock<String> create(MetricRegistry metricRegistry, String metricPrefix);
+    }
+
+    @Parameters(name = "{0}")
+    public static Iterable<Object[]> data() {
+        return Arrays.asList(new Object[][] {
+                { "natural", (LockFactory) GroupLock::natural },
+                {
+                        "striped",
+                        (LockFactory) (registry, prefix) -> GroupLock.striped(4, registry, prefix) },
+        });
+    }
+
+    @Parameter(0)
+    public String name;
+
+    @Parameter(1)
+    public LockFactory factory;
+
+    private GroupLock<String> newLock(String metricPrefix) {
+        return factory.create(new MetricRegistry(), metricPrefix);
+    }
+
     @Test
     public void testCanLockDifferentThings() throws InterruptedException {
 
-        final org.atlasapi.locks.GroupLock<String> lock = org.atlasapi.locks.GroupLock.<String>natural(
-                new MetricRegistry(),
-                "CanLockDifferentThings"
-        );
+        final GroupLock<String> lock = newLock("CanLockDifferentThings");
 
         lock.lock("A");
 
@@ -48,10 +76,7 @@ public class GroupLockTest {
     @Test
     public void testCantAcquireLockForKeyTwice() throws InterruptedException {
 
-        final org.atlasapi.locks.GroupLock<String> lock = org.atlasapi.locks.GroupLock.<String>natural(
-                new MetricRegistry(),
-                "CantAcquireLockForKeyTwice"
-        );
+        final GroupLock<String> lock = newLock("CantAcquireLockForKeyTwice");
         final CountDownLatch start = new CountDownLatch(1);
         final CountDownLatch latch = new CountDownLatch(1);
 
@@ -79,10 +104,7 @@ public class GroupLockTest {
     @Test
     public void testTryLock() throws InterruptedException {
 
-        final org.atlasapi.locks.GroupLock<String> lock = org.atlasapi.locks.GroupLock.<String>natural(
-                new MetricRegistry(),
-                "TryLock"
-        );
+        final GroupLock<String> lock = newLock("TryLock");
 
         String id = "A";
         assertTrue(lock.tryLock(id));
@@ -94,10 +116,7 @@ public class GroupLockTest {
     @Test
     public void testCantLockGroupWhereOneElementIsLocked() throws InterruptedException {
 
-        final org.atlasapi.locks.GroupLock<String> lock = org.atlasapi.locks.GroupLock.<String>natural(
-                new MetricRegistry(),
-                "CantLockGroupWhereOneElementIsLocked"
-        );
+        final GroupLock<String> lock = newLock("CantLockGroupWhereOneElementIsLocked");
         final CountDownLatch start = new CountDownLatch(1);
         final CountDownLatch latch = new CountDownLatch(1);
 
@@ -125,10 +144,7 @@ public class GroupLockTest {
     @Test
     public void testLocksGroupElementsInOrder() throws InterruptedException {
 
-        final org.atlasapi.locks.GroupLock<String> lock = org.atlasapi.locks.GroupLock.<String>natural(
-                new MetricRegistry(),
-                "LocksGroupElementsInOrder"
-        );
+        final GroupLock<String> lock = newLock("LocksGroupElementsInOrder");
         final CountDownLatch start = new CountDownLatch(1);
         final CountDownLatch one = new CountDownLatch(1);
         final CountDownLatch two = new CountDownLatch(1);
@@ -171,10 +187,7 @@ public class GroupLockTest {
     @Test
     public void testUnlocksAllGroupElementsIfTryLockFailsAGroup() throws InterruptedException {
 
-        final org.atlasapi.locks.GroupLock<String> lock = org.atlasapi.locks.GroupLock.<String>natural(
-                new MetricRegistry(),
-                "UnlocksAllGroupElementsIfTryLockFailsAGroup"
-        );
+        final GroupLock<String> lock = newLock("UnlocksAllGroupElementsIfTryLockFailsAGroup");
         lock.lock("B");
         assertFalse(lock.tryLock(ImmutableSet.of("A", "B", "C")));
         assertTrue(lock.tryLock("A"));
@@ -0,0 +1,78 @@
+package org.atlasapi.locks;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SerialLanesTest {
+
+    private final SerialLanes<String> lanes = SerialLanes.create(new MetricRegistry(), "test.");
+
+    @Test
+    public void testUnrelatedValuesDoNotWait() throws Exception {
+        SerialLanes<String>.Lane first = lanes.enter(ImmutableSet.of("A"));
+        first.await();
+
+        assertTrue(ready(lanes.enter(ImmutableSet.of("B"))));
+    }
+
+    @Test
+    public void testWaitsForWorkAheadInEveryJoinedLane() throws Exception {
+        SerialLanes<String>.Lane a = lanes.enter(ImmutableSet.of("A"));
+        SerialLanes<String>.Lane b = lanes.enter(ImmutableSet.of("B"));
+        SerialLanes<String>.Lane joined = lanes.enter(ImmutableSet.of("A", "B"));
+
+        a.leave();
+        assertFalse(ready(joined));
+        b.leave();
+        assertTrue(ready(joined));
+    }
+
+    @Test
+    public void testJoinedLanesStayJoinedUntilLeft() throws Exception {
+        SerialLanes<String>.Lane joined = lanes.enter(ImmutableSet.of("A", "B"));
+        SerialLanes<String>.Lane a = lanes.enter(ImmutableSet.of("A"));
+        SerialLanes<String>.Lane b = lanes.enter(ImmutableSet.of("B"));
+
+        assertFalse(ready(a));
+        assertFalse(ready(b));
+        joined.leave();
+        assertTrue(ready(a));
+        assertTrue(ready(b));
+    }
+
+    @Test
+    public void testWorkBehindALaneLeftEarlyStillWaitsForWorkAheadOfIt() throws Exception {
+        SerialLanes<String>.Lane first = lanes.enter(ImmutableSet.of("A"));
+        SerialLanes<String>.Lane second = lanes.enter(ImmutableSet.of("A"));
+        SerialLanes<String>.Lane third = lanes.enter(ImmutableSet.of("A"));
+
+        second.leave();
+        assertFalse(ready(third));
+        first.leave();
+        assertTrue(ready(third));
+    }
+
+    private static boolean ready(SerialLanes<String>.Lane lane) throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try {
+                lane.await();
+                ready.countDown();
+            } catch (InterruptedException e) {
+                // not ready
+            }
+        });
+        waiter.setDaemon(true);
+        waiter.start();
+        boolean wasReady = ready.await(200, TimeUnit.MILLISECONDS);
+        waiter.interrupt();
+        return wasReady;
+    }
+}
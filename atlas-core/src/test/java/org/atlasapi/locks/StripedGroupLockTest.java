@@ -0,0 +1,123 @@
+package org.atlasapi.locks;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class StripedGroupLockTest {
+
+    // a single stripe, so every value shares it
+    private final GroupLock<String> lock = GroupLock.striped(1, new MetricRegistry(), "test.");
+
+    @Test
+    public void testWaitersAcquireValueInTheOrderTheyAskedForIt() throws Exception {
+        List<String> acquired = Lists.newCopyOnWriteArrayList();
+        CountDownLatch finish = new CountDownLatch(3);
+
+        lock.lock("A");
+        for (String name : ImmutableList.of("first", "second", "third")) {
+            awaitWaiting(start(() -> {
+                lock.lock("A");
+                acquired.add(name);
+                lock.unlock("A");
+                finish.countDown();
+            }));
+        }
+        lock.unlock("A");
+
+        assertTrue(finish.await(1, TimeUnit.SECONDS));
+        assertThat(acquired, is(ImmutableList.of("first", "second", "third")));
+    }
+
+    @Test
+    public void testUnlockHandsValueToWaiterAheadOfTryLock() throws Exception {
+        CountDownLatch acquired = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        lock.lock("A");
+        awaitWaiting(start(() -> {
+            lock.lock("A");
+            acquired.countDown();
+            release.await();
+            lock.unlock("A");
+        }));
+        lock.unlock("A");
+
+        assertFalse(lock.tryLock("A"));
+        assertTrue(acquired.await(1, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    public void testUnrelatedValueCanBeLockedWhilstSharedStripeHasWaiters() throws Exception {
+        lock.lock("A");
+        awaitWaiting(start(() -> lock.lock("A")));
+
+        assertTrue(lock.tryLock("B"));
+        lock.unlock("B");
+        assertTrue(lock.tryLock("B"));
+    }
+
+    @Test
+    public void testInterruptedWaiterGivesUpItsPlaceInTheQueue() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CountDownLatch acquired = new CountDownLatch(1);
+
+        lock.lock("A");
+        Thread first = start(() -> {
+            try {
+                lock.lock("A");
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+        awaitWaiting(first);
+        awaitWaiting(start(() -> {
+            lock.lock("A");
+            acquired.countDown();
+        }));
+
+        first.interrupt();
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+        lock.unlock("A");
+
+        assertTrue(acquired.await(1, TimeUnit.SECONDS));
+        assertFalse(lock.tryLock("A"));
+    }
+
+    private interface Action {
+
+        void run() throws Exception;
+    }
+
+    private static Thread start(Action action) {
+        Thread thread = new Thread(() -> {
+            try {
+                action.run();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (thread.getState() != Thread.State.WAITING) {
+            assertTrue("thread did not start waiting", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package org.atlasapi.system.debug;
 import org.atlasapi.AtlasPersistenceModule;
 import org.atlasapi.application.ApplicationFetcher;
 import org.atlasapi.application.www.ApplicationWebModule;
+import org.atlasapi.system.ProcessingMetricsModule;
 import org.atlasapi.system.bootstrap.workers.DirectAndExplicitEquivalenceMigrator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
@@ -22,6 +23,9 @@ public class DebugModule {
     @Autowired
     private ApplicationFetcher applicationFetcher;
 
+    @Autowired
+    private ProcessingMetricsModule metricsModule;
+
     @Bean
     public ContentDebugController contentDebugController() {
         return ContentDebugController.builder()
@@ -57,6 +61,16 @@ public class DebugModule {
         );
     }
 
+    @Bean
+    public LockDebugController lockDebugController() {
+        return LockDebugController.create(metricsModule.metrics());
+    }
+
+    @Bean
+    public GraphSizeDebugController graphSizeDebugController() {
+        return GraphSizeDebugController.create(metricsModule.metrics());
+    }
+
     private DirectAndExplicitEquivalenceMigrator explicitEquivalenceMigrator() {
         return DirectAndExplicitEquivalenceMigrator.create(
                 persistenceModule.legacyContentResolver(),
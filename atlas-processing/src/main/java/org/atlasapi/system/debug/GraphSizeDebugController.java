@@ -0,0 +1,148 @@
+package org.atlasapi.system.debug;
+
+import java.util.Map;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.atlasapi.entity.Id;
+import org.atlasapi.equivalence.RejectedGraphUpdates;
+
+import com.metabroadcast.common.ids.NumberToShortStringCodec;
+import com.metabroadcast.common.ids.SubstitutionTableNumberCodec;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Shows how large the equivalence graphs written by the graph stores are, how often updates were
+ * rejected or had edges dropped for making graphs too large, and the most recent such
+ * updates.
+ */
+@Controller
+public class GraphSizeDebugController {
+
+    private static final ImmutableList<String> HISTOGRAMS = ImmutableList.of(
+            "graph.updated.histogram.size",
+            "graph.created.histogram.size"
+    );
+    private static final ImmutableList<String> METERS = ImmutableList.of(
+            "graph.size.meter.warn",
+            "graph.size.meter.reject",
+            "graph.size.meter.edgesDropped",
+            "graph.size.meter.droppedEdges"
+    );
+
+    private final MetricRegistry metricRegistry;
+    private final NumberToShortStringCodec lowercase;
+    private final Gson gson;
+
+    private GraphSizeDebugController(MetricRegistry metricRegistry) {
+        this.metricRegistry = checkNotNull(metricRegistry);
+        this.lowercase = SubstitutionTableNumberCodec.lowerCaseOnly();
+        this.gson = new GsonBuilder().setPrettyPrinting().create();
+    }
+
+    public static GraphSizeDebugController create(MetricRegistry metricRegistry) {
+        return new GraphSizeDebugController(metricRegistry);
+    }
+
+    @RequestMapping(value = "/system/debug/graph-sizes.json", method = RequestMethod.GET)
+    public void printGraphSizes(
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            HttpServletResponse response
+    ) throws Exception {
+        Map<String, Object> histograms = Maps.newTreeMap();
+        Map<String, Object> meters = Maps.newTreeMap();
+        Map<String, Object> rejectedUpdates = Maps.newTreeMap();
+
+        for (Map.Entry<String, Metric> metric : metricRegistry.getMetrics().entrySet()) {
+            String name = metric.getKey();
+            if (metric.getValue() instanceof Histogram && endsWithAny(name, HISTOGRAMS)) {
+                histograms.put(name, histogram((Histogram) metric.getValue()));
+            } else if (metric.getValue() instanceof Meter && endsWithAny(name, METERS)) {
+                meters.put(name, meter((Meter) metric.getValue()));
+            } else if (metric.getValue() instanceof RejectedGraphUpdates) {
+                rejectedUpdates.put(
+                        name,
+                        mostRecent((RejectedGraphUpdates) metric.getValue(), limit)
+                );
+            }
+        }
+
+        response.setContentType("application/json");
+        gson.toJson(
+                ImmutableMap.of(
+                        "histograms", histograms,
+                        "meters", meters,
+                        "rejected_updates", rejectedUpdates
+                ),
+                response.getWriter()
+        );
+    }
+
+    private static boolean endsWithAny(String name, ImmutableList<String> suffixes) {
+        return suffixes.stream().anyMatch(name::endsWith);
+    }
+
+    private static Map<String, Object> histogram(Histogram histogram) {
+        Snapshot snapshot = histogram.getSnapshot();
+        return ImmutableMap.<String, Object>builder()
+                .put("count", histogram.getCount())
+                .put("mean", snapshot.getMean())
+                .put("p50", snapshot.getMedian())
+                .put("p99", snapshot.get99thPercentile())
+                .put("max", snapshot.getMax())
+                .build();
+    }
+
+    private static Map<String, Object> meter(Meter meter) {
+        return ImmutableMap.of(
+                "count", meter.getCount(),
+                "one_minute_rate", meter.getOneMinuteRate()
+        );
+    }
+
+    private ImmutableList<Map<String, Object>> mostRecent(
+            RejectedGraphUpdates updates,
+            int limit
+    ) {
+        ImmutableList.Builder<Map<String, Object>> recent = ImmutableList.builder();
+        for (RejectedGraphUpdates.Rejected rejected : updates.mostRecent(limit)) {
+            recent.add(ImmutableMap.<String, Object>builder()
+                    .put("subject", encode(rejected.getSubject()))
+                    .put("asserted", encode(rejected.getAsserted()))
+                    .put("dropped_edges", encode(rejected.getDroppedEdges()))
+                    .put("graph_size", rejected.getGraphSize())
+                    .put("outcome", rejected.getOutcome().name())
+                    .put("time", rejected.getTime().toString())
+                    .build());
+        }
+        return recent.build();
+    }
+
+    private ImmutableList<String> encode(Iterable<Id> ids) {
+        ImmutableList.Builder<String> encoded = ImmutableList.builder();
+        for (Id id : ids) {
+            encoded.add(encode(id));
+        }
+        return encoded.build();
+    }
+
+    private String encode(Id id) {
+        return lowercase.encode(id.toBigInteger());
+    }
+}
@@ -0,0 +1,140 @@
+package org.atlasapi.system.debug;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.atlasapi.entity.Id;
+import org.atlasapi.locks.ContendedIds;
+
+import com.metabroadcast.common.ids.NumberToShortStringCodec;
+import com.metabroadcast.common.ids.SubstitutionTableNumberCodec;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Shows how contended the equivalence, equivalent content and equivalent schedule locks are: lock
+ * wait and hold times, how often locking had to be retried, and the ids most often found already
+ * locked.
+ */
+@Controller
+public class LockDebugController {
+
+    private static final ImmutableList<String> TIMERS = ImmutableList.of(
+            "timer.lockWait",
+            "timer.lockHold",
+            "timer.waitingLock",
+            "timer.holdingLock"
+    );
+    private static final ImmutableList<String> METERS = ImmutableList.of(
+            "meter.contended",
+            "lock.adjacents.meter.failure",
+            "lock.transitives.meter.failure",
+            "lock.retry.meter.timedOut"
+    );
+
+    private final MetricRegistry metricRegistry;
+    private final NumberToShortStringCodec lowercase;
+    private final Gson gson;
+
+    private LockDebugController(MetricRegistry metricRegistry) {
+        this.metricRegistry = checkNotNull(metricRegistry);
+        this.lowercase = SubstitutionTableNumberCodec.lowerCaseOnly();
+        this.gson = new GsonBuilder().setPrettyPrinting().create();
+    }
+
+    public static LockDebugController create(MetricRegistry metricRegistry) {
+        return new LockDebugController(metricRegistry);
+    }
+
+    @RequestMapping(value = "/system/debug/locks.json", method = RequestMethod.GET)
+    public void printLockContention(
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            HttpServletResponse response
+    ) throws Exception {
+        Map<String, Object> timers = Maps.newTreeMap();
+        Map<String, Object> meters = Maps.newTreeMap();
+        Map<String, Object> contendedIds = Maps.newTreeMap();
+
+        for (Map.Entry<String, Metric> metric : metricRegistry.getMetrics().entrySet()) {
+            String name = metric.getKey();
+            if (metric.getValue() instanceof Timer && endsWithAny(name, TIMERS)) {
+                timers.put(name, timer((Timer) metric.getValue()));
+            } else if (metric.getValue() instanceof Meter && endsWithAny(name, METERS)) {
+                meters.put(name, meter((Meter) metric.getValue()));
+            } else if (metric.getValue() instanceof ContendedIds) {
+                contendedIds.put(name, mostContended((ContendedIds<?>) metric.getValue(), limit));
+            }
+        }
+
+        response.setContentType("application/json");
+        gson.toJson(
+                ImmutableMap.of(
+                        "timers", timers,
+                        "meters", meters,
+                        "contended_ids", contendedIds
+                ),
+                response.getWriter()
+        );
+    }
+
+    private static boolean endsWithAny(String name, ImmutableList<String> suffixes) {
+        return suffixes.stream().anyMatch(name::endsWith);
+    }
+
+    private static Map<String, Object> timer(Timer timer) {
+        Snapshot snapshot = timer.getSnapshot();
+        return ImmutableMap.<String, Object>builder()
+                .put("count", timer.getCount())
+                .put("one_minute_rate", timer.getOneMinuteRate())
+                .put("mean_millis", millis(snapshot.getMean()))
+                .put("p50_millis", millis(snapshot.getMedian()))
+                .put("p99_millis", millis(snapshot.get99thPercentile()))
+                .put("max_millis", millis(snapshot.getMax()))
+                .build();
+    }
+
+    private static Map<String, Object> meter(Meter meter) {
+        return ImmutableMap.of(
+                "count", meter.getCount(),
+                "one_minute_rate", meter.getOneMinuteRate()
+        );
+    }
+
+    private static double millis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private ImmutableList<Map<String, Object>> mostContended(ContendedIds<?> ids, int limit) {
+        ImmutableList.Builder<Map<String, Object>> contended = ImmutableList.builder();
+        for (ContendedIds.Contended<?> id : ids.mostContended(limit)) {
+            contended.add(ImmutableMap.of(
+                    "id", encode(id.getId()),
+                    "count", id.getCount()
+            ));
+        }
+        return contended.build();
+    }
+
+    private String encode(Object id) {
+        return id instanceof Id
+               ? lowercase.encode(((Id) id).toBigInteger())
+               : String.valueOf(id);
+    }
+}